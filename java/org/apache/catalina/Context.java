@@ -797,6 +797,22 @@ public interface Context extends Container, ContextBind {
      */
     void setParallelAnnotationScanning(boolean parallelAnnotationScanning);
 
+    /**
+     * Returns the directory used to cache the results of scanning JARs for annotations.
+     *
+     * @return the cache directory or {@code null} if the results of scanning JARs are not cached
+     */
+    String getAnnotationScanCacheDirectory();
+
+    /**
+     * Set the directory used to cache the results of scanning JARs for annotations. Cache entries are keyed by the
+     * content of the JAR so the directory may be shared between web applications.
+     *
+     * @param annotationScanCacheDirectory the cache directory, relative paths are resolved against
+     *                                         {@code catalina.base}, or {@code null} to disable the cache
+     */
+    void setAnnotationScanCacheDirectory(String annotationScanCacheDirectory);
+
 
     // --------------------------------------------------------- Public Methods
 
@@ -250,6 +250,11 @@ public class Connector extends LifecycleMBeanBase {
      */
     protected int maxParameterCount = 1000;
 
+    /**
+     * Should request parameters be decoded when they are accessed rather than when they are parsed?
+     */
+    private boolean lazyParameterDecoding = false;
+
     private int maxPartCount = 50;
 
     private int maxPartHeaderSize = 512;
@@ -540,6 +545,28 @@ public class Connector extends LifecycleMBeanBase {
     }
 
 
+    /**
+     * Returns whether request parameters are decoded when they are accessed rather than when the request parameters
+     * are parsed.
+     *
+     * @return {@code true} if request parameters are decoded when accessed
+     */
+    public boolean getLazyParameterDecoding() {
+        return lazyParameterDecoding;
+    }
+
+
+    /**
+     * Configure whether request parameters are decoded when they are accessed rather than when the request parameters
+     * are parsed. Errors decoding a parameter will be reported when that parameter is accessed.
+     *
+     * @param lazyParameterDecoding {@code true} to decode request parameters when accessed
+     */
+    public void setLazyParameterDecoding(boolean lazyParameterDecoding) {
+        this.lazyParameterDecoding = lazyParameterDecoding;
+    }
+
+
     /**
      * Returns the maximum number of parts that will be accepted in a multipart request.
      * @return the maximum part count
@@ -826,6 +826,14 @@ public class OutputBuffer extends Writer {
             return;
         }
 
+        if (from.isDirect() && from.remaining() > bb.capacity() && isBlocking()) {
+            // Typically the content of a file mapped into memory. Pass it on
+            // as is to avoid copying the content into heap buffers.
+            realWriteBytes(from.slice());
+            from.position(from.limit());
+            return;
+        }
+
         int limit = bb.capacity();
         int fromLimit = from.limit();
         while (from.remaining() > limit) {
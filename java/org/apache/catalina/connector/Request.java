@@ -2894,6 +2894,7 @@ public class Request implements HttpServletRequest {
          */
         Parameters parameters = coyoteRequest.getParameters();
         parameters.setLimit(maxParameterCount);
+        parameters.setLazyDecoding(connector.getLazyParameterDecoding());
 
         // getCharacterEncoding() may have been overridden to search for
         // hidden form field containing request encoding
@@ -804,6 +804,8 @@ public class StandardContext extends ContainerBase implements Context, Notificat
 
     private boolean parallelAnnotationScanning = false;
 
+    private String annotationScanCacheDirectory = null;
+
     private int notFoundClassResourceCacheSize = 1000;
 
     private EncodedSolidusHandling encodedReverseSolidusHandling = EncodedSolidusHandling.DECODE;
@@ -1462,6 +1464,23 @@ public class StandardContext extends ContainerBase implements Context, Notificat
     }
 
 
+    @Override
+    public void setAnnotationScanCacheDirectory(String annotationScanCacheDirectory) {
+
+        String oldAnnotationScanCacheDirectory = this.annotationScanCacheDirectory;
+        this.annotationScanCacheDirectory = annotationScanCacheDirectory;
+        support.firePropertyChange("annotationScanCacheDirectory", oldAnnotationScanCacheDirectory,
+                this.annotationScanCacheDirectory);
+
+    }
+
+
+    @Override
+    public String getAnnotationScanCacheDirectory() {
+        return this.annotationScanCacheDirectory;
+    }
+
+
     /**
      * Return the locale to character set mapper for this context.
      *
@@ -31,9 +31,11 @@ import org.apache.catalina.LifecycleState;
 import org.apache.catalina.util.LifecycleMBeanBase;
 import org.apache.tomcat.util.res.StringManager;
 import org.apache.tomcat.util.threads.ResizableExecutor;
+import org.apache.tomcat.util.threads.RetryableQueue;
 import org.apache.tomcat.util.threads.TaskQueue;
 import org.apache.tomcat.util.threads.TaskThreadFactory;
 import org.apache.tomcat.util.threads.ThreadPoolExecutor;
+import org.apache.tomcat.util.threads.TransferTaskQueue;
 
 /**
  * Standard implementation of an {@link Executor} based on a Java thread pool.
@@ -91,13 +93,18 @@ public class StandardThreadExecutor extends LifecycleMBeanBase implements Execut
      */
     protected int maxQueueSize = Integer.MAX_VALUE;
 
+    /**
+     * Use a {@link TransferTaskQueue} rather than a {@link TaskQueue}
+     */
+    protected boolean useTransferQueue = false;
+
     /**
      * After a context is stopped, threads in the pool are renewed. To avoid renewing all threads at the same time, this
      * delay is observed between 2 threads being renewed.
      */
     protected long threadRenewalDelay = org.apache.tomcat.util.threads.Constants.DEFAULT_THREAD_RENEWAL_DELAY;
 
-    private TaskQueue taskqueue = null;
+    private RetryableQueue<Runnable> taskqueue = null;
 
     // ---------------------------------------------- Constructors
     /**
@@ -120,12 +127,21 @@ public class StandardThreadExecutor extends LifecycleMBeanBase implements Execut
     @Override
     protected void startInternal() throws LifecycleException {
 
-        taskqueue = new TaskQueue(maxQueueSize);
         TaskThreadFactory tf = new TaskThreadFactory(namePrefix, daemon, getThreadPriority());
-        executor = new ThreadPoolExecutor(getMinSpareThreads(), getMaxThreads(), maxIdleTime, TimeUnit.MILLISECONDS,
-                taskqueue, tf);
+        if (useTransferQueue) {
+            TransferTaskQueue queue = new TransferTaskQueue(maxQueueSize);
+            executor = new ThreadPoolExecutor(getMinSpareThreads(), getMaxThreads(), maxIdleTime,
+                    TimeUnit.MILLISECONDS, queue, tf);
+            queue.setParent(executor);
+            taskqueue = queue;
+        } else {
+            TaskQueue queue = new TaskQueue(maxQueueSize);
+            executor = new ThreadPoolExecutor(getMinSpareThreads(), getMaxThreads(), maxIdleTime,
+                    TimeUnit.MILLISECONDS, queue, tf);
+            queue.setParent(executor);
+            taskqueue = queue;
+        }
         executor.setThreadRenewalDelay(threadRenewalDelay);
-        taskqueue.setParent(executor);
 
         setState(LifecycleState.STARTING);
     }
@@ -315,6 +331,26 @@ public class StandardThreadExecutor extends LifecycleMBeanBase implements Execut
         return maxQueueSize;
     }
 
+    /**
+     * Should a {@link TransferTaskQueue} be used for queued tasks?
+     *
+     * @return {@code true} if a {@link TransferTaskQueue} is used, {@code false} if a {@link TaskQueue} is used
+     */
+    public boolean getUseTransferQueue() {
+        return useTransferQueue;
+    }
+
+    /**
+     * Configure the type of queue used for queued tasks. A {@link TransferTaskQueue} hands new tasks directly to idle
+     * threads and does not use locks. Changes take effect the next time the executor is started.
+     *
+     * @param useTransferQueue {@code true} to use a {@link TransferTaskQueue}, {@code false} to use a
+     *                             {@link TaskQueue}
+     */
+    public void setUseTransferQueue(boolean useTransferQueue) {
+        this.useTransferQueue = useTransferQueue;
+    }
+
     /**
      * Return the thread renewal delay in milliseconds.
      *
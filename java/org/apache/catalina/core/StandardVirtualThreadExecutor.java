@@ -29,19 +29,27 @@ import org.apache.catalina.Executor;
 import org.apache.catalina.LifecycleException;
 import org.apache.catalina.LifecycleState;
 import org.apache.catalina.util.LifecycleMBeanBase;
+import org.apache.juli.logging.Log;
+import org.apache.juli.logging.LogFactory;
+import org.apache.tomcat.util.ExceptionUtils;
 import org.apache.tomcat.util.res.StringManager;
 import org.apache.tomcat.util.threads.VirtualThreadExecutor;
+import org.apache.tomcat.util.threads.VirtualThreadPinningMonitor;
 
 /**
  * An executor that uses a new virtual thread for each task.
  */
 public class StandardVirtualThreadExecutor extends LifecycleMBeanBase implements Executor {
 
+    private static final Log log = LogFactory.getLog(StandardVirtualThreadExecutor.class);
     private static final StringManager sm = StringManager.getManager(StandardVirtualThreadExecutor.class);
 
     private String name;
-    private java.util.concurrent.ExecutorService executor;
+    private VirtualThreadExecutor executor;
     private String namePrefix = "tomcat-virt-";
+    private int maxConcurrency = -1;
+    private long pinningThreshold = -1;
+    private VirtualThreadPinningMonitor pinningMonitor;
 
     /**
      * Default constructor required for the Digester.
@@ -81,6 +89,95 @@ public class StandardVirtualThreadExecutor extends LifecycleMBeanBase implements
         this.namePrefix = namePrefix;
     }
 
+    /**
+     * Return the maximum number of tasks that may execute concurrently.
+     *
+     * @return the maximum concurrency or a value of zero or less if there is no limit
+     */
+    public int getMaxConcurrency() {
+        return maxConcurrency;
+    }
+
+    /**
+     * Set the maximum number of tasks that may execute concurrently. Additional tasks wait until a running task
+     * completes. Changes take effect the next time the executor is started.
+     *
+     * @param maxConcurrency the maximum concurrency. Zero or less means no limit
+     */
+    public void setMaxConcurrency(int maxConcurrency) {
+        this.maxConcurrency = maxConcurrency;
+    }
+
+    /**
+     * Return the threshold used to monitor virtual threads that block while pinned to their carrier thread.
+     *
+     * @return the threshold in milliseconds or a negative value if monitoring is disabled
+     */
+    public long getPinningThreshold() {
+        return pinningThreshold;
+    }
+
+    /**
+     * Set the minimum time a virtual thread must block while pinned to its carrier thread for the event to be recorded.
+     * Changes take effect the next time the executor is started.
+     *
+     * @param pinningThreshold the threshold in milliseconds. A negative value disables monitoring
+     */
+    public void setPinningThreshold(long pinningThreshold) {
+        this.pinningThreshold = pinningThreshold;
+    }
+
+    /**
+     * @return the number of tasks currently executing
+     */
+    public int getActiveCount() {
+        VirtualThreadExecutor executor = this.executor;
+        return (executor != null) ? executor.getActiveCount() : 0;
+    }
+
+    /**
+     * @return the number of tasks waiting to execute because the maximum concurrency has been reached
+     */
+    public int getWaitingCount() {
+        VirtualThreadExecutor executor = this.executor;
+        return (executor != null) ? executor.getWaitingCount() : 0;
+    }
+
+    /**
+     * @return the number of tasks that have completed execution
+     */
+    public long getCompletedTaskCount() {
+        VirtualThreadExecutor executor = this.executor;
+        return (executor != null) ? executor.getCompletedTaskCount() : 0;
+    }
+
+    /**
+     * @return the number of times a virtual thread has blocked while pinned to its carrier thread or -1 if monitoring
+     *             is disabled
+     */
+    public long getPinnedCount() {
+        VirtualThreadPinningMonitor pinningMonitor = this.pinningMonitor;
+        return (pinningMonitor != null) ? pinningMonitor.getPinnedCount() : -1;
+    }
+
+    /**
+     * @return the total time, in milliseconds, virtual threads have spent blocked while pinned to their carrier thread
+     *             or -1 if monitoring is disabled
+     */
+    public long getPinnedTime() {
+        VirtualThreadPinningMonitor pinningMonitor = this.pinningMonitor;
+        return (pinningMonitor != null) ? pinningMonitor.getPinnedTime() : -1;
+    }
+
+    /**
+     * @return the call sites at which virtual threads have blocked while pinned to their carrier thread, with the number
+     *             of occurrences, most frequent first
+     */
+    public String[] getPinningSites() {
+        VirtualThreadPinningMonitor pinningMonitor = this.pinningMonitor;
+        return (pinningMonitor != null) ? pinningMonitor.getPinningSites() : new String[0];
+    }
+
     @Override
     public void execute(Runnable command) {
         if (executor == null) {
@@ -93,7 +190,17 @@ public class StandardVirtualThreadExecutor extends LifecycleMBeanBase implements
 
     @Override
     protected void startInternal() throws LifecycleException {
-        executor = new VirtualThreadExecutor(getNamePrefix());
+        if (pinningThreshold >= 0 && !VirtualThreadPinningMonitor.isAvailable()) {
+            log.warn(sm.getString("standardVirtualThreadExecutor.pinningMonitorUnavailable", getName()));
+        } else if (pinningThreshold >= 0) {
+            try {
+                pinningMonitor = new VirtualThreadPinningMonitor(getNamePrefix(), pinningThreshold);
+            } catch (Throwable t) {
+                ExceptionUtils.handleThrowable(t);
+                log.warn(sm.getString("standardVirtualThreadExecutor.pinningMonitorFail", getName()), t);
+            }
+        }
+        executor = new VirtualThreadExecutor(getNamePrefix(), maxConcurrency);
         setState(LifecycleState.STARTING);
     }
 
@@ -104,6 +211,10 @@ public class StandardVirtualThreadExecutor extends LifecycleMBeanBase implements
             executor.shutdownNow();
         }
         executor = null;
+        if (pinningMonitor != null) {
+            pinningMonitor.close();
+        }
+        pinningMonitor = null;
     }
 
     @Override
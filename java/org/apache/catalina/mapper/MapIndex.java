@@ -0,0 +1,176 @@
+/*
+ *  Licensed to the Apache Software Foundation (ASF) under one or more
+ *  contributor license agreements.  See the NOTICE file distributed with
+ *  this work for additional information regarding copyright ownership.
+ *  The ASF licenses this file to You under the Apache License, Version 2.0
+ *  (the "License"); you may not use this file except in compliance with
+ *  the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package org.apache.catalina.mapper;
+
+import java.util.Arrays;
+
+import org.apache.catalina.mapper.Mapper.MapElement;
+import org.apache.tomcat.util.buf.Ascii;
+import org.apache.tomcat.util.buf.CharChunk;
+
+/**
+ * A hash based index of the names of a set of map elements. The cost of a look-up depends on the length of the name
+ * being looked up rather than on the number of elements. An index is immutable. Like the sorted arrays of map elements
+ * from which they are created, a new index is created whenever the set of elements changes.
+ *
+ * @param <E> The type of the indexed map elements
+ */
+final class MapIndex<E extends MapElement<?>> {
+
+    private final E[] table;
+    private final int[] hashes;
+    private final int mask;
+    private final boolean ignoreCase;
+
+
+    /**
+     * Create an index for the given map elements.
+     *
+     * @param elements   The map elements to index. Names are expected to be unique.
+     * @param ignoreCase Should look-ups ignore case?
+     */
+    MapIndex(E[] elements, boolean ignoreCase) {
+        int capacity = 1;
+        while (capacity < elements.length * 2) {
+            capacity <<= 1;
+        }
+        table = Arrays.copyOf(elements, capacity);
+        Arrays.fill(table, null);
+        hashes = new int[capacity];
+        mask = capacity - 1;
+        this.ignoreCase = ignoreCase;
+
+        for (E element : elements) {
+            String name = element.name;
+            int hash = 0;
+            for (int i = 0; i < name.length(); i++) {
+                hash = hash(hash, name.charAt(i));
+            }
+            int slot = slot(hash);
+            while (table[slot] != null) {
+                slot = (slot + 1) & mask;
+            }
+            table[slot] = element;
+            hashes[slot] = hash;
+        }
+    }
+
+
+    /**
+     * Find the map element with the given name.
+     *
+     * @param name The name to look up
+     *
+     * @return the map element or {@code null} if there is no map element with the given name
+     */
+    E find(CharChunk name) {
+        char[] buf = name.getBuffer();
+        int start = name.getStart();
+        int end = name.getEnd();
+        int hash = 0;
+        for (int i = start; i < end; i++) {
+            hash = hash(hash, buf[i]);
+        }
+        return find(buf, start, end, hash);
+    }
+
+
+    /**
+     * Find the map element with the longest name that matches the given path up to a segment boundary, i.e. the name
+     * is equal to the path or is followed in the path by {@code '/'}.
+     *
+     * @param path    The path to look up
+     * @param nesting The maximum number of {@code '/'} characters in the name of any of the indexed map elements
+     *
+     * @return the matching map element or {@code null} if no map element matches
+     */
+    E findLongestPrefix(CharChunk path, int nesting) {
+        char[] buf = path.getBuffer();
+        int start = path.getStart();
+        int end = path.getEnd();
+        E result = null;
+        int hash = 0;
+        int slashCount = 0;
+        for (int i = start; i < end; i++) {
+            char c = buf[i];
+            if (c == '/') {
+                E candidate = find(buf, start, i, hash);
+                if (candidate != null) {
+                    result = candidate;
+                }
+                // Longer prefixes contain too many '/' characters to match
+                if (++slashCount > nesting) {
+                    return result;
+                }
+            }
+            hash = hash(hash, c);
+        }
+        E candidate = find(buf, start, end, hash);
+        if (candidate != null) {
+            result = candidate;
+        }
+        return result;
+    }
+
+
+    private E find(char[] buf, int start, int end, int hash) {
+        int slot = slot(hash);
+        E element;
+        while ((element = table[slot]) != null) {
+            if (hashes[slot] == hash && matches(element.name, buf, start, end)) {
+                return element;
+            }
+            slot = (slot + 1) & mask;
+        }
+        return null;
+    }
+
+
+    private boolean matches(String name, char[] buf, int start, int end) {
+        int len = end - start;
+        if (name.length() != len) {
+            return false;
+        }
+        for (int i = 0; i < len; i++) {
+            char c = buf[start + i];
+            char n = name.charAt(i);
+            if (c != n && (!ignoreCase || toLower(c) != toLower(n))) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+
+    private int hash(int hash, char c) {
+        return 31 * hash + (ignoreCase ? toLower(c) : c);
+    }
+
+
+    private int slot(int hash) {
+        return (hash ^ (hash >>> 16)) & mask;
+    }
+
+
+    private static int toLower(char c) {
+        if (c > 0xFF) {
+            return Character.toLowerCase(c);
+        } else {
+            return Ascii.toLower(c);
+        }
+    }
+}
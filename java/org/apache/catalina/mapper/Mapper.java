@@ -34,7 +34,6 @@ import org.apache.catalina.WebResourceRoot;
 import org.apache.catalina.Wrapper;
 import org.apache.juli.logging.Log;
 import org.apache.juli.logging.LogFactory;
-import org.apache.tomcat.util.buf.Ascii;
 import org.apache.tomcat.util.buf.CharChunk;
 import org.apache.tomcat.util.buf.MessageBytes;
 import org.apache.tomcat.util.res.StringManager;
@@ -77,6 +76,13 @@ public final class Mapper {
     volatile MappedHost[] hosts = new MappedHost[0];
 
 
+    /**
+     * Index of the virtual host names (including aliases) used when mapping requests. Always updated when
+     * {@link #hosts} is updated.
+     */
+    private volatile MapIndex<MappedHost> hostIndex = new MapIndex<>(hosts, true);
+
+
     /**
      * Default host name.
      */
@@ -119,7 +125,7 @@ public final class Mapper {
         MappedHost[] newHosts = new MappedHost[hosts.length + 1];
         MappedHost newHost = new MappedHost(name, host);
         if (insertMap(hosts, newHosts, newHost)) {
-            hosts = newHosts;
+            setHosts(newHosts);
             if (newHost.name.equals(defaultHostName)) {
                 defaultHost = newHost;
             }
@@ -174,7 +180,7 @@ public final class Mapper {
                 newHosts[j++] = newHosts[i];
             }
         }
-        hosts = Arrays.copyOf(newHosts, j);
+        setHosts(Arrays.copyOf(newHosts, j));
     }
 
     /**
@@ -200,7 +206,7 @@ public final class Mapper {
     private synchronized boolean addHostAliasImpl(MappedHost newAlias) {
         MappedHost[] newHosts = new MappedHost[hosts.length + 1];
         if (insertMap(hosts, newHosts, newAlias)) {
-            hosts = newHosts;
+            setHosts(newHosts);
             if (newAlias.name.equals(defaultHostName)) {
                 defaultHost = newAlias;
             }
@@ -239,12 +245,17 @@ public final class Mapper {
         }
         MappedHost[] newHosts = new MappedHost[hosts.length - 1];
         if (removeMap(hosts, newHosts, alias)) {
-            hosts = newHosts;
+            setHosts(newHosts);
             hostMapping.getRealHost().removeAlias(hostMapping);
         }
 
     }
 
+    private void setHosts(MappedHost[] newHosts) {
+        hostIndex = new MapIndex<>(newHosts, true);
+        hosts = newHosts;
+    }
+
     /**
      * Replace {@link MappedHost#contextList} field in <code>realHost</code> and all its aliases with a new value.
      */
@@ -739,8 +750,8 @@ public final class Mapper {
         }
 
         // Virtual host mapping
-        MappedHost[] hosts = this.hosts;
-        MappedHost mappedHost = exactFindIgnoreCase(hosts, host);
+        MapIndex<MappedHost> hostIndex = this.hostIndex;
+        MappedHost mappedHost = hostIndex.find(host);
         if (mappedHost == null) {
             // Note: Internally, the Mapper does not use the leading * on a
             // wildcard host. This is to allow this shortcut.
@@ -749,7 +760,7 @@ public final class Mapper {
                 int start = host.getStart();
                 try {
                     host.setStart(firstDot + start);
-                    mappedHost = exactFindIgnoreCase(hosts, host);
+                    mappedHost = hostIndex.find(host);
                 } finally {
                     // Make absolutely sure this gets reset
                     host.setStart(start);
@@ -773,45 +784,7 @@ public final class Mapper {
 
         // Context mapping
         ContextList contextList = mappedHost.contextList;
-        MappedContext[] contexts = contextList.contexts;
-        int pos = find(contexts, uri);
-        if (pos == -1) {
-            return;
-        }
-
-        int lastSlash = -1;
-        int uriEnd = uri.getEnd();
-        boolean found = false;
-        MappedContext context = null;
-        while (pos >= 0) {
-            context = contexts[pos];
-            if (uri.startsWith(context.name)) {
-                int length = context.name.length();
-                if (uri.getLength() == length) {
-                    found = true;
-                    break;
-                } else if (uri.startsWithIgnoreCase("/", length)) {
-                    found = true;
-                    break;
-                }
-            }
-            if (lastSlash == -1) {
-                lastSlash = nthSlash(uri, contextList.nesting + 1);
-            } else {
-                lastSlash = lastSlash(uri);
-            }
-            uri.setEnd(lastSlash);
-            pos = find(contexts, uri);
-        }
-        uri.setEnd(uriEnd);
-
-        if (!found) {
-            if (contexts[0].name.isEmpty()) {
-                context = contexts[0];
-            } else {
-                context = null;
-            }
-        }
+        MappedContext context = contextList.index.findLongestPrefix(uri, contextList.nesting);
         if (context == null) {
             return;
         }
@@ -1197,59 +1170,6 @@ public final class Mapper {
 
     }
 
-    /**
-     * Find a map element given its name in a sorted array of map elements. This will return the index for the closest
-     * inferior or equal item in the given array.
-     */
-    private static <T> int findIgnoreCase(MapElement<T>[] map, CharChunk name) {
-        return findIgnoreCase(map, name, name.getStart(), name.getEnd());
-    }
-
-
-    /**
-     * Find a map element given its name in a sorted array of map elements. This will return the index for the closest
-     * inferior or equal item in the given array.
-     */
-    private static <T> int findIgnoreCase(MapElement<T>[] map, CharChunk name, int start, int end) {
-
-        int a = 0;
-        int b = map.length - 1;
-
-        // Special cases: -1 and 0
-        if (b == -1) {
-            return -1;
-        }
-        if (compareIgnoreCase(name, start, end, map[0].name) < 0) {
-            return -1;
-        }
-        if (b == 0) {
-            return 0;
-        }
-
-        int i;
-        while (true) {
-            i = (b + a) >>> 1;
-            int result = compareIgnoreCase(name, start, end, map[i].name);
-            if (result == 1) {
-                a = i;
-            } else if (result == 0) {
-                return i;
-            } else {
-                b = i;
-            }
-            if ((b - a) == 1) {
-                int result2 = compareIgnoreCase(name, start, end, map[b].name);
-                if (result2 < 0) {
-                    return a;
-                } else {
-                    return b;
-                }
-            }
-        }
-
-    }
-
-
     /**
      * Find a map element given its name in a sorted array of map elements. This will return the index for the closest
      * inferior or equal item in the given array.
@@ -1329,24 +1249,6 @@ public final class Mapper {
         return null;
     }
 
-    /**
-     * Find a map element given its name in a sorted array of map elements. This will return the element that you were
-     * searching for. Otherwise it will return <code>null</code>.
-     *
-     * @see #findIgnoreCase(MapElement[], CharChunk)
-     */
-    private static <T, E extends MapElement<T>> E exactFindIgnoreCase(E[] map, CharChunk name) {
-        int pos = findIgnoreCase(map, name);
-        if (pos >= 0) {
-            E result = map[pos];
-            if (name.equalsIgnoreCase(result.name)) {
-                return result;
-            }
-        }
-        return null;
-    }
-
-
     /**
      * Compare given char chunk with String. Return -1, 0 or +1 if inferior, equal, or superior to the String.
      */
@@ -1378,50 +1280,6 @@ public final class Mapper {
     }
 
 
-    /**
-     * Compare given char chunk with String ignoring case. Return -1, 0 or +1 if inferior, equal, or superior to the
-     * String.
-     */
-    private static int compareIgnoreCase(CharChunk name, int start, int end, String compareTo) {
-        int result = 0;
-        char[] c = name.getBuffer();
-        int compareLen = compareTo.length();
-        int len = compareLen;
-        if ((end - start) < len) {
-            len = end - start;
-        }
-        for (int i = 0; (i < len) && (result == 0); i++) {
-            char cName = c[i + start];
-            char cCompare = compareTo.charAt(i);
-            int nameLower;
-            int compareLower;
-            if (cName > 0xFF) {
-                nameLower = Character.toLowerCase(cName);
-            } else {
-                nameLower = Ascii.toLower(cName);
-            }
-            if (cCompare > 0xFF) {
-                compareLower = Character.toLowerCase(cCompare);
-            } else {
-                compareLower = Ascii.toLower(compareTo.charAt(i));
-            }
-            if (nameLower > compareLower) {
-                result = 1;
-            } else if (nameLower < compareLower) {
-                result = -1;
-            }
-        }
-        if (result == 0) {
-            if (compareLen > (end - start)) {
-                result = -1;
-            } else if (compareLen < (end - start)) {
-                result = 1;
-            }
-        }
-        return result;
-    }
-
-
     /**
      * Find the position of the last slash in the given char chunk.
      */
@@ -1681,6 +1539,10 @@ public final class Mapper {
          * The nesting level.
          */
         public final int nesting;
+        /**
+         * The index of the context paths.
+         */
+        private final MapIndex<MappedContext> index;
 
         /**
          * Default constructor.
@@ -1698,6 +1560,7 @@ public final class Mapper {
         private ContextList(MappedContext[] contexts, int nesting) {
             this.contexts = contexts;
             this.nesting = nesting;
+            this.index = new MapIndex<>(contexts, false);
         }
 
         /**
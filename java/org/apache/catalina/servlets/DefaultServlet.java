@@ -34,6 +34,7 @@ import java.io.Serializable;
 import java.io.StringReader;
 import java.io.StringWriter;
 import java.io.UnsupportedEncodingException;
+import java.nio.ByteBuffer;
 import java.nio.charset.Charset;
 import java.nio.charset.StandardCharsets;
 import java.util.ArrayList;
@@ -74,7 +75,10 @@ import org.apache.catalina.util.IOTools;
 import org.apache.catalina.util.ServerInfo;
 import org.apache.catalina.util.URLEncoder;
 import org.apache.catalina.webresources.CachedResource;
+import org.apache.catalina.webresources.CompressedResource;
+import org.apache.catalina.webresources.MappedContent;
 import org.apache.tomcat.util.buf.B2CConverter;
+import org.apache.tomcat.util.buf.StringUtils;
 import org.apache.tomcat.util.http.FastHttpDateFormat;
 import org.apache.tomcat.util.http.Method;
 import org.apache.tomcat.util.http.ResponseUtil;
@@ -162,6 +166,11 @@ public class DefaultServlet extends HttpServlet {
      */
     protected static final int BUFFER_SIZE = 4096;
 
+    /*
+     * Maximum size of a single write when writing content mapped into memory.
+     */
+    private static final int MAPPED_WRITE_SIZE = 64 * 1024;
+
 
     // ----------------------------------------------------- Instance Variables
 
@@ -195,6 +204,23 @@ public class DefaultServlet extends HttpServlet {
      */
     protected CompressionFormat[] compressionFormats;
 
+    /*
+     * Used when selecting the content encoding for a compressed variant created on demand. The extension is not used.
+     */
+    private static final CompressionFormat GZIP_FORMAT = new CompressionFormat(".gz", "gzip");
+
+    /**
+     * Should compressed variants of resources be created and cached for clients that accept a compressed response?
+     * Only used if a precompressed version of the resource is not available.
+     */
+    protected boolean compressResources = false;
+
+    /**
+     * MIME types, matched as prefixes, of the resources for which compressed variants will be created.
+     */
+    protected String[] compressibleMimeTypes = { "text/html", "text/xml", "text/plain", "text/css", "text/javascript",
+            "application/javascript", "application/json", "application/xml", "image/svg+xml" };
+
     /**
      * The output buffer size to use when serving resources.
      */
@@ -322,6 +348,12 @@ public class DefaultServlet extends HttpServlet {
         compressionFormats = parseCompressionFormats(getServletConfig().getInitParameter("precompressed"),
                 getServletConfig().getInitParameter("gzip"));
 
+        compressResources = Boolean.parseBoolean(getServletConfig().getInitParameter("compressResources"));
+        if (getServletConfig().getInitParameter("compressibleMimeType") != null) {
+            compressibleMimeTypes =
+                    StringUtils.splitCommaSeparated(getServletConfig().getInitParameter("compressibleMimeType"));
+        }
+
         if (getServletConfig().getInitParameter("sendfileSize") != null) {
             sendfileSize = Integer.parseInt(getServletConfig().getInitParameter("sendfileSize")) * 1024;
         }
@@ -991,6 +1023,43 @@ public class DefaultServlet extends HttpServlet {
             }
         }
 
+        // Otherwise, serve a cached compressed variant of the file if possible
+        if (compressResources && !usingPrecompressedVersion && !included && resource.isFile() &&
+                resource instanceof CachedResource && isCompressible(contentType)) {
+            ResponseUtil.addVaryFieldName(response, "accept-encoding");
+            PrecompressedResource bestResource =
+                    getBestPrecompressedResource(request, List.of(new PrecompressedResource(null, GZIP_FORMAT)));
+            if (bestResource != null) {
+                CompressedResource compressedResource =
+                        ((CachedResource) resource).leaseCompressedResource(bestResource.format.encoding);
+                if (compressedResource != null) {
+                    response.addHeader("Content-Encoding", bestResource.format.encoding);
+                    try {
+                        doServeResource(request, response, serveContent, inputEncoding, path, compressedResource,
+                                isError, included, contentType, eTag, lastModifiedHttp, true);
+                    } finally {
+                        compressedResource.release();
+                    }
+                    return;
+                }
+            }
+        }
+
+        doServeResource(request, response, serveContent, inputEncoding, path, resource, isError, included,
+                contentType, eTag, lastModifiedHttp, usingPrecompressedVersion);
+    }
+
+
+    /*
+     * Serve the resource once the conditional headers have been checked. The resource may be a precompressed or
+     * compressed variant of the requested resource in which case eTag and lastModifiedHttp are those of the requested
+     * resource.
+     */
+    private void doServeResource(HttpServletRequest request, HttpServletResponse response, boolean serveContent,
+            String inputEncoding, String path, WebResource resource, boolean isError, boolean included,
+            String contentType, String eTag, String lastModifiedHttp, boolean usingPrecompressedVersion)
+            throws IOException, ServletException {
+
         Ranges ranges = FULL;
         long contentLength = -1L;
 
@@ -1184,9 +1253,24 @@ public class DefaultServlet extends HttpServlet {
                                     resourceBody = resource.getContent();
                                 }
                                 if (resourceBody == null) {
-                                    // Resource content not directly available,
-                                    // use InputStream
-                                    renderResult = resource.getInputStream();
+                                    MappedContent mappedContent = leaseMappedContent(resource);
+                                    if (mappedContent == null) {
+                                        // Resource content not directly
+                                        // available, use InputStream
+                                        renderResult = resource.getInputStream();
+                                    } else {
+                                        // Use the content mapped into memory
+                                        IOException exception;
+                                        try {
+                                            exception = copyNoThrow(mappedContent, ostream, 0,
+                                                    mappedContent.getSize() - 1);
+                                        } finally {
+                                            mappedContent.release();
+                                        }
+                                        if (exception != null) {
+                                            throw exception;
+                                        }
+                                    }
                                 } else {
                                     // Use the resource content directly
                                     ostream.write(resourceBody);
@@ -1442,6 +1526,18 @@ public class DefaultServlet extends HttpServlet {
         }
     }
 
+    private boolean isCompressible(String contentType) {
+        if (contentType == null) {
+            return false;
+        }
+        for (String compressibleMimeType : compressibleMimeTypes) {
+            if (contentType.startsWith(compressibleMimeType)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
     private boolean pathEndsWithCompressedExtension(String path) {
         for (CompressionFormat format : compressionFormats) {
             if (path.endsWith(format.extension)) {
@@ -2620,6 +2716,20 @@ public class DefaultServlet extends HttpServlet {
     protected void copy(WebResource resource, long length, ServletOutputStream ostream, Ranges.Entry range)
             throws IOException {
 
+        MappedContent mappedContent = leaseMappedContent(resource);
+        if (mappedContent != null) {
+            IOException exception;
+            try {
+                exception = copyNoThrow(mappedContent, ostream, getStart(range, length), getEnd(range, length));
+            } finally {
+                mappedContent.release();
+            }
+            if (exception != null) {
+                throw exception;
+            }
+            return;
+        }
+
         InputStream resourceInputStream = resource.getInputStream();
         InputStream istream = new BufferedInputStream(resourceInputStream, input);
         IOException exception = copyNoThrow(istream, ostream, getStart(range, length), getEnd(range, length));
@@ -2651,26 +2761,33 @@ public class DefaultServlet extends HttpServlet {
 
         IOException exception = null;
 
-        for (Ranges.Entry range : ranges.getEntries()) {
-            if (exception != null) {
-                break;
-            }
-            InputStream resourceInputStream = resource.getInputStream();
-            try (InputStream istream = new BufferedInputStream(resourceInputStream, input)) {
-
-                // Writing MIME header.
-                ostream.println();
-                ostream.println("--" + mimeSeparation);
-                if (contentType != null) {
-                    ostream.println("Content-Type: " + contentType);
+        MappedContent mappedContent = leaseMappedContent(resource);
+        try {
+            for (Ranges.Entry range : ranges.getEntries()) {
+                if (exception != null) {
+                    break;
+                }
+                if (mappedContent != null) {
+                    long start = getStart(range, length);
+                    long end = getEnd(range, length);
+                    writeRangeHeader(ostream, contentType, start, end, length);
+                    exception = copyNoThrow(mappedContent, ostream, start, end);
+                    continue;
                 }
-                long start = getStart(range, length);
-                long end = getEnd(range, length);
-                ostream.println("Content-Range: bytes " + start + "-" + end + "/" + length);
-                ostream.println();
+                InputStream resourceInputStream = resource.getInputStream();
+                try (InputStream istream = new BufferedInputStream(resourceInputStream, input)) {
 
-                // Printing content
-                exception = copyNoThrow(istream, ostream, start, end);
+                    long start = getStart(range, length);
+                    long end = getEnd(range, length);
+                    writeRangeHeader(ostream, contentType, start, end, length);
+
+                    // Printing content
+                    exception = copyNoThrow(istream, ostream, start, end);
+                }
+            }
+        } finally {
+            if (mappedContent != null) {
+                mappedContent.release();
             }
         }
 
@@ -2685,6 +2802,67 @@ public class DefaultServlet extends HttpServlet {
     }
 
 
+    private void writeRangeHeader(ServletOutputStream ostream, String contentType, long start, long end, long length)
+            throws IOException {
+        // Writing MIME header.
+        ostream.println();
+        ostream.println("--" + mimeSeparation);
+        if (contentType != null) {
+            ostream.println("Content-Type: " + contentType);
+        }
+        ostream.println("Content-Range: bytes " + start + "-" + end + "/" + length);
+        ostream.println();
+    }
+
+
+    /*
+     * Obtain the content of the resource mapped into memory, if available. The caller must release the returned mapped
+     * content.
+     */
+    private static MappedContent leaseMappedContent(WebResource resource) {
+        if (resource instanceof CachedResource) {
+            return ((CachedResource) resource).leaseMappedContent();
+        }
+        return null;
+    }
+
+
+    /**
+     * Copy the selected contents of the given content mapped into memory to the specified output stream and return,
+     * rather than throw, any IOException that occurs. The content is written directly from the mapped buffer so it
+     * does not have to be read into a heap buffer first.
+     *
+     * @param mappedContent The mapped content to read from
+     * @param ostream       The output stream to write to
+     * @param start         Start of the range which will be copied
+     * @param end           End of the range which will be copied
+     *
+     * @return Exception which occurred during processing
+     */
+    private IOException copyNoThrow(MappedContent mappedContent, ServletOutputStream ostream, long start, long end) {
+
+        if (debug > 10) {
+            log("Serving mapped bytes: " + start + "-" + end);
+        }
+
+        ByteBuffer buffer = mappedContent.getBuffer();
+        int pos = (int) start;
+        int last = (int) end + 1;
+        try {
+            while (pos < last) {
+                // Limit the size of each write so output streams that have to
+                // copy the content don't need to allocate a large array
+                int len = Math.min(last - pos, MAPPED_WRITE_SIZE);
+                ostream.write(buffer.slice(pos, len));
+                pos += len;
+            }
+        } catch (IOException ioe) {
+            return ioe;
+        }
+        return null;
+    }
+
+
     /**
      * Copy the contents of the specified input stream to the specified output stream and return, rather than throw, any
      * IOException that occurs.
@@ -0,0 +1,317 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.catalina.startup;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.URI;
+import java.net.URL;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.apache.juli.logging.Log;
+import org.apache.juli.logging.LogFactory;
+import org.apache.tomcat.util.bcel.classfile.AnnotationEntry;
+import org.apache.tomcat.util.bcel.classfile.JavaClass;
+import org.apache.tomcat.util.buf.HexUtils;
+import org.apache.tomcat.util.res.StringManager;
+
+/**
+ * A persistent cache of the results of scanning JARs for annotations. Entries are keyed by a hash of the JAR content so
+ * the cache directory may be shared between web applications and entries remain valid across restarts and
+ * redeployments for as long as the JAR is unchanged. Each entry records, for every class in the JAR, the information
+ * required to check the class against {@link jakarta.servlet.annotation.HandlesTypes} and whether the class has any
+ * annotations that need to be processed so the class file only needs to be parsed again if the annotations are
+ * required. Entries that have not been used for {@link #MAX_UNUSED_DAYS} days are removed by {@link #prune()}.
+ */
+final class AnnotationScanCache {
+
+    private static final Log log = LogFactory.getLog(AnnotationScanCache.class);
+    private static final StringManager sm = StringManager.getManager(Constants.Package);
+
+    // Change the version whenever the format of the entries changes
+    private static final int MAGIC = 0x54415343;
+    private static final int VERSION = 1;
+    private static final String SUFFIX = ".scan";
+    private static final String TMP_SUFFIX = ".tmp";
+
+    static final int MAX_UNUSED_DAYS = 30;
+    private static final long MAX_UNUSED = TimeUnit.DAYS.toMillis(MAX_UNUSED_DAYS);
+    // Only update the last modified time of an entry when it is used if it has not been updated recently
+    private static final long TOUCH_INTERVAL = TimeUnit.DAYS.toMillis(1);
+
+    private final File directory;
+
+    private final AtomicInteger hits = new AtomicInteger();
+    private final AtomicInteger misses = new AtomicInteger();
+
+
+    AnnotationScanCache(File directory) {
+        this.directory = directory;
+    }
+
+
+    /**
+     * @return the number of JARs found in the cache
+     */
+    int getHits() {
+        return hits.get();
+    }
+
+
+    /**
+     * @return the number of JARs that had to be scanned
+     */
+    int getMisses() {
+        return misses.get();
+    }
+
+
+    /**
+     * Calculate the key for the cache entry for the given JAR.
+     *
+     * @param url the URL of the JAR
+     *
+     * @return the key or {@code null} if the JAR cannot be cached
+     */
+    String getKey(URL url) {
+        String s = url.toString();
+        if (s.startsWith("jar:") && s.endsWith("!/")) {
+            s = s.substring(4, s.length() - 2);
+        }
+        if (!s.endsWith(".jar")) {
+            return null;
+        }
+        try (InputStream is = URI.create(s).toURL().openStream()) {
+            MessageDigest digest = MessageDigest.getInstance("SHA-256");
+            byte[] buf = new byte[8192];
+            int read;
+            while ((read = is.read(buf)) > 0) {
+                digest.update(buf, 0, read);
+            }
+            return HexUtils.toHexString(digest.digest());
+        } catch (IOException | IllegalArgumentException | NoSuchAlgorithmException e) {
+            log.warn(sm.getString("annotationScanCache.hashFail", url), e);
+            return null;
+        }
+    }
+
+
+    /**
+     * Obtain the cached scan results for a JAR.
+     *
+     * @param key the key for the JAR
+     *
+     * @return the scanned classes or {@code null} if the JAR is not in the cache
+     */
+    List<ScannedClass> load(String key) {
+        File file = new File(directory, key + SUFFIX);
+        if (!file.isFile()) {
+            misses.incrementAndGet();
+            return null;
+        }
+        try (DataInputStream in = new DataInputStream(new BufferedInputStream(Files.newInputStream(file.toPath())))) {
+            if (in.readInt() != MAGIC || in.readInt() != VERSION) {
+                misses.incrementAndGet();
+                return null;
+            }
+            int count = in.readInt();
+            List<ScannedClass> result = new ArrayList<>(count);
+            for (int i = 0; i < count; i++) {
+                String entryName = in.readUTF();
+                String className = in.readUTF();
+                String superclassName = in.readUTF();
+                int accessFlags = in.readInt();
+                boolean annotated = in.readBoolean();
+                String[] interfaceNames = readStrings(in);
+                String[] annotationTypes = readStrings(in);
+                result.add(new ScannedClass(entryName, className, superclassName, accessFlags, interfaceNames,
+                        annotationTypes, annotated));
+            }
+            hits.incrementAndGet();
+            touch(file);
+            return result;
+        } catch (IOException ioe) {
+            log.warn(sm.getString("annotationScanCache.loadFail", file.getAbsolutePath()), ioe);
+            misses.incrementAndGet();
+            return null;
+        }
+    }
+
+
+    /**
+     * Add the scan results for a JAR to the cache.
+     *
+     * @param key     the key for the JAR
+     * @param classes the scanned classes
+     */
+    void store(String key, List<ScannedClass> classes) {
+        Path tmp = null;
+        try {
+            Files.createDirectories(directory.toPath());
+            // Write to a temporary file first so other readers never see a partial entry
+            tmp = Files.createTempFile(directory.toPath(), key, TMP_SUFFIX);
+            try (OutputStream os = Files.newOutputStream(tmp);
+                    DataOutputStream out = new DataOutputStream(new BufferedOutputStream(os))) {
+                out.writeInt(MAGIC);
+                out.writeInt(VERSION);
+                out.writeInt(classes.size());
+                for (ScannedClass clazz : classes) {
+                    out.writeUTF(clazz.entryName);
+                    out.writeUTF(clazz.className);
+                    out.writeUTF(clazz.superclassName);
+                    out.writeInt(clazz.accessFlags);
+                    out.writeBoolean(clazz.annotated);
+                    writeStrings(out, clazz.interfaceNames);
+                    writeStrings(out, clazz.annotationTypes);
+                }
+            }
+            Files.move(tmp, new File(directory, key + SUFFIX).toPath(), StandardCopyOption.REPLACE_EXISTING,
+                    StandardCopyOption.ATOMIC_MOVE);
+            tmp = null;
+        } catch (IOException ioe) {
+            log.warn(sm.getString("annotationScanCache.storeFail", key, directory.getAbsolutePath()), ioe);
+        } finally {
+            if (tmp != null) {
+                try {
+                    Files.deleteIfExists(tmp);
+                } catch (IOException ignore) {
+                    // Ignore
+                }
+            }
+        }
+    }
+
+
+    /**
+     * Remove entries that have not been used for {@link #MAX_UNUSED_DAYS} days, such as those for JARs that have
+     * since been upgraded or removed, along with any temporary files left behind by failed writes.
+     */
+    void prune() {
+        File[] files = directory.listFiles();
+        if (files == null) {
+            return;
+        }
+        long now = System.currentTimeMillis();
+        for (File file : files) {
+            String name = file.getName();
+            if (name.endsWith(SUFFIX) && now - file.lastModified() > MAX_UNUSED ||
+                    name.endsWith(TMP_SUFFIX) && now - file.lastModified() > TOUCH_INTERVAL) {
+                if (file.delete()) {
+                    if (log.isDebugEnabled()) {
+                        log.debug(sm.getString("annotationScanCache.pruned", file.getAbsolutePath()));
+                    }
+                } else if (file.exists()) {
+                    log.warn(sm.getString("annotationScanCache.deleteFail", file.getAbsolutePath()));
+                }
+            }
+        }
+    }
+
+
+    /*
+     * Entries are pruned based on the last modified time so update it when an entry is used.
+     */
+    private static void touch(File file) {
+        long now = System.currentTimeMillis();
+        if (now - file.lastModified() > TOUCH_INTERVAL && !file.setLastModified(now)) {
+            log.debug(sm.getString("annotationScanCache.touchFail", file.getAbsolutePath()));
+        }
+    }
+
+
+    private static String[] readStrings(DataInputStream in) throws IOException {
+        int count = in.readInt();
+        String[] result = new String[count];
+        for (int i = 0; i < count; i++) {
+            result[i] = in.readUTF();
+        }
+        return result;
+    }
+
+
+    private static void writeStrings(DataOutputStream out, String[] values) throws IOException {
+        out.writeInt(values.length);
+        for (String value : values) {
+            out.writeUTF(value);
+        }
+    }
+
+
+    /**
+     * The information retained from scanning a single class.
+     */
+    static final class ScannedClass {
+
+        private static final String[] EMPTY = new String[0];
+
+        final String entryName;
+        final String className;
+        final String superclassName;
+        final int accessFlags;
+        final String[] interfaceNames;
+        final String[] annotationTypes;
+        // Does the class have any class level annotations that may need to be processed
+        final boolean annotated;
+
+        ScannedClass(String entryName, JavaClass javaClass) {
+            this.entryName = entryName;
+            className = javaClass.getClassName();
+            superclassName = javaClass.getSuperclassName();
+            accessFlags = javaClass.getAccessFlags();
+            interfaceNames = javaClass.getInterfaceNames();
+            annotationTypes = getAnnotationTypes(javaClass.getAllAnnotationEntries());
+            AnnotationEntry[] classEntries = javaClass.getAnnotationEntries();
+            annotated = classEntries != null && classEntries.length > 0;
+        }
+
+        ScannedClass(String entryName, String className, String superclassName, int accessFlags,
+                String[] interfaceNames, String[] annotationTypes, boolean annotated) {
+            this.entryName = entryName;
+            this.className = className;
+            this.superclassName = superclassName;
+            this.accessFlags = accessFlags;
+            this.interfaceNames = interfaceNames;
+            this.annotationTypes = annotationTypes;
+            this.annotated = annotated;
+        }
+
+        static String[] getAnnotationTypes(AnnotationEntry[] entries) {
+            if (entries == null || entries.length == 0) {
+                return EMPTY;
+            }
+            String[] annotationTypes = new String[entries.length];
+            for (int i = 0; i < entries.length; i++) {
+                annotationTypes[i] = entries[i].getAnnotationType();
+            }
+            return annotationTypes;
+        }
+    }
+}
@@ -240,6 +240,11 @@ public class ContextConfig implements LifecycleListener {
      */
     protected boolean handlesTypesNonAnnotations = false;
 
+    /**
+     * The cache of JAR scan results used while scanning for annotations, if any.
+     */
+    private AnnotationScanCache annotationScanCache = null;
+
 
     // ------------------------------------------------------------- Properties
 
@@ -1434,6 +1439,16 @@ public class ContextConfig implements LifecycleListener {
             javaClassCache = new HashMap<>();
         }
 
+        long scanStart = System.nanoTime();
+        String cacheDirectory = context.getAnnotationScanCacheDirectory();
+        if (cacheDirectory != null) {
+            File dir = new File(cacheDirectory);
+            if (!dir.isAbsolute()) {
+                dir = new File(context.getCatalinaBase(), cacheDirectory);
+            }
+            annotationScanCache = new AnnotationScanCache(dir);
+        }
+
         if (ok) {
             WebResource[] webResources = context.getResources().listResources("/WEB-INF/classes");
 
@@ -1457,6 +1472,18 @@ public class ContextConfig implements LifecycleListener {
 
         // Cache, if used, is no longer required so clear it
         javaClassCache.clear();
+
+        long scanTime = (System.nanoTime() - scanStart) / 1_000_000;
+        if (annotationScanCache != null) {
+            int hits = annotationScanCache.getHits();
+            int total = hits + annotationScanCache.getMisses();
+            log.info(sm.getString("contextConfig.processClasses.cache", context.getName(), Long.valueOf(scanTime),
+                    Integer.valueOf(hits), Integer.valueOf(total)));
+            annotationScanCache.prune();
+            annotationScanCache = null;
+        } else if (log.isDebugEnabled()) {
+            log.debug(sm.getString("contextConfig.processClasses.time", context.getName(), Long.valueOf(scanTime)));
+        }
     }
 
 
@@ -2305,6 +2332,21 @@ public class ContextConfig implements LifecycleListener {
     protected void processAnnotationsJar(URL url, WebXml fragment, boolean handlesTypesOnly,
             Map<String,JavaClassCacheEntry> javaClassCache) {
 
+        AnnotationScanCache scanCache = annotationScanCache;
+        String cacheKey = null;
+        List<AnnotationScanCache.ScannedClass> scannedClasses = null;
+        if (scanCache != null) {
+            cacheKey = scanCache.getKey(url);
+            if (cacheKey != null) {
+                List<AnnotationScanCache.ScannedClass> cached = scanCache.load(cacheKey);
+                if (cached != null) {
+                    processAnnotationsCached(url, cached, fragment, handlesTypesOnly, javaClassCache);
+                    return;
+                }
+                scannedClasses = new ArrayList<>();
+            }
+        }
+
         try (Jar jar = JarFactory.newInstance(url)) {
             if (log.isTraceEnabled()) {
                 log.trace(sm.getString("contextConfig.processAnnotationsJar.debug", url));
@@ -2315,9 +2357,22 @@ public class ContextConfig implements LifecycleListener {
             while (entryName != null) {
                 if (entryName.endsWith(".class")) {
                     try (InputStream is = jar.getEntryInputStream()) {
-                        processAnnotationsStream(is, fragment, handlesTypesOnly, javaClassCache);
+                        if (scannedClasses == null) {
+                            processAnnotationsStream(is, fragment, handlesTypesOnly, javaClassCache);
+                        } else {
+                            // As processAnnotationsStream() but retain what is required for the cache
+                            ClassParser parser = new ClassParser(is);
+                            JavaClass clazz = parser.parse();
+                            scannedClasses.add(new AnnotationScanCache.ScannedClass(entryName, clazz));
+                            checkHandlesTypes(clazz, javaClassCache);
+                            if (!handlesTypesOnly) {
+                                processClass(fragment, clazz);
+                            }
+                        }
                     } catch (IOException | ClassFormatException e) {
                         log.error(sm.getString("contextConfig.inputStreamJar", entryName, url), e);
+                        // Don't cache incomplete results
+                        cacheKey = null;
                     }
                 }
                 jar.nextEntry();
@@ -2325,6 +2380,44 @@ public class ContextConfig implements LifecycleListener {
             }
         } catch (IOException ioe) {
             log.error(sm.getString("contextConfig.jarFile", url), ioe);
+            cacheKey = null;
+        }
+
+        if (cacheKey != null) {
+            scanCache.store(cacheKey, scannedClasses);
+        }
+    }
+
+
+    /*
+     * Process a JAR using the results of a previous scan. Only classes with annotations that need to be processed are
+     * parsed.
+     */
+    private void processAnnotationsCached(URL url, List<AnnotationScanCache.ScannedClass> scannedClasses,
+            WebXml fragment, boolean handlesTypesOnly, Map<String,JavaClassCacheEntry> javaClassCache) {
+        Jar jar = null;
+        try {
+            for (AnnotationScanCache.ScannedClass scannedClass : scannedClasses) {
+                checkHandlesTypes(scannedClass, javaClassCache);
+                if (handlesTypesOnly || !scannedClass.annotated) {
+                    continue;
+                }
+                try {
+                    if (jar == null) {
+                        jar = JarFactory.newInstance(url);
+                    }
+                    try (InputStream is = jar.getInputStream(scannedClass.entryName)) {
+                        ClassParser parser = new ClassParser(is);
+                        processClass(fragment, parser.parse());
+                    }
+                } catch (IOException | ClassFormatException e) {
+                    log.error(sm.getString("contextConfig.inputStreamJar", scannedClass.entryName, url), e);
+                }
+            }
+        } finally {
+            if (jar != null) {
+                jar.close();
+            }
         }
     }
 
@@ -2428,17 +2521,44 @@ public class ContextConfig implements LifecycleListener {
             return;
         }
 
-        if ((javaClass.getAccessFlags() & org.apache.tomcat.util.bcel.Const.ACC_ANNOTATION) != 0) {
-            // Skip annotations.
+        // Only look up the annotations if they are required
+        String[] annotationTypes = null;
+        if (handlesTypesAnnotations) {
+            annotationTypes = AnnotationScanCache.ScannedClass.getAnnotationTypes(javaClass.getAllAnnotationEntries());
+        }
+        checkHandlesTypes(javaClass.getClassName(), javaClass.getSuperclassName(), javaClass.getAccessFlags(),
+                javaClass.getInterfaceNames(), annotationTypes, javaClassCache);
+    }
+
+
+    private void checkHandlesTypes(AnnotationScanCache.ScannedClass scannedClass,
+            Map<String,JavaClassCacheEntry> javaClassCache) {
+
+        // Skip this if we can
+        if (typeInitializerMap.isEmpty()) {
             return;
         }
 
-        String className = javaClass.getClassName();
+        checkHandlesTypes(scannedClass.className, scannedClass.superclassName, scannedClass.accessFlags,
+                scannedClass.interfaceNames, scannedClass.annotationTypes, javaClassCache);
+    }
+
+
+    /*
+     * annotationTypes may be null if handlesTypesAnnotations is false.
+     */
+    private void checkHandlesTypes(String className, String superclassName, int accessFlags, String[] interfaceNames,
+            String[] annotationTypes, Map<String,JavaClassCacheEntry> javaClassCache) {
+
+        if ((accessFlags & org.apache.tomcat.util.bcel.Const.ACC_ANNOTATION) != 0) {
+            // Skip annotations.
+            return;
+        }
 
         Class<?> clazz = null;
         if (handlesTypesNonAnnotations) {
             // This *might* be match for a HandlesType.
-            populateJavaClassCache(className, javaClass, javaClassCache);
+            populateJavaClassCache(className, superclassName, interfaceNames, javaClassCache);
             JavaClassCacheEntry entry = javaClassCache.get(className);
             if (entry.getSciSet() == null) {
                 try {
@@ -2464,13 +2584,12 @@ public class ContextConfig implements LifecycleListener {
         }
 
         if (handlesTypesAnnotations) {
-            AnnotationEntry[] annotationEntries = javaClass.getAllAnnotationEntries();
-            if (annotationEntries != null) {
+            if (annotationTypes.length > 0) {
                 for (Map.Entry<Class<?>,Set<ServletContainerInitializer>> entry : typeInitializerMap.entrySet()) {
                     if (entry.getKey().isAnnotation()) {
                         String entryClassName = entry.getKey().getName();
-                        for (AnnotationEntry annotationEntry : annotationEntries) {
-                            if (entryClassName.equals(getClassName(annotationEntry.getAnnotationType()))) {
+                        for (String annotationType : annotationTypes) {
+                            if (entryClassName.equals(getClassName(annotationType))) {
                                 if (clazz == null) {
                                     clazz = Introspection.loadClass(context, className);
                                     if (clazz == null) {
@@ -2515,18 +2634,18 @@ public class ContextConfig implements LifecycleListener {
         return msg.toString();
     }
 
-    private void populateJavaClassCache(String className, JavaClass javaClass,
+    private void populateJavaClassCache(String className, String superclassName, String[] interfaceNames,
             Map<String,JavaClassCacheEntry> javaClassCache) {
         if (javaClassCache.containsKey(className)) {
             return;
         }
 
         // Add this class to the cache
-        javaClassCache.put(className, new JavaClassCacheEntry(javaClass));
+        javaClassCache.put(className, new JavaClassCacheEntry(superclassName, interfaceNames));
 
-        populateJavaClassCache(javaClass.getSuperclassName(), javaClassCache);
+        populateJavaClassCache(superclassName, javaClassCache);
 
-        for (String interfaceName : javaClass.getInterfaceNames()) {
+        for (String interfaceName : interfaceNames) {
             populateJavaClassCache(interfaceName, javaClassCache);
         }
     }
@@ -2540,7 +2659,8 @@ public class ContextConfig implements LifecycleListener {
                 }
                 ClassParser parser = new ClassParser(is);
                 JavaClass clazz = parser.parse();
-                populateJavaClassCache(clazz.getClassName(), clazz, javaClassCache);
+                populateJavaClassCache(clazz.getClassName(), clazz.getSuperclassName(), clazz.getInterfaceNames(),
+                        javaClassCache);
             } catch (ClassFormatException | IOException e) {
                 log.debug(sm.getString("contextConfig.invalidSciHandlesTypes", className), e);
             }
@@ -2985,8 +3105,18 @@ public class ContextConfig implements LifecycleListener {
          * @param javaClass the parsed Java class
          */
         JavaClassCacheEntry(JavaClass javaClass) {
-            superclassName = javaClass.getSuperclassName();
-            interfaceNames = javaClass.getInterfaceNames();
+            this(javaClass.getSuperclassName(), javaClass.getInterfaceNames());
+        }
+
+        /**
+         * Constructs a new cache entry from the names of the superclass and implemented interfaces.
+         *
+         * @param superclassName the superclass name
+         * @param interfaceNames the interface names
+         */
+        JavaClassCacheEntry(String superclassName, String[] interfaceNames) {
+            this.superclassName = superclassName;
+            this.interfaceNames = interfaceNames;
         }
 
         /**
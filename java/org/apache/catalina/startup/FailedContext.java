@@ -1437,6 +1437,15 @@ public class FailedContext extends LifecycleMBeanBase implements Context {
     public void setParallelAnnotationScanning(boolean parallelAnnotationScanning) {
     }
 
+    @Override
+    public String getAnnotationScanCacheDirectory() {
+        return null;
+    }
+
+    @Override
+    public void setAnnotationScanCacheDirectory(String annotationScanCacheDirectory) {
+    }
+
     @Override
     public boolean getSuspendWrappedResponseAfterForward() {
         return false;
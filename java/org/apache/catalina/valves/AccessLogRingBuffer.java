@@ -0,0 +1,251 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.catalina.valves;
+
+import java.io.Writer;
+import java.nio.ByteBuffer;
+import java.nio.CharBuffer;
+import java.nio.charset.CharsetEncoder;
+import java.nio.charset.CoderResult;
+import java.util.Arrays;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * A bounded, pre-allocated ring of access log entries with many producers (the request processing threads) and a single
+ * consumer (the thread writing the access log). The entries, including their character and byte buffers, are re-used
+ * so once the buffers have grown to the typical size of an access log message, adding entries does not allocate.
+ */
+final class AccessLogRingBuffer {
+
+    private final Entry[] entries;
+    private final int mask;
+
+    /*
+     * The sequence number of the entry most recently published in each slot. A slot is ready to be consumed when the
+     * published sequence matches the sequence the consumer expects for that slot.
+     */
+    private final AtomicLongArray published;
+
+    // The sequence number of the next entry to be claimed by a producer
+    private final AtomicLong claimed = new AtomicLong(0);
+
+    // The sequence number of the next entry to be consumed
+    private volatile long consumed = 0;
+
+
+    /**
+     * Create a ring buffer.
+     *
+     * @param size the minimum number of entries the ring buffer can hold. This is rounded up to the next power of two.
+     */
+    AccessLogRingBuffer(int size) {
+        int capacity = 1;
+        while (capacity < size && capacity < (1 << 30)) {
+            capacity <<= 1;
+        }
+        entries = new Entry[capacity];
+        for (int i = 0; i < capacity; i++) {
+            entries[i] = new Entry();
+        }
+        mask = capacity - 1;
+        published = new AtomicLongArray(capacity);
+        for (int i = 0; i < capacity; i++) {
+            published.set(i, -1);
+        }
+    }
+
+
+    /**
+     * @return the number of entries the ring buffer can hold
+     */
+    int getCapacity() {
+        return entries.length;
+    }
+
+
+    /**
+     * @return the number of entries that have been claimed but not yet consumed
+     */
+    int getPending() {
+        return (int) (claimed.get() - consumed);
+    }
+
+
+    /**
+     * Claim the next free entry. The caller must populate the entry and then call {@link #publish(long)}.
+     *
+     * @return the sequence number of the claimed entry or {@code -1} if the ring buffer is full
+     */
+    long claim() {
+        long sequence;
+        do {
+            sequence = claimed.get();
+            if (sequence - consumed >= entries.length) {
+                return -1;
+            }
+        } while (!claimed.compareAndSet(sequence, sequence + 1));
+        return sequence;
+    }
+
+
+    /**
+     * Obtain the entry for the given sequence number.
+     *
+     * @param sequence the sequence number
+     *
+     * @return the entry
+     */
+    Entry get(long sequence) {
+        return entries[(int) (sequence & mask)];
+    }
+
+
+    /**
+     * Make a populated entry available to the consumer.
+     *
+     * @param sequence the sequence number of the entry
+     */
+    void publish(long sequence) {
+        published.set((int) (sequence & mask), sequence);
+    }
+
+
+    /**
+     * Consumer only.
+     *
+     * @return the sequence number of the next entry to consume
+     */
+    long getConsumed() {
+        return consumed;
+    }
+
+
+    /**
+     * Consumer only. Determine how many of the entries, starting with the next entry to consume, have been published.
+     *
+     * @param max the maximum number of entries to check
+     *
+     * @return the number of consecutive published entries
+     */
+    int available(int max) {
+        long next = consumed;
+        int count = 0;
+        while (count < max && published.get((int) ((next + count) & mask)) == next + count) {
+            count++;
+        }
+        return count;
+    }
+
+
+    /**
+     * Consumer only. Release the given number of entries so they may be re-used by producers.
+     *
+     * @param count the number of entries to release
+     */
+    void release(int count) {
+        consumed = consumed + count;
+    }
+
+
+    /**
+     * A single access log message. Producers write the formatted message into the entry and the consumer encodes it
+     * into bytes ready to be written to the log file.
+     */
+    static final class Entry extends Writer {
+
+        private char[] chars = new char[256];
+        private int length = 0;
+        private ByteBuffer bytes = ByteBuffer.allocate(512);
+
+        void reset() {
+            length = 0;
+        }
+
+        int length() {
+            return length;
+        }
+
+        @Override
+        public void write(char[] cbuf, int off, int len) {
+            if (length + len > chars.length) {
+                chars = Arrays.copyOf(chars, Math.max(chars.length * 2, length + len));
+            }
+            System.arraycopy(cbuf, off, chars, length, len);
+            length += len;
+        }
+
+        @Override
+        public void write(String str) {
+            write(str, 0, str.length());
+        }
+
+        @Override
+        public void write(String str, int off, int len) {
+            if (length + len > chars.length) {
+                chars = Arrays.copyOf(chars, Math.max(chars.length * 2, length + len));
+            }
+            str.getChars(off, off + len, chars, length);
+            length += len;
+        }
+
+        @Override
+        public void flush() {
+            // NO-OP
+        }
+
+        @Override
+        public void close() {
+            // NO-OP
+        }
+
+        /**
+         * Encode the message.
+         *
+         * @param encoder the encoder to use
+         *
+         * @return a buffer, ready to be read, containing the encoded message
+         */
+        ByteBuffer encode(CharsetEncoder encoder) {
+            CharBuffer in = CharBuffer.wrap(chars, 0, length);
+            encoder.reset();
+            bytes.clear();
+            while (true) {
+                CoderResult result = encoder.encode(in, bytes, true);
+                if (result.isOverflow()) {
+                    grow();
+                    continue;
+                }
+                result = encoder.flush(bytes);
+                if (result.isOverflow()) {
+                    grow();
+                    continue;
+                }
+                break;
+            }
+            bytes.flip();
+            return bytes;
+        }
+
+        private void grow() {
+            ByteBuffer larger = ByteBuffer.allocate(bytes.capacity() * 2);
+            bytes.flip();
+            larger.put(bytes);
+            bytes = larger;
+        }
+    }
+}
@@ -25,13 +25,20 @@ import java.io.IOException;
 import java.io.OutputStreamWriter;
 import java.io.PrintWriter;
 import java.io.UnsupportedEncodingException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
 import java.nio.charset.Charset;
+import java.nio.charset.CharsetEncoder;
+import java.nio.charset.CodingErrorAction;
 import java.nio.charset.StandardCharsets;
 import java.text.SimpleDateFormat;
 import java.util.Date;
 import java.util.Locale;
 import java.util.Objects;
 import java.util.TimeZone;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.LockSupport;
 
 import org.apache.catalina.LifecycleException;
 import org.apache.juli.logging.Log;
@@ -46,8 +53,14 @@ import org.apache.tomcat.util.buf.B2CConverter;
  * <ul>
  * <li>Automatic date-based rollover of log files</li>
  * <li>Optional log file rotation</li>
+ * <li>Optional asynchronous logging</li>
  * </ul>
  * <p>
+ * When asynchronous logging is enabled, the request processing thread formats the access log message and copies it
+ * into a pre-allocated ring buffer. A background thread encodes the messages and writes them to the log file in
+ * batches using gathering writes.
+ * </p>
+ * <p>
  * For UNIX users, another field called <code>checkExists</code> is also available. If set to true, the log file's
  * existence will be checked before each logging. This way an external log rotator can move the file somewhere and
  * Tomcat will start with a new file.
@@ -158,6 +171,50 @@ public class AccessLogValve extends AbstractAccessLogValve {
     private int maxDays = -1;
     private volatile boolean checkForOldLogs = false;
 
+    /**
+     * The channel for the current log file. Used for asynchronous logging.
+     */
+    private FileChannel channel = null;
+
+    /**
+     * The character set used to write the current log file.
+     */
+    private volatile Charset charset = StandardCharsets.UTF_8;
+
+    /**
+     * Should log messages be written to the log file by a background thread?
+     */
+    private boolean asynchronous = false;
+
+    /**
+     * The number of log messages that may be waiting to be written when using asynchronous logging.
+     */
+    private int asyncQueueSize = 8192;
+
+    /**
+     * What to do when the ring buffer used for asynchronous logging is full.
+     */
+    private AsyncFullPolicy asyncFullPolicy = AsyncFullPolicy.BLOCK;
+
+    private volatile AccessLogRingBuffer ringBuffer = null;
+    private volatile Thread asyncWriter = null;
+    private volatile boolean asyncWriterRunning = false;
+    private volatile boolean asyncWriterWaiting = false;
+    private volatile boolean asyncFullReported = false;
+    private final LongAdder asyncDroppedCount = new LongAdder();
+    private final LongAdder asyncBlockedCount = new LongAdder();
+
+    // Maximum number of log messages written by a single gathering write
+    private static final int ASYNC_BATCH_SIZE = 256;
+    private static final long ASYNC_WRITER_WAIT_NANOS = TimeUnit.MILLISECONDS.toNanos(100);
+    private static final long ASYNC_BLOCK_WAIT_NANOS = TimeUnit.MICROSECONDS.toNanos(100);
+
+    private enum AsyncFullPolicy {
+        BLOCK,
+        DROP,
+        COUNT
+    }
+
     // ------------------------------------------------------------- Properties
 
 
@@ -371,6 +428,111 @@ public class AccessLogValve extends AbstractAccessLogValve {
         }
     }
 
+    /**
+     * Are log messages written to the log file by a background thread?
+     *
+     * @return {@code true} if asynchronous logging is enabled
+     */
+    public boolean isAsynchronous() {
+        return asynchronous;
+    }
+
+
+    /**
+     * Configure whether log messages are written to the log file by a background thread rather than by the request
+     * processing thread. Changes take effect when the valve is next started.
+     *
+     * @param asynchronous {@code true} to enable asynchronous logging
+     */
+    public void setAsynchronous(boolean asynchronous) {
+        this.asynchronous = asynchronous;
+    }
+
+
+    /**
+     * @return the number of log messages that may be waiting to be written when using asynchronous logging
+     */
+    public int getAsyncQueueSize() {
+        return asyncQueueSize;
+    }
+
+
+    /**
+     * Set the number of log messages that may be waiting to be written when using asynchronous logging. The value is
+     * rounded up to the next power of two. Changes take effect when the valve is next started.
+     *
+     * @param asyncQueueSize the number of log messages
+     */
+    public void setAsyncQueueSize(int asyncQueueSize) {
+        if (asyncQueueSize < 1) {
+            throw new IllegalArgumentException(
+                    sm.getString("accessLogValve.invalidAsyncQueueSize", Integer.valueOf(asyncQueueSize)));
+        }
+        this.asyncQueueSize = asyncQueueSize;
+    }
+
+
+    /**
+     * @return the action taken when a log message can not be queued because the queue used for asynchronous logging
+     *             is full
+     */
+    public String getAsyncFullPolicy() {
+        return asyncFullPolicy.name().toLowerCase(Locale.ENGLISH);
+    }
+
+
+    /**
+     * Set the action taken when a log message can not be queued because the queue used for asynchronous logging is
+     * full.
+     *
+     * @param asyncFullPolicy {@code block} to wait for space to become available, {@code drop} to discard the message
+     *                            and log a warning or {@code count} to discard the message without logging a warning.
+     *                            In all cases the number of affected messages is counted.
+     */
+    public void setAsyncFullPolicy(String asyncFullPolicy) {
+        try {
+            this.asyncFullPolicy = AsyncFullPolicy.valueOf(asyncFullPolicy.trim().toUpperCase(Locale.ENGLISH));
+        } catch (IllegalArgumentException | NullPointerException e) {
+            throw new IllegalArgumentException(
+                    sm.getString("accessLogValve.invalidAsyncFullPolicy", asyncFullPolicy), e);
+        }
+    }
+
+
+    /**
+     * @return the number of log messages discarded because the queue used for asynchronous logging was full
+     */
+    public long getAsyncDroppedCount() {
+        return asyncDroppedCount.sum();
+    }
+
+
+    /**
+     * @return the number of log messages that had to wait for space because the queue used for asynchronous logging
+     *             was full
+     */
+    public long getAsyncBlockedCount() {
+        return asyncBlockedCount.sum();
+    }
+
+
+    /**
+     * @return the number of log messages waiting to be written when using asynchronous logging
+     */
+    public int getAsyncPendingCount() {
+        AccessLogRingBuffer ringBuffer = this.ringBuffer;
+        return ringBuffer == null ? 0 : ringBuffer.getPending();
+    }
+
+
+    /**
+     * Reset the counters for asynchronous logging.
+     */
+    public void resetAsyncCounters() {
+        asyncDroppedCount.reset();
+        asyncBlockedCount.reset();
+    }
+
     // --------------------------------------------------------- Public Methods
 
     /**
@@ -572,6 +734,7 @@ public class AccessLogValve extends AbstractAccessLogValve {
             }
         }
         writer = null;
+        channel = null;
         dateStamp = "";
         currentLogFile = null;
     }
@@ -580,8 +743,34 @@ public class AccessLogValve extends AbstractAccessLogValve {
     @Override
     public void log(CharArrayWriter message) {
 
+        AccessLogRingBuffer ringBuffer = this.ringBuffer;
+        if (ringBuffer != null) {
+            logAsync(ringBuffer, message);
+            return;
+        }
+
         rotate();
 
+        checkLogFileExists();
+
+        // Log this message
+        try {
+            message.write(System.lineSeparator());
+            synchronized (this) {
+                if (writer != null) {
+                    message.writeTo(writer);
+                    if (!buffered) {
+                        writer.flush();
+                    }
+                }
+            }
+        } catch (IOException ioe) {
+            log.warn(sm.getString("accessLogValve.writeFail", message.toString()), ioe);
+        }
+    }
+
+
+    private void checkLogFileExists() {
         /* In case something external rotated the file instead */
         if (checkExists) {
             synchronized (this) {
@@ -600,21 +789,134 @@ public class AccessLogValve extends AbstractAccessLogValve {
                 }
             }
         }
+    }
 
-        // Log this message
+
+    private void logAsync(AccessLogRingBuffer ringBuffer, CharArrayWriter message) {
+        long sequence = ringBuffer.claim();
+        if (sequence < 0) {
+            if (asyncFullPolicy != AsyncFullPolicy.BLOCK) {
+                asyncDroppedCount.increment();
+                if (asyncFullPolicy == AsyncFullPolicy.DROP && !asyncFullReported) {
+                    asyncFullReported = true;
+                    log.warn(sm.getString("accessLogValve.asyncFull", Integer.valueOf(ringBuffer.getCapacity())));
+                }
+                return;
+            }
+            asyncBlockedCount.increment();
+            do {
+                if (!asyncWriterRunning) {
+                    // Stopping
+                    asyncDroppedCount.increment();
+                    return;
+                }
+                LockSupport.unpark(asyncWriter);
+                LockSupport.parkNanos(ASYNC_BLOCK_WAIT_NANOS);
+                sequence = ringBuffer.claim();
+            } while (sequence < 0);
+        }
+
+        AccessLogRingBuffer.Entry entry = ringBuffer.get(sequence);
+        entry.reset();
         try {
-            message.write(System.lineSeparator());
-            synchronized (this) {
-                if (writer != null) {
-                    message.writeTo(writer);
-                    if (!buffered) {
+            message.writeTo(entry);
+            entry.write(System.lineSeparator());
+        } catch (IOException ioe) {
+            // Can't happen
+        }
+        ringBuffer.publish(sequence);
+
+        if (asyncWriterWaiting) {
+            LockSupport.unpark(asyncWriter);
+        }
+    }
+
+
+    private void runAsyncWriter(AccessLogRingBuffer ringBuffer) {
+        ByteBuffer[] buffers = new ByteBuffer[ASYNC_BATCH_SIZE];
+        CharsetEncoder encoder = null;
+        while (true) {
+            int count = ringBuffer.available(ASYNC_BATCH_SIZE);
+            if (count == 0) {
+                if (!asyncWriterRunning) {
+                    // Stopped and all published messages have been written
+                    break;
+                }
+                asyncWriterWaiting = true;
+                if (ringBuffer.available(1) == 0 && asyncWriterRunning) {
+                    LockSupport.parkNanos(this, ASYNC_WRITER_WAIT_NANOS);
+                }
+                asyncWriterWaiting = false;
+                continue;
+            }
+
+            rotate();
+            checkLogFileExists();
+
+            Charset charset = this.charset;
+            if (encoder == null || !encoder.charset().equals(charset)) {
+                encoder = charset.newEncoder().onMalformedInput(CodingErrorAction.REPLACE)
+                        .onUnmappableCharacter(CodingErrorAction.REPLACE);
+            }
+            long first = ringBuffer.getConsumed();
+            for (int i = 0; i < count; i++) {
+                buffers[i] = ringBuffer.get(first + i).encode(encoder);
+            }
+
+            try {
+                synchronized (this) {
+                    if (writer != null) {
+                        // Ensure anything written directly to the writer
+                        // (e.g. headers) is written first
                         writer.flush();
+                        long remaining = 0;
+                        for (int i = 0; i < count; i++) {
+                            remaining += buffers[i].remaining();
+                        }
+                        while (remaining > 0) {
+                            remaining -= channel.write(buffers, 0, count);
+                        }
                     }
                 }
+            } catch (IOException ioe) {
+                log.warn(sm.getString("accessLogValve.asyncWriteFail", Integer.valueOf(count)), ioe);
             }
-        } catch (IOException ioe) {
-            log.warn(sm.getString("accessLogValve.writeFail", message.toString()), ioe);
+
+            for (int i = 0; i < count; i++) {
+                buffers[i] = null;
+            }
+            ringBuffer.release(count);
+            asyncFullReported = false;
+        }
+    }
+
+
+    private void startAsyncWriter() {
+        AccessLogRingBuffer ringBuffer = new AccessLogRingBuffer(asyncQueueSize);
+        asyncWriterRunning = true;
+        Thread thread = new Thread(() -> runAsyncWriter(ringBuffer),
+                "AccessLogValveWriter[" + getContainer().getName() + "]");
+        thread.setDaemon(true);
+        asyncWriter = thread;
+        this.ringBuffer = ringBuffer;
+        thread.start();
+    }
+
+
+    private void stopAsyncWriter() {
+        Thread thread = asyncWriter;
+        if (thread == null) {
+            return;
         }
+        asyncWriterRunning = false;
+        LockSupport.unpark(thread);
+        try {
+            thread.join();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        ringBuffer = null;
+        asyncWriter = null;
     }
 
 
@@ -639,13 +941,15 @@ public class AccessLogValve extends AbstractAccessLogValve {
         }
 
         try {
-            writer = new PrintWriter(
-                    new BufferedWriter(new OutputStreamWriter(new FileOutputStream(pathname, true), charset), 128000),
-                    false);
+            FileOutputStream fos = new FileOutputStream(pathname, true);
+            writer = new PrintWriter(new BufferedWriter(new OutputStreamWriter(fos, charset), 128000), false);
+            channel = fos.getChannel();
+            this.charset = charset;
 
             currentLogFile = pathname;
         } catch (IOException ioe) {
             writer = null;
+            channel = null;
             currentLogFile = null;
             log.error(sm.getString("accessLogValve.openFail", pathname, System.getProperty("user.name")), ioe);
         }
@@ -675,6 +979,10 @@ public class AccessLogValve extends AbstractAccessLogValve {
         }
         open();
 
+        if (asynchronous) {
+            startAsyncWriter();
+        }
+
         super.startInternal();
     }
 
@@ -690,6 +998,7 @@ public class AccessLogValve extends AbstractAccessLogValve {
     protected void stopInternal() throws LifecycleException {
 
         super.stopInternal();
+        stopAsyncWriter();
         close(false);
     }
 }
@@ -0,0 +1,403 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.catalina.valves;
+
+import java.io.IOException;
+
+import jakarta.servlet.AsyncContext;
+import jakarta.servlet.AsyncEvent;
+import jakarta.servlet.AsyncListener;
+import jakarta.servlet.ServletException;
+import jakarta.servlet.http.HttpServletResponse;
+
+import org.apache.catalina.LifecycleException;
+import org.apache.catalina.connector.Request;
+import org.apache.catalina.connector.Response;
+
+
+/**
+ * <p>
+ * Implementation of a Valve that limits the number of requests being processed concurrently and adjusts that limit
+ * based on the observed request latency. When the limit has been reached, requests are rejected immediately with a 503
+ * response rather than waiting for a request processing thread or a permit.
+ * </p>
+ * <p>
+ * This Valve may be attached to any Container, depending on the granularity of the concurrency control you wish to
+ * perform. When attached to a Host, all the web applications of that Host share a limit. When attached to a Context,
+ * the limit applies to that web application only. The time taken by asynchronous requests is measured until the
+ * request completes.
+ * </p>
+ */
+public class ConcurrencyLimitValve extends ValveBase {
+
+    // ------------------------------------------------------ Constructor
+
+    /**
+     * Construct a new {@link ConcurrencyLimitValve} with async support enabled.
+     */
+    public ConcurrencyLimitValve() {
+        super(true);
+    }
+
+
+    // ----------------------------------------------------- Instance Variables
+
+    private volatile ConcurrencyLimiter limiter = null;
+
+
+    // ------------------------------------------------------------- Properties
+
+    private String algorithm = ConcurrencyLimiter.GRADIENT;
+
+    /**
+     * @return the algorithm used to adjust the limit
+     */
+    public String getAlgorithm() {
+        return algorithm;
+    }
+
+    /**
+     * Set the algorithm used to adjust the limit.
+     *
+     * @param algorithm {@code gradient} or {@code aimd}
+     */
+    public void setAlgorithm(String algorithm) {
+        if (ConcurrencyLimiter.GRADIENT.equalsIgnoreCase(algorithm)) {
+            this.algorithm = ConcurrencyLimiter.GRADIENT;
+        } else if (ConcurrencyLimiter.AIMD.equalsIgnoreCase(algorithm)) {
+            this.algorithm = ConcurrencyLimiter.AIMD;
+        } else {
+            throw new IllegalArgumentException(sm.getString("concurrencyLimitValve.invalidAlgorithm", algorithm));
+        }
+    }
+
+
+    private int initialLimit = 20;
+
+    /**
+     * @return the limit used when the valve starts
+     */
+    public int getInitialLimit() {
+        return initialLimit;
+    }
+
+    /**
+     * Set the limit used when the valve starts.
+     *
+     * @param initialLimit the initial limit
+     */
+    public void setInitialLimit(int initialLimit) {
+        this.initialLimit = initialLimit;
+    }
+
+
+    private int minLimit = 1;
+
+    /**
+     * @return the lowest value the limit may be reduced to
+     */
+    public int getMinLimit() {
+        return minLimit;
+    }
+
+    /**
+     * Set the lowest value the limit may be reduced to.
+     *
+     * @param minLimit the minimum limit
+     */
+    public void setMinLimit(int minLimit) {
+        this.minLimit = minLimit;
+    }
+
+
+    private int maxLimit = 200;
+
+    /**
+     * @return the highest value the limit may be increased to
+     */
+    public int getMaxLimit() {
+        return maxLimit;
+    }
+
+    /**
+     * Set the highest value the limit may be increased to.
+     *
+     * @param maxLimit the maximum limit
+     */
+    public void setMaxLimit(int maxLimit) {
+        this.maxLimit = maxLimit;
+    }
+
+
+    private long latencyThreshold = 1000;
+
+    /**
+     * @return the request latency, in milliseconds, above which the aimd algorithm reduces the limit
+     */
+    public long getLatencyThreshold() {
+        return latencyThreshold;
+    }
+
+    /**
+     * Set the request latency above which the aimd algorithm reduces the limit.
+     *
+     * @param latencyThreshold the threshold in milliseconds
+     */
+    public void setLatencyThreshold(long latencyThreshold) {
+        this.latencyThreshold = latencyThreshold;
+    }
+
+
+    private double backoffRatio = 0.9;
+
+    /**
+     * @return the factor the aimd algorithm applies to the limit when a request exceeds the latency threshold
+     */
+    public double getBackoffRatio() {
+        return backoffRatio;
+    }
+
+    /**
+     * Set the factor the aimd algorithm applies to the limit when a request exceeds the latency threshold.
+     *
+     * @param backoffRatio the backoff ratio, which must be greater than zero and less than one
+     */
+    public void setBackoffRatio(double backoffRatio) {
+        if (backoffRatio <= 0 || backoffRatio >= 1) {
+            throw new IllegalArgumentException(
+                    sm.getString("concurrencyLimitValve.invalidBackoffRatio", Double.toString(backoffRatio)));
+        }
+        this.backoffRatio = backoffRatio;
+    }
+
+
+    private double tolerance = 1.5;
+
+    /**
+     * @return the ratio of recent to long term latency the gradient algorithm accepts before reducing the limit
+     */
+    public double getTolerance() {
+        return tolerance;
+    }
+
+    /**
+     * Set the ratio of recent to long term latency the gradient algorithm accepts before reducing the limit.
+     *
+     * @param tolerance the tolerance, which must be at least one
+     */
+    public void setTolerance(double tolerance) {
+        if (tolerance < 1) {
+            throw new IllegalArgumentException(
+                    sm.getString("concurrencyLimitValve.invalidTolerance", Double.toString(tolerance)));
+        }
+        this.tolerance = tolerance;
+    }
+
+
+    private double smoothing = 0.2;
+
+    /**
+     * @return the weight the gradient algorithm gives to each newly calculated limit
+     */
+    public double getSmoothing() {
+        return smoothing;
+    }
+
+    /**
+     * Set the weight the gradient algorithm gives to each newly calculated limit.
+     *
+     * @param smoothing the smoothing factor, which must be greater than zero and no more than one
+     */
+    public void setSmoothing(double smoothing) {
+        if (smoothing <= 0 || smoothing > 1) {
+            throw new IllegalArgumentException(
+                    sm.getString("concurrencyLimitValve.invalidSmoothing", Double.toString(smoothing)));
+        }
+        this.smoothing = smoothing;
+    }
+
+
+    private int retryAfter = 1;
+
+    /**
+     * @return the value, in seconds, of the Retry-After header sent with rejected requests
+     */
+    public int getRetryAfter() {
+        return retryAfter;
+    }
+
+    /**
+     * Set the value of the Retry-After header sent with rejected requests.
+     *
+     * @param retryAfter the delay in seconds. If zero or less, no header is sent
+     */
+    public void setRetryAfter(int retryAfter) {
+        this.retryAfter = retryAfter;
+    }
+
+
+    /**
+     * @return the number of requests currently permitted to be processed concurrently
+     */
+    public int getLimit() {
+        ConcurrencyLimiter limiter = this.limiter;
+        return limiter == null ? -1 : limiter.getLimit();
+    }
+
+
+    /**
+     * @return the number of requests currently being processed
+     */
+    public int getInFlight() {
+        ConcurrencyLimiter limiter = this.limiter;
+        return limiter == null ? 0 : limiter.getInFlight();
+    }
+
+
+    /**
+     * @return the number of requests rejected since the valve was started
+     */
+    public long getRejectedCount() {
+        ConcurrencyLimiter limiter = this.limiter;
+        return limiter == null ? 0 : limiter.getRejectedCount();
+    }
+
+
+    @Override
+    protected void startInternal() throws LifecycleException {
+        if (initialLimit < 1) {
+            throw new LifecycleException(
+                    sm.getString("concurrencyLimitValve.invalidInitialLimit", Integer.toString(initialLimit)));
+        }
+        if (minLimit < 1) {
+            throw new LifecycleException(
+                    sm.getString("concurrencyLimitValve.invalidMinLimit", Integer.toString(minLimit)));
+        }
+        if (maxLimit < minLimit) {
+            throw new LifecycleException(sm.getString("concurrencyLimitValve.invalidMaxLimit",
+                    Integer.toString(maxLimit), Integer.toString(minLimit)));
+        }
+        limiter = new ConcurrencyLimiter(algorithm, initialLimit, minLimit, maxLimit, latencyThreshold, backoffRatio,
+                tolerance, smoothing);
+        super.startInternal();
+    }
+
+
+    @Override
+    protected void stopInternal() throws LifecycleException {
+        super.stopInternal();
+        limiter = null;
+    }
+
+
+    // --------------------------------------------------------- Public Methods
+
+    /**
+     * Admit the request if the current limit permits it, otherwise reject it.
+     *
+     * @param request  The servlet request to be processed
+     * @param response The servlet response to be created
+     *
+     * @exception IOException      if an input/output error occurs
+     * @exception ServletException if a servlet error occurs
+     */
+    @Override
+    public void invoke(Request request, Response response) throws IOException, ServletException {
+
+        if (request.isAsync()) {
+            // Dispatch of a request that has already been admitted
+            getNext().invoke(request, response);
+            return;
+        }
+
+        ConcurrencyLimiter limiter = this.limiter;
+        int inFlight = limiter.tryAcquire();
+        if (inFlight < 0) {
+            permitDenied(request, response);
+            return;
+        }
+
+        long start = System.nanoTime();
+        try {
+            getNext().invoke(request, response);
+        } finally {
+            if (request.isAsync()) {
+                // Continue to count the request until asynchronous processing is complete
+                AsyncContext asyncContext = request.getAsyncContext();
+                try {
+                    asyncContext.addListener(new ReleaseAsyncListener(limiter, start, inFlight));
+                } catch (IllegalStateException ise) {
+                    // Asynchronous processing has already completed so the listener will never be called
+                    limiter.release(System.nanoTime() - start, inFlight);
+                }
+            } else {
+                limiter.release(System.nanoTime() - start, inFlight);
+            }
+        }
+    }
+
+
+    /**
+     * Subclass friendly method to add error handling when a request is rejected.
+     *
+     * @param request  The Servlet request
+     * @param response The Servlet response
+     *
+     * @throws IOException      Error writing output
+     * @throws ServletException Other error
+     */
+    public void permitDenied(Request request, Response response) throws IOException, ServletException {
+        if (retryAfter > 0) {
+            response.setHeader("Retry-After", Integer.toString(retryAfter));
+        }
+        response.sendError(HttpServletResponse.SC_SERVICE_UNAVAILABLE);
+    }
+
+
+    private static class ReleaseAsyncListener implements AsyncListener {
+
+        private final ConcurrencyLimiter limiter;
+        private final long start;
+        private final int inFlight;
+
+        ReleaseAsyncListener(ConcurrencyLimiter limiter, long start, int inFlight) {
+            this.limiter = limiter;
+            this.start = start;
+            this.inFlight = inFlight;
+        }
+
+        @Override
+        public void onComplete(AsyncEvent event) throws IOException {
+            limiter.release(System.nanoTime() - start, inFlight);
+        }
+
+        @Override
+        public void onTimeout(AsyncEvent event) throws IOException {
+            // NO-OP. onComplete() will be called.
+        }
+
+        @Override
+        public void onError(AsyncEvent event) throws IOException {
+            // NO-OP. onComplete() will be called.
+        }
+
+        @Override
+        public void onStartAsync(AsyncEvent event) throws IOException {
+            event.getAsyncContext().addListener(this);
+        }
+    }
+}
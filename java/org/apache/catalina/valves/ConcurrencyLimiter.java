@@ -0,0 +1,193 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.catalina.valves;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Tracks the number of requests in flight for a container and adjusts the number of requests permitted to be in flight
+ * based on the observed request latency.
+ * <p>
+ * Two algorithms are supported:
+ * <ul>
+ * <li><b>aimd</b> - additive increase, multiplicative decrease. The limit grows by one for every request that completes
+ * within the latency threshold while the limit is being used and is multiplied by the backoff ratio for every request
+ * that exceeds the threshold.</li>
+ * <li><b>gradient</b> - the limit is scaled by the ratio between a long term average of the latency and the latency of
+ * the most recent request, allowing for a configurable tolerance. A small allowance, the square root of the limit, is
+ * added so that the limit can grow when the latency is stable.</li>
+ * </ul>
+ * <p>
+ * Admission is lock free. The limit is recalculated as each request completes and that calculation is serialised by a
+ * lock on the limiter, so all requests that share the limiter (all the web applications of a Host if the valve is
+ * nested in a Host) contend for it. The lock is only held for a few arithmetic operations.
+ */
+final class ConcurrencyLimiter {
+
+    static final String AIMD = "aimd";
+    static final String GRADIENT = "gradient";
+
+    // Number of samples used for the long term latency average
+    private static final int LONG_WINDOW = 600;
+
+    private final boolean gradient;
+    private final int minLimit;
+    private final int maxLimit;
+    private final long latencyThreshold;
+    private final double backoffRatio;
+    private final double tolerance;
+    private final double smoothing;
+
+    private final AtomicInteger inFlight = new AtomicInteger(0);
+    private final LongAdder rejectedCount = new LongAdder();
+
+    // Guarded by this
+    private double limit;
+    private double longLatency = 0;
+
+    // Copy of the current limit for the admission check
+    private volatile int currentLimit;
+
+
+    /**
+     * Create a limiter.
+     *
+     * @param algorithm        {@link #AIMD} or {@link #GRADIENT}
+     * @param initialLimit     the limit to use until enough requests have been observed to adjust it
+     * @param minLimit         the lowest value the limit may be reduced to
+     * @param maxLimit         the highest value the limit may be increased to
+     * @param latencyThreshold the latency, in milliseconds, above which the aimd algorithm reduces the limit
+     * @param backoffRatio     the factor applied to the limit by the aimd algorithm when the threshold is exceeded
+     * @param tolerance        the ratio of the most recent latency to the long term latency the gradient algorithm
+     *                             accepts before reducing the limit
+     * @param smoothing        the weight given to each new limit calculated by the gradient algorithm
+     */
+    ConcurrencyLimiter(String algorithm, int initialLimit, int minLimit, int maxLimit, long latencyThreshold,
+            double backoffRatio, double tolerance, double smoothing) {
+        this.gradient = GRADIENT.equals(algorithm);
+        this.minLimit = minLimit;
+        this.maxLimit = maxLimit;
+        this.latencyThreshold = TimeUnit.MILLISECONDS.toNanos(latencyThreshold);
+        this.backoffRatio = backoffRatio;
+        this.tolerance = tolerance;
+        this.smoothing = smoothing;
+        this.limit = Math.min(maxLimit, Math.max(minLimit, initialLimit));
+        this.currentLimit = Math.max(1, (int) limit);
+    }
+
+
+    /**
+     * Attempt to admit a request.
+     *
+     * @return the number of requests in flight, including this one, if the request was admitted, in which case
+     *             {@link #release(long, int)} must be called once the request completes, or {@code -1} if the limit
+     *             has been reached
+     */
+    int tryAcquire() {
+        int current;
+        do {
+            current = inFlight.get();
+            if (current >= currentLimit) {
+                rejectedCount.increment();
+                return -1;
+            }
+        } while (!inFlight.compareAndSet(current, current + 1));
+        return current + 1;
+    }
+
+
+    /**
+     * Record the completion of an admitted request.
+     *
+     * @param latency     the time, in nanoseconds, taken to process the request
+     * @param inFlightMax the value returned by {@link #tryAcquire()} when the request was admitted
+     */
+    void release(long latency, int inFlightMax) {
+        inFlight.decrementAndGet();
+        if (latency > 0) {
+            sample(latency, inFlightMax);
+        }
+    }
+
+
+    /**
+     * @return the number of requests currently in flight
+     */
+    int getInFlight() {
+        return inFlight.get();
+    }
+
+
+    /**
+     * @return the number of requests currently permitted to be in flight
+     */
+    int getLimit() {
+        return currentLimit;
+    }
+
+
+    /**
+     * @return the number of requests that have been rejected because the limit had been reached
+     */
+    long getRejectedCount() {
+        return rejectedCount.sum();
+    }
+
+
+    /*
+     * Synchronized on the limiter as the limit is derived from its previous value. Completing requests contend for
+     * this lock but it is only held for the duration of the calculation.
+     */
+    private synchronized void sample(long latency, int inFlightMax) {
+        // Only increase the limit if the current limit is being used
+        boolean limited = inFlightMax * 2 >= limit;
+        double newLimit;
+        if (gradient) {
+            if (longLatency == 0) {
+                longLatency = latency;
+            } else {
+                longLatency = longLatency + (latency - longLatency) * 2 / (LONG_WINDOW + 1);
+            }
+            if (longLatency > latency * 2) {
+                /*
+                 * Latency has fallen significantly. Let the long term average recover more quickly so the limit is not
+                 * held high by the earlier, slower requests once the conditions that caused them return.
+                 */
+                longLatency = longLatency * 0.95;
+            }
+            double ratio = Math.max(0.5, Math.min(1.0, tolerance * longLatency / latency));
+            if (ratio >= 1.0 && !limited) {
+                return;
+            }
+            newLimit = limit * ratio + Math.sqrt(limit);
+            newLimit = limit * (1 - smoothing) + newLimit * smoothing;
+        } else {
+            if (latency > latencyThreshold) {
+                newLimit = limit * backoffRatio;
+            } else if (limited) {
+                newLimit = limit + 1;
+            } else {
+                return;
+            }
+        }
+        limit = Math.min(maxLimit, Math.max(minLimit, newLimit));
+        // Always admit at least one request else the limit could never be increased again
+        currentLimit = Math.max(1, (int) limit);
+    }
+}
@@ -16,18 +16,34 @@
  */
 package org.apache.catalina.webresources;
 
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.MappedByteBuffer;
+import java.util.ArrayList;
 import java.util.Comparator;
 import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
 import java.util.TreeSet;
 import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.ConcurrentMap;
 import java.util.concurrent.atomic.AtomicLong;
 import java.util.concurrent.atomic.LongAdder;
 
+import jakarta.servlet.ServletContext;
+
 import org.apache.catalina.WebResource;
 import org.apache.catalina.WebResourceRoot.CacheStrategy;
+import org.apache.catalina.WebResourceSet;
+import org.apache.coyote.CompressionConfig;
+import org.apache.coyote.CompressionProvider;
 import org.apache.juli.logging.Log;
 import org.apache.juli.logging.LogFactory;
+import org.apache.tomcat.util.ExceptionUtils;
 import org.apache.tomcat.util.res.StringManager;
 
 /**
@@ -60,6 +76,23 @@ public class Cache {
 
     private final ConcurrentMap<String,CachedResource> resourceCache = new ConcurrentHashMap<>();
 
+    private String evictionPolicyName = null;
+    private volatile CacheEvictionPolicy evictionPolicy = null;
+
+    private final ConcurrentMap<WebResourceSet,ResourceSetStatistics> resourceSetStatistics =
+            new ConcurrentHashMap<>();
+
+    private static final String COMPRESSED_SPILL_DIR = "compressed-resources";
+
+    private final AtomicLong compressedSize = new AtomicLong(0);
+    private long compressedMaxSize = 10 * 1024 * 1024;
+    private final LongAdder compressedLookupCount = new LongAdder();
+    private final LongAdder compressedHitCount = new LongAdder();
+    private final ConcurrentMap<String,CompressedResource> compressedCache = new ConcurrentHashMap<>();
+
+    private final AtomicLong mappedSize = new AtomicLong(0);
+    private long mappedMaxSize = 0;
+
     /**
      * Constructs a cache for the given root.
      *
@@ -112,6 +145,7 @@ public class Cache {
                 // newCacheEntry was inserted into the cache - validate it
                 cacheEntry = newCacheEntry;
                 cacheEntry.validateResource(useClassLoaderResources);
+                recordResourceSetMiss(cacheEntry);
 
                 // Even if the resource content larger than objectMaxSizeBytes
                 // there is still benefit in caching the resource metadata
@@ -123,7 +157,10 @@ public class Cache {
                             Long.toString(result)));
                 }
 
-                if (size.get() > maxSize) {
+                CacheEvictionPolicy evictionPolicy = this.evictionPolicy;
+                if (evictionPolicy != null) {
+                    removeCacheEntries(evictionPolicy.add(cacheEntry, delta));
+                } else if (size.get() > maxSize) {
                     // Process resources unordered for speed. Trades cache
                     // efficiency (younger entries may be evicted before older
                     // ones) for speed since this is on the critical path for
@@ -159,9 +196,11 @@ public class Cache {
                 }
                 // Make sure it is validated
                 cacheEntry.validateResource(useClassLoaderResources);
+                recordResourceSetMiss(cacheEntry);
             }
         } else {
             hitCount.increment();
+            recordHit(cacheEntry);
         }
 
         return cacheEntry;
@@ -210,7 +249,10 @@ public class Cache {
                             Long.toString(result)));
                 }
 
-                if (size.get() > maxSize) {
+                CacheEvictionPolicy evictionPolicy = this.evictionPolicy;
+                if (evictionPolicy != null) {
+                    removeCacheEntries(evictionPolicy.add(cacheEntry, delta));
+                } else if (size.get() > maxSize) {
                     // Process resources unordered for speed. Trades cache
                     // efficiency (younger entries may be evicted before older
                     // ones) for speed since this is on the critical path for
@@ -231,6 +273,7 @@ public class Cache {
             }
         } else {
             hitCount.increment();
+            recordHit(cacheEntry);
         }
 
         return cacheEntry.getWebResources();
@@ -240,6 +283,26 @@ public class Cache {
      * Performs background cache maintenance, evicting expired entries.
      */
     protected void backgroundProcess() {
+        CacheEvictionPolicy evictionPolicy = this.evictionPolicy;
+        if (evictionPolicy != null) {
+            removeCacheEntries(evictionPolicy.evict(maxSize * (100 - TARGET_FREE_PERCENT_BACKGROUND) / 100));
+        } else {
+            backgroundEvict();
+        }
+
+        if (!compressedCache.isEmpty()) {
+            TreeSet<CompressedResource> orderedCompressed =
+                    new TreeSet<>(Comparator.comparingLong(CompressedResource::getLastAccess)
+                            .thenComparing(CompressedResource::getWebappPath)
+                            .thenComparing(CompressedResource::getEncoding));
+            orderedCompressed.addAll(compressedCache.values());
+            evictCompressed(compressedMaxSize * (100 - TARGET_FREE_PERCENT_BACKGROUND) / 100,
+                    orderedCompressed.iterator());
+        }
+    }
+
+
+    private void backgroundEvict() {
         // Create an ordered set of all cached resources with the least recently
         // used first. This is a background process so we can afford to take the
         // time to order the elements first
@@ -258,6 +321,210 @@ public class Cache {
         }
     }
 
+
+    /**
+     * Obtain a compressed variant of the given resource using the given content encoding. The compressed variant is
+     * created the first time it is requested and then retained until the original resource changes (as determined by
+     * its ETag) or the variant is evicted from the cache. Variants larger than the maximum size of an object held in
+     * the cache are stored in a temporary file rather than in memory.
+     *
+     * @param resource The resource to compress
+     * @param encoding The content encoding to use
+     *
+     * @return The compressed variant or {@code null} if the encoding is not supported, compressed variants are not
+     *             being cached or compression does not reduce the size of the resource. If not {@code null}, the
+     *             caller must call {@link CompressedResource#release()} once it has finished with the variant.
+     */
+    protected CompressedResource leaseCompressedResource(CachedResource resource, String encoding) {
+        if (compressedMaxSize <= 0 || !resource.isFile() || !isCompressionSupported(encoding)) {
+            return null;
+        }
+        String eTag = resource.getETag();
+        if (eTag == null) {
+            return null;
+        }
+
+        compressedLookupCount.increment();
+
+        String key = encoding + ':' + resource.getWebappPath();
+        CompressedResource compressed = compressedCache.get(key);
+        if (compressed != null) {
+            if (eTag.equals(compressed.getSourceETag())) {
+                compressedHitCount.increment();
+                compressed.touch();
+                return lease(compressed);
+            }
+            removeCompressedEntry(key, compressed);
+        }
+
+        compressed = compress(resource, encoding, eTag);
+        if (compressed == null) {
+            return null;
+        }
+
+        CompressedResource existing = compressedCache.putIfAbsent(key, compressed);
+        if (existing != null) {
+            // Another thread compressed the same resource concurrently
+            compressed.close();
+            return lease(existing);
+        }
+        // Obtain the reference before any eviction so the variant remains valid for this caller if it is evicted
+        CompressedResource result = lease(compressed);
+        long newSize = compressedSize.addAndGet(compressed.getSize());
+        if (newSize > compressedMaxSize) {
+            // Unordered for speed as for the main cache
+            newSize = evictCompressed(compressedMaxSize * (100 - TARGET_FREE_PERCENT_GET) / 100,
+                    compressedCache.values().iterator());
+            if (newSize > compressedMaxSize) {
+                removeCompressedEntry(key, compressed);
+            }
+        }
+        return result;
+    }
+
+
+    private CompressedResource lease(CompressedResource compressed) {
+        if (compressed.isUsable() && compressed.acquire()) {
+            return compressed;
+        }
+        // Marker for a resource that does not benefit from compression or released concurrently as it was evicted
+        return null;
+    }
+
+
+    private CompressedResource compress(CachedResource resource, String encoding, String eTag) {
+        long contentLength = resource.getContentLength();
+        File spillFile = null;
+        byte[] content = null;
+        try (InputStream is = resource.getInputStream()) {
+            if (is == null) {
+                // Resource removed since it was cached
+                return null;
+            }
+            OutputStream os;
+            ByteArrayOutputStream baos = null;
+            if (contentLength > objectMaxSize) {
+                File spillDir = getCompressedSpillDir();
+                if (spillDir == null) {
+                    return null;
+                }
+                spillFile = File.createTempFile("resource", "." + encoding, spillDir);
+                os = new FileOutputStream(spillFile);
+            } else {
+                baos = new ByteArrayOutputStream((int) Math.max(64, contentLength / 2));
+                os = baos;
+            }
+            try (OutputStream cos = getCompressingStream(os, encoding)) {
+                is.transferTo(cos);
+            }
+            long compressedLength = (baos == null) ? spillFile.length() : baos.size();
+            if (compressedLength >= contentLength) {
+                // No benefit. Record that so the resource isn't compressed again.
+                releaseSpillFile(spillFile);
+                spillFile = null;
+            } else if (baos != null) {
+                content = baos.toByteArray();
+            }
+        } catch (IOException ioe) {
+            log.warn(sm.getString("cache.compressFail", resource.getWebappPath(), encoding), ioe);
+            releaseSpillFile(spillFile);
+            return null;
+        }
+        return new CompressedResource(root, resource.getWebappPath(), encoding, eTag, resource.getName(),
+                resource.getLastModified(), resource.getCreation(), content, spillFile);
+    }
+
+
+    private boolean isCompressionSupported(String encoding) {
+        return CompressionConfig.getProvider(encoding) != null;
+    }
+
+
+    private OutputStream getCompressingStream(OutputStream os, String encoding) throws IOException {
+        CompressionProvider provider = CompressionConfig.getProvider(encoding);
+        if (provider == null) {
+            throw new IllegalArgumentException(encoding);
+        }
+        return provider.createOutputStream(os);
+    }
+
+
+    private File getCompressedSpillDir() {
+        File tempDir = null;
+        try {
+            tempDir = (File) root.getContext().getServletContext().getAttribute(ServletContext.TEMPDIR);
+        } catch (Throwable t) {
+            ExceptionUtils.handleThrowable(t);
+        }
+        if (tempDir == null) {
+            return null;
+        }
+        File spillDir = new File(tempDir, COMPRESSED_SPILL_DIR);
+        if (!spillDir.isDirectory() && !spillDir.mkdirs() && !spillDir.isDirectory()) {
+            return null;
+        }
+        return spillDir;
+    }
+
+
+    private void releaseSpillFile(File spillFile) {
+        if (spillFile != null && !spillFile.delete() && spillFile.exists()) {
+            log.warn(sm.getString("compressedResource.deleteFail", spillFile.getAbsolutePath()));
+        }
+    }
+
+
+    private long evictCompressed(long targetSize, Iterator<CompressedResource> iter) {
+        long newSize = compressedSize.get();
+        while (newSize > targetSize && iter.hasNext()) {
+            CompressedResource compressed = iter.next();
+            removeCompressedEntry(compressedKey(compressed), compressed);
+            newSize = compressedSize.get();
+        }
+        return newSize;
+    }
+
+
+    private String compressedKey(CompressedResource compressed) {
+        return compressed.getEncoding() + ':' + compressed.getWebappPath();
+    }
+
+
+    private void removeCompressedEntry(String key, CompressedResource compressed) {
+        if (compressedCache.remove(key, compressed)) {
+            compressedSize.addAndGet(-compressed.getSize());
+            compressed.close();
+        }
+    }
+
+    /*
+     * Map the content of the given cache entry into memory if the cache entry is still present in the cache and the
+     * mapped content fits within the limit for mapped content.
+     */
+    MappedContent map(CachedResource cachedResource, FileResource fileResource) {
+        long contentLength = cachedResource.getContentLength();
+        if (mappedMaxSize <= 0 || resourceCache.get(cachedResource.getWebappPath()) != cachedResource) {
+            return null;
+        }
+        if (mappedSize.addAndGet(contentLength) > mappedMaxSize) {
+            mappedSize.addAndGet(-contentLength);
+            return null;
+        }
+        MappedByteBuffer buffer = fileResource.map();
+        if (buffer == null) {
+            mappedSize.addAndGet(-contentLength);
+            return null;
+        }
+        return new MappedContent(buffer);
+    }
+
+
+    void unmap(MappedContent mappedContent) {
+        mappedSize.addAndGet(-mappedContent.getSize());
+        mappedContent.close();
+    }
+
+
     private boolean noCache(String path) {
         // Don't cache classes. The class loader handles this.
         // Don't cache JARs. The ResourceSet handles this.
@@ -294,15 +561,61 @@ public class Cache {
         // once and the cache size is only updated (if required) once.
         CachedResource cachedResource = resourceCache.remove(path);
         if (cachedResource != null) {
-            long delta = cachedResource.getSize();
-            long result = size.addAndGet(-delta);
-            if (log.isDebugEnabled()) {
-                log.debug(sm.getString("cache.sizeTracking.remove", Long.toString(delta), cachedResource, path,
-                        Long.toString(result)));
+            CacheEvictionPolicy evictionPolicy = this.evictionPolicy;
+            if (evictionPolicy != null) {
+                evictionPolicy.remove(cachedResource);
+            }
+            updateSizeOnRemoval(path, cachedResource);
+        }
+    }
+
+    private void removeCacheEntries(List<CachedResource> cachedResources) {
+        for (CachedResource cachedResource : cachedResources) {
+            // Only remove the entry selected by the eviction policy. The
+            // entry may have been replaced by a newer entry for the same path.
+            String path = cachedResource.getWebappPath();
+            if (resourceCache.remove(path, cachedResource)) {
+                updateSizeOnRemoval(path, cachedResource);
             }
         }
     }
 
+    private void updateSizeOnRemoval(String path, CachedResource cachedResource) {
+        cachedResource.releaseMappedContent();
+        long delta = cachedResource.getSize();
+        long result = size.addAndGet(-delta);
+        if (log.isDebugEnabled()) {
+            log.debug(sm.getString("cache.sizeTracking.remove", Long.toString(delta), cachedResource, path,
+                    Long.toString(result)));
+        }
+    }
+
+    private void recordHit(CachedResource cachedResource) {
+        CacheEvictionPolicy evictionPolicy = this.evictionPolicy;
+        if (evictionPolicy != null) {
+            evictionPolicy.recordAccess(cachedResource);
+        }
+        WebResourceSet resourceSet = cachedResource.getResourceSet();
+        if (resourceSet != null) {
+            getResourceSetStatistics(resourceSet).hitCount.increment();
+        }
+    }
+
+    private void recordResourceSetMiss(CachedResource cachedResource) {
+        WebResourceSet resourceSet = cachedResource.getResourceSet();
+        if (resourceSet != null) {
+            getResourceSetStatistics(resourceSet).missCount.increment();
+        }
+    }
+
+    private ResourceSetStatistics getResourceSetStatistics(WebResourceSet resourceSet) {
+        ResourceSetStatistics result = resourceSetStatistics.get(resourceSet);
+        if (result == null) {
+            result = resourceSetStatistics.computeIfAbsent(resourceSet, k -> new ResourceSetStatistics());
+        }
+        return result;
+    }
+
     /**
      * Returns the cache strategy.
      *
@@ -357,6 +670,56 @@ public class Cache {
     public void setMaxSize(long maxSize) {
         // Internally bytes, externally kilobytes
         this.maxSize = maxSize * 1024;
+        CacheEvictionPolicy evictionPolicy = this.evictionPolicy;
+        if (evictionPolicy != null) {
+            evictionPolicy.setMaxSize(this.maxSize);
+        }
+    }
+
+    /**
+     * Returns the policy used to select the entries to remove from the cache when it is full.
+     *
+     * @return the configured policy or {@code null} for the default policy
+     */
+    public String getEvictionPolicy() {
+        return evictionPolicyName;
+    }
+
+    /**
+     * Sets the policy used to select the entries to remove from the cache when it is full. The default policy removes
+     * entries in no particular order when the cache becomes full during request processing and removes the least
+     * recently validated entries during background processing. {@code tinylfu} selects
+     * {@link TinyLfuCacheEvictionPolicy}. Any other value is treated as the class name of a {@link CacheEvictionPolicy}
+     * implementation.
+     *
+     * @param evictionPolicy the policy or {@code null} for the default policy
+     */
+    public void setEvictionPolicy(String evictionPolicy) {
+        CacheEvictionPolicy newPolicy = null;
+        if (evictionPolicy != null && !evictionPolicy.isBlank()) {
+            if ("tinylfu".equalsIgnoreCase(evictionPolicy)) {
+                newPolicy = new TinyLfuCacheEvictionPolicy();
+            } else {
+                try {
+                    newPolicy = (CacheEvictionPolicy) Class.forName(evictionPolicy).getConstructor().newInstance();
+                } catch (ReflectiveOperationException | ClassCastException e) {
+                    throw new IllegalArgumentException(sm.getString("cache.invalidEvictionPolicy", evictionPolicy), e);
+                }
+            }
+            newPolicy.setMaxSize(maxSize);
+        }
+        CacheEvictionPolicy oldPolicy = this.evictionPolicy;
+        if (oldPolicy != null) {
+            oldPolicy.clear();
+        }
+        this.evictionPolicyName = evictionPolicy;
+        this.evictionPolicy = newPolicy;
+        if (newPolicy != null) {
+            // Track any existing entries
+            for (CachedResource cachedResource : resourceCache.values()) {
+                removeCacheEntries(newPolicy.add(cachedResource, cachedResource.getSize()));
+            }
+        }
     }
 
     /**
@@ -427,8 +790,144 @@ public class Cache {
      * Clears all entries from the cache.
      */
     public void clear() {
-        resourceCache.clear();
+        for (String path : resourceCache.keySet()) {
+            CachedResource cachedResource = resourceCache.remove(path);
+            if (cachedResource != null) {
+                cachedResource.releaseMappedContent();
+            }
+        }
         size.set(0);
+        CacheEvictionPolicy evictionPolicy = this.evictionPolicy;
+        if (evictionPolicy != null) {
+            evictionPolicy.clear();
+        }
+        for (String key : compressedCache.keySet()) {
+            CompressedResource compressed = compressedCache.get(key);
+            if (compressed != null) {
+                removeCompressedEntry(key, compressed);
+            }
+        }
+    }
+
+    /**
+     * Returns the maximum size of the cache of compressed resource variants in kilobytes.
+     *
+     * @return the maximum size in KB
+     */
+    public long getCompressedMaxSize() {
+        // Internally bytes, externally kilobytes
+        return compressedMaxSize / 1024;
+    }
+
+    /**
+     * Sets the maximum size of the cache of compressed resource variants in kilobytes. A value of zero or less disables
+     * the caching of compressed variants.
+     *
+     * @param compressedMaxSize the maximum size in KB
+     */
+    public void setCompressedMaxSize(long compressedMaxSize) {
+        // Internally bytes, externally kilobytes
+        this.compressedMaxSize = compressedMaxSize * 1024;
+    }
+
+    /**
+     * Returns the current size of the cache of compressed resource variants in kilobytes. This includes the size of any
+     * compressed variants stored in temporary files.
+     *
+     * @return the current size in KB
+     */
+    public long getCompressedSize() {
+        return compressedSize.get() / 1024;
+    }
+
+    /**
+     * Returns the total number of lookups for compressed resource variants.
+     *
+     * @return the lookup count
+     */
+    public long getCompressedLookupCount() {
+        return compressedLookupCount.sum();
+    }
+
+    /**
+     * Returns the total number of lookups for compressed resource variants that were served from the cache.
+     *
+     * @return the hit count
+     */
+    public long getCompressedHitCount() {
+        return compressedHitCount.sum();
+    }
+
+    /**
+     * Returns the maximum total size, in kilobytes, of the content of large resources that may be mapped into memory.
+     *
+     * @return the maximum size in KB
+     */
+    public long getMappedMaxSize() {
+        // Internally bytes, externally kilobytes
+        return mappedMaxSize / 1024;
+    }
+
+    /**
+     * Sets the maximum total size, in kilobytes, of the content of large resources that may be mapped into memory.
+     * Resources are only mapped if their content is too large to be cached on the heap. A value of zero or less
+     * disables the mapping of resource content.
+     *
+     * @param mappedMaxSize the maximum size in KB
+     */
+    public void setMappedMaxSize(long mappedMaxSize) {
+        // Internally bytes, externally kilobytes
+        this.mappedMaxSize = mappedMaxSize * 1024;
+    }
+
+    /**
+     * Returns the total size of the resource content currently mapped into memory in kilobytes.
+     *
+     * @return the current size in KB
+     */
+    public long getMappedSize() {
+        return mappedSize.get() / 1024;
+    }
+
+    /**
+     * Returns the number of lookups for resources provided by the given resource set that were served from the cache.
+     *
+     * @param resourceSet the resource set
+     *
+     * @return the hit count
+     */
+    public long getHitCount(WebResourceSet resourceSet) {
+        ResourceSetStatistics statistics = resourceSetStatistics.get(resourceSet);
+        return statistics == null ? 0 : statistics.hitCount.sum();
+    }
+
+    /**
+     * Returns the number of lookups for resources provided by the given resource set that were not served from the
+     * cache.
+     *
+     * @param resourceSet the resource set
+     *
+     * @return the miss count
+     */
+    public long getMissCount(WebResourceSet resourceSet) {
+        ResourceSetStatistics statistics = resourceSetStatistics.get(resourceSet);
+        return statistics == null ? 0 : statistics.missCount.sum();
+    }
+
+    /**
+     * Returns the hit and miss counts for each resource set that has provided a cached resource.
+     *
+     * @return one entry per resource set
+     */
+    public String[] getResourceSetStatistics() {
+        List<String> result = new ArrayList<>();
+        for (Map.Entry<WebResourceSet,ResourceSetStatistics> entry : resourceSetStatistics.entrySet()) {
+            WebResourceSet resourceSet = entry.getKey();
+            result.add(sm.getString("cache.resourceSetStatistics", resourceSet.getClass().getSimpleName(),
+                    resourceSet.getBaseUrl(), Long.valueOf(entry.getValue().hitCount.sum()),
+                    Long.valueOf(entry.getValue().missCount.sum())));
+        }
+        return result.toArray(new String[0]);
     }
 
     /**
@@ -439,4 +938,10 @@ public class Cache {
     public long getSize() {
         return size.get() / 1024;
     }
+
+
+    private static final class ResourceSetStatistics {
+        private final LongAdder hitCount = new LongAdder();
+        private final LongAdder missCount = new LongAdder();
+    }
 }
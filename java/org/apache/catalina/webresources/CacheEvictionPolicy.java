@@ -0,0 +1,81 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.catalina.webresources;
+
+import java.util.List;
+
+/**
+ * Determines which entries are removed from a {@link Cache} when the cache is full. Implementations are responsible
+ * for their own thread safety. All methods are called on the request processing path, apart from
+ * {@link #evict(long)}, so implementations should avoid expensive operations.
+ * <p>
+ * Implementations must provide a public no-argument constructor.
+ */
+public interface CacheEvictionPolicy {
+
+    /**
+     * Set the maximum total size of the entries tracked by this policy.
+     *
+     * @param maxSize the maximum size in bytes
+     */
+    void setMaxSize(long maxSize);
+
+
+    /**
+     * Record that an entry has been added to the cache.
+     *
+     * @param resource the new entry
+     * @param size     the size of the entry in bytes
+     *
+     * @return the entries that must be removed from the cache, which may include the new entry if the policy decides
+     *             that it should not be retained. Never {@code null}.
+     */
+    List<CachedResource> add(CachedResource resource, long size);
+
+
+    /**
+     * Record that an entry has been found in the cache.
+     *
+     * @param resource the entry
+     */
+    void recordAccess(CachedResource resource);
+
+
+    /**
+     * Record that an entry has been removed from the cache other than at the request of this policy.
+     *
+     * @param resource the entry
+     */
+    void remove(CachedResource resource);
+
+
+    /**
+     * Select entries to remove from the cache so that the total size of the remaining entries is no more than the
+     * target size. Called periodically from a background thread.
+     *
+     * @param targetSize the target size in bytes
+     *
+     * @return the entries that must be removed from the cache. Never {@code null}.
+     */
+    List<CachedResource> evict(long targetSize);
+
+
+    /**
+     * Stop tracking all entries.
+     */
+    void clear();
+}
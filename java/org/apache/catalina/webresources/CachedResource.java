@@ -38,6 +38,7 @@ import java.util.jar.Manifest;
 
 import org.apache.catalina.WebResource;
 import org.apache.catalina.WebResourceRoot;
+import org.apache.catalina.WebResourceSet;
 import org.apache.juli.logging.Log;
 import org.apache.juli.logging.LogFactory;
 import org.apache.tomcat.util.buf.HexUtils;
@@ -67,6 +68,7 @@ public class CachedResource implements WebResource {
     private volatile WebResource webResource;
     private volatile WebResource[] webResources;
     private volatile long nextCheck;
+    private volatile WebResourceSet resourceSet;
 
     private volatile Long cachedLastModified = null;
     private volatile String cachedLastModifiedHttp = null;
@@ -77,6 +79,9 @@ public class CachedResource implements WebResource {
     private volatile Boolean cachedIsVirtual = null;
     private volatile Long cachedContentLength = null;
     private volatile String cachedStrongETag = null;
+    private volatile MappedContent mappedContent = null;
+    // Guarded by this
+    private boolean mappingAttempted = false;
 
 
     /**
@@ -122,7 +127,7 @@ public class CachedResource implements WebResource {
         if (webResource == null) {
             synchronized (this) {
                 if (webResource == null) {
-                    webResource = root.getResourceInternal(webAppPath, useClassLoaderResources);
+                    webResource = root.getResourceInternal(webAppPath, useClassLoaderResources, this::setResourceSet);
                     getLastModified();
                     getContentLength();
                     // exists() is a relatively expensive check for a file so
@@ -431,6 +436,68 @@ public class CachedResource implements WebResource {
         return webResource.getWebResourceRoot();
     }
 
+    /**
+     * Obtain a compressed variant of this resource. The variant is created on first use and cached until this resource
+     * changes.
+     *
+     * @param encoding The content encoding to use, e.g. {@code gzip}
+     *
+     * @return The compressed variant or {@code null} if no compressed variant is available for the given encoding. If
+     *             not {@code null}, the caller must call {@link CompressedResource#release()} once it has finished
+     *             with the variant.
+     */
+    public CompressedResource leaseCompressedResource(String encoding) {
+        return cache.leaseCompressedResource(this, encoding);
+    }
+
+    /**
+     * Obtain the content of this resource mapped into memory. Content is only mapped for file resources that are too
+     * large to be cached on the heap and only if mapping has been enabled for the cache. The content is mapped on first
+     * use and remains mapped until this entry is removed from the cache.
+     *
+     * @return The mapped content or {@code null} if the content is not available as mapped content. If not
+     *             {@code null}, the caller must call {@link MappedContent#release()} once it has finished with the
+     *             content.
+     */
+    public MappedContent leaseMappedContent() {
+        MappedContent result = mappedContent;
+        if (result == null) {
+            result = map();
+            if (result == null) {
+                return null;
+            }
+        }
+        if (result.acquire()) {
+            return result;
+        }
+        // Released concurrently as this entry was removed from the cache
+        return null;
+    }
+
+    private synchronized MappedContent map() {
+        if (mappedContent != null || mappingAttempted) {
+            return mappedContent;
+        }
+        mappingAttempted = true;
+        if (webResource instanceof FileResource && getContentLength() > objectMaxSizeBytes) {
+            mappedContent = cache.map(this, (FileResource) webResource);
+        }
+        return mappedContent;
+    }
+
+    /*
+     * Called when this entry is removed from the cache. Mapped content will not be created once this method has been
+     * called.
+     */
+    synchronized void releaseMappedContent() {
+        mappingAttempted = true;
+        MappedContent mappedContent = this.mappedContent;
+        if (mappedContent != null) {
+            this.mappedContent = null;
+            cache.unmap(mappedContent);
+        }
+    }
+
     WebResource getWebResource() {
         return webResource;
     }
@@ -444,6 +511,20 @@ public class CachedResource implements WebResource {
     }
 
 
+    /**
+     * @return the resource set that provided the cached resource or {@code null} if the resource was not found or the
+     *             resource set is not known
+     */
+    WebResourceSet getResourceSet() {
+        return resourceSet;
+    }
+
+
+    private void setResourceSet(WebResourceSet resourceSet) {
+        this.resourceSet = resourceSet;
+    }
+
+
     // Assume that the cache entry will always include the content unless the
     // resource content is larger than objectMaxSizeBytes. This isn't always the
     // case but it makes tracking the current cache size easier.
@@ -0,0 +1,288 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.catalina.webresources;
+
+import java.io.ByteArrayInputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.URL;
+import java.security.cert.Certificate;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.jar.Manifest;
+
+import org.apache.catalina.WebResourceRoot;
+import org.apache.juli.logging.Log;
+import org.apache.juli.logging.LogFactory;
+
+/**
+ * A compressed variant of a cached resource. The compressed content is either held in memory or, for larger resources,
+ * in a spill file. The variant is reference counted. The cache holds one reference for as long as the associated cache
+ * entry is present and each user of the variant holds a further reference while it is serving the content. Any spill
+ * file is deleted once the cache entry has been removed and all users have released their references.
+ */
+public final class CompressedResource extends AbstractResource {
+
+    private static final Log log = LogFactory.getLog(CompressedResource.class);
+
+    // Approximate memory used by an entry excluding the compressed content
+    static final long ENTRY_SIZE = 300;
+
+    private final String encoding;
+    private final String eTag;
+    private final String name;
+    private final long lastModified;
+    private final long creation;
+    private final byte[] content;
+    private final File file;
+    private final long contentLength;
+    private final AtomicInteger references = new AtomicInteger(1);
+    private final AtomicBoolean closed = new AtomicBoolean(false);
+
+    private volatile long lastAccess;
+
+
+    /**
+     * Create a compressed variant.
+     *
+     * @param root         The root for the original resource
+     * @param webAppPath   The path of the original resource
+     * @param encoding     The content encoding used to compress the resource
+     * @param eTag         The ETag of the original resource from which this variant was created
+     * @param name         The name of the original resource
+     * @param lastModified The last modified time of the original resource
+     * @param creation     The creation time of the original resource
+     * @param content      The compressed content or {@code null} if the content is held in a file or the variant is a
+     *                         marker indicating that compression is not beneficial for this resource
+     * @param file         The file holding the compressed content or {@code null} if the content is held in memory
+     */
+    CompressedResource(WebResourceRoot root, String webAppPath, String encoding, String eTag, String name,
+            long lastModified, long creation, byte[] content, File file) {
+        super(root, webAppPath);
+        this.encoding = encoding;
+        this.eTag = eTag;
+        this.name = name;
+        this.lastModified = lastModified;
+        this.creation = creation;
+        this.content = content;
+        this.file = file;
+        if (content != null) {
+            contentLength = content.length;
+        } else if (file != null) {
+            contentLength = file.length();
+        } else {
+            contentLength = -1;
+        }
+        lastAccess = System.currentTimeMillis();
+    }
+
+
+    /**
+     * @return the content encoding used to compress the resource
+     */
+    String getEncoding() {
+        return encoding;
+    }
+
+
+    /**
+     * @return the ETag of the original resource from which this variant was created
+     */
+    String getSourceETag() {
+        return eTag;
+    }
+
+
+    /**
+     * @return {@code true} if there is compressed content, {@code false} if this is a marker recording that
+     *             compressing the original resource did not reduce its size
+     */
+    boolean isUsable() {
+        return content != null || file != null;
+    }
+
+
+    long getLastAccess() {
+        return lastAccess;
+    }
+
+
+    void touch() {
+        lastAccess = System.currentTimeMillis();
+    }
+
+
+    /**
+     * @return the size of this variant in bytes, including any content held in a file, for the purposes of tracking the
+     *             size of the cache
+     */
+    long getSize() {
+        long result = ENTRY_SIZE + getWebappPath().length() * 2L;
+        if (contentLength > 0) {
+            result += contentLength;
+        }
+        return result;
+    }
+
+
+    /**
+     * Obtain a reference to the variant.
+     *
+     * @return {@code true} if a reference was obtained, {@code false} if the variant has already been released
+     */
+    boolean acquire() {
+        int current;
+        do {
+            current = references.get();
+            if (current <= 0) {
+                return false;
+            }
+        } while (!references.compareAndSet(current, current + 1));
+        return true;
+    }
+
+
+    /**
+     * Release a reference previously obtained from {@link CachedResource#leaseCompressedResource(String)}. The variant
+     * may not be used after the reference has been released.
+     */
+    public void release() {
+        if (references.decrementAndGet() == 0 && file != null && !file.delete() && file.exists()) {
+            log.warn(sm.getString("compressedResource.deleteFail", file.getAbsolutePath()));
+        }
+    }
+
+
+    /**
+     * Release the reference held by the cache. Any spill file is deleted once all other references have been released.
+     */
+    void close() {
+        if (closed.compareAndSet(false, true)) {
+            release();
+        }
+    }
+
+
+    /**
+     * @return {@code true} if all references have been released
+     */
+    boolean isReleased() {
+        return references.get() <= 0;
+    }
+
+
+    @Override
+    public long getLastModified() {
+        return lastModified;
+    }
+
+    @Override
+    public boolean exists() {
+        return isUsable();
+    }
+
+    @Override
+    public boolean isVirtual() {
+        return false;
+    }
+
+    @Override
+    public boolean isDirectory() {
+        return false;
+    }
+
+    @Override
+    public boolean isFile() {
+        return isUsable();
+    }
+
+    @Override
+    public boolean delete() {
+        return false;
+    }
+
+    @Override
+    public String getName() {
+        return name;
+    }
+
+    @Override
+    public long getContentLength() {
+        return contentLength;
+    }
+
+    @Override
+    public String getCanonicalPath() {
+        /*
+         * Prevents the spill file being served using sendfile. There is no notification when sendfile has finished with
+         * the file so it could be deleted while still in use once the reference to this variant has been released.
+         */
+        return null;
+    }
+
+    @Override
+    public boolean canRead() {
+        return isUsable();
+    }
+
+    @Override
+    public byte[] getContent() {
+        return content;
+    }
+
+    @Override
+    public long getCreation() {
+        return creation;
+    }
+
+    @Override
+    public URL getURL() {
+        return null;
+    }
+
+    @Override
+    public Certificate[] getCertificates() {
+        return null;
+    }
+
+    @Override
+    public Manifest getManifest() {
+        return null;
+    }
+
+    @Override
+    protected InputStream doGetInputStream() {
+        if (content != null) {
+            return new ByteArrayInputStream(content);
+        }
+        if (file != null) {
+            try {
+                return new FileInputStream(file);
+            } catch (IOException ioe) {
+                return null;
+            }
+        }
+        return null;
+    }
+
+    @Override
+    protected Log getLog() {
+        return log;
+    }
+}
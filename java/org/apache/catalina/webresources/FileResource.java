@@ -24,9 +24,13 @@ import java.io.IOException;
 import java.io.InputStream;
 import java.net.MalformedURLException;
 import java.net.URL;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.FileChannel.MapMode;
 import java.nio.charset.Charset;
 import java.nio.charset.StandardCharsets;
 import java.nio.file.Files;
+import java.nio.file.StandardOpenOption;
 import java.nio.file.attribute.BasicFileAttributes;
 import java.security.cert.Certificate;
 import java.util.concurrent.locks.Lock;
@@ -283,6 +287,31 @@ public class FileResource extends AbstractResource {
     }
 
 
+    /**
+     * Map the content of this resource into memory. The caller is responsible for unmapping the returned buffer.
+     *
+     * @return the mapped content or {@code null} if the content could not be mapped
+     */
+    MappedByteBuffer map() {
+        if (needConvert) {
+            // Content has to be converted so it can't be served as is
+            return null;
+        }
+        long len = getContentLengthInternal(false);
+        if (len <= 0 || len > Integer.MAX_VALUE) {
+            return null;
+        }
+        try (FileChannel channel = FileChannel.open(resource.toPath(), StandardOpenOption.READ)) {
+            return channel.map(MapMode.READ_ONLY, 0, len);
+        } catch (IOException ioe) {
+            if (log.isDebugEnabled()) {
+                log.debug(sm.getString("fileResource.mapFail", resource.getPath()), ioe);
+            }
+            return null;
+        }
+    }
+
+
     @Override
     public long getCreation() {
         try {
@@ -0,0 +1,107 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.catalina.webresources;
+
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.apache.tomcat.util.buf.ByteBufferUtils;
+
+/**
+ * The content of a file resource mapped into memory. The mapping is reference counted. The cache holds one reference
+ * for as long as the associated cache entry is present and each user of the content holds a further reference while it
+ * is reading the content. The mapping is released once the cache entry has been removed and all users have released
+ * their references so the file is not left mapped until the buffer is garbage collected.
+ */
+public final class MappedContent {
+
+    private final MappedByteBuffer buffer;
+    private final AtomicInteger references = new AtomicInteger(1);
+    private final AtomicBoolean closed = new AtomicBoolean(false);
+
+
+    MappedContent(MappedByteBuffer buffer) {
+        this.buffer = buffer;
+    }
+
+
+    /**
+     * Obtain a reference to the mapped content.
+     *
+     * @return {@code true} if a reference was obtained, {@code false} if the mapping has already been released
+     */
+    boolean acquire() {
+        int current;
+        do {
+            current = references.get();
+            if (current <= 0) {
+                return false;
+            }
+        } while (!references.compareAndSet(current, current + 1));
+        return true;
+    }
+
+
+    /**
+     * Obtain a read-only view of the mapped content. The caller must hold a reference to the mapped content for as long
+     * as the returned buffer is in use.
+     *
+     * @return a new buffer, positioned at the start of the content, that shares the mapped content
+     */
+    public ByteBuffer getBuffer() {
+        return buffer.duplicate();
+    }
+
+
+    /**
+     * @return the size of the mapped content in bytes
+     */
+    public int getSize() {
+        return buffer.capacity();
+    }
+
+
+    /**
+     * Release a reference previously obtained from {@link CachedResource#leaseMappedContent()}. Neither the mapped
+     * content nor any buffer obtained from {@link #getBuffer()} may be used after the reference has been released.
+     */
+    public void release() {
+        if (references.decrementAndGet() == 0) {
+            ByteBufferUtils.cleanDirectBuffer(buffer);
+        }
+    }
+
+
+    /**
+     * Release the reference held by the cache. The content is unmapped once all other references have been released.
+     */
+    void close() {
+        if (closed.compareAndSet(false, true)) {
+            release();
+        }
+    }
+
+
+    /**
+     * @return {@code true} if the mapping has been unmapped
+     */
+    boolean isUnmapped() {
+        return references.get() <= 0;
+    }
+}
@@ -30,6 +30,7 @@ import java.util.List;
 import java.util.Locale;
 import java.util.Set;
 import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Consumer;
 
 import javax.management.ObjectName;
 
@@ -287,6 +288,15 @@ public class StandardRoot extends LifecycleMBeanBase implements WebResourceRoot
      * @return The web resource, or a non-existent resource if not found
      */
     protected final WebResource getResourceInternal(String path, boolean useClassLoaderResources) {
+        return getResourceInternal(path, useClassLoaderResources, null);
+    }
+
+    /*
+     * As getResourceInternal(String, boolean) but, if the resource is found, the resource set that provided it is
+     * passed to the given consumer.
+     */
+    final WebResource getResourceInternal(String path, boolean useClassLoaderResources,
+            Consumer<WebResourceSet> resourceSetConsumer) {
         WebResource result;
         WebResource virtual = null;
         WebResource mainEmpty = null;
@@ -296,6 +306,9 @@ public class StandardRoot extends LifecycleMBeanBase implements WebResourceRoot
                         useClassLoaderResources && !webResourceSet.getStaticOnly()) {
                     result = webResourceSet.getResource(path);
                     if (result.exists()) {
+                        if (resourceSetConsumer != null) {
+                            resourceSetConsumer.accept(webResourceSet);
+                        }
                         return result;
                     }
                     if (virtual == null) {
@@ -566,6 +579,67 @@ public class StandardRoot extends LifecycleMBeanBase implements WebResourceRoot
         return cache.getObjectMaxSize();
     }
 
+    /**
+     * Set the maximum permitted size for the cache of compressed variants of resources.
+     *
+     * @param cacheCompressedMaxSize Maximum size in kilobytes. A value of zero or less disables the caching of
+     *                                   compressed variants
+     */
+    public void setCacheCompressedMaxSize(long cacheCompressedMaxSize) {
+        cache.setCompressedMaxSize(cacheCompressedMaxSize);
+    }
+
+    /**
+     * Get the maximum permitted size for the cache of compressed variants of resources.
+     *
+     * @return Maximum size in kilobytes
+     */
+    public long getCacheCompressedMaxSize() {
+        return cache.getCompressedMaxSize();
+    }
+
+    /**
+     * Set the maximum total size of the content of large resources that may be mapped into memory.
+     *
+     * @param cacheMappedMaxSize Maximum size in kilobytes. A value of zero or less disables the mapping of resource
+     *                               content
+     */
+    public void setCacheMappedMaxSize(long cacheMappedMaxSize) {
+        cache.setMappedMaxSize(cacheMappedMaxSize);
+    }
+
+    /**
+     * Get the maximum total size of the content of large resources that may be mapped into memory.
+     *
+     * @return Maximum size in kilobytes
+     */
+    public long getCacheMappedMaxSize() {
+        return cache.getMappedMaxSize();
+    }
+
+    Cache getCache() {
+        return cache;
+    }
+
+    /**
+     * Set the policy used to select the entries to remove from the cache when it is full.
+     *
+     * @param cacheEvictionPolicy {@code tinylfu}, the class name of a {@link CacheEvictionPolicy} implementation or
+     *                                {@code null} for the default policy
+     */
+    public void setCacheEvictionPolicy(String cacheEvictionPolicy) {
+        cache.setEvictionPolicy(cacheEvictionPolicy);
+    }
+
+    /**
+     * Get the policy used to select the entries to remove from the cache when it is full.
+     *
+     * @return The configured policy or {@code null} for the default policy
+     */
+    public String getCacheEvictionPolicy() {
+        return cache.getEvictionPolicy();
+    }
+
     @Override
     public void setTrackLockedFiles(boolean trackLockedFiles) {
         this.trackLockedFiles = trackLockedFiles;
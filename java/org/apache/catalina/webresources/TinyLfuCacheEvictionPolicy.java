@@ -0,0 +1,362 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.catalina.webresources;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * A size aware W-TinyLFU eviction policy.
+ * <p>
+ * New entries are placed in a small admission window, managed as LRU, that holds approximately 1% of the maximum size.
+ * Entries leaving the window are candidates for the main space which is managed as a segmented LRU with a probation
+ * segment and a protected segment (80% of the main space). An entry is promoted from probation to protected when it is
+ * accessed again. When the cache is full, a candidate is only admitted to the main space if it has been requested more
+ * often recently, as estimated by a {@link FrequencySketch}, than every entry it would displace from the main space.
+ * Since the number of entries displaced depends on the size of the candidate, one large and rarely used resource can
+ * not displace many small and frequently used resources.
+ * <p>
+ * All operations are O(1) apart from admission which is proportional to the number of entries the candidate would
+ * displace. Accesses are recorded on a best effort basis: if another thread is updating the policy the access is not
+ * recorded rather than blocking the request processing thread.
+ */
+public class TinyLfuCacheEvictionPolicy implements CacheEvictionPolicy {
+
+    private static final int WINDOW_PERCENT = 1;
+    private static final int PROTECTED_PERCENT = 80;
+
+    // Used to estimate the number of entries to size the frequency sketch
+    private static final long AVERAGE_ENTRY_SIZE = 4096;
+
+    private final ReentrantLock lock = new ReentrantLock();
+    private final FrequencySketch sketch = new FrequencySketch();
+
+    private final Map<String,Node> nodes = new HashMap<>();
+    private final LinkedHashMap<String,Node> window = new LinkedHashMap<>(16, 0.75f, true);
+    private final LinkedHashMap<String,Node> probation = new LinkedHashMap<>(16, 0.75f, true);
+    private final LinkedHashMap<String,Node> protectedSegment = new LinkedHashMap<>(16, 0.75f, true);
+
+    private long maxSize = 10 * 1024 * 1024;
+    private long windowMaxSize;
+    private long protectedMaxSize;
+
+    private long windowSize = 0;
+    private long probationSize = 0;
+    private long protectedSize = 0;
+
+
+    /**
+     * Constructs a policy with a maximum size of 10 MiB.
+     */
+    public TinyLfuCacheEvictionPolicy() {
+        updateLimits();
+    }
+
+
+    @Override
+    public void setMaxSize(long maxSize) {
+        lock.lock();
+        try {
+            this.maxSize = maxSize;
+            updateLimits();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+
+    @Override
+    public List<CachedResource> add(CachedResource resource, long size) {
+        List<CachedResource> victims = null;
+        lock.lock();
+        try {
+            String path = resource.getWebappPath();
+            sketch.increment(path.hashCode());
+
+            Node node = nodes.get(path);
+            if (node != null) {
+                unlink(node);
+            }
+            node = new Node(resource, size);
+            nodes.put(path, node);
+            if (size > windowMaxSize) {
+                // Too large for the window. Go straight to admission rather than flushing the window.
+                victims = admit(node, victims);
+            } else {
+                window.put(path, node);
+                windowSize += size;
+            }
+
+            // Move any entries that no longer fit in the window to the main space
+            while (windowSize > windowMaxSize && !window.isEmpty()) {
+                Node candidate = first(window);
+                window.remove(candidate.path);
+                windowSize -= candidate.size;
+                victims = admit(candidate, victims);
+            }
+
+            // In case the limits have been reduced
+            victims = evictToSize(maxSize, victims);
+        } finally {
+            lock.unlock();
+        }
+        return victims == null ? Collections.emptyList() : victims;
+    }
+
+
+    @Override
+    public void recordAccess(CachedResource resource) {
+        if (!lock.tryLock()) {
+            // Best effort. Don't block request processing.
+            return;
+        }
+        try {
+            String path = resource.getWebappPath();
+            sketch.increment(path.hashCode());
+            Node node = nodes.get(path);
+            if (node == null || node.resource != resource) {
+                return;
+            }
+            switch (node.segment) {
+                case WINDOW -> window.get(path);
+                case PROBATION -> {
+                    // Promote
+                    probation.remove(path);
+                    probationSize -= node.size;
+                    node.segment = Segment.PROTECTED;
+                    protectedSegment.put(path, node);
+                    protectedSize += node.size;
+                    // Demote the least recently used protected entries if necessary
+                    while (protectedSize > protectedMaxSize && protectedSegment.size() > 1) {
+                        Node demoted = first(protectedSegment);
+                        protectedSegment.remove(demoted.path);
+                        protectedSize -= demoted.size;
+                        demoted.segment = Segment.PROBATION;
+                        probation.put(demoted.path, demoted);
+                        probationSize += demoted.size;
+                    }
+                }
+                case PROTECTED -> protectedSegment.get(path);
+            }
+        } finally {
+            lock.unlock();
+        }
+    }
+
+
+    @Override
+    public void remove(CachedResource resource) {
+        lock.lock();
+        try {
+            Node node = nodes.get(resource.getWebappPath());
+            if (node != null && node.resource == resource) {
+                unlink(node);
+            }
+        } finally {
+            lock.unlock();
+        }
+    }
+
+
+    @Override
+    public List<CachedResource> evict(long targetSize) {
+        List<CachedResource> victims;
+        lock.lock();
+        try {
+            victims = evictToSize(targetSize, null);
+        } finally {
+            lock.unlock();
+        }
+        return victims == null ? Collections.emptyList() : victims;
+    }
+
+
+    @Override
+    public void clear() {
+        lock.lock();
+        try {
+            nodes.clear();
+            window.clear();
+            probation.clear();
+            protectedSegment.clear();
+            windowSize = 0;
+            probationSize = 0;
+            protectedSize = 0;
+            sketch.clear();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+
+    /**
+     * @return the current total size of the tracked entries in bytes
+     */
+    public long getSize() {
+        lock.lock();
+        try {
+            return totalSize();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+
+    /*
+     * Admit the candidate, evicted from the window, to the main space if there is space or if it is more popular than
+     * every entry it would displace. Otherwise, the candidate is evicted.
+     */
+    private List<CachedResource> admit(Node candidate, List<CachedResource> victims) {
+        long excess = totalSize() + candidate.size - maxSize;
+        if (excess > 0) {
+            int candidateFrequency = sketch.frequency(candidate.path.hashCode());
+            List<Node> displaced = new ArrayList<>();
+            long freed = 0;
+            Iterator<Node> iter = mainIterator();
+            while (freed < excess && iter.hasNext()) {
+                Node victim = iter.next();
+                if (sketch.frequency(victim.path.hashCode()) >= candidateFrequency) {
+                    displaced = null;
+                    break;
+                }
+                displaced.add(victim);
+                freed += victim.size;
+            }
+            if (displaced == null || freed < excess) {
+                // Rejected
+                nodes.remove(candidate.path);
+                return addVictim(victims, candidate);
+            }
+            for (Node victim : displaced) {
+                unlink(victim);
+                victims = addVictim(victims, victim);
+            }
+        }
+        candidate.segment = Segment.PROBATION;
+        probation.put(candidate.path, candidate);
+        probationSize += candidate.size;
+        return victims;
+    }
+
+
+    private List<CachedResource> evictToSize(long targetSize, List<CachedResource> victims) {
+        while (totalSize() > targetSize) {
+            Node victim;
+            if (!probation.isEmpty()) {
+                victim = first(probation);
+            } else if (!window.isEmpty()) {
+                victim = first(window);
+            } else if (!protectedSegment.isEmpty()) {
+                victim = first(protectedSegment);
+            } else {
+                break;
+            }
+            unlink(victim);
+            victims = addVictim(victims, victim);
+        }
+        return victims;
+    }
+
+
+    private Iterator<Node> mainIterator() {
+        Iterator<Node> probationIter = probation.values().iterator();
+        Iterator<Node> protectedIter = protectedSegment.values().iterator();
+        return new Iterator<>() {
+            @Override
+            public boolean hasNext() {
+                return probationIter.hasNext() || protectedIter.hasNext();
+            }
+
+            @Override
+            public Node next() {
+                return probationIter.hasNext() ? probationIter.next() : protectedIter.next();
+            }
+        };
+    }
+
+
+    private void unlink(Node node) {
+        nodes.remove(node.path);
+        switch (node.segment) {
+            case WINDOW -> {
+                window.remove(node.path);
+                windowSize -= node.size;
+            }
+            case PROBATION -> {
+                probation.remove(node.path);
+                probationSize -= node.size;
+            }
+            case PROTECTED -> {
+                protectedSegment.remove(node.path);
+                protectedSize -= node.size;
+            }
+        }
+    }
+
+
+    private long totalSize() {
+        return windowSize + probationSize + protectedSize;
+    }
+
+
+    private void updateLimits() {
+        windowMaxSize = Math.max(1, maxSize * WINDOW_PERCENT / 100);
+        protectedMaxSize = (maxSize - windowMaxSize) * PROTECTED_PERCENT / 100;
+        sketch.ensureCapacity((int) Math.min(Integer.MAX_VALUE, maxSize / AVERAGE_ENTRY_SIZE));
+    }
+
+
+    private static Node first(LinkedHashMap<String,Node> segment) {
+        return segment.values().iterator().next();
+    }
+
+
+    private static List<CachedResource> addVictim(List<CachedResource> victims, Node node) {
+        if (victims == null) {
+            victims = new ArrayList<>();
+        }
+        victims.add(node.resource);
+        return victims;
+    }
+
+
+    private enum Segment {
+        WINDOW,
+        PROBATION,
+        PROTECTED
+    }
+
+
+    private static final class Node {
+        private final CachedResource resource;
+        private final String path;
+        private final long size;
+        private Segment segment = Segment.WINDOW;
+
+        private Node(CachedResource resource, long size) {
+            this.resource = resource;
+            this.path = resource.getWebappPath();
+            this.size = size;
+        }
+    }
+}
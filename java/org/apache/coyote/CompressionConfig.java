@@ -20,12 +20,21 @@ import java.io.IOException;
 import java.io.StringReader;
 import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.Collections;
 import java.util.Enumeration;
+import java.util.HashMap;
 import java.util.HashSet;
+import java.util.Iterator;
 import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.ServiceConfigurationError;
+import java.util.ServiceLoader;
 import java.util.Set;
 import java.util.StringTokenizer;
+import java.util.concurrent.atomic.LongAdder;
 import java.util.regex.Pattern;
+import java.util.zip.Deflater;
 
 import org.apache.juli.logging.Log;
 import org.apache.juli.logging.LogFactory;
@@ -51,15 +60,142 @@ public class CompressionConfig {
     private static final Log log = LogFactory.getLog(CompressionConfig.class);
     private static final StringManager sm = StringManager.getManager(CompressionConfig.class);
 
+    /*
+     * The level used by Deflater when the default is requested. Used as the starting point when the level is reduced.
+     */
+    private static final int DEFAULT_COMPRESSOR_LEVEL = 6;
+
+    private static volatile Map<String,CompressionProvider> availableProviders;
+
     private int compressionLevel = 0;
     private Pattern noCompressionUserAgents = null;
     private String compressibleMimeType = "text/html,text/xml,text/plain,text/css," +
             "text/javascript,application/javascript,application/json,application/xml";
     private String[] compressibleMimeTypes = null;
+    private String compressionEncodings = "gzip";
+    private volatile CompressionProvider[] compressionProviders = null;
     private int compressionMinSize = 2048;
     private Set<String> noCompressionEncodings =
             new HashSet<>(Arrays.asList("br", "compress", "dcb", "dcz", "deflate", "gzip", "pack200-gzip", "zstd"));
 
+    private int compressorLevel = Deflater.DEFAULT_COMPRESSION;
+    private boolean adaptiveCompression = false;
+    private int minCompressorLevel = Deflater.BEST_SPEED;
+    private double compressionLoadThreshold = 0.5;
+    private double compressionBypassThreshold = 0.9;
+    private volatile double load = 0;
+    private volatile int currentCompressorLevel = Deflater.DEFAULT_COMPRESSION;
+
+    private final LongAdder compressedCount = new LongAdder();
+    private final LongAdder bypassCount = new LongAdder();
+    private final LongAdder compressionBytesIn = new LongAdder();
+    private final LongAdder compressionBytesOut = new LongAdder();
+    private final LongAdder compressionTime = new LongAdder();
+
+
+    /**
+     * Returns the content encodings that may be used to compress responses, in server preference order.
+     *
+     * @return comma-separated list of content encodings
+     */
+    public String getCompressionEncodings() {
+        return compressionEncodings;
+    }
+
+
+    /**
+     * Set the content encodings that may be used to compress responses, in server preference order. Content encodings
+     * for which no {@link CompressionProvider} is available are ignored.
+     *
+     * @param compressionEncodings Comma-separated list of content encodings (e.g., "br,zstd,gzip")
+     */
+    public void setCompressionEncodings(String compressionEncodings) {
+        this.compressionEncodings = compressionEncodings;
+        this.compressionProviders = null;
+    }
+
+
+    /**
+     * Returns the providers for the configured content encodings that are available, in server preference order.
+     *
+     * @return the compression providers
+     */
+    public CompressionProvider[] getCompressionProviders() {
+        CompressionProvider[] result = compressionProviders;
+        if (result != null) {
+            return result;
+        }
+        List<CompressionProvider> values = new ArrayList<>();
+        if (compressionEncodings != null) {
+            StringTokenizer tokens = new StringTokenizer(compressionEncodings, ",");
+            while (tokens.hasMoreTokens()) {
+                String token = tokens.nextToken().trim();
+                if (!token.isEmpty()) {
+                    CompressionProvider provider = getProvider(token);
+                    if (provider == null) {
+                        log.warn(sm.getString("compressionConfig.noProvider", token));
+                    } else if (!values.contains(provider)) {
+                        values.add(provider);
+                    }
+                }
+            }
+        }
+        result = values.toArray(new CompressionProvider[0]);
+        compressionProviders = result;
+        return result;
+    }
+
+
+    /**
+     * Obtain the compression provider for the given content encoding.
+     *
+     * @param encoding The content encoding
+     *
+     * @return The provider or {@code null} if no provider is available for the content encoding
+     */
+    public static CompressionProvider getProvider(String encoding) {
+        if (encoding == null) {
+            return null;
+        }
+        return getAvailableProviders().get(encoding.toLowerCase(Locale.ENGLISH));
+    }
+
+
+    private static Map<String,CompressionProvider> getAvailableProviders() {
+        Map<String,CompressionProvider> result = availableProviders;
+        if (result == null) {
+            synchronized (CompressionConfig.class) {
+                result = availableProviders;
+                if (result == null) {
+                    result = new HashMap<>();
+                    addProvider(result, new GzipCompressionProvider());
+                    addProvider(result, new DeflateCompressionProvider());
+                    Iterator<CompressionProvider> iter =
+                            ServiceLoader.load(CompressionProvider.class, CompressionConfig.class.getClassLoader())
+                                    .iterator();
+                    while (true) {
+                        try {
+                            if (!iter.hasNext()) {
+                                break;
+                            }
+                            addProvider(result, iter.next());
+                        } catch (ServiceConfigurationError e) {
+                            log.warn(sm.getString("compressionConfig.providerLoadFail"), e);
+                        }
+                    }
+                    availableProviders = Collections.unmodifiableMap(result);
+                    result = availableProviders;
+                }
+            }
+        }
+        return result;
+    }
+
+
+    private static void addProvider(Map<String,CompressionProvider> providers, CompressionProvider provider) {
+        providers.put(provider.getEncoding().toLowerCase(Locale.ENGLISH), provider);
+    }
+
 
     /**
      * Returns the list of content encodings that indicate already-compressed content.
@@ -248,6 +384,243 @@ public class CompressionConfig {
     }
 
 
+    /**
+     * Returns the compression level used by the compressor. When adaptive compression is enabled, this is the level
+     * used when the connector is lightly loaded.
+     *
+     * @return the compression level from 1 (fastest) to 9 (best compression) or -1 for the default level of the
+     *             content encoding
+     */
+    public int getCompressorLevel() {
+        return compressorLevel;
+    }
+
+
+    /**
+     * Set the compression level used by the compressor. When adaptive compression is enabled, this is the level used
+     * when the connector is lightly loaded.
+     *
+     * @param compressorLevel The compression level from 1 (fastest) to 9 (best compression) or -1 for the default
+     *                            level of the content encoding
+     */
+    public void setCompressorLevel(int compressorLevel) {
+        if (compressorLevel != Deflater.DEFAULT_COMPRESSION &&
+                (compressorLevel < Deflater.BEST_SPEED || compressorLevel > Deflater.BEST_COMPRESSION)) {
+            throw new IllegalArgumentException(
+                    sm.getString("compressionConfig.invalidLevel", Integer.toString(compressorLevel)));
+        }
+        this.compressorLevel = compressorLevel;
+        updateCurrentCompressorLevel();
+    }
+
+
+    /**
+     * Is the compression level adapted to the load on the connector?
+     *
+     * @return {@code true} if adaptive compression is enabled
+     */
+    public boolean getAdaptiveCompression() {
+        return adaptiveCompression;
+    }
+
+
+    /**
+     * Configure whether the compression level is adapted to the load on the connector. When enabled, the compression
+     * level is reduced from {@link #getCompressorLevel()} towards {@link #getMinCompressorLevel()} as the load
+     * increases from {@link #getCompressionLoadThreshold()} to {@link #getCompressionBypassThreshold()}. At or above
+     * the bypass threshold, responses are not compressed unless compression is forced.
+     *
+     * @param adaptiveCompression {@code true} to enable adaptive compression
+     */
+    public void setAdaptiveCompression(boolean adaptiveCompression) {
+        this.adaptiveCompression = adaptiveCompression;
+        updateCurrentCompressorLevel();
+    }
+
+
+    /**
+     * Returns the lowest compression level used when adaptive compression is enabled.
+     *
+     * @return the minimum compression level
+     */
+    public int getMinCompressorLevel() {
+        return minCompressorLevel;
+    }
+
+
+    /**
+     * Set the lowest compression level used when adaptive compression is enabled.
+     *
+     * @param minCompressorLevel The minimum compression level from 1 (fastest) to 9 (best compression)
+     */
+    public void setMinCompressorLevel(int minCompressorLevel) {
+        if (minCompressorLevel < Deflater.BEST_SPEED || minCompressorLevel > Deflater.BEST_COMPRESSION) {
+            throw new IllegalArgumentException(
+                    sm.getString("compressionConfig.invalidLevel", Integer.toString(minCompressorLevel)));
+        }
+        this.minCompressorLevel = minCompressorLevel;
+        updateCurrentCompressorLevel();
+    }
+
+
+    /**
+     * Returns the load, from 0 to 1, above which the compression level is reduced when adaptive compression is
+     * enabled.
+     *
+     * @return the load threshold
+     */
+    public double getCompressionLoadThreshold() {
+        return compressionLoadThreshold;
+    }
+
+
+    /**
+     * Set the load, from 0 to 1, above which the compression level is reduced when adaptive compression is enabled.
+     *
+     * @param compressionLoadThreshold The load threshold
+     */
+    public void setCompressionLoadThreshold(double compressionLoadThreshold) {
+        this.compressionLoadThreshold = compressionLoadThreshold;
+        updateCurrentCompressorLevel();
+    }
+
+
+    /**
+     * Returns the load, from 0 to 1, at or above which responses are not compressed when adaptive compression is
+     * enabled.
+     *
+     * @return the bypass threshold
+     */
+    public double getCompressionBypassThreshold() {
+        return compressionBypassThreshold;
+    }
+
+
+    /**
+     * Set the load, from 0 to 1, at or above which responses are not compressed when adaptive compression is enabled.
+     * Use a value greater than 1 to always compress responses.
+     *
+     * @param compressionBypassThreshold The bypass threshold
+     */
+    public void setCompressionBypassThreshold(double compressionBypassThreshold) {
+        this.compressionBypassThreshold = compressionBypassThreshold;
+        updateCurrentCompressorLevel();
+    }
+
+
+    /**
+     * Returns the most recently reported load.
+     *
+     * @return the load, from 0 (idle) to 1 (saturated)
+     */
+    public double getLoad() {
+        return load;
+    }
+
+
+    /**
+     * Report the current load on the connector. This is expected to be called periodically by the protocol handler.
+     *
+     * @param load The load, from 0 (idle) to 1 (saturated)
+     */
+    public void setLoad(double load) {
+        this.load = Math.max(0, Math.min(1, load));
+        updateCurrentCompressorLevel();
+    }
+
+
+    /**
+     * Returns the compression level to use for responses compressed now, taking account of the load if adaptive
+     * compression is enabled.
+     *
+     * @return the compression level or {@code -1} for the default level of the content encoding
+     */
+    public int getCurrentCompressorLevel() {
+        return currentCompressorLevel;
+    }
+
+
+    private void updateCurrentCompressorLevel() {
+        double load = this.load;
+        if (!adaptiveCompression || load <= compressionLoadThreshold) {
+            currentCompressorLevel = compressorLevel;
+            return;
+        }
+        int maxLevel = (compressorLevel == Deflater.DEFAULT_COMPRESSION) ? DEFAULT_COMPRESSOR_LEVEL : compressorLevel;
+        int minLevel = Math.min(minCompressorLevel, maxLevel);
+        double range = compressionBypassThreshold - compressionLoadThreshold;
+        double fraction = (range <= 0) ? 1 : Math.min(1, (load - compressionLoadThreshold) / range);
+        currentCompressorLevel = (int) Math.round(maxLevel - fraction * (maxLevel - minLevel));
+    }
+
+
+    /**
+     * Record the work performed to compress a response.
+     *
+     * @param bytesIn  The number of uncompressed bytes
+     * @param bytesOut The number of compressed bytes
+     * @param time     The time spent compressing in nanoseconds
+     */
+    public void addCompressionStatistics(long bytesIn, long bytesOut, long time) {
+        compressionBytesIn.add(bytesIn);
+        compressionBytesOut.add(bytesOut);
+        compressionTime.add(time);
+    }
+
+
+    /**
+     * @return the number of responses for which compression has been enabled
+     */
+    public long getCompressedCount() {
+        return compressedCount.sum();
+    }
+
+
+    /**
+     * @return the number of responses that were not compressed because the load was at or above the bypass threshold
+     */
+    public long getCompressionBypassCount() {
+        return bypassCount.sum();
+    }
+
+
+    /**
+     * @return the number of uncompressed bytes written to compressed responses
+     */
+    public long getCompressionBytesIn() {
+        return compressionBytesIn.sum();
+    }
+
+
+    /**
+     * @return the number of compressed bytes produced for compressed responses
+     */
+    public long getCompressionBytesOut() {
+        return compressionBytesOut.sum();
+    }
+
+
+    /**
+     * @return the time, in nanoseconds, spent compressing responses. This excludes the time spent writing the
+     *             compressed data to the network.
+     */
+    public long getCompressionTime() {
+        return compressionTime.sum();
+    }
+
+
+    /**
+     * Reset the compression statistics.
+     */
+    public void resetCompressionStatistics() {
+        compressedCount.reset();
+        bypassCount.reset();
+        compressionBytesIn.reset();
+        compressionBytesOut.reset();
+        compressionTime.reset();
+    }
+
+
     /**
      * Determines if compression should be enabled for the given response and if it is, sets any necessary headers to
      * mark it as such.
@@ -256,11 +629,32 @@ public class CompressionConfig {
      * @param response The response to consider compressing
      *
      * @return {@code true} if compression was enabled for the given response, otherwise {@code false}
+     *
+     * @deprecated Unused. Will be removed in Tomcat 13. Use {@link #getCompressionProvider(Request, Response)} as this
+     *                 method does not indicate which content encoding was selected.
      */
+    @Deprecated
     public boolean useCompression(Request request, Response response) {
+        return getCompressionProvider(request, response) != null;
+    }
+
+
+    /**
+     * Determines if compression should be enabled for the given response and if it is, selects the content encoding to
+     * use and sets any necessary headers to mark the response as compressed. The content encoding is selected from
+     * those configured via {@link #setCompressionEncodings(String)} using the quality values in the request's
+     * {@code Accept-Encoding} header(s). If multiple content encodings have the same quality value, the first in the
+     * configured list is used.
+     *
+     * @param request  The request that triggered the response
+     * @param response The response to consider compressing
+     *
+     * @return The provider for the selected content encoding or {@code null} if the response should not be compressed
+     */
+    public CompressionProvider getCompressionProvider(Request request, Response response) {
         // Check if compression is enabled
         if (compressionLevel == 0) {
-            return false;
+            return null;
         }
 
         boolean useTransferEncoding = false;
@@ -280,14 +674,14 @@ public class CompressionConfig {
                 // Because we are using StringReader, any exception here is a
                 // Tomcat bug.
                 log.warn(sm.getString("compressionConfig.ContentEncodingParseFail"), ioe);
-                return false;
+                return null;
             }
             if (tokens.contains("identity")) {
                 // If identity, do not do content modifications
                 useContentEncoding = false;
             } else if (noCompressionEncodings.stream().anyMatch(tokens::contains)) {
                 // Content should not be compressed twice
-                return false;
+                return null;
             }
         }
 
@@ -296,33 +690,36 @@ public class CompressionConfig {
             // Check if the response is of sufficient length to trigger the compression
             long contentLength = response.getContentLengthLong();
             if (contentLength != -1 && contentLength < compressionMinSize) {
-                return false;
+                return null;
             }
 
             // Check for compatible MIME-TYPE
             String[] compressibleMimeTypes = getCompressibleMimeTypes();
             if (compressibleMimeTypes != null &&
                     !startsWithStringArray(compressibleMimeTypes, response.getContentType())) {
-                return false;
+                return null;
             }
         }
 
+        CompressionProvider provider = null;
+
         Enumeration<String> headerValues = request.getMimeHeaders().values("TE");
-        boolean foundGzip = false;
         // TE and accept-encoding seem to have equivalent syntax
-        while (!foundGzip && headerValues.hasMoreElements()) {
+        // Only gzip is supported as a transfer coding
+        CompressionProvider gzipProvider = getProvider("gzip");
+        while (gzipProvider != null && provider == null && headerValues.hasMoreElements()) {
             List<TE> tes;
             try {
                 tes = TE.parse(new StringReader(headerValues.nextElement()));
             } catch (IOException ioe) {
                 // If there is a problem reading the header, disable compression
-                return false;
+                return null;
             }
 
             for (TE te : tes) {
                 if ("gzip".equalsIgnoreCase(te.getEncoding())) {
                     useTransferEncoding = true;
-                    foundGzip = true;
+                    provider = gzipProvider;
                     break;
                 }
             }
@@ -333,7 +730,7 @@ public class CompressionConfig {
         if (!useTransferEncoding && eTag != null && !eTag.trim().startsWith("W/")) {
             // Has an ETag that doesn't start with "W/..." so it must be a
             // strong ETag
-            return false;
+            return null;
         }
 
         if (useContentEncoding && !useTransferEncoding) {
@@ -341,30 +738,17 @@ public class CompressionConfig {
             // Therefore, set the Vary header to keep proxies happy
             ResponseUtil.addVaryFieldName(responseHeaders, "accept-encoding");
 
-            // Check if user-agent supports gzip encoding
-            // Only interested in whether gzip encoding is supported. Other
-            // encodings and weights can be ignored.
-            headerValues = request.getMimeHeaders().values("accept-encoding");
-            while (!foundGzip && headerValues.hasMoreElements()) {
-                List<AcceptEncoding> acceptEncodings;
-                try {
-                    acceptEncodings = AcceptEncoding.parse(new StringReader(headerValues.nextElement()));
-                } catch (IOException ioe) {
-                    // If there is a problem reading the header, disable compression
-                    return false;
-                }
-
-                for (AcceptEncoding acceptEncoding : acceptEncodings) {
-                    if ("gzip".equalsIgnoreCase(acceptEncoding.getEncoding())) {
-                        foundGzip = true;
-                        break;
-                    }
-                }
+            // Select the content encoding supported by the user agent
+            try {
+                provider = selectProvider(request.getMimeHeaders().values("accept-encoding"));
+            } catch (IOException ioe) {
+                // If there is a problem reading the header, disable compression
+                return null;
             }
         }
 
-        if (!foundGzip) {
-            return false;
+        if (provider == null) {
+            return null;
         }
 
         // If force mode, the browser checks are skipped
@@ -376,25 +760,85 @@ public class CompressionConfig {
                 if (userAgentValueMB != null) {
                     String userAgentValue = userAgentValueMB.toString();
                     if (noCompressionUserAgents.matcher(userAgentValue).matches()) {
-                        return false;
+                        return null;
                     }
                 }
             }
         }
 
+        // If force mode, the load check is skipped
+        if (compressionLevel != 2 && adaptiveCompression && load >= compressionBypassThreshold) {
+            bypassCount.increment();
+            return null;
+        }
+
         // All checks have passed. Compression is enabled.
+        compressedCount.increment();
 
         // Compressed content length is unknown so mark it as such.
         response.setContentLength(-1);
         if (useTransferEncoding) {
             // Configure the transfer encoding for compressed content
-            responseHeaders.addValue("Transfer-Encoding").setString("gzip");
+            responseHeaders.addValue("Transfer-Encoding").setString(provider.getEncoding());
         } else {
             // Configure the content encoding for compressed content
-            responseHeaders.addValue("Content-Encoding").setString("gzip");
+            responseHeaders.addValue("Content-Encoding").setString(provider.getEncoding());
         }
 
-        return true;
+        return provider;
+    }
+
+
+    /**
+     * Select the configured content encoding with the highest quality value in the given {@code Accept-Encoding}
+     * header values. Content encodings not listed (and not matched by {@code *}) are treated as not acceptable.
+     *
+     * @param acceptEncodingValues The values of the {@code Accept-Encoding} headers
+     *
+     * @return The provider for the selected content encoding or {@code null} if none of the configured content
+     *             encodings are acceptable
+     *
+     * @throws IOException If the header values cannot be parsed
+     */
+    CompressionProvider selectProvider(Enumeration<String> acceptEncodingValues) throws IOException {
+        CompressionProvider[] providers = getCompressionProviders();
+        if (providers.length == 0) {
+            return null;
+        }
+        // -1 means not specified by the user agent
+        double[] qualities = new double[providers.length];
+        Arrays.fill(qualities, -1);
+        double wildcardQuality = -1;
+        while (acceptEncodingValues.hasMoreElements()) {
+            List<AcceptEncoding> acceptEncodings =
+                    AcceptEncoding.parse(new StringReader(acceptEncodingValues.nextElement()), true);
+            for (AcceptEncoding acceptEncoding : acceptEncodings) {
+                String encoding = acceptEncoding.getEncoding();
+                if ("*".equals(encoding)) {
+                    wildcardQuality = Math.max(wildcardQuality, acceptEncoding.getQuality());
+                    continue;
+                }
+                for (int i = 0; i < providers.length; i++) {
+                    if (providers[i].getEncoding().equalsIgnoreCase(encoding)) {
+                        qualities[i] = Math.max(qualities[i], acceptEncoding.getQuality());
+                    }
+                }
+            }
+        }
+        CompressionProvider result = null;
+        double resultQuality = 0;
+        for (int i = 0; i < providers.length; i++) {
+            double quality = qualities[i];
+            if (quality < 0) {
+                quality = Math.max(0, wildcardQuality);
+            }
+            // Strictly greater so server preference order is used for equal quality values
+            if (quality > resultQuality) {
+                result = providers[i];
+                resultQuality = quality;
+            }
+        }
+        return result;
     }
 
 
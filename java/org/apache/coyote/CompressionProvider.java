@@ -0,0 +1,73 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.coyote;
+
+import java.io.IOException;
+import java.io.OutputStream;
+
+/**
+ * Provides compression for an HTTP content encoding. Implementations for {@code gzip} and {@code deflate} are
+ * provided. Implementations for other content encodings, such as {@code br} or {@code zstd}, may be added by placing a
+ * JAR on the server class path that registers the implementation with {@link java.util.ServiceLoader}. An
+ * implementation registered with {@link java.util.ServiceLoader} will replace the provided implementation for the same
+ * content encoding.
+ * <p>
+ * Implementations must be thread-safe. A new compressing stream is created for each response.
+ */
+public interface CompressionProvider {
+
+    /**
+     * Obtain the HTTP content encoding implemented by this provider.
+     *
+     * @return The content encoding, in lower case, e.g. {@code gzip}
+     */
+    String getEncoding();
+
+
+    /**
+     * Create a new stream that compresses the data written to it and writes the compressed data to the given stream.
+     * Calling {@link OutputStream#flush()} on the returned stream must write all the data written to the stream so far
+     * to the underlying stream in a form that the client can decompress. Calling {@link OutputStream#close()} on the
+     * returned stream must complete the compressed data, release any resources used for compression and close the
+     * underlying stream.
+     *
+     * @param out The stream to which the compressed data should be written
+     *
+     * @return The compressing stream
+     *
+     * @throws IOException If the compressing stream could not be created
+     */
+    OutputStream createOutputStream(OutputStream out) throws IOException;
+
+
+    /**
+     * Create a new stream, as per {@link #createOutputStream(OutputStream)}, using the given compression level. The
+     * level uses the same scale as {@link java.util.zip.Deflater}, from {@code 1} (fastest) to {@code 9} (best
+     * compression). Providers for content encodings that use a different scale are expected to map the level onto that
+     * scale. The default implementation ignores the level.
+     *
+     * @param out   The stream to which the compressed data should be written
+     * @param level The compression level or {@code -1} to use the default level for the content encoding
+     *
+     * @return The compressing stream
+     *
+     * @throws IOException If the compressing stream could not be created
+     */
+    default OutputStream createOutputStream(OutputStream out, int level) throws IOException {
+        return createOutputStream(out);
+    }
+}
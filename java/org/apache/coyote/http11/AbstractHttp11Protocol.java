@@ -16,6 +16,8 @@
  */
 package org.apache.coyote.http11;
 
+import java.lang.management.ManagementFactory;
+import java.lang.management.OperatingSystemMXBean;
 import java.util.ArrayList;
 import java.util.HashMap;
 import java.util.HashSet;
@@ -24,6 +26,9 @@ import java.util.Locale;
 import java.util.Map;
 import java.util.Set;
 import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
 import java.util.regex.Pattern;
 
 import javax.management.ObjectInstance;
@@ -34,6 +39,7 @@ import jakarta.servlet.http.HttpUpgradeHandler;
 
 import org.apache.coyote.AbstractProtocol;
 import org.apache.coyote.CompressionConfig;
+import org.apache.coyote.CompressionProvider;
 import org.apache.coyote.ContinueResponseTiming;
 import org.apache.coyote.Processor;
 import org.apache.coyote.Request;
@@ -53,6 +59,8 @@ import org.apache.tomcat.util.net.SSLHostConfig;
 import org.apache.tomcat.util.net.SocketWrapperBase;
 import org.apache.tomcat.util.net.openssl.OpenSSLImplementation;
 import org.apache.tomcat.util.res.StringManager;
+import org.apache.tomcat.util.threads.ResizableExecutor;
+import org.apache.tomcat.util.threads.ThreadPoolExecutor;
 
 /**
  * Base implementation of the HTTP/1.1 and HTTP/1.0 protocols.
@@ -68,6 +76,8 @@ public abstract class AbstractHttp11Protocol<S> extends AbstractProtocol<S> {
 
     private final CompressionConfig compressionConfig = new CompressionConfig();
 
+    private ScheduledFuture<?> compressionLoadFuture = null;
+
     private HttpParser httpParser = null;
 
     /**
@@ -105,6 +115,73 @@ public abstract class AbstractHttp11Protocol<S> extends AbstractProtocol<S> {
     }
 
 
+    @Override
+    public void start() throws Exception {
+        super.start();
+        if (compressionConfig.getAdaptiveCompression()) {
+            compressionLoadFuture =
+                    getUtilityExecutor().scheduleWithFixedDelay(this::updateCompressionLoad, 1, 1, TimeUnit.SECONDS);
+        }
+    }
+
+
+    @Override
+    public void stop() throws Exception {
+        if (compressionLoadFuture != null) {
+            compressionLoadFuture.cancel(false);
+            compressionLoadFuture = null;
+        }
+        compressionConfig.setLoad(0);
+        super.stop();
+    }
+
+
+    /**
+     * Updates the load used for adaptive compression. The load is the greater of the proportion of the executor's
+     * threads that are busy and the system load average per processor. If tasks are queued waiting for a thread, the
+     * executor is considered saturated.
+     */
+    protected void updateCompressionLoad() {
+        double load = 0;
+        Executor executor = getExecutor();
+        switch (executor) {
+            case ThreadPoolExecutor threadPoolExecutor -> {
+                if (threadPoolExecutor.getQueue().isEmpty()) {
+                    load = ratio(threadPoolExecutor.getActiveCount(), threadPoolExecutor.getMaximumPoolSize());
+                } else {
+                    load = 1;
+                }
+            }
+            case java.util.concurrent.ThreadPoolExecutor threadPoolExecutor -> {
+                if (threadPoolExecutor.getQueue().isEmpty()) {
+                    load = ratio(threadPoolExecutor.getActiveCount(), threadPoolExecutor.getMaximumPoolSize());
+                } else {
+                    load = 1;
+                }
+            }
+            case ResizableExecutor resizableExecutor ->
+                load = ratio(resizableExecutor.getActiveCount(), resizableExecutor.getMaxThreads());
+            case null, default -> {
+                // Unable to determine the executor load
+            }
+        }
+        OperatingSystemMXBean os = ManagementFactory.getOperatingSystemMXBean();
+        double systemLoad = os.getSystemLoadAverage();
+        if (systemLoad >= 0) {
+            load = Math.max(load, systemLoad / os.getAvailableProcessors());
+        }
+        compressionConfig.setLoad(load);
+    }
+
+
+    private static double ratio(int value, int max) {
+        if (max <= 0) {
+            return 0;
+        }
+        return (double) value / max;
+    }
+
+
     @Override
     public void destroy() throws Exception {
         // There may be upgrade protocols with their own MBeans. These need to
@@ -507,15 +584,220 @@ public abstract class AbstractHttp11Protocol<S> extends AbstractProtocol<S> {
     }
 
 
+    /**
+     * Obtain the compression configuration for this protocol.
+     *
+     * @return The compression configuration
+     */
+    public CompressionConfig getCompressionConfig() {
+        return compressionConfig;
+    }
+
+
+    /**
+     * Get the compression level used by the compressor.
+     *
+     * @return The compression level or -1 for the default level
+     */
+    public int getCompressorLevel() {
+        return compressionConfig.getCompressorLevel();
+    }
+
+    /**
+     * Set the compression level used by the compressor.
+     *
+     * @param compressorLevel The compression level from 1 (fastest) to 9 (best compression) or -1 for the default
+     *                            level
+     */
+    public void setCompressorLevel(int compressorLevel) {
+        compressionConfig.setCompressorLevel(compressorLevel);
+    }
+
+
+    /**
+     * Is the compression level adapted to the load on the connector?
+     *
+     * @return {@code true} if adaptive compression is enabled
+     */
+    public boolean getAdaptiveCompression() {
+        return compressionConfig.getAdaptiveCompression();
+    }
+
+    /**
+     * Configure whether the compression level is adapted to the load on the connector. Changes take effect when the
+     * connector is next started.
+     *
+     * @param adaptiveCompression {@code true} to enable adaptive compression
+     */
+    public void setAdaptiveCompression(boolean adaptiveCompression) {
+        compressionConfig.setAdaptiveCompression(adaptiveCompression);
+    }
+
+
+    /**
+     * Get the lowest compression level used when adaptive compression is enabled.
+     *
+     * @return The minimum compression level
+     */
+    public int getMinCompressorLevel() {
+        return compressionConfig.getMinCompressorLevel();
+    }
+
+    /**
+     * Set the lowest compression level used when adaptive compression is enabled.
+     *
+     * @param minCompressorLevel The minimum compression level
+     */
+    public void setMinCompressorLevel(int minCompressorLevel) {
+        compressionConfig.setMinCompressorLevel(minCompressorLevel);
+    }
+
+
+    /**
+     * Get the load above which the compression level is reduced when adaptive compression is enabled.
+     *
+     * @return The load threshold
+     */
+    public double getCompressionLoadThreshold() {
+        return compressionConfig.getCompressionLoadThreshold();
+    }
+
+    /**
+     * Set the load above which the compression level is reduced when adaptive compression is enabled.
+     *
+     * @param compressionLoadThreshold The load threshold, from 0 to 1
+     */
+    public void setCompressionLoadThreshold(double compressionLoadThreshold) {
+        compressionConfig.setCompressionLoadThreshold(compressionLoadThreshold);
+    }
+
+
+    /**
+     * Get the load at or above which responses are not compressed when adaptive compression is enabled.
+     *
+     * @return The bypass threshold
+     */
+    public double getCompressionBypassThreshold() {
+        return compressionConfig.getCompressionBypassThreshold();
+    }
+
+    /**
+     * Set the load at or above which responses are not compressed when adaptive compression is enabled.
+     *
+     * @param compressionBypassThreshold The bypass threshold, from 0 to 1
+     */
+    public void setCompressionBypassThreshold(double compressionBypassThreshold) {
+        compressionConfig.setCompressionBypassThreshold(compressionBypassThreshold);
+    }
+
+
+    /**
+     * @return the load most recently used to select the compression level
+     */
+    public double getCompressionLoad() {
+        return compressionConfig.getLoad();
+    }
+
+
+    /**
+     * @return the compression level currently used for new compressed responses
+     */
+    public int getCurrentCompressorLevel() {
+        return compressionConfig.getCurrentCompressorLevel();
+    }
+
+
+    /**
+     * @return the number of responses for which compression has been enabled
+     */
+    public long getCompressedCount() {
+        return compressionConfig.getCompressedCount();
+    }
+
+
+    /**
+     * @return the number of responses not compressed because of the load
+     */
+    public long getCompressionBypassCount() {
+        return compressionConfig.getCompressionBypassCount();
+    }
+
+
+    /**
+     * @return the number of uncompressed bytes written to compressed responses
+     */
+    public long getCompressionBytesIn() {
+        return compressionConfig.getCompressionBytesIn();
+    }
+
+
+    /**
+     * @return the number of compressed bytes produced for compressed responses
+     */
+    public long getCompressionBytesOut() {
+        return compressionConfig.getCompressionBytesOut();
+    }
+
+
+    /**
+     * @return the time, in nanoseconds, spent compressing responses
+     */
+    public long getCompressionTime() {
+        return compressionConfig.getCompressionTime();
+    }
+
+
+    /**
+     * Reset the compression statistics.
+     */
+    public void resetCompressionStatistics() {
+        compressionConfig.resetCompressionStatistics();
+    }
+
+
+    /**
+     * Get the content encodings that may be used to compress responses, in server preference order.
+     *
+     * @return The content encodings that may be used to compress responses
+     */
+    public String getCompressionEncodings() {
+        return compressionConfig.getCompressionEncodings();
+    }
+
+    /**
+     * Set the content encodings that may be used to compress responses, in server preference order.
+     *
+     * @param encodings The content encodings that may be used to compress responses
+     */
+    public void setCompressionEncodings(String encodings) {
+        compressionConfig.setCompressionEncodings(encodings);
+    }
+
+
     /**
      * Check if compression should be used for the specified request/response.
      *
      * @param request The HTTP request
      * @param response The HTTP response
      * @return {@code true} if compression should be used
+     *
+     * @deprecated Unused. Will be removed in Tomcat 13. Use {@link #getCompressionProvider(Request, Response)}.
      */
+    @Deprecated
     public boolean useCompression(Request request, Response response) {
-        return compressionConfig.useCompression(request, response);
+        return getCompressionProvider(request, response) != null;
+    }
+
+
+    /**
+     * Select the compression provider, if any, to use for the specified request/response.
+     *
+     * @param request The HTTP request
+     * @param response The HTTP response
+     * @return The compression provider to use or {@code null} if compression should not be used
+     */
+    public CompressionProvider getCompressionProvider(Request request, Response response) {
+        return compressionConfig.getCompressionProvider(request, response);
     }
 
 
@@ -139,7 +139,7 @@ public final class Constants {
 
 
     /**
-     * GZIP filter (output).
+     * Compression filter (output). The name reflects that gzip was originally the only supported content encoding.
      */
     public static final int GZIP_FILTER = 3;
 
@@ -74,6 +74,24 @@ public class Http11NioProtocol extends AbstractHttp11Protocol<NioChannel> {
         return ((NioEndpoint) getEndpoint()).getSelectorTimeout();
     }
 
+    /**
+     * Sets the number of poller threads for the NIO endpoint.
+     *
+     * @param pollerThreadCount the number of poller threads
+     */
+    public void setPollerThreadCount(int pollerThreadCount) {
+        ((NioEndpoint) getEndpoint()).setPollerThreadCount(pollerThreadCount);
+    }
+
+    /**
+     * Gets the number of poller threads for the NIO endpoint.
+     *
+     * @return the number of poller threads
+     */
+    public int getPollerThreadCount() {
+        return ((NioEndpoint) getEndpoint()).getPollerThreadCount();
+    }
+
     /**
      * Sets the poller thread priority for the NIO endpoint.
      *
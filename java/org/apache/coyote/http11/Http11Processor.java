@@ -32,6 +32,7 @@ import jakarta.servlet.http.HttpServletResponse;
 import org.apache.coyote.AbstractProcessor;
 import org.apache.coyote.ActionCode;
 import org.apache.coyote.Adapter;
+import org.apache.coyote.CompressionProvider;
 import org.apache.coyote.ContinueResponseTiming;
 import org.apache.coyote.ErrorState;
 import org.apache.coyote.Request;
@@ -41,7 +42,7 @@ import org.apache.coyote.UpgradeToken;
 import org.apache.coyote.http11.filters.BufferedInputFilter;
 import org.apache.coyote.http11.filters.ChunkedInputFilter;
 import org.apache.coyote.http11.filters.ChunkedOutputFilter;
-import org.apache.coyote.http11.filters.GzipOutputFilter;
+import org.apache.coyote.http11.filters.CompressionOutputFilter;
 import org.apache.coyote.http11.filters.IdentityInputFilter;
 import org.apache.coyote.http11.filters.IdentityOutputFilter;
 import org.apache.coyote.http11.filters.SavedRequestInputFilter;
@@ -193,7 +194,9 @@ public class Http11Processor extends AbstractProcessor {
 
         // Create and add the gzip filters.
         // inputBuffer.addFilter(new GzipInputFilter());
-        outputBuffer.addFilter(new GzipOutputFilter());
+        CompressionOutputFilter compressionOutputFilter = new CompressionOutputFilter();
+        compressionOutputFilter.setCompressionConfig(protocol.getCompressionConfig());
+        outputBuffer.addFilter(compressionOutputFilter);
 
         pluggableFilterIndex = inputBuffer.getFilters().length;
     }
@@ -894,9 +897,9 @@ public class Http11Processor extends AbstractProcessor {
         }
 
         // Check for compression
-        boolean useCompression = false;
+        CompressionProvider compressionProvider = null;
         if (entityBody && sendfileData == null) {
-            useCompression = protocol.useCompression(request, response);
+            compressionProvider = protocol.getCompressionProvider(request, response);
         }
 
         MimeHeaders headers = response.getMimeHeaders();
@@ -942,7 +945,8 @@ public class Http11Processor extends AbstractProcessor {
             }
         }
 
-        if (useCompression) {
+        if (compressionProvider != null) {
+            ((CompressionOutputFilter) outputFilters[Constants.GZIP_FILTER]).setProvider(compressionProvider);
             outputBuffer.addActiveFilter(outputFilters[Constants.GZIP_FILTER]);
         }
 
@@ -0,0 +1,247 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.coyote.http11.filters;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+
+import org.apache.coyote.CompressionConfig;
+import org.apache.coyote.CompressionProvider;
+import org.apache.coyote.Response;
+import org.apache.coyote.http11.HttpOutputBuffer;
+import org.apache.coyote.http11.OutputFilter;
+import org.apache.juli.logging.Log;
+import org.apache.juli.logging.LogFactory;
+import org.apache.tomcat.util.res.StringManager;
+
+/**
+ * Output filter that compresses response data using the content encoding implemented by a {@link CompressionProvider}.
+ */
+public class CompressionOutputFilter implements OutputFilter {
+
+    private static final Log log = LogFactory.getLog(CompressionOutputFilter.class);
+    private static final StringManager sm = StringManager.getManager(CompressionOutputFilter.class);
+
+
+    // ----------------------------------------------------- Instance Variables
+
+    private HttpOutputBuffer buffer;
+
+    private CompressionProvider provider;
+
+    private CompressionConfig compressionConfig;
+
+    private OutputStream compressionStream = null;
+
+    private final FakeOutputStream fakeOutputStream = new FakeOutputStream();
+
+    // Statistics for the current response
+    private long bytesIn = 0;
+    private long compressionTime = 0;
+
+
+    // ----------------------------------------------------------- Constructors
+
+    /**
+     * Constructs a new filter. {@link #setProvider(CompressionProvider)} must be called before the filter is used.
+     */
+    public CompressionOutputFilter() {
+    }
+
+
+    /**
+     * Constructs a new filter using the given compression provider.
+     *
+     * @param provider The compression provider to use
+     */
+    public CompressionOutputFilter(CompressionProvider provider) {
+        this.provider = provider;
+    }
+
+
+    // ------------------------------------------------------------- Properties
+
+    /**
+     * Set the compression provider to use for the current response.
+     *
+     * @param provider The compression provider
+     */
+    public void setProvider(CompressionProvider provider) {
+        this.provider = provider;
+    }
+
+
+    /**
+     * Obtain the compression provider used for the current response.
+     *
+     * @return The compression provider
+     */
+    public CompressionProvider getProvider() {
+        return provider;
+    }
+
+
+    /**
+     * Set the configuration from which the compression level is obtained and to which the compression statistics are
+     * reported.
+     *
+     * @param compressionConfig The compression configuration or {@code null} to use the default compression level and
+     *                              not report statistics
+     */
+    public void setCompressionConfig(CompressionConfig compressionConfig) {
+        this.compressionConfig = compressionConfig;
+    }
+
+
+    // --------------------------------------------------- OutputBuffer Methods
+
+    @Override
+    public int doWrite(ByteBuffer chunk) throws IOException {
+        long start = System.nanoTime();
+        if (compressionStream == null) {
+            createCompressionStream();
+        }
+        int len = chunk.remaining();
+        if (chunk.hasArray()) {
+            compressionStream.write(chunk.array(), chunk.arrayOffset() + chunk.position(), len);
+            chunk.position(chunk.position() + len);
+        } else {
+            byte[] bytes = new byte[len];
+            chunk.get(bytes);
+            compressionStream.write(bytes, 0, len);
+        }
+        bytesIn += len;
+        compressionTime += System.nanoTime() - start;
+        return len;
+    }
+
+
+    @Override
+    public long getBytesWritten() {
+        return buffer.getBytesWritten();
+    }
+
+
+    // --------------------------------------------------- OutputFilter Methods
+
+    @Override
+    public void flush() throws IOException {
+        if (compressionStream != null) {
+            try {
+                if (log.isTraceEnabled()) {
+                    log.trace("Flushing the compression stream!");
+                }
+                long start = System.nanoTime();
+                compressionStream.flush();
+                compressionTime += System.nanoTime() - start;
+            } catch (IOException ioe) {
+                if (log.isDebugEnabled()) {
+                    log.debug(sm.getString("compressionOutputFilter.flushFail", provider.getEncoding()), ioe);
+                }
+            }
+        }
+        buffer.flush();
+    }
+
+
+    @Override
+    public void setResponse(Response response) {
+        // NOOP: No need for parameters from response in this filter
+    }
+
+
+    @Override
+    public void setBuffer(HttpOutputBuffer buffer) {
+        this.buffer = buffer;
+    }
+
+
+    @Override
+    public void end() throws IOException {
+        long start = System.nanoTime();
+        if (compressionStream == null) {
+            createCompressionStream();
+        }
+        compressionStream.close();
+        compressionTime += System.nanoTime() - start;
+        if (compressionConfig != null) {
+            compressionConfig.addCompressionStatistics(bytesIn, fakeOutputStream.bytesOut,
+                    Math.max(0, compressionTime - fakeOutputStream.writeTime));
+        }
+        buffer.end();
+    }
+
+
+    @Override
+    public void recycle() {
+        compressionStream = null;
+        bytesIn = 0;
+        compressionTime = 0;
+        fakeOutputStream.bytesOut = 0;
+        fakeOutputStream.writeTime = 0;
+    }
+
+
+    private void createCompressionStream() throws IOException {
+        int level = (compressionConfig == null) ? -1 : compressionConfig.getCurrentCompressorLevel();
+        compressionStream = provider.createOutputStream(fakeOutputStream, level);
+    }
+
+
+    // ------------------------------------------- FakeOutputStream Inner Class
+
+    private class FakeOutputStream extends OutputStream {
+
+        private final ByteBuffer outputChunk = ByteBuffer.allocate(1);
+
+        /*
+         * The compressed bytes written and the time spent writing them to the next buffer (which may include network
+         * I/O) so that time can be excluded from the compression time.
+         */
+        private long bytesOut = 0;
+        private long writeTime = 0;
+
+        @Override
+        public void write(int b) throws IOException {
+            long start = System.nanoTime();
+            outputChunk.put(0, (byte) (b & 0xff));
+            outputChunk.clear();
+            buffer.doWrite(outputChunk);
+            bytesOut++;
+            writeTime += System.nanoTime() - start;
+        }
+
+        @Override
+        public void write(byte[] b, int off, int len) throws IOException {
+            long start = System.nanoTime();
+            buffer.doWrite(ByteBuffer.wrap(b, off, len));
+            bytesOut += len;
+            writeTime += System.nanoTime() - start;
+        }
+
+        @Override
+        public void flush() throws IOException {
+            // NOOP
+        }
+
+        @Override
+        public void close() throws IOException {
+            // NOOP
+        }
+    }
+}
@@ -0,0 +1,215 @@
+/*
+ *  Licensed to the Apache Software Foundation (ASF) under one or more
+ *  contributor license agreements.  See the NOTICE file distributed with
+ *  this work for additional information regarding copyright ownership.
+ *  The ASF licenses this file to You under the Apache License, Version 2.0
+ *  (the "License"); you may not use this file except in compliance with
+ *  the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package org.apache.coyote.http2;
+
+import java.nio.ByteBuffer;
+import java.nio.channels.CompletionHandler;
+import java.util.Arrays;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.locks.Lock;
+import java.util.concurrent.locks.ReentrantLock;
+
+import org.apache.tomcat.util.net.SocketWrapperBase.CompletionState;
+
+/**
+ * Writes frames for {@link Http2AsyncUpgradeHandler}.
+ * <p>
+ * Frames are written by adding them to a queue and then obtaining the write lock. The thread holding the lock writes
+ * all the queued frames, from any stream, with a single gathering write. While one thread is blocked writing to the
+ * network, other threads queue their frames and those frames are then written together by the next thread to obtain
+ * the lock. Frames are written in the order in which they were queued.
+ * <p>
+ * A batch may contain both connection frames and stream frames. If the write fails, the error is recorded against
+ * every frame in the batch so each caller can handle it according to the type of frame it wrote. The error is also
+ * passed to the connection error handler so callers that did not wait for their frames are aware of it.
+ */
+abstract class AsyncFrameWriter {
+
+    // The maximum number of buffers written with a single gathering write
+    static final int MAX_BATCH_BUFFERS = 64;
+
+    private final Queue<PendingFrames> pendingFrames = new ConcurrentLinkedQueue<>();
+    private final Lock writeLock = new ReentrantLock();
+    private final CompletionHandler<Long,Void> connectionErrorCompletion;
+    private final CompletionHandler<Long,Void> batchCompletion = new CompletionHandler<>() {
+        @Override
+        public void completed(Long result, Void attachment) {
+        }
+
+        @Override
+        public void failed(Throwable t, Void attachment) {
+            batchError = t;
+            connectionErrorCompletion.failed(t, null);
+        }
+    };
+
+    // Guarded by writeLock
+    private ByteBuffer[] batchBuffers = new ByteBuffer[MAX_BATCH_BUFFERS];
+    private PendingFrames[] batchFrames = new PendingFrames[MAX_BATCH_BUFFERS];
+    // Written by the completion handler which may not be called by the thread holding writeLock
+    private volatile Throwable batchError;
+
+
+    AsyncFrameWriter(CompletionHandler<Long,Void> connectionErrorCompletion) {
+        this.connectionErrorCompletion = connectionErrorCompletion;
+    }
+
+
+    /**
+     * Queue frames to be written and, if the caller needs to wait for the frames to be written or no other thread is
+     * currently writing, write all the queued frames.
+     *
+     * @param frames The frames to write
+     * @param wait   {@code true} if the caller needs to re-use the buffers once this method returns and therefore has
+     *                   to wait until the frames have been written
+     */
+    void write(PendingFrames frames, boolean wait) {
+        pendingFrames.add(frames);
+        if (wait) {
+            writeLock.lock();
+            try {
+                while (!frames.written) {
+                    writePendingFrames();
+                }
+            } finally {
+                writeLock.unlock();
+            }
+        }
+        /*
+         * Frames may have been queued by threads that did not wait while the lock was held. The queue is checked after
+         * the lock has been released so either this thread or the thread that queued the frames will write them.
+         */
+        while (!pendingFrames.isEmpty() && writeLock.tryLock()) {
+            try {
+                writePendingFrames();
+            } finally {
+                writeLock.unlock();
+            }
+        }
+    }
+
+
+    /**
+     * Write the given buffers to the network with a single blocking, gathering write.
+     *
+     * @param buffers The buffers to write
+     * @param length  The number of buffers, starting from the first, to write
+     * @param handler The handler to notify if the write fails
+     *
+     * @return The completion state of the write
+     */
+    protected abstract CompletionState writeBuffers(ByteBuffer[] buffers, int length,
+            CompletionHandler<Long,Void> handler);
+
+
+    /*
+     * Caller must hold writeLock.
+     */
+    private void writePendingFrames() {
+        int frameCount = 0;
+        int bufferCount = 0;
+        PendingFrames frames;
+        while ((frames = pendingFrames.peek()) != null) {
+            int length = frames.buffers.length;
+            if (bufferCount + length > batchBuffers.length) {
+                if (frameCount > 0) {
+                    break;
+                }
+                // A single header block that spans many CONTINUATION frames
+                batchBuffers = new ByteBuffer[length];
+            }
+            pendingFrames.poll();
+            System.arraycopy(frames.buffers, 0, batchBuffers, bufferCount, length);
+            bufferCount += length;
+            if (frameCount == batchFrames.length) {
+                batchFrames = Arrays.copyOf(batchFrames, frameCount * 2);
+            }
+            batchFrames[frameCount++] = frames;
+        }
+        if (frameCount == 0) {
+            return;
+        }
+
+        batchError = null;
+        CompletionState state = writeBuffers(batchBuffers, bufferCount, batchCompletion);
+        Throwable t = batchError;
+        // If the write did not complete, the buffers may still be in use
+        boolean completed = state == CompletionState.DONE || state == CompletionState.INLINE;
+        for (int i = 0; i < frameCount; i++) {
+            batchFrames[i].written = true;
+            batchFrames[i].completed = completed;
+            batchFrames[i].error = t;
+            batchFrames[i] = null;
+        }
+        if (completed) {
+            Arrays.fill(batchBuffers, 0, bufferCount, null);
+        } else {
+            batchBuffers = new ByteBuffer[MAX_BATCH_BUFFERS];
+        }
+    }
+
+
+    /**
+     * One or more complete frames waiting to be written.
+     */
+    static class PendingFrames {
+
+        protected ByteBuffer[] buffers;
+        private final boolean application;
+
+        // Guarded by writeLock
+        private boolean written;
+        // Guarded by writeLock. Set if the write completed and the buffers may be re-used.
+        private boolean completed;
+        // Guarded by writeLock. Set if the write failed.
+        private Throwable error;
+
+        PendingFrames(boolean application, ByteBuffer... buffers) {
+            this.application = application;
+            this.buffers = buffers;
+        }
+
+        /**
+         * @return {@code true} if the frames were written for a stream and any error writing them should be treated
+         *             as application initiated, {@code false} if they were written for the connection
+         */
+        boolean isApplication() {
+            return application;
+        }
+
+        /*
+         * Caller must hold writeLock or have held it after the frames were written.
+         */
+        boolean isReusable() {
+            return written && completed;
+        }
+
+        /*
+         * Caller must hold writeLock or have held it after the frames were written.
+         */
+        Throwable getError() {
+            return error;
+        }
+
+        void resetState() {
+            written = false;
+            completed = false;
+            error = null;
+        }
+    }
+}
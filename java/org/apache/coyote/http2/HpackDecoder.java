@@ -33,6 +33,11 @@ public class HpackDecoder {
 
     private static final int DEFAULT_RING_BUFFER_SIZE = 10;
 
+    // Must be a power of two
+    private static final int LITERAL_POOL_SIZE = 128;
+    private static final int MAX_POOLED_LITERAL_LENGTH = 128;
+    private static final int INITIAL_SCRATCH_CAPACITY = 64;
+
     /**
      * The object that receives the headers that are emitted from this decoder
      */
@@ -75,6 +80,20 @@ public class HpackDecoder {
     private volatile boolean countedCookie;
     private volatile int headerSize = 0;
 
+    /**
+     * Scratch buffer into which string literals are decoded. It is re-used so decoding a literal does not require a new
+     * buffer. It is replaced if it grows larger than the maximum header size so a single large literal does not retain
+     * memory for the life of the connection.
+     */
+    private StringBuilder scratch = new StringBuilder(INITIAL_SCRATCH_CAPACITY);
+
+    /**
+     * Recently decoded string literals. Clients often send the same literals with every request on a connection
+     * (custom header names and values sent without indexing) so a matching, previously created String is re-used
+     * rather than creating a new one for each request. Entries are replaced on collision.
+     */
+    private final String[] literalPool = new String[LITERAL_POOL_SIZE];
+
     HpackDecoder(int maxMemorySize) {
         this.maxMemorySizeHard = maxMemorySize;
         this.maxMemorySizeSoft = maxMemorySize;
@@ -115,7 +134,7 @@ public class HpackDecoder {
                     buffer.position(originalPos);
                     return;
                 }
-                String headerValue = readHpackString(buffer, false);
+                String headerValue = readHpackString(buffer, false, true);
                 if (headerValue == null) {
                     buffer.position(originalPos);
                     return;
@@ -129,7 +148,7 @@ public class HpackDecoder {
                     buffer.position(originalPos);
                     return;
                 }
-                String headerValue = readHpackString(buffer, false);
+                String headerValue = readHpackString(buffer, false, true);
                 if (headerValue == null) {
                     buffer.position(originalPos);
                     return;
@@ -142,7 +161,8 @@ public class HpackDecoder {
                     buffer.position(originalPos);
                     return;
                 }
-                String headerValue = readHpackString(buffer, false);
+                // Don't retain values the client has marked as sensitive
+                String headerValue = readHpackString(buffer, false, false);
                 if (headerValue == null) {
                     buffer.position(originalPos);
                     return;
@@ -204,11 +224,11 @@ public class HpackDecoder {
         } else if (index != 0) {
             return handleIndexedHeaderName(index);
         } else {
-            return readHpackString(buffer, true);
+            return readHpackString(buffer, true, true);
         }
     }
 
-    private String readHpackString(ByteBuffer buffer, boolean isFieldName) throws HpackException {
+    private String readHpackString(ByteBuffer buffer, boolean isFieldName, boolean pool) throws HpackException {
         if (!buffer.hasRemaining()) {
             return null;
         }
@@ -219,10 +239,22 @@ public class HpackDecoder {
             return null;
         }
         boolean huffman = (data & 0b10000000) != 0;
+        StringBuilder stringBuilder = scratch;
+        stringBuilder.setLength(0);
         if (huffman) {
-            return readHuffmanString(length, buffer, isFieldName);
+            HPackHuffman.decode(buffer, length, stringBuilder, isFieldName);
+        } else {
+            readHpackStringRaw(buffer, length, stringBuilder, isFieldName);
+        }
+        String result = toString(stringBuilder, pool);
+        int maxScratchCapacity = maxHeaderSize < 0 ? Constants.DEFAULT_MAX_HEADER_SIZE : maxHeaderSize;
+        if (stringBuilder.capacity() > maxScratchCapacity) {
+            scratch = new StringBuilder(INITIAL_SCRATCH_CAPACITY);
         }
-        StringBuilder stringBuilder = new StringBuilder(length);
+        return result;
+    }
+
+    private void readHpackStringRaw(ByteBuffer buffer, int length, StringBuilder stringBuilder, boolean isFieldName) {
         for (int i = 0; i < length; ++i) {
             char c = (char) (buffer.get() & 0xFF);
             if (isFieldName) {
@@ -242,13 +274,28 @@ public class HpackDecoder {
                 }
             }
         }
-        return stringBuilder.toString();
     }
 
-    private String readHuffmanString(int length, ByteBuffer buffer, boolean isFieldName) throws HpackException {
-        StringBuilder stringBuilder = new StringBuilder(length);
-        HPackHuffman.decode(buffer, length, stringBuilder, isFieldName);
-        return stringBuilder.toString();
+    private String toString(StringBuilder stringBuilder, boolean pool) {
+        int length = stringBuilder.length();
+        if (!pool || length > MAX_POOLED_LITERAL_LENGTH) {
+            return stringBuilder.toString();
+        }
+        if (length == 0) {
+            return "";
+        }
+        // A cheap hash is sufficient to select the slot as the content is always compared
+        int hash = length * 31 + stringBuilder.charAt(0);
+        hash = hash * 31 + stringBuilder.charAt(length >> 1);
+        hash = hash * 31 + stringBuilder.charAt(length - 1);
+        int slot = (hash ^ (hash >>> 7)) & (LITERAL_POOL_SIZE - 1);
+        String pooled = literalPool[slot];
+        if (pooled != null && pooled.contentEquals(stringBuilder)) {
+            return pooled;
+        }
+        String result = stringBuilder.toString();
+        literalPool[slot] = result;
+        return result;
     }
 
     private String handleIndexedHeaderName(int index) throws HpackException {
@@ -437,6 +484,14 @@ public class HpackDecoder {
     }
 
 
+    /*
+     * For testing.
+     */
+    int getScratchCapacity() {
+        return scratch.capacity();
+    }
+
+
     private void emitHeader(String name, String value) throws HpackException {
         // Header names are forced to lower case
         if ("cookie".equals(name)) {
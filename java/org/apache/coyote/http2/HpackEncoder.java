@@ -17,12 +17,8 @@
 package org.apache.coyote.http2;
 
 import java.nio.ByteBuffer;
-import java.util.ArrayDeque;
-import java.util.ArrayList;
 import java.util.Collections;
-import java.util.Deque;
 import java.util.HashMap;
-import java.util.List;
 import java.util.Locale;
 import java.util.Map;
 
@@ -68,16 +64,34 @@ class HpackEncoder {
 
     private MimeHeaders currentHeaders;
 
-    private int entryPositionCounter;
-
     private int newMaxHeaderSize = -1; // if the max header size has been changed
     private int minNewMaxHeaderSize = -1; // records the smallest value of newMaxHeaderSize, as per section 4.1
 
     private static final Map<String,TableEntry[]> ENCODING_STATIC_TABLE;
 
-    private final Deque<TableEntry> evictionQueue = new ArrayDeque<>();
-    private final Map<String,List<TableEntry>> dynamicTable = new HashMap<>(); // TODO: use a custom data structure to
-                                                                               // reduce allocations
+    // Large enough for the default table size which allows at most 4096 / 32 entries
+    private static final int INITIAL_TABLE_CAPACITY = 128;
+
+    /*
+     * The dynamic table. Entries are held in a ring buffer in insertion order and each entry is identified by a
+     * sequence number that increases by one for every entry added. The entry with sequence s is held at index
+     * (s & tableMask) and has the HPACK index STATIC_TABLE_LENGTH + (nextSequence - s).
+     *
+     * Entries are found via two chained hash indexes, one by name and one by name and value. A bucket holds the
+     * sequence of the newest entry in the bucket and each entry holds the sequence of the next older entry in the same
+     * bucket. Entries are only ever evicted oldest first so a chain ends at the first sequence that is older than
+     * oldestSequence. This means neither adding nor evicting an entry requires any allocation or any unlinking.
+     */
+    private String[] tableNames = new String[INITIAL_TABLE_CAPACITY];
+    private String[] tableValues = new String[INITIAL_TABLE_CAPACITY];
+    private long[] nameNext = new long[INITIAL_TABLE_CAPACITY];
+    private long[] fieldNext = new long[INITIAL_TABLE_CAPACITY];
+    private long[] nameBuckets = new long[INITIAL_TABLE_CAPACITY];
+    private long[] fieldBuckets = new long[INITIAL_TABLE_CAPACITY];
+    private int tableMask = INITIAL_TABLE_CAPACITY - 1;
+    // Sequences start at 1 so the initial bucket value of 0 is always before the oldest entry
+    private long nextSequence = 1;
+    private long oldestSequence = 1;
 
     static {
         Map<String,TableEntry[]> map = new HashMap<>();
@@ -85,11 +99,11 @@ class HpackEncoder {
             Hpack.HeaderField m = Hpack.STATIC_TABLE[i];
             TableEntry[] existing = map.get(m.name);
             if (existing == null) {
-                map.put(m.name, new TableEntry[] { new TableEntry(m.name, m.value, i) });
+                map.put(m.name, new TableEntry[] { new TableEntry(m.value, i) });
             } else {
                 TableEntry[] newEntry = new TableEntry[existing.length + 1];
                 System.arraycopy(existing, 0, newEntry, 0, existing.length);
-                newEntry[existing.length] = new TableEntry(m.name, m.value, i);
+                newEntry[existing.length] = new TableEntry(m.value, i);
                 map.put(m.name, newEntry);
             }
         }
@@ -169,7 +183,7 @@ class HpackEncoder {
                 if (log.isTraceEnabled()) {
                     log.trace(sm.getString("hpackEncoder.encodeHeader", headerName, val));
                 }
-                TableEntry tableEntry = findInTable(headerName, val);
+                int index = findInTable(headerName, val);
 
                 // We use 11 to make sure we have enough room for the
                 // variable length integers
@@ -182,37 +196,31 @@ class HpackEncoder {
                 // Only index if it will fit
                 boolean canIndex = hpackHeaderFunction.shouldUseIndexing(headerName, val) &&
                         (headerName.length() + val.length() + 32) < maxTableSize;
-                if (tableEntry == null && canIndex) {
+                if (index == 0 && canIndex) {
                     // add the entry to the dynamic table
                     target.put((byte) (1 << 6));
                     writeHuffmanEncodableName(target, headerName);
                     writeHuffmanEncodableValue(target, headerName, val);
                     addToDynamicTable(headerName, val);
-                } else if (tableEntry == null) {
+                } else if (index == 0) {
                     // literal never indexed
                     target.put((byte) (1 << 4));
                     writeHuffmanEncodableName(target, headerName);
                     writeHuffmanEncodableValue(target, headerName, val);
+                } else if (index > 0) {
+                    // the whole thing is in the table
+                    target.put((byte) (1 << 7));
+                    Hpack.encodeInteger(target, index, 7);
+                } else if (canIndex) {
+                    // the name is in the table - add the entry to the dynamic table
+                    target.put((byte) (1 << 6));
+                    Hpack.encodeInteger(target, -index, 6);
+                    writeHuffmanEncodableValue(target, headerName, val);
+                    addToDynamicTable(headerName, val);
                 } else {
-                    // so we know something is already in the table
-                    if (val.equals(tableEntry.value)) {
-                        // the whole thing is in the table
-                        target.put((byte) (1 << 7));
-                        Hpack.encodeInteger(target, tableEntry.getPosition(), 7);
-                    } else {
-                        if (canIndex) {
-                            // add the entry to the dynamic table
-                            target.put((byte) (1 << 6));
-                            Hpack.encodeInteger(target, tableEntry.getPosition(), 6);
-                            writeHuffmanEncodableValue(target, headerName, val);
-                            addToDynamicTable(headerName, val);
-
-                        } else {
-                            target.put((byte) (1 << 4));
-                            Hpack.encodeInteger(target, tableEntry.getPosition(), 4);
-                            writeHuffmanEncodableValue(target, headerName, val);
-                        }
-                    }
+                    target.put((byte) (1 << 4));
+                    Hpack.encodeInteger(target, -index, 4);
+                    writeHuffmanEncodableValue(target, headerName, val);
                 }
 
             }
@@ -265,68 +273,120 @@ class HpackEncoder {
     }
 
     private void addToDynamicTable(String headerName, String val) {
-        int pos = entryPositionCounter++;
-        DynamicTableEntry d = new DynamicTableEntry(headerName, val, -pos);
-        dynamicTable.computeIfAbsent(headerName, k -> new ArrayList<>(1)).add(d);
-        evictionQueue.add(d);
-        currentTableSize += d.getSize();
-        runEvictionIfRequired();
-        if (entryPositionCounter == Integer.MAX_VALUE) {
-            // prevent rollover
-            preventPositionRollover();
+        if (nextSequence - oldestSequence > tableMask) {
+            resizeDynamicTable(tableNames.length * 2);
         }
+        long sequence = nextSequence++;
+        int i = (int) (sequence & tableMask);
+        tableNames[i] = headerName;
+        tableValues[i] = val;
+        link(sequence, headerName, val);
+        currentTableSize += entrySize(headerName, val);
+        runEvictionIfRequired();
+    }
 
+
+    private void link(long sequence, String headerName, String val) {
+        int i = (int) (sequence & tableMask);
+        int nameBucket = nameHash(headerName) & tableMask;
+        nameNext[i] = nameBuckets[nameBucket];
+        nameBuckets[nameBucket] = sequence;
+        int fieldBucket = fieldHash(headerName, val) & tableMask;
+        fieldNext[i] = fieldBuckets[fieldBucket];
+        fieldBuckets[fieldBucket] = sequence;
     }
 
 
-    private void preventPositionRollover() {
-        // if the position counter is about to roll over we iterate all the table entries
-        // and set their position to their actual position
-        for (List<TableEntry> tableEntries : dynamicTable.values()) {
-            for (TableEntry t : tableEntries) {
-                t.position = t.getPosition();
-            }
+    private void resizeDynamicTable(int capacity) {
+        String[] oldNames = tableNames;
+        String[] oldValues = tableValues;
+        int oldMask = tableMask;
+
+        tableNames = new String[capacity];
+        tableValues = new String[capacity];
+        nameNext = new long[capacity];
+        fieldNext = new long[capacity];
+        nameBuckets = new long[capacity];
+        fieldBuckets = new long[capacity];
+        tableMask = capacity - 1;
+
+        // Re-add the entries oldest first so the hash chains remain ordered newest to oldest
+        for (long sequence = oldestSequence; sequence < nextSequence; sequence++) {
+            int oldIndex = (int) (sequence & oldMask);
+            int newIndex = (int) (sequence & tableMask);
+            tableNames[newIndex] = oldNames[oldIndex];
+            tableValues[newIndex] = oldValues[oldIndex];
+            link(sequence, tableNames[newIndex], tableValues[newIndex]);
         }
-        entryPositionCounter = 0;
     }
 
-    private void runEvictionIfRequired() {
 
-        while (currentTableSize > maxTableSize) {
-            TableEntry next = evictionQueue.poll();
-            if (next == null) {
-                return;
-            }
-            currentTableSize -= next.size;
-            List<TableEntry> list = dynamicTable.get(next.name);
-            list.remove(next);
-            if (list.isEmpty()) {
-                dynamicTable.remove(next.name);
-            }
+    private void runEvictionIfRequired() {
+        while (currentTableSize > maxTableSize && oldestSequence < nextSequence) {
+            int i = (int) (oldestSequence & tableMask);
+            currentTableSize -= entrySize(tableNames[i], tableValues[i]);
+            tableNames[i] = null;
+            tableValues[i] = null;
+            oldestSequence++;
         }
     }
 
-    private TableEntry findInTable(String headerName, String value) {
+
+    /*
+     * Returns the HPACK index of an entry that matches both the name and the value, the negated HPACK index of an entry
+     * that matches only the name or zero if there is no matching entry.
+     */
+    private int findInTable(String headerName, String value) {
         TableEntry[] staticTable = ENCODING_STATIC_TABLE.get(headerName);
         if (staticTable != null) {
             for (TableEntry st : staticTable) {
-                if (st.value != null && st.value.equals(value)) { // todo: some form of lookup?
-                    return st;
+                if (st.value != null && st.value.equals(value)) {
+                    return st.position;
                 }
             }
         }
-        List<TableEntry> dynamic = dynamicTable.get(headerName);
-        if (dynamic != null) {
-            for (TableEntry st : dynamic) {
-                if (st.value.equals(value)) { // todo: some form of lookup?
-                    return st;
-                }
+        long sequence = fieldBuckets[fieldHash(headerName, value) & tableMask];
+        while (sequence >= oldestSequence) {
+            int i = (int) (sequence & tableMask);
+            if (tableValues[i].equals(value) && tableNames[i].equals(headerName)) {
+                return dynamicIndex(sequence);
             }
+            sequence = fieldNext[i];
         }
         if (staticTable != null) {
-            return staticTable[0];
+            return -staticTable[0].position;
+        }
+        sequence = nameBuckets[nameHash(headerName) & tableMask];
+        while (sequence >= oldestSequence) {
+            int i = (int) (sequence & tableMask);
+            if (tableNames[i].equals(headerName)) {
+                return -dynamicIndex(sequence);
+            }
+            sequence = nameNext[i];
         }
-        return null;
+        return 0;
+    }
+
+
+    private int dynamicIndex(long sequence) {
+        return Hpack.STATIC_TABLE_LENGTH + (int) (nextSequence - sequence);
+    }
+
+
+    private static int entrySize(String headerName, String val) {
+        return 32 + headerName.length() + val.length();
+    }
+
+
+    private static int nameHash(String headerName) {
+        int h = headerName.hashCode();
+        return h ^ (h >>> 16);
+    }
+
+
+    private static int fieldHash(String headerName, String val) {
+        int h = 31 * headerName.hashCode() + val.hashCode();
+        return h ^ (h >>> 16);
     }
 
     public void setMaxTableSize(int newSize) {
@@ -361,40 +421,12 @@ class HpackEncoder {
     }
 
     private static class TableEntry {
-        private final String name;
         private final String value;
-        private final int size;
-        private int position;
+        private final int position;
 
-        private TableEntry(String name, String value, int position) {
-            this.name = name;
+        private TableEntry(String value, int position) {
             this.value = value;
             this.position = position;
-            if (value != null) {
-                this.size = 32 + name.length() + value.length();
-            } else {
-                this.size = -1;
-            }
-        }
-
-        int getPosition() {
-            return position;
-        }
-
-        int getSize() {
-            return size;
-        }
-    }
-
-    private class DynamicTableEntry extends TableEntry {
-
-        private DynamicTableEntry(String name, String value, int position) {
-            super(name, value, position);
-        }
-
-        @Override
-        int getPosition() {
-            return super.getPosition() + entryPositionCounter + Hpack.STATIC_TABLE_LENGTH;
         }
     }
 
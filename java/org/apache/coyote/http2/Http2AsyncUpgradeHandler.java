@@ -23,7 +23,10 @@ import java.nio.channels.FileChannel;
 import java.nio.channels.FileChannel.MapMode;
 import java.nio.file.StandardOpenOption;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.List;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
 import java.util.concurrent.TimeUnit;
 import java.util.concurrent.atomic.AtomicReference;
 import java.util.concurrent.locks.Lock;
@@ -34,6 +37,7 @@ import jakarta.servlet.http.WebConnection;
 import org.apache.coyote.Adapter;
 import org.apache.coyote.ProtocolException;
 import org.apache.coyote.Request;
+import org.apache.coyote.http2.AsyncFrameWriter.PendingFrames;
 import org.apache.tomcat.util.http.MimeHeaders;
 import org.apache.tomcat.util.net.SendfileState;
 import org.apache.tomcat.util.net.SocketWrapperBase;
@@ -45,11 +49,14 @@ import org.apache.tomcat.util.net.SocketWrapperBase.CompletionState;
  */
 public class Http2AsyncUpgradeHandler extends Http2UpgradeHandler {
 
-    private static final ByteBuffer[] BYTEBUFFER_ARRAY = new ByteBuffer[0];
     // Ensures headers are generated and then written for one thread at a time.
     // Because of the compression used, headers need to be written to the
     // network in the same order they are generated.
     private final Lock headerWriteLock = new ReentrantLock();
+    // Guarded by headerWriteLock
+    private AsyncHeaderFrameBuffers headerFrameBuffers;
+    // DATA frame headers are re-used once they have been written
+    private final Queue<DataFrame> dataFramePool = new ConcurrentLinkedQueue<>();
     // Ensures thread triggers the stream reset is the first to send a RST frame
     private final Lock sendResetLock = new ReentrantLock();
     private final AtomicReference<Throwable> error = new AtomicReference<>();
@@ -91,6 +98,15 @@ public class Http2AsyncUpgradeHandler extends Http2UpgradeHandler {
             error.set(t);
         }
     };
+    // Frames from all streams are written in batches. See AsyncFrameWriter.
+    private final AsyncFrameWriter frameWriter = new AsyncFrameWriter(errorCompletion) {
+        @Override
+        protected CompletionState writeBuffers(ByteBuffer[] buffers, int length,
+                CompletionHandler<Long,Void> handler) {
+            return socketWrapper.write(buffers, 0, length, BlockingMode.BLOCK, protocol.getWriteTimeout(),
+                    TimeUnit.MILLISECONDS, null, SocketWrapperBase.COMPLETE_WRITE, handler);
+        }
+    };
 
     @Override
     protected Http2Parser getParser(String connectionId) {
@@ -158,6 +174,7 @@ public class Http2AsyncUpgradeHandler extends Http2UpgradeHandler {
         ByteUtil.set31Bits(rstFrame, 5, se.getStreamId());
         // Payload
         ByteUtil.setFourBytes(rstFrame, 9, se.getError().getCode());
+        PendingFrames frames = new PendingFrames(false, ByteBuffer.wrap(rstFrame));
 
         // Need to update state atomically with the sending of the RST
         // frame else other threads currently working with this stream
@@ -176,12 +193,12 @@ public class Http2AsyncUpgradeHandler extends Http2UpgradeHandler {
                 }
             }
 
-            socketWrapper.write(BlockingMode.SEMI_BLOCK, protocol.getWriteTimeout(), TimeUnit.MILLISECONDS, null,
-                    SocketWrapperBase.COMPLETE_WRITE, errorCompletion, ByteBuffer.wrap(rstFrame));
+            // Wait as the connection may be closed once the stream has been reset
+            frameWriter.write(frames, true);
         } finally {
             sendResetLock.unlock();
         }
-        handleAsyncException();
+        handleAsyncException(frames);
     }
 
 
@@ -196,16 +213,17 @@ public class Http2AsyncUpgradeHandler extends Http2UpgradeHandler {
         }
         byte[] payloadLength = new byte[3];
         ByteUtil.setThreeBytes(payloadLength, 0, len);
+        PendingFrames frames;
         if (debugMsg != null) {
-            socketWrapper.write(BlockingMode.SEMI_BLOCK, protocol.getWriteTimeout(), TimeUnit.MILLISECONDS, null,
-                    SocketWrapperBase.COMPLETE_WRITE, errorCompletion, ByteBuffer.wrap(payloadLength),
-                    ByteBuffer.wrap(GOAWAY), ByteBuffer.wrap(fixedPayload), ByteBuffer.wrap(debugMsg));
+            frames = new PendingFrames(false, ByteBuffer.wrap(payloadLength), ByteBuffer.wrap(GOAWAY),
+                    ByteBuffer.wrap(fixedPayload), ByteBuffer.wrap(debugMsg));
         } else {
-            socketWrapper.write(BlockingMode.SEMI_BLOCK, protocol.getWriteTimeout(), TimeUnit.MILLISECONDS, null,
-                    SocketWrapperBase.COMPLETE_WRITE, errorCompletion, ByteBuffer.wrap(payloadLength),
-                    ByteBuffer.wrap(GOAWAY), ByteBuffer.wrap(fixedPayload));
+            frames = new PendingFrames(false, ByteBuffer.wrap(payloadLength), ByteBuffer.wrap(GOAWAY),
+                    ByteBuffer.wrap(fixedPayload));
         }
-        handleAsyncException();
+        // Wait as the connection is usually closed once GOAWAY has been sent
+        frameWriter.write(frames, true);
+        handleAsyncException(frames);
     }
 
 
@@ -216,10 +234,8 @@ public class Http2AsyncUpgradeHandler extends Http2UpgradeHandler {
             AsyncHeaderFrameBuffers headerFrameBuffers =
                     (AsyncHeaderFrameBuffers) doWriteHeaders(stream, mimeHeaders, endOfStream, payloadSize);
             if (headerFrameBuffers != null) {
-                socketWrapper.write(BlockingMode.SEMI_BLOCK, protocol.getWriteTimeout(), TimeUnit.MILLISECONDS, null,
-                        SocketWrapperBase.COMPLETE_WRITE, applicationErrorCompletion,
-                        headerFrameBuffers.bufs.toArray(BYTEBUFFER_ARRAY));
-                handleAsyncException();
+                frameWriter.write(headerFrameBuffers, true);
+                handleAsyncException(headerFrameBuffers);
             }
         } finally {
             headerWriteLock.unlock();
@@ -232,7 +248,12 @@ public class Http2AsyncUpgradeHandler extends Http2UpgradeHandler {
 
     @Override
     protected HeaderFrameBuffers getHeaderFrameBuffers(int initialPayloadSize) {
-        return new AsyncHeaderFrameBuffers(initialPayloadSize);
+        // Only called from writeHeaders() so the caller holds headerWriteLock
+        if (headerFrameBuffers == null || !headerFrameBuffers.isReusable()) {
+            headerFrameBuffers = new AsyncHeaderFrameBuffers();
+        }
+        headerFrameBuffers.reset(initialPayloadSize);
+        return headerFrameBuffers;
     }
 
 
@@ -247,21 +268,33 @@ public class Http2AsyncUpgradeHandler extends Http2UpgradeHandler {
 
         // Need to check this now since sending end of stream will change this.
         boolean writable = stream.canWrite();
-        byte[] header = new byte[9];
-        ByteUtil.setThreeBytes(header, 0, len);
-        header[3] = FrameType.DATA.getIdByte();
         if (finished) {
-            header[4] = FLAG_END_OF_STREAM;
             sentEndOfStream(stream);
         }
         if (writable) {
+            DataFrame frame = dataFramePool.poll();
+            if (frame == null) {
+                frame = new DataFrame();
+            }
+            byte[] header = frame.reset();
+            ByteUtil.setThreeBytes(header, 0, len);
+            header[3] = FrameType.DATA.getIdByte();
+            if (finished) {
+                header[4] = FLAG_END_OF_STREAM;
+            }
             ByteUtil.set31Bits(header, 5, stream.getIdAsInt());
             int orgLimit = data.limit();
             data.limit(data.position() + len);
-            socketWrapper.write(BlockingMode.BLOCK, protocol.getWriteTimeout(), TimeUnit.MILLISECONDS, null,
-                    SocketWrapperBase.COMPLETE_WRITE, applicationErrorCompletion, ByteBuffer.wrap(header), data);
+            frame.buffers[1] = data;
+            frameWriter.write(frame, true);
             data.limit(orgLimit);
-            handleAsyncException();
+            frame.buffers[1] = null;
+            if (frame.isReusable()) {
+                dataFramePool.offer(frame);
+                handleAsyncException();
+            } else {
+                handleAsyncException(frame);
+            }
         }
     }
 
@@ -292,15 +325,12 @@ public class Http2AsyncUpgradeHandler extends Http2UpgradeHandler {
                 frame2[3] = FrameType.WINDOW_UPDATE.getIdByte();
                 ByteUtil.set31Bits(frame2, 9, streamIncrement);
                 ByteUtil.set31Bits(frame2, 5, stream.getIdAsInt());
-                socketWrapper.write(BlockingMode.SEMI_BLOCK, protocol.getWriteTimeout(), TimeUnit.MILLISECONDS, null,
-                        SocketWrapperBase.COMPLETE_WRITE, errorCompletion, ByteBuffer.wrap(frame),
-                        ByteBuffer.wrap(frame2));
+                frameWriter.write(new PendingFrames(false, ByteBuffer.wrap(frame), ByteBuffer.wrap(frame2)), false);
                 needToWriteConnectionUpdate = false;
             }
         }
         if (needToWriteConnectionUpdate) {
-            socketWrapper.write(BlockingMode.SEMI_BLOCK, protocol.getWriteTimeout(), TimeUnit.MILLISECONDS, null,
-                    SocketWrapperBase.COMPLETE_WRITE, errorCompletion, ByteBuffer.wrap(frame));
+            frameWriter.write(new PendingFrames(false, ByteBuffer.wrap(frame)), false);
         }
         handleAsyncException();
     }
@@ -314,8 +344,30 @@ public class Http2AsyncUpgradeHandler extends Http2UpgradeHandler {
                 log.warn(sm.getString("upgradeHandler.unexpectedAck", connectionId, getIdAsString()));
             }
         } else {
-            socketWrapper.write(BlockingMode.SEMI_BLOCK, protocol.getWriteTimeout(), TimeUnit.MILLISECONDS, null,
-                    SocketWrapperBase.COMPLETE_WRITE, errorCompletion, ByteBuffer.wrap(SETTINGS_ACK));
+            frameWriter.write(new PendingFrames(false, ByteBuffer.wrap(SETTINGS_ACK)), false);
+        }
+        handleAsyncException();
+    }
+
+
+    /*
+     * Handle any error writing frames the caller waited for and then any other asynchronous error. The frames may have
+     * been written in the same batch as frames for other streams and/or the connection so the error is handled
+     * according to the type of these frames: an I/O error writing frames for a stream is application initiated
+     * whereas an I/O error writing frames for the connection is not.
+     */
+    private void handleAsyncException(PendingFrames frames) throws IOException {
+        Throwable t = frames.getError();
+        if (t != null) {
+            // This error is being handled here so it does not need to be handled again as a connection error
+            error.compareAndSet(t, null);
+            if (frames.isApplication() && t instanceof IOException) {
+                handleAppInitiatedIOException((IOException) t);
+            } else if (t instanceof IOException) {
+                throw (IOException) t;
+            } else {
+                throw new IOException(t);
+            }
         }
         handleAsyncException();
     }
@@ -507,9 +559,9 @@ public class Http2AsyncUpgradeHandler extends Http2UpgradeHandler {
         }
 
         @Override
-        public void sendPing(boolean force) throws IOException {
+        public boolean sendPing(boolean force) throws IOException {
             if (initiateDisabled) {
-                return;
+                return false;
             }
             long now = System.nanoTime();
             if (force || now - lastPingNanoTime > pingIntervalNano) {
@@ -523,7 +575,9 @@ public class Http2AsyncUpgradeHandler extends Http2UpgradeHandler {
                         SocketWrapperBase.COMPLETE_WRITE, errorCompletion, ByteBuffer.wrap(PING),
                         ByteBuffer.wrap(payload));
                 handleAsyncException();
+                return true;
             }
+            return false;
         }
 
         @Override
@@ -542,33 +596,92 @@ public class Http2AsyncUpgradeHandler extends Http2UpgradeHandler {
     }
 
 
-    private static class AsyncHeaderFrameBuffers implements HeaderFrameBuffers {
+    /**
+     * A DATA frame. The frame header is re-used for subsequent frames once the frame has been written.
+     */
+    private static class DataFrame extends PendingFrames {
+
+        private final byte[] header = new byte[9];
+
+        DataFrame() {
+            super(true, new ByteBuffer[2]);
+            buffers[0] = ByteBuffer.wrap(header);
+        }
+
+        byte[] reset() {
+            resetState();
+            Arrays.fill(header, (byte) 0);
+            buffers[0].clear();
+            return header;
+        }
+    }
+
+
+    /**
+     * The frames for a header block. The frame headers and payloads are re-used for subsequent header blocks once the
+     * frames have been written.
+     */
+    private static class AsyncHeaderFrameBuffers extends PendingFrames implements HeaderFrameBuffers {
 
         int payloadSize;
 
         private byte[] header;
         private ByteBuffer payload;
 
-        private final List<ByteBuffer> bufs = new ArrayList<>();
+        private final List<byte[]> headers = new ArrayList<>();
+        private final List<ByteBuffer> headerBuffers = new ArrayList<>();
+        private final List<ByteBuffer> payloads = new ArrayList<>();
+        private int frameCount;
+
+        AsyncHeaderFrameBuffers() {
+            super(true);
+        }
 
-        AsyncHeaderFrameBuffers(int initialPayloadSize) {
-            this.payloadSize = initialPayloadSize;
+        void reset(int initialPayloadSize) {
+            resetState();
+            payloadSize = initialPayloadSize;
+            frameCount = 0;
         }
 
         @Override
         public void startFrame() {
-            header = new byte[9];
-            payload = ByteBuffer.allocate(payloadSize);
+            if (frameCount < headers.size()) {
+                header = headers.get(frameCount);
+                Arrays.fill(header, (byte) 0);
+            } else {
+                header = new byte[9];
+                headers.add(header);
+                headerBuffers.add(ByteBuffer.wrap(header));
+            }
+            if (frameCount < payloads.size() && payloads.get(frameCount).capacity() >= payloadSize) {
+                payload = payloads.get(frameCount);
+                payload.clear();
+                payload.limit(payloadSize);
+            } else {
+                payload = ByteBuffer.allocate(payloadSize);
+                if (frameCount < payloads.size()) {
+                    payloads.set(frameCount, payload);
+                } else {
+                    payloads.add(payload);
+                }
+            }
         }
 
         @Override
         public void endFrame() throws IOException {
-            bufs.add(ByteBuffer.wrap(header));
-            bufs.add(payload);
+            headerBuffers.get(frameCount).clear();
+            frameCount++;
         }
 
         @Override
         public void endHeaders() throws IOException {
+            if (buffers == null || buffers.length != frameCount * 2) {
+                buffers = new ByteBuffer[frameCount * 2];
+            }
+            for (int i = 0; i < frameCount; i++) {
+                buffers[i * 2] = headerBuffers.get(i);
+                buffers[i * 2 + 1] = payloads.get(i);
+            }
         }
 
         @Override
@@ -583,8 +696,8 @@ public class Http2AsyncUpgradeHandler extends Http2UpgradeHandler {
 
         @Override
         public void expandPayload() {
+            // The next call to startFrame() will allocate a larger buffer
             payloadSize = payloadSize * 2;
-            payload = ByteBuffer.allocate(payloadSize);
         }
     }
 }
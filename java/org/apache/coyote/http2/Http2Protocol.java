@@ -22,6 +22,7 @@ import java.util.Enumeration;
 import javax.management.ObjectName;
 
 import org.apache.coyote.Adapter;
+import org.apache.coyote.CompressionProvider;
 import org.apache.coyote.ContinueResponseTiming;
 import org.apache.coyote.Processor;
 import org.apache.coyote.Request;
@@ -96,6 +97,7 @@ public class Http2Protocol implements UpgradeProtocol {
     // To advertise a different default to the client specify it here but DO NOT
     // change the default defined in ConnectionSettingsBase.
     private int initialWindowSize = ConnectionSettingsBase.DEFAULT_INITIAL_WINDOW_SIZE;
+    private int maxWindowSize = -1;
     // Limits
     private int maxHeaderCount = Constants.DEFAULT_MAX_HEADER_COUNT;
     private int maxTrailerCount = Constants.DEFAULT_MAX_TRAILER_COUNT;
@@ -376,6 +378,29 @@ public class Http2Protocol implements UpgradeProtocol {
     }
 
 
+    /**
+     * Returns the maximum size to which the flow control windows advertised to the client may be increased when the
+     * windows are tuned based on the estimated bandwidth-delay product of the connection.
+     *
+     * @return the maximum window size. If not greater than the initial window size, the windows are not tuned.
+     */
+    public int getMaxWindowSize() {
+        return maxWindowSize;
+    }
+
+
+    /**
+     * Sets the maximum size to which the flow control windows advertised to the client may be increased when the
+     * windows are tuned based on the estimated bandwidth-delay product of the connection.
+     *
+     * @param maxWindowSize the maximum window size. If not greater than the initial window size, the windows are not
+     *                          tuned.
+     */
+    public void setMaxWindowSize(int maxWindowSize) {
+        this.maxWindowSize = maxWindowSize;
+    }
+
+
     /**
      * Returns whether sendfile is enabled.
      *
@@ -588,9 +613,25 @@ public class Http2Protocol implements UpgradeProtocol {
      * @param response The response
      *
      * @return {@code true} if compression should be used
+     *
+     * @deprecated Unused. Will be removed in Tomcat 13. Use {@link #getCompressionProvider(Request, Response)}.
      */
+    @Deprecated
     public boolean useCompression(Request request, Response response) {
-        return http11Protocol.useCompression(request, response);
+        return getCompressionProvider(request, response) != null;
+    }
+
+
+    /**
+     * Selects the compression provider, if any, to use for the given request/response pair.
+     *
+     * @param request  The request
+     * @param response The response
+     *
+     * @return The compression provider to use or {@code null} if compression should not be used
+     */
+    public CompressionProvider getCompressionProvider(Request request, Response response) {
+        return http11Protocol.getCompressionProvider(request, response);
     }
 
 
@@ -21,26 +21,26 @@ import java.io.IOException;
 import java.nio.ByteBuffer;
 import java.nio.charset.StandardCharsets;
 import java.util.Base64;
-import java.util.Comparator;
-import java.util.HashSet;
-import java.util.Iterator;
+import java.util.LinkedHashSet;
 import java.util.Queue;
 import java.util.Set;
 import java.util.concurrent.ConcurrentLinkedQueue;
 import java.util.concurrent.ConcurrentNavigableMap;
 import java.util.concurrent.ConcurrentSkipListMap;
-import java.util.concurrent.ConcurrentSkipListSet;
 import java.util.concurrent.atomic.AtomicInteger;
 import java.util.concurrent.atomic.AtomicLong;
 import java.util.concurrent.atomic.AtomicReference;
 import java.util.concurrent.locks.Lock;
 
+import javax.management.ObjectName;
+
 import jakarta.servlet.ServletConnection;
 import jakarta.servlet.http.WebConnection;
 
 import org.apache.coyote.Adapter;
 import org.apache.coyote.ProtocolException;
 import org.apache.coyote.Request;
+import org.apache.coyote.http11.AbstractHttp11Protocol;
 import org.apache.coyote.http11.upgrade.InternalHttpUpgradeHandler;
 import org.apache.coyote.http2.HpackDecoder.HeaderEmitter;
 import org.apache.coyote.http2.HpackEncoder.State;
@@ -52,6 +52,7 @@ import org.apache.tomcat.util.ExceptionUtils;
 import org.apache.tomcat.util.http.MimeHeaders;
 import org.apache.tomcat.util.http.parser.Priority;
 import org.apache.tomcat.util.log.UserDataHelper;
+import org.apache.tomcat.util.modeler.Registry;
 import org.apache.tomcat.util.net.AbstractEndpoint.Handler.SocketState;
 import org.apache.tomcat.util.net.SSLSupport;
 import org.apache.tomcat.util.net.SendfileState;
@@ -171,8 +172,7 @@ class Http2UpgradeHandler extends AbstractStream implements InternalHttpUpgradeH
     private volatile int maxProcessedStreamId;
     private final PingManager pingManager = getPingManager();
     private volatile int newStreamsSinceLastPrune = 0;
-    private final Set<Stream> backLogStreams = new HashSet<>();
-    private long backLogSize = 0;
+    private final StreamScheduler backLog = new StreamScheduler();
     // The time at which the connection will timeout unless data arrives before
     // then. -1 means no timeout.
     private volatile long connectionTimeout = -1;
@@ -189,6 +189,10 @@ class Http2UpgradeHandler extends AbstractStream implements InternalHttpUpgradeH
     // Time between the "graceful" GOAWAY (max stream id) and the final GOAWAY (last seen stream id)
     private long drainTimeout = 0;
 
+    // Null if the receive windows are not tuned
+    private final ReceiveWindowTuner receiveWindowTuner;
+    private volatile ObjectName receiveWindowTunerOname = null;
+
     Http2UpgradeHandler(Http2Protocol protocol, Adapter adapter, Request coyoteRequest,
             SocketWrapperBase<?> socketWrapper) {
         super(STREAM_ID_ZERO);
@@ -223,6 +227,14 @@ class Http2UpgradeHandler extends AbstractStream implements InternalHttpUpgradeH
 
         drainTimeout = protocol.getDrainTimeout();
 
+        // Tuning relies on PING frames to estimate the bandwidth-delay product
+        if (protocol.getMaxWindowSize() > protocol.getInitialWindowSize() && !protocol.getInitiatePingDisabled()) {
+            receiveWindowTuner = new ReceiveWindowTuner(connectionId, protocol.getInitialWindowSize(),
+                    protocol.getMaxWindowSize());
+        } else {
+            receiveWindowTuner = null;
+        }
+
         // Initial HTTP request becomes stream 1.
         if (coyoteRequest != null) {
             if (log.isTraceEnabled()) {
@@ -263,6 +275,10 @@ class Http2UpgradeHandler extends AbstractStream implements InternalHttpUpgradeH
             queuedRunnable = new ConcurrentLinkedQueue<>();
         }
 
+        if (receiveWindowTuner != null) {
+            registerReceiveWindowTuner();
+        }
+
         parser = getParser(connectionId);
 
         Stream stream = null;
@@ -618,7 +634,31 @@ class Http2UpgradeHandler extends AbstractStream implements InternalHttpUpgradeH
 
     @Override
     public void destroy() {
-        // NO-OP
+        ObjectName oname = receiveWindowTunerOname;
+        if (oname != null) {
+            receiveWindowTunerOname = null;
+            Registry.getRegistry(null).unregisterComponent(oname);
+        }
+    }
+
+
+    private void registerReceiveWindowTuner() {
+        AbstractHttp11Protocol<?> http11Protocol = protocol.getHttp11Protocol();
+        if (http11Protocol == null) {
+            return;
+        }
+        ObjectName upgradeOname = http11Protocol.getONameForUpgrade(protocol.getUpgradeProtocolName());
+        // This can be null when running the testsuite
+        if (upgradeOname == null) {
+            return;
+        }
+        try {
+            ObjectName oname = new ObjectName(upgradeOname.getCanonicalName() + ",Connection=" + connectionId);
+            Registry.getRegistry(null).registerComponent(receiveWindowTuner, oname, null);
+            receiveWindowTunerOname = oname;
+        } catch (Exception e) {
+            log.warn(sm.getString("upgradeHandler.receiveWindowTuner.jmxRegistrationFail", connectionId), e);
+        }
     }
 
 
@@ -1085,9 +1125,7 @@ class Http2UpgradeHandler extends AbstractStream implements InternalHttpUpgradeH
                      * add it to the backlog so it can obtain an allocation when capacity is available.
                      */
                     if (stream.getConnectionAllocationMade() == 0 && stream.getConnectionAllocationRequested() == 0) {
-                        stream.setConnectionAllocationRequested(reservation);
-                        backLogSize += reservation;
-                        backLogStreams.add(stream);
+                        backLog.request(stream, reservation);
                     }
                 } else if (windowSize < reservation) {
                     /*
@@ -1097,10 +1135,7 @@ class Http2UpgradeHandler extends AbstractStream implements InternalHttpUpgradeH
                      */
                     allocation = (int) windowSize;
                     decrementWindowSize(allocation);
-                    int reservationRemaining = reservation - allocation;
-                    stream.setConnectionAllocationRequested(reservationRemaining);
-                    backLogSize += reservationRemaining;
-                    backLogStreams.add(stream);
+                    backLog.request(stream, reservation - allocation);
 
                 } else {
                     // The connection window has sufficient capacity for this reservation. Allocate the full amount.
@@ -1213,103 +1248,12 @@ class Http2UpgradeHandler extends AbstractStream implements InternalHttpUpgradeH
     private Set<AbstractStream> releaseBackLog(int increment) throws Http2Exception {
         windowAllocationLock.lock();
         try {
-            Set<AbstractStream> result = new HashSet<>();
-            if (backLogSize < increment) {
-                // Can clear the whole backlog
-                for (AbstractStream stream : backLogStreams) {
-                    if (stream.getConnectionAllocationRequested() > 0) {
-                        stream.setConnectionAllocationMade(stream.getConnectionAllocationRequested());
-                        stream.setConnectionAllocationRequested(0);
-                        result.add(stream);
-                    }
-                }
-                // Cast is safe due to test above
-                int remaining = increment - (int) backLogSize;
-                backLogSize = 0;
+            // Retain allocation order so streams are notified, and hence write, in priority order
+            Set<AbstractStream> result = new LinkedHashSet<>();
+            int remaining = backLog.allocate(increment, result);
+            if (remaining > 0) {
+                // Cleared the whole backlog
                 super.incrementWindowSize(remaining);
-
-                backLogStreams.clear();
-            } else {
-                // Can't clear the whole backlog.
-                // Need streams in priority order
-                Set<Stream> orderedStreams = new ConcurrentSkipListSet<>(Comparator.comparingInt(Stream::getUrgency)
-                        .thenComparing(Stream::getIncremental).thenComparing(Stream::getIdAsInt));
-                orderedStreams.addAll(backLogStreams);
-
-                // Iteration 1. Need to work out how much we can clear.
-                long urgencyWhereAllocationIsExhausted = 0;
-                long requestedAllocationForIncrementalStreams = 0;
-                int remaining = increment;
-                Iterator<Stream> orderedStreamsIterator = orderedStreams.iterator();
-                while (orderedStreamsIterator.hasNext()) {
-                    Stream s = orderedStreamsIterator.next();
-                    if (urgencyWhereAllocationIsExhausted < s.getUrgency()) {
-                        if (remaining < 1) {
-                            break;
-                        }
-                        requestedAllocationForIncrementalStreams = 0;
-                    }
-                    urgencyWhereAllocationIsExhausted = s.getUrgency();
-                    if (s.getIncremental()) {
-                        requestedAllocationForIncrementalStreams += s.getConnectionAllocationRequested();
-                        remaining -= s.getConnectionAllocationRequested();
-                    } else {
-                        remaining -= s.getConnectionAllocationRequested();
-                        if (remaining < 1) {
-                            break;
-                        }
-                    }
-                }
-
-                // Iteration 2. Allocate.
-                // Reset for second iteration
-                remaining = increment;
-                orderedStreamsIterator = orderedStreams.iterator();
-                while (orderedStreamsIterator.hasNext()) {
-                    Stream s = orderedStreamsIterator.next();
-                    if (s.getUrgency() < urgencyWhereAllocationIsExhausted) {
-                        // Can fully allocate
-                        remaining = allocate(s, remaining);
-                        result.add(s);
-                        orderedStreamsIterator.remove();
-                        backLogStreams.remove(s);
-                    } else if (requestedAllocationForIncrementalStreams == 0) {
-                        // Allocation ran out in non-incremental streams so fully
-                        // allocate in iterator order until allocation is exhausted
-                        remaining = allocate(s, remaining);
-                        result.add(s);
-                        if (s.getConnectionAllocationRequested() == 0) {
-                            // Fully allocated
-                            orderedStreamsIterator.remove();
-                            backLogStreams.remove(s);
-                        }
-                        if (remaining < 1) {
-                            break;
-                        }
-                    } else {
-                        // Allocation ran out in incremental streams. Distribute
-                        // remaining allocation between the incremental streams at
-                        // this urgency level.
-                        if (s.getUrgency() != urgencyWhereAllocationIsExhausted) {
-                            break;
-                        }
-
-                        // Cast to long during the intermediate calculation to avoid integer overflow in multiplication
-                        int share = (int) ((long) s.getConnectionAllocationRequested() * remaining /
-                                requestedAllocationForIncrementalStreams);
-                        if (share == 0) {
-                            share = 1;
-                        }
-                        allocate(s, share);
-                        result.add(s);
-                        if (s.getConnectionAllocationRequested() == 0) {
-                            // Fully allocated (unlikely but possible due to
-                            // rounding if only a few bytes required).
-                            orderedStreamsIterator.remove();
-                            backLogStreams.remove(s);
-                        }
-                    }
-                }
             }
             return result;
         } finally {
@@ -1318,35 +1262,6 @@ class Http2UpgradeHandler extends AbstractStream implements InternalHttpUpgradeH
     }
 
 
-    private int allocate(AbstractStream stream, int allocation) {
-        windowAllocationLock.lock();
-        try {
-            if (log.isTraceEnabled()) {
-                log.trace(sm.getString("upgradeHandler.allocate.debug", getConnectionId(), stream.getIdAsString(),
-                        Integer.toString(allocation)));
-            }
-
-            int leftToAllocate = allocation;
-
-            if (stream.getConnectionAllocationRequested() > 0) {
-                int allocatedThisTime = Math.min(allocation, stream.getConnectionAllocationRequested());
-                stream.setConnectionAllocationRequested(stream.getConnectionAllocationRequested() - allocatedThisTime);
-                stream.setConnectionAllocationMade(stream.getConnectionAllocationMade() + allocatedThisTime);
-                leftToAllocate = leftToAllocate - allocatedThisTime;
-            }
-
-            if (log.isTraceEnabled()) {
-                log.trace(sm.getString("upgradeHandler.allocate.left", getConnectionId(), stream.getIdAsString(),
-                        Integer.toString(leftToAllocate)));
-            }
-
-            return leftToAllocate;
-        } finally {
-            windowAllocationLock.unlock();
-        }
-    }
-
-
     Stream getStream(int streamId) {
         Integer key = Integer.valueOf(streamId);
         AbstractStream result = streams.get(key);
@@ -1396,6 +1311,9 @@ class Http2UpgradeHandler extends AbstractStream implements InternalHttpUpgradeH
         pruneClosedStreams(streamId);
 
         Stream result = new Stream(key, this);
+        if (receiveWindowTuner != null) {
+            result.growReceiveWindow(receiveWindowTuner.getWindowSize());
+        }
         streams.put(key, result);
         return result;
     }
@@ -1664,6 +1582,9 @@ class Http2UpgradeHandler extends AbstractStream implements InternalHttpUpgradeH
         AbstractNonZeroStream abstractNonZeroStream = getAbstractNonZeroStream(streamId, true);
         if (abstractNonZeroStream instanceof Stream) {
             ((Stream) abstractNonZeroStream).getInputBuffer().onDataAvailable();
+            if (receiveWindowTuner != null && receiveWindowTuner.dataReceived(dataLength)) {
+                startReceiveWindowSample();
+            }
         } else {
             // The Stream was recycled between the call in Http2Parser to
             // startRequestBodyFrame() and the synchronized block that contains
@@ -1677,6 +1598,31 @@ class Http2UpgradeHandler extends AbstractStream implements InternalHttpUpgradeH
     }
 
 
+    private void startReceiveWindowSample() throws IOException {
+        socketWrapper.getLock().lock();
+        try {
+            // The sample is measured by the round trip of the PING so there is no sample if the PING was not sent
+            if (pingManager.sendPing(true)) {
+                receiveWindowTuner.sampleStarted(pingManager.sequence);
+            }
+        } finally {
+            socketWrapper.getLock().unlock();
+        }
+    }
+
+
+    private void increaseReceiveWindow(int increment) throws IOException {
+        // Streams advertise the additional window with their next WINDOW_UPDATE
+        int windowSize = receiveWindowTuner.getWindowSize();
+        for (AbstractNonZeroStream stream : streams.values()) {
+            if (stream instanceof Stream) {
+                ((Stream) stream).growReceiveWindow(windowSize);
+            }
+        }
+        writeWindowUpdate(null, increment, false);
+    }
+
+
     @Override
     public void onSwallowedDataFramePayload(int streamId, int swallowedDataBytesCount) throws IOException {
         AbstractNonZeroStream abstractNonZeroStream = getAbstractNonZeroStream(streamId);
@@ -1885,6 +1831,13 @@ class Http2UpgradeHandler extends AbstractStream implements InternalHttpUpgradeH
             increaseOverheadCount(FrameType.PING);
         }
         pingManager.receivePing(payload, ack);
+        if (ack && receiveWindowTuner != null) {
+            int increment = receiveWindowTuner.pingAcknowledged(ByteUtil.get31Bits(payload, 4),
+                    pingManager.getRoundTripTimeNano());
+            if (increment > 0) {
+                increaseReceiveWindow(increment);
+            }
+        }
     }
 
 
@@ -1946,8 +1899,14 @@ class Http2UpgradeHandler extends AbstractStream implements InternalHttpUpgradeH
         increaseOverheadCount(FrameType.PRIORITY_UPDATE);
         AbstractNonZeroStream abstractNonZeroStream = getAbstractNonZeroStream(prioritizedStreamID, true);
         if (abstractNonZeroStream instanceof Stream stream) {
-            stream.setUrgency(p.getUrgency());
-            stream.setIncremental(p.getIncremental());
+            windowAllocationLock.lock();
+            try {
+                stream.setUrgency(p.getUrgency());
+                stream.setIncremental(p.getIncremental());
+                backLog.reprioritize(stream);
+            } finally {
+                windowAllocationLock.unlock();
+            }
         }
     }
 
@@ -2016,11 +1975,14 @@ class Http2UpgradeHandler extends AbstractStream implements InternalHttpUpgradeH
          *
          * @param force Send a ping, even if one was sent recently
          *
+         * @return {@code true} if a ping was sent, {@code false} if no ping was sent because one was sent recently or
+         *             because initiating pings is disabled
+         *
          * @throws IOException If an I/O issue prevents the ping from being sent
          */
-        public void sendPing(boolean force) throws IOException {
+        public boolean sendPing(boolean force) throws IOException {
             if (initiateDisabled) {
-                return;
+                return false;
             }
             long now = System.nanoTime();
             if (force || now - lastPingNanoTime > pingIntervalNano) {
@@ -2033,7 +1995,9 @@ class Http2UpgradeHandler extends AbstractStream implements InternalHttpUpgradeH
                 socketWrapper.write(true, PING, 0, PING.length);
                 socketWrapper.write(true, payload, 0, payload.length);
                 socketWrapper.flush(true);
+                return true;
             }
+            return false;
         }
 
         /**
@@ -0,0 +1,173 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.coyote.http2;
+
+import org.apache.juli.logging.Log;
+import org.apache.juli.logging.LogFactory;
+import org.apache.tomcat.util.res.StringManager;
+
+/**
+ * Tunes the size of the flow control windows that a connection advertises to the client for request bodies. The
+ * bandwidth-delay product (BDP) of the connection is estimated by counting the request body data received between
+ * sending a PING frame and receiving the acknowledgement for it. If the client was able to send most of the current
+ * window in that time, the window rather than the network is limiting the rate at which data is received and the
+ * window is increased to twice the estimated BDP, subject to the configured maximum.
+ * <p>
+ * The windows are only ever increased. Samples are only taken while request body data is being received and the
+ * window is below the maximum.
+ * <p>
+ * The sampling methods are not thread-safe and must only be called by the thread processing the incoming frames for
+ * the connection. The getters may be called from any thread.
+ */
+public class ReceiveWindowTuner {
+
+    private static final Log log = LogFactory.getLog(ReceiveWindowTuner.class);
+    private static final StringManager sm = StringManager.getManager(ReceiveWindowTuner.class);
+
+    private final String connectionId;
+    private final int initialWindowSize;
+    private final int maxWindowSize;
+
+    private volatile int windowSize;
+    private volatile long bandwidthDelayProduct = 0;
+    private volatile long roundTripTimeNano = 0;
+
+    // Current sample
+    private boolean sampling = false;
+    private int sampleSequence;
+    private long sampleBytes;
+
+
+    ReceiveWindowTuner(String connectionId, int initialWindowSize, int maxWindowSize) {
+        this.connectionId = connectionId;
+        this.initialWindowSize = initialWindowSize;
+        this.maxWindowSize = Math.min(maxWindowSize, ConnectionSettingsBase.MAX_WINDOW_SIZE);
+        windowSize = initialWindowSize;
+    }
+
+
+    /**
+     * Record the receipt of request body data.
+     *
+     * @param dataLength the number of bytes of request body data received
+     *
+     * @return {@code true} if a new sample should be started by sending a PING frame, in which case
+     *             {@link #sampleStarted(int)} must be called once the PING frame has been sent
+     */
+    boolean dataReceived(int dataLength) {
+        if (sampling) {
+            sampleBytes += dataLength;
+            return false;
+        }
+        return windowSize < maxWindowSize;
+    }
+
+
+    /**
+     * Start a new sample.
+     *
+     * @param sequence the sequence number of the PING frame sent to start the sample
+     */
+    void sampleStarted(int sequence) {
+        sampling = true;
+        sampleSequence = sequence;
+        sampleBytes = 0;
+    }
+
+
+    /**
+     * Record the acknowledgement of a PING frame.
+     *
+     * @param sequence          the sequence number of the acknowledged PING frame
+     * @param roundTripTimeNano the current estimate of the round trip time for the connection
+     *
+     * @return the amount by which the window has been increased or zero if the window has not been increased
+     */
+    int pingAcknowledged(int sequence, long roundTripTimeNano) {
+        this.roundTripTimeNano = roundTripTimeNano;
+        if (!sampling || sequence < sampleSequence) {
+            return 0;
+        }
+        sampling = false;
+        bandwidthDelayProduct = sampleBytes;
+
+        int currentWindowSize = windowSize;
+        // Increase the window if at least two thirds of it were used in a single round trip
+        if (sampleBytes * 3 < currentWindowSize * 2L) {
+            return 0;
+        }
+        int newWindowSize = (int) Math.min(maxWindowSize, sampleBytes * 2);
+        if (newWindowSize <= currentWindowSize) {
+            return 0;
+        }
+        windowSize = newWindowSize;
+        if (log.isDebugEnabled()) {
+            log.debug(sm.getString("receiveWindowTuner.increase", connectionId, Long.toString(sampleBytes),
+                    Long.toString(roundTripTimeNano), Integer.toString(currentWindowSize),
+                    Integer.toString(newWindowSize)));
+        }
+        return newWindowSize - currentWindowSize;
+    }
+
+
+    /**
+     * @return the identifier of the connection
+     */
+    public String getConnectionId() {
+        return connectionId;
+    }
+
+
+    /**
+     * @return the size of the window advertised when the connection was opened
+     */
+    public int getInitialWindowSize() {
+        return initialWindowSize;
+    }
+
+
+    /**
+     * @return the maximum size to which the window may be increased
+     */
+    public int getMaxWindowSize() {
+        return maxWindowSize;
+    }
+
+
+    /**
+     * @return the size of the window currently advertised for the connection and for each stream
+     */
+    public int getWindowSize() {
+        return windowSize;
+    }
+
+
+    /**
+     * @return the request body data, in bytes, received during the most recent complete sample
+     */
+    public long getBandwidthDelayProduct() {
+        return bandwidthDelayProduct;
+    }
+
+
+    /**
+     * @return the most recent estimate of the round trip time for the connection in nanoseconds
+     */
+    public long getRoundTripTimeNano() {
+        return roundTripTimeNano;
+    }
+}
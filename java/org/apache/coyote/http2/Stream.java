@@ -942,6 +942,24 @@ class Stream extends AbstractNonZeroStream implements HeaderEmitter {
     }
 
 
+    /*
+     * Increases the receive window for this stream to the given size. The additional window is advertised to the
+     * client with the next WINDOW_UPDATE frame written for this stream. Must only be called by the thread processing
+     * the incoming frames for the connection.
+     */
+    final void growReceiveWindow(int size) {
+        if (isInputFinished()) {
+            return;
+        }
+        int increment = inputBuffer.growWindow(size);
+        if (increment > 0) {
+            synchronized (pendingWindowUpdateForStreamLock) {
+                pendingWindowUpdateForStream += increment;
+            }
+        }
+    }
+
+
     public int getUrgency() {
         return urgency;
     }
@@ -1210,6 +1228,8 @@ class Stream extends AbstractNonZeroStream implements HeaderEmitter {
 
         abstract void insertReplayedBody(ByteChunk body);
 
+        abstract int growWindow(int size);
+
         protected abstract boolean timeoutRead(long now);
     }
 
@@ -1231,16 +1251,24 @@ class Stream extends AbstractNonZeroStream implements HeaderEmitter {
          * bodies.
          */
         // This buffer is used to populate the ByteChunk passed in to the read
-        // method
+        // method. Only accessed by the thread reading the request body.
         private byte[] outBuffer;
         // This buffer is the destination for incoming data. It is normally is
         // 'write mode'.
         private volatile ByteBuffer inBuffer;
+        // Set if inBuffer holds a replayed request body (in 'read mode')
+        private volatile boolean replayedBody;
         private volatile boolean readInterest;
         // If readInterest is true, data must be available to read no later than this time.
         private volatile long readTimeoutExpiry;
         private volatile boolean closed;
         private volatile boolean resetReceived;
+        /*
+         * The client must obey Tomcat's window size when sending so the buffers are sized using the initial window size
+         * set by Tomcat that the client uses (i.e. the local setting is required here) unless the window has since been
+         * increased. Guarded by readStateLock.
+         */
+        private int windowSize = handler.getLocalSettings().getInitialWindowSize();
 
         @Override
         public final int doRead(ApplicationBufferHandler applicationBufferHandler) throws IOException {
@@ -1248,6 +1276,7 @@ class Stream extends AbstractNonZeroStream implements HeaderEmitter {
             ensureBuffersExist();
 
             int written;
+            byte[] out;
 
             // It is still possible that the stream has been closed and inBuffer
             // set to null between the call to ensureBuffersExist() above and
@@ -1262,6 +1291,10 @@ class Stream extends AbstractNonZeroStream implements HeaderEmitter {
                 if (inBuffer == null) {
                     return -1;
                 }
+                if (inBuffer != tmpInBuffer) {
+                    // The buffer has been replaced by a larger one
+                    return doRead(applicationBufferHandler);
+                }
                 boolean canRead = false;
                 while (inBuffer.position() == 0 && (canRead = isActive() && !isInputFinished())) {
                     // Need to block until some data is written
@@ -1281,6 +1314,11 @@ class Stream extends AbstractNonZeroStream implements HeaderEmitter {
                             throw new IOException(sm.getString("stream.inputBuffer.reset"));
                         }
 
+                        if (inBuffer != tmpInBuffer) {
+                            // The buffer was replaced by a larger one while waiting
+                            return doRead(applicationBufferHandler);
+                        }
+
                         if (inBuffer.position() == 0 && isActive() && !isInputFinished()) {
                             String msg = sm.getString("stream.inputBuffer.readTimeout");
                             StreamException se = new StreamException(msg, Http2Error.ENHANCE_YOUR_CALM, getIdAsInt());
@@ -1305,8 +1343,15 @@ class Stream extends AbstractNonZeroStream implements HeaderEmitter {
                     if (log.isTraceEnabled()) {
                         log.trace(sm.getString("stream.inputBuffer.copy", Integer.toString(written)));
                     }
-                    inBuffer.get(outBuffer, 0, written);
+                    // The inBuffer may have been replaced by a larger one so check outBuffer is large enough
+                    out = outBuffer;
+                    if (out == null || out.length < written) {
+                        out = new byte[inBuffer.capacity()];
+                        outBuffer = out;
+                    }
+                    inBuffer.get(out, 0, written);
                     inBuffer.clear();
+                    replayedBody = false;
                 } else if (!canRead) {
                     return -1;
                 } else {
@@ -1315,7 +1360,7 @@ class Stream extends AbstractNonZeroStream implements HeaderEmitter {
                 }
             }
 
-            applicationBufferHandler.setByteBuffer(ByteBuffer.wrap(outBuffer, 0, written));
+            applicationBufferHandler.setByteBuffer(ByteBuffer.wrap(out, 0, written));
 
             // Increment client-side flow control windows by the number of bytes
             // read
@@ -1433,6 +1478,7 @@ class Stream extends AbstractNonZeroStream implements HeaderEmitter {
             readStateLock.lock();
             try {
                 inBuffer = ByteBuffer.wrap(body.getBytes(), body.getStart(), body.getLength());
+                replayedBody = true;
             } finally {
                 readStateLock.unlock();
             }
@@ -1441,15 +1487,10 @@ class Stream extends AbstractNonZeroStream implements HeaderEmitter {
 
         private void ensureBuffersExist() {
             if (inBuffer == null && !closed) {
-                // The client must obey Tomcat's window size when sending so
-                // this is the initial window size set by Tomcat that the client
-                // uses (i.e. the local setting is required here).
-                int size = handler.getLocalSettings().getInitialWindowSize();
                 readStateLock.lock();
                 try {
                     if (inBuffer == null && !closed) {
-                        inBuffer = ByteBuffer.allocate(size);
-                        outBuffer = new byte[size];
+                        inBuffer = ByteBuffer.allocate(windowSize);
                     }
                 } finally {
                     readStateLock.unlock();
@@ -1458,12 +1499,42 @@ class Stream extends AbstractNonZeroStream implements HeaderEmitter {
         }
 
 
+        @Override
+        final int growWindow(int size) {
+            readStateLock.lock();
+            try {
+                if (closed || size <= windowSize || replayedBody) {
+                    // A replayed body is not in 'write mode' and no further data will be received for it
+                    return 0;
+                }
+                int increment = size - windowSize;
+                windowSize = size;
+                ByteBuffer oldInBuffer = inBuffer;
+                if (oldInBuffer != null) {
+                    synchronized (oldInBuffer) {
+                        // Copy any data that has not yet been read
+                        ByteBuffer newInBuffer = ByteBuffer.allocate(size);
+                        oldInBuffer.flip();
+                        newInBuffer.put(oldInBuffer);
+                        inBuffer = newInBuffer;
+                        // Any reader waiting on the old buffer needs to switch to the new one
+                        oldInBuffer.notifyAll();
+                    }
+                }
+                return increment;
+            } finally {
+                readStateLock.unlock();
+            }
+        }
+
+
         @Override
         final void receiveReset() {
-            if (inBuffer != null) {
-                synchronized (inBuffer) {
+            ByteBuffer tmpInBuffer = inBuffer;
+            if (tmpInBuffer != null) {
+                synchronized (tmpInBuffer) {
                     resetReceived = true;
-                    inBuffer.notifyAll();
+                    tmpInBuffer.notifyAll();
                 }
             }
 
@@ -1602,6 +1673,12 @@ class Stream extends AbstractNonZeroStream implements HeaderEmitter {
             // NO-OP
         }
 
+        @Override
+        int growWindow(int size) {
+            // The request body has already been read
+            return 0;
+        }
+
 
         @Override
         protected boolean timeoutRead(long now) {
@@ -0,0 +1,198 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.coyote.http2;
+
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Set;
+
+import org.apache.juli.logging.Log;
+import org.apache.juli.logging.LogFactory;
+import org.apache.tomcat.util.res.StringManager;
+
+/**
+ * Schedules the allocation of the connection flow control window to the streams that are waiting for it using the
+ * extensible prioritization scheme defined by RFC 9218. Streams are grouped by urgency and lower urgency values are
+ * always served first. Within an urgency level, non-incremental streams are served one at a time in the order in which
+ * they started waiting and any remaining allocation is then shared between the incremental streams in round-robin
+ * order.
+ * <p>
+ * Streams are reported in the order in which they received an allocation so that, when they are notified in that order,
+ * the frames are written in priority order as well.
+ * <p>
+ * This class is not thread-safe. Callers must hold the window allocation lock of the connection.
+ */
+final class StreamScheduler {
+
+    private static final Log log = LogFactory.getLog(StreamScheduler.class);
+    private static final StringManager sm = StringManager.getManager(StreamScheduler.class);
+
+    // RFC 9218 defines urgency levels from 0 (highest) to 7 (lowest)
+    private static final int URGENCY_LEVELS = 8;
+
+    private final UrgencyLevel[] levels = new UrgencyLevel[URGENCY_LEVELS];
+    private final Map<Stream,Deque<Stream>> queues = new HashMap<>();
+    private long requested = 0;
+
+
+    StreamScheduler() {
+        for (int i = 0; i < URGENCY_LEVELS; i++) {
+            levels[i] = new UrgencyLevel();
+        }
+    }
+
+
+    /**
+     * @return {@code true} if no streams are waiting for an allocation
+     */
+    boolean isEmpty() {
+        return queues.isEmpty();
+    }
+
+
+    /**
+     * @return the total allocation requested by the streams that are waiting for an allocation
+     */
+    long getRequested() {
+        return requested;
+    }
+
+
+    /**
+     * Record that the given stream is waiting for an allocation from the connection flow control window. If the stream
+     * is already waiting, its request is replaced and its position is retained.
+     *
+     * @param stream     The stream
+     * @param allocation The size of the allocation requested
+     */
+    void request(Stream stream, int allocation) {
+        requested += allocation - stream.getConnectionAllocationRequested();
+        stream.setConnectionAllocationRequested(allocation);
+        if (!queues.containsKey(stream)) {
+            Deque<Stream> queue = getQueue(stream);
+            queue.addLast(stream);
+            queues.put(stream, queue);
+        }
+    }
+
+
+    /**
+     * Update the position of the given stream, if it is waiting for an allocation, after its priority has changed. A
+     * stream that changes priority is placed behind any streams already waiting with the same priority.
+     *
+     * @param stream The stream
+     */
+    void reprioritize(Stream stream) {
+        Deque<Stream> current = queues.get(stream);
+        if (current == null) {
+            return;
+        }
+        Deque<Stream> queue = getQueue(stream);
+        if (queue != current) {
+            current.remove(stream);
+            queue.addLast(stream);
+            queues.put(stream, queue);
+        }
+    }
+
+
+    /**
+     * Distribute an increase in the connection flow control window between the waiting streams.
+     *
+     * @param increment The size of the increase
+     * @param allocated The set to which streams that receive an allocation are added, in the order in which the
+     *                      allocations were made
+     *
+     * @return the part of the increase that was not required by the waiting streams
+     */
+    int allocate(int increment, Set<AbstractStream> allocated) {
+        int remaining = increment;
+        for (int i = 0; i < URGENCY_LEVELS && remaining > 0; i++) {
+            UrgencyLevel level = levels[i];
+
+            // Non-incremental streams are served to completion, one at a time
+            Deque<Stream> queue = level.nonIncremental;
+            while (remaining > 0 && !queue.isEmpty()) {
+                Stream stream = queue.peekFirst();
+                remaining = allocate(stream, remaining);
+                allocated.add(stream);
+                if (stream.getConnectionAllocationRequested() == 0) {
+                    queue.pollFirst();
+                    queues.remove(stream);
+                }
+            }
+
+            // Incremental streams share what remains. Any stream not fully served moves to the back of the queue.
+            queue = level.incremental;
+            while (remaining > 0 && !queue.isEmpty()) {
+                int share = Math.max(1, remaining / queue.size());
+                for (int count = queue.size(); count > 0 && remaining > 0; count--) {
+                    Stream stream = queue.pollFirst();
+                    int offered = Math.min(share, remaining);
+                    remaining -= offered - allocate(stream, offered);
+                    allocated.add(stream);
+                    if (stream.getConnectionAllocationRequested() == 0) {
+                        queues.remove(stream);
+                    } else {
+                        queue.addLast(stream);
+                    }
+                }
+            }
+        }
+        return remaining;
+    }
+
+
+    private int allocate(Stream stream, int allocation) {
+        if (log.isTraceEnabled()) {
+            log.trace(sm.getString("streamScheduler.allocate", stream.getConnectionId(), stream.getIdAsString(),
+                    Integer.toString(allocation)));
+        }
+
+        int leftToAllocate = allocation;
+
+        if (stream.getConnectionAllocationRequested() > 0) {
+            int allocatedThisTime = Math.min(allocation, stream.getConnectionAllocationRequested());
+            stream.setConnectionAllocationRequested(stream.getConnectionAllocationRequested() - allocatedThisTime);
+            stream.setConnectionAllocationMade(stream.getConnectionAllocationMade() + allocatedThisTime);
+            requested -= allocatedThisTime;
+            leftToAllocate = leftToAllocate - allocatedThisTime;
+        }
+
+        if (log.isTraceEnabled()) {
+            log.trace(sm.getString("streamScheduler.allocate.left", stream.getConnectionId(), stream.getIdAsString(),
+                    Integer.toString(leftToAllocate)));
+        }
+
+        return leftToAllocate;
+    }
+
+
+    private Deque<Stream> getQueue(Stream stream) {
+        int urgency = Math.min(Math.max(stream.getUrgency(), 0), URGENCY_LEVELS - 1);
+        UrgencyLevel level = levels[urgency];
+        return stream.getIncremental() ? level.incremental : level.nonIncremental;
+    }
+
+
+    private static final class UrgencyLevel {
+        private final Deque<Stream> nonIncremental = new ArrayDeque<>();
+        private final Deque<Stream> incremental = new ArrayDeque<>();
+    }
+}
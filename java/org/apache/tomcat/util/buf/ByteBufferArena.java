@@ -0,0 +1,195 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.tomcat.util.buf;
+
+import java.nio.ByteBuffer;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+
+import org.apache.tomcat.util.collections.StripedStack;
+
+/**
+ * A pool of direct {@link ByteBuffer}s organised in power of two size classes. Buffers are leased when they are needed
+ * and released when they are no longer required so that idle connections do not have to hold on to their buffers.
+ * <p>
+ * A request for a buffer is rounded up to the smallest size class that can accommodate it. Requests larger than the
+ * largest size class are allocated directly and are never pooled. The total capacity of the buffers held by the arena
+ * while not leased is bounded by the configured maximum, split evenly between the size classes.
+ */
+public class ByteBufferArena {
+
+    /**
+     * The smallest size class.
+     */
+    public static final int MIN_SIZE_CLASS = 1024;
+
+    /**
+     * The largest size class.
+     */
+    public static final int MAX_SIZE_CLASS = 64 * 1024;
+
+    private static final int MIN_SHIFT = Integer.numberOfTrailingZeros(MIN_SIZE_CLASS);
+    private static final int CLASS_COUNT = Integer.numberOfTrailingZeros(MAX_SIZE_CLASS) - MIN_SHIFT + 1;
+
+    private final StripedStack<ByteBuffer>[] pools;
+
+    private final AtomicLong leasedBytes = new AtomicLong();
+    private final AtomicLong requestedBytes = new AtomicLong();
+    private final LongAdder allocationCount = new LongAdder();
+
+
+    /**
+     * Constructs a new arena.
+     *
+     * @param maxPooledBytes the maximum total capacity of the buffers held by the arena while they are not leased, or
+     *                           -1 for unlimited
+     */
+    @SuppressWarnings({ "unchecked", "rawtypes" })
+    public ByteBufferArena(long maxPooledBytes) {
+        pools = new StripedStack[CLASS_COUNT];
+        for (int i = 0; i < CLASS_COUNT; i++) {
+            int limit;
+            if (maxPooledBytes < 0) {
+                limit = -1;
+            } else {
+                limit = (int) Math.min(Integer.MAX_VALUE, maxPooledBytes / CLASS_COUNT / sizeOfClass(i));
+            }
+            pools[i] = new StripedStack<>(limit);
+        }
+    }
+
+
+    /**
+     * Obtain a direct buffer with a capacity of at least the requested size. The returned buffer is cleared. The
+     * capacity of the returned buffer may be larger than requested.
+     *
+     * @param size the minimum required capacity
+     *
+     * @return a buffer that must be returned via {@link #release(ByteBuffer, int)} when it is no longer required
+     */
+    public ByteBuffer lease(int size) {
+        int sizeClass = sizeClass(size);
+        ByteBuffer result = null;
+        if (sizeClass < CLASS_COUNT) {
+            result = pools[sizeClass].pop();
+        }
+        if (result == null) {
+            result = ByteBuffer.allocateDirect(sizeClass < CLASS_COUNT ? sizeOfClass(sizeClass) : size);
+            allocationCount.increment();
+        }
+        leasedBytes.addAndGet(result.capacity());
+        requestedBytes.addAndGet(size);
+        return result;
+    }
+
+
+    /**
+     * Return a buffer to the arena. The caller must not use the buffer after calling this method.
+     *
+     * @param buffer the buffer previously obtained from {@link #lease(int)}
+     * @param size   the size that was requested when the buffer was leased
+     */
+    public void release(ByteBuffer buffer, int size) {
+        if (buffer == null) {
+            return;
+        }
+        int capacity = buffer.capacity();
+        leasedBytes.addAndGet(-capacity);
+        requestedBytes.addAndGet(-size);
+        int sizeClass = sizeClass(capacity);
+        if (sizeClass < CLASS_COUNT && sizeOfClass(sizeClass) == capacity) {
+            buffer.clear();
+            if (pools[sizeClass].push(buffer)) {
+                return;
+            }
+        }
+        ByteBufferUtils.cleanDirectBuffer(buffer);
+    }
+
+
+    /**
+     * Free all the buffers currently held by the arena. Buffers that are currently leased are not affected.
+     */
+    public void clear() {
+        for (StripedStack<ByteBuffer> pool : pools) {
+            ByteBuffer buffer;
+            while ((buffer = pool.pop()) != null) {
+                ByteBufferUtils.cleanDirectBuffer(buffer);
+            }
+        }
+    }
+
+
+    /**
+     * @return the total capacity of the buffers that are currently leased
+     */
+    public long getLeasedBytes() {
+        return leasedBytes.get();
+    }
+
+
+    /**
+     * @return the total capacity of the buffers held by the arena that are not currently leased
+     */
+    public long getPooledBytes() {
+        long result = 0;
+        for (int i = 0; i < CLASS_COUNT; i++) {
+            result += (long) pools[i].size() * sizeOfClass(i);
+        }
+        return result;
+    }
+
+
+    /**
+     * @return the number of new buffers that have been allocated because a suitable pooled buffer was not available
+     */
+    public long getAllocationCount() {
+        return allocationCount.sum();
+    }
+
+
+    /**
+     * Returns the internal fragmentation of the currently leased buffers, i.e. the proportion of the leased capacity
+     * that is unused because requests are rounded up to the nearest size class.
+     *
+     * @return the fragmentation as a value between 0 (no waste) and 1
+     */
+    public double getFragmentation() {
+        long leased = leasedBytes.get();
+        if (leased <= 0) {
+            return 0;
+        }
+        long requested = requestedBytes.get();
+        return Math.max(0, 1 - ((double) requested / leased));
+    }
+
+
+    private static int sizeClass(int size) {
+        if (size <= MIN_SIZE_CLASS) {
+            return 0;
+        }
+        if (size > MAX_SIZE_CLASS) {
+            return CLASS_COUNT;
+        }
+        return 32 - Integer.numberOfLeadingZeros(size - 1) - MIN_SHIFT;
+    }
+
+
+    private static int sizeOfClass(int sizeClass) {
+        return MIN_SIZE_CLASS << sizeClass;
+    }
+}
@@ -0,0 +1,200 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.tomcat.util.collections;
+
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+/**
+ * A lock-free, unbounded, multi-producer single-consumer queue. It is intended as an alternative to
+ * {@link SynchronizedQueue} when many threads add to the queue and a single thread (such as the NIO Poller) removes
+ * from it.
+ * <p>
+ * Elements are stored in fixed size array chunks that are linked together. Producers claim a slot in the current tail
+ * chunk with a single atomic increment so there is no lock and, unlike {@link java.util.concurrent.ConcurrentLinkedQueue},
+ * no allocation per element. A new chunk is only allocated once every {@link #getChunkSize()} elements.
+ * <p>
+ * {@link #offer(Object)} may be called concurrently from any number of threads. {@link #poll()} and {@link #clear()}
+ * must only ever be called from a single consumer thread at a time.
+ *
+ * @param <T> The type of object managed by this queue
+ */
+public class MpscArrayQueue<T> {
+
+    /**
+     * The default chunk size for a new queue.
+     */
+    public static final int DEFAULT_SIZE = 1024;
+
+    private final int chunkSize;
+
+    /*
+     * Only accessed by the consumer thread. Volatile so that size() returns a sensible value when called from other
+     * threads.
+     */
+    private volatile Chunk head;
+    private volatile int consumerIndex = 0;
+
+    private final AtomicReference<Chunk> tail;
+
+
+    /**
+     * Constructs a new queue with the default chunk size.
+     */
+    public MpscArrayQueue() {
+        this(DEFAULT_SIZE);
+    }
+
+
+    /**
+     * Constructs a new queue with the specified chunk size.
+     *
+     * @param chunkSize the number of elements stored in each chunk
+     */
+    public MpscArrayQueue(int chunkSize) {
+        if (chunkSize < 1) {
+            throw new IllegalArgumentException();
+        }
+        this.chunkSize = chunkSize;
+        Chunk first = new Chunk(0, chunkSize);
+        head = first;
+        tail = new AtomicReference<>(first);
+    }
+
+
+    /**
+     * Returns the number of elements stored in each chunk.
+     *
+     * @return the chunk size
+     */
+    public int getChunkSize() {
+        return chunkSize;
+    }
+
+
+    /**
+     * Adds the specified element to the tail of this queue. This method is safe to call from multiple threads
+     * concurrently.
+     *
+     * @param t the element to add
+     *
+     * @return true (as specified by {@link java.util.Queue#offer})
+     */
+    public boolean offer(T t) {
+        if (t == null) {
+            throw new NullPointerException();
+        }
+        while (true) {
+            Chunk chunk = tail.get();
+            int index = chunk.claimed.getAndIncrement();
+            if (index < chunkSize) {
+                chunk.slots.set(index, t);
+                return true;
+            }
+            // Chunk is full. Append a new chunk (or help another producer that is appending one) and retry.
+            Chunk next = chunk.next.get();
+            if (next == null) {
+                Chunk newChunk = new Chunk(chunk.sequence + 1, chunkSize);
+                if (chunk.next.compareAndSet(null, newChunk)) {
+                    next = newChunk;
+                } else {
+                    next = chunk.next.get();
+                }
+            }
+            tail.compareAndSet(chunk, next);
+        }
+    }
+
+
+    /**
+     * Retrieves and removes the head of this queue, or returns null if this queue is empty. This method must only be
+     * called from the single consumer thread.
+     * <p>
+     * An element whose slot has been claimed by a producer that has not yet completed the call to
+     * {@link #offer(Object)} is treated as not yet present. In that case, this method returns {@code null} even if
+     * elements offered later have already been stored so that FIFO order is preserved.
+     *
+     * @return the head of this queue, or null if empty
+     */
+    public T poll() {
+        Chunk chunk = head;
+        int index = consumerIndex;
+        if (index == chunkSize) {
+            Chunk next = chunk.next.get();
+            if (next == null) {
+                return null;
+            }
+            chunk = next;
+            index = 0;
+            head = next;
+            consumerIndex = 0;
+        }
+        @SuppressWarnings("unchecked")
+        T result = (T) chunk.slots.get(index);
+        if (result == null) {
+            return null;
+        }
+        // Release the reference so the element can be garbage collected
+        chunk.slots.lazySet(index, null);
+        consumerIndex = index + 1;
+        return result;
+    }
+
+
+    /**
+     * Returns an estimate of the number of elements in this queue. The value is exact when there are no concurrent
+     * modifications.
+     *
+     * @return the number of elements
+     */
+    public int size() {
+        Chunk consumerChunk = head;
+        long consumed = consumerChunk.sequence * chunkSize + consumerIndex;
+        Chunk producerChunk = tail.get();
+        long produced = producerChunk.sequence * chunkSize + Math.min(producerChunk.claimed.get(), chunkSize);
+        long result = produced - consumed;
+        if (result < 0) {
+            return 0;
+        }
+        return (int) Math.min(result, Integer.MAX_VALUE);
+    }
+
+
+    /**
+     * Removes all elements currently in this queue. This method must only be called from the single consumer thread.
+     */
+    public void clear() {
+        while (poll() != null) {
+            // NO-OP
+        }
+    }
+
+
+    private static final class Chunk {
+
+        private final long sequence;
+        private final AtomicReferenceArray<Object> slots;
+        private final AtomicInteger claimed = new AtomicInteger(0);
+        private final AtomicReference<Chunk> next = new AtomicReference<>();
+
+        private Chunk(long sequence, int size) {
+            this.sequence = sequence;
+            this.slots = new AtomicReferenceArray<>(size);
+        }
+    }
+}
@@ -0,0 +1,285 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.tomcat.util.collections;
+
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * A pool of re-usable objects that is intended as a lower contention alternative to {@link SynchronizedStack} when
+ * objects are pushed and popped by many threads concurrently.
+ * <p>
+ * The pool is split into a number of stripes, each of which is a small synchronized stack. Each thread has an affinity
+ * for one stripe, based on its thread ID, so threads running on different cores will usually use different locks and
+ * different cache lines. If the stripe for the current thread is empty (for {@link #pop()}) or full (for
+ * {@link #push(Object)}) the other stripes are tried before giving up so the pool behaves as a single pool with the
+ * configured overall limit.
+ * <p>
+ * Thread-local caches are deliberately not used. Objects held in a thread-local cache would be stranded when the
+ * thread is idle or terminates and would never be seen by a virtual thread more than once.
+ *
+ * @param <T> The type of object managed by this pool
+ */
+public class StripedStack<T> {
+
+    /**
+     * The maximum number of stripes.
+     */
+    public static final int MAX_STRIPES = 64;
+
+    private static final int INITIAL_STRIPE_SIZE = 16;
+
+    private final Stripe[] stripes;
+    private final int mask;
+
+    private final LongAdder hitCount = new LongAdder();
+    private final LongAdder missCount = new LongAdder();
+    private final LongAdder overflowCount = new LongAdder();
+
+
+    /**
+     * Constructs a new pool with no limit on the number of pooled objects.
+     */
+    public StripedStack() {
+        this(-1);
+    }
+
+
+    /**
+     * Constructs a new pool with the specified limit.
+     *
+     * @param limit the maximum number of objects held by the pool, or -1 for unlimited
+     */
+    public StripedStack(int limit) {
+        this(limit, Runtime.getRuntime().availableProcessors());
+    }
+
+
+    /**
+     * Constructs a new pool with the specified limit and an approximate number of stripes.
+     *
+     * @param limit       the maximum number of objects held by the pool, or -1 for unlimited
+     * @param concurrency the expected number of threads using the pool concurrently. The number of stripes is the
+     *                        smallest power of two greater than or equal to this value, capped at {@link #MAX_STRIPES}
+     *                        and at the limit.
+     */
+    public StripedStack(int limit, int concurrency) {
+        int target = Math.max(1, Math.min(concurrency, MAX_STRIPES));
+        if (limit > -1) {
+            target = Math.max(1, Math.min(target, limit));
+        }
+        int count = 1;
+        while (count < target) {
+            count <<= 1;
+        }
+        if (limit > -1 && count > limit) {
+            count >>= 1;
+        }
+        count = Math.max(1, count);
+        stripes = new Stripe[count];
+        for (int i = 0; i < count; i++) {
+            int stripeLimit;
+            if (limit < 0) {
+                stripeLimit = -1;
+            } else {
+                // Distribute the limit as evenly as possible
+                stripeLimit = limit / count + (i < limit % count ? 1 : 0);
+            }
+            stripes[i] = new Stripe(stripeLimit);
+        }
+        mask = count - 1;
+    }
+
+
+    /**
+     * Adds an object to the pool.
+     *
+     * @param obj The object to add
+     *
+     * @return {@code true} if the object was added, {@code false} if the pool is full
+     */
+    public boolean push(T obj) {
+        int home = stripeIndex();
+        if (stripes[home].push(obj)) {
+            return true;
+        }
+        for (int i = 1; i < stripes.length; i++) {
+            Stripe stripe = stripes[(home + i) & mask];
+            if (stripe.hasSpace() && stripe.push(obj)) {
+                return true;
+            }
+        }
+        overflowCount.increment();
+        return false;
+    }
+
+
+    /**
+     * Removes an object from the pool.
+     *
+     * @return an object from the pool, or {@code null} if the pool is empty
+     */
+    @SuppressWarnings("unchecked")
+    public T pop() {
+        int home = stripeIndex();
+        Object result = stripes[home].pop();
+        if (result == null) {
+            for (int i = 1; i < stripes.length && result == null; i++) {
+                Stripe stripe = stripes[(home + i) & mask];
+                if (stripe.size > 0) {
+                    result = stripe.pop();
+                }
+            }
+        }
+        if (result == null) {
+            missCount.increment();
+        } else {
+            hitCount.increment();
+        }
+        return (T) result;
+    }
+
+
+    /**
+     * Removes all objects from the pool.
+     */
+    public void clear() {
+        for (Stripe stripe : stripes) {
+            stripe.clear();
+        }
+    }
+
+
+    /**
+     * Returns the number of objects currently held by the pool. The value is approximate if there are concurrent
+     * modifications.
+     *
+     * @return the number of pooled objects
+     */
+    public int size() {
+        int result = 0;
+        for (Stripe stripe : stripes) {
+            result += stripe.size;
+        }
+        return result;
+    }
+
+
+    /**
+     * Returns the number of stripes used by this pool.
+     *
+     * @return the number of stripes
+     */
+    public int getStripeCount() {
+        return stripes.length;
+    }
+
+
+    /**
+     * Returns the number of calls to {@link #pop()} that returned an object.
+     *
+     * @return the hit count
+     */
+    public long getHitCount() {
+        return hitCount.sum();
+    }
+
+
+    /**
+     * Returns the number of calls to {@link #pop()} that returned {@code null}.
+     *
+     * @return the miss count
+     */
+    public long getMissCount() {
+        return missCount.sum();
+    }
+
+
+    /**
+     * Returns the number of calls to {@link #push(Object)} that were rejected because the pool was full.
+     *
+     * @return the overflow count
+     */
+    public long getOverflowCount() {
+        return overflowCount.sum();
+    }
+
+
+    private int stripeIndex() {
+        long id = Thread.currentThread().threadId();
+        // Spread sequentially allocated thread IDs across the stripes
+        int h = (int) (id ^ (id >>> 32)) * 0x9E3779B9;
+        return (h ^ (h >>> 16)) & mask;
+    }
+
+
+    private static final class Stripe {
+
+        private final int limit;
+        private Object[] stack;
+        /*
+         * Number of objects in this stripe. Only modified while holding the lock. Volatile so other threads can skip
+         * empty or full stripes without locking.
+         */
+        private volatile int size = 0;
+
+        private Stripe(int limit) {
+            this.limit = limit;
+            stack = new Object[(limit > -1) ? Math.min(INITIAL_STRIPE_SIZE, Math.max(limit, 1)) : INITIAL_STRIPE_SIZE];
+        }
+
+        private boolean hasSpace() {
+            return limit == -1 || size < limit;
+        }
+
+        private synchronized boolean push(Object obj) {
+            int index = size;
+            if (limit != -1 && index >= limit) {
+                return false;
+            }
+            if (index == stack.length) {
+                int newLength = index * 2;
+                if (limit != -1 && newLength > limit) {
+                    newLength = limit;
+                }
+                Object[] newStack = new Object[newLength];
+                System.arraycopy(stack, 0, newStack, 0, index);
+                stack = newStack;
+            }
+            stack[index] = obj;
+            size = index + 1;
+            return true;
+        }
+
+        private synchronized Object pop() {
+            int index = size - 1;
+            if (index < 0) {
+                return null;
+            }
+            Object result = stack[index];
+            stack[index] = null;
+            size = index;
+            return result;
+        }
+
+        private synchronized void clear() {
+            for (int i = 0; i < size; i++) {
+                stack[i] = null;
+            }
+            size = 0;
+        }
+    }
+}
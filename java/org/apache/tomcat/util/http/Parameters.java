@@ -21,9 +21,11 @@ import java.nio.charset.Charset;
 import java.nio.charset.CodingErrorAction;
 import java.nio.charset.StandardCharsets;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Collections;
 import java.util.Enumeration;
 import java.util.LinkedHashMap;
+import java.util.List;
 import java.util.Map;
 
 import org.apache.juli.logging.Log;
@@ -57,6 +59,28 @@ public final class Parameters {
     private int limit = -1;
     private int parameterCount = 0;
 
+    private boolean lazyDecoding = false;
+
+    /*
+     * Parameters that have been located but not yet decoded when lazy decoding is enabled. Parameters are only added
+     * here when there are no parameters in paramHashValues that were added after them so the parameters here are always
+     * after those in paramHashValues in the order they were presented.
+     *
+     * For each parameter, LAZY_STRIDE values are stored in lazyIndex: the index of the source (the byte array and
+     * character set), the start and end of the name, the start and end of the value (-1 if there is no value) and
+     * flags to indicate if the name and/or value need to be URL decoded.
+     */
+    private static final int LAZY_STRIDE = 6;
+    private static final int LAZY_DECODE_NAME = 1;
+    private static final int LAZY_DECODE_VALUE = 2;
+    private static final byte[] NOT_ENCODABLE = new byte[0];
+    private int[] lazyIndex = null;
+    private int lazyCount = 0;
+    private final List<byte[]> lazySourceBytes = new ArrayList<>(2);
+    private final List<Charset> lazySourceCharsets = new ArrayList<>(2);
+    private String[] lazyNames = null;
+    private String[] lazyValues = null;
+
     /**
      * Construct a new {@code Parameters} instance with default settings.
      */
@@ -82,6 +106,27 @@ public final class Parameters {
         this.limit = limit;
     }
 
+    /**
+     * Returns whether parameters are decoded when they are accessed rather than when they are parsed.
+     *
+     * @return {@code true} if lazy decoding is enabled
+     */
+    public boolean getLazyDecoding() {
+        return lazyDecoding;
+    }
+
+    /**
+     * Configure whether parameters are decoded when they are accessed rather than when they are parsed. When enabled,
+     * parsing records the location of each parameter name and value and a parameter is only decoded when it is looked
+     * up by name. All parameters are decoded when the parameter names are requested. Errors decoding a parameter are
+     * reported when the parameter is decoded rather than when the parameters are parsed.
+     *
+     * @param lazyDecoding {@code true} to enable lazy decoding
+     */
+    public void setLazyDecoding(boolean lazyDecoding) {
+        this.lazyDecoding = lazyDecoding;
+    }
+
     /**
      * Returns the character set used for decoding body parameters.
      *
@@ -139,6 +184,14 @@ public final class Parameters {
     public void recycle() {
         parameterCount = 0;
         paramHashValues.clear();
+        if (lazyNames != null) {
+            Arrays.fill(lazyNames, 0, lazyCount, null);
+            Arrays.fill(lazyValues, 0, lazyCount, null);
+        }
+        lazyCount = 0;
+        lazySourceBytes.clear();
+        lazySourceCharsets.clear();
+        lazyDecoding = false;
         didQueryParameters = false;
         charset = DEFAULT_BODY_CHARSET;
         decodedQuery.recycle();
@@ -165,6 +218,21 @@ public final class Parameters {
         handleQueryParameters();
         // no "facade"
         ArrayList<String> values = paramHashValues.get(name);
+        if (lazyCount > 0) {
+            byte[][] encodedNames = new byte[lazySourceBytes.size()][];
+            int i = findLazy(name, 0, encodedNames);
+            if (i > -1) {
+                if (values == null) {
+                    values = new ArrayList<>(1);
+                } else {
+                    values = new ArrayList<>(values);
+                }
+                while (i > -1) {
+                    values.add(getLazyValue(i));
+                    i = findLazy(name, i + 1, encodedNames);
+                }
+            }
+        }
         if (values == null) {
             return null;
         }
@@ -178,6 +246,7 @@ public final class Parameters {
      */
     public Enumeration<String> getParameterNames() {
         handleQueryParameters();
+        decodeLazyParameters();
         return Collections.enumeration(paramHashValues.keySet());
     }
 
@@ -196,9 +265,13 @@ public final class Parameters {
                 return "";
             }
             return values.getFirst();
-        } else {
-            return null;
+        } else if (lazyCount > 0) {
+            int i = findLazy(name, 0, new byte[lazySourceBytes.size()][]);
+            if (i > -1) {
+                return getLazyValue(i);
+            }
         }
+        return null;
     }
 
     // -------------------- Processing --------------------
@@ -250,6 +323,9 @@ public final class Parameters {
         }
         parameterCount++;
 
+        // Maintain the order of the parameters
+        decodeLazyParameters();
+
         paramHashValues.computeIfAbsent(key, k -> new ArrayList<>(1)).add(value);
     }
 
@@ -378,6 +454,12 @@ public final class Parameters {
                 throw new InvalidParameterException(message);
             }
 
+            if (lazyDecoding) {
+                addLazyParameter(bytes, charset, nameStart, nameEnd, valueStart, valueEnd,
+                        (decodeName ? LAZY_DECODE_NAME : 0) | (decodeValue ? LAZY_DECODE_VALUE : 0));
+                continue;
+            }
+
             tmpName.setBytes(bytes, nameStart, nameEnd - nameStart);
             if (valueStart >= 0) {
                 tmpValue.setBytes(bytes, valueStart, valueEnd - valueStart);
@@ -443,6 +525,163 @@ public final class Parameters {
         }
     }
 
+    private void addLazyParameter(byte[] bytes, Charset charset, int nameStart, int nameEnd, int valueStart,
+            int valueEnd, int flags) {
+        if (limit > -1 && parameterCount >= limit) {
+            // Processing this parameter will push us over the limit.
+            throw new InvalidParameterException(sm.getString("parameters.maxCountFail", Integer.valueOf(limit)));
+        }
+        parameterCount++;
+
+        int source = lazySourceBytes.size() - 1;
+        if (source < 0 || lazySourceBytes.get(source) != bytes || lazySourceCharsets.get(source) != charset) {
+            lazySourceBytes.add(bytes);
+            lazySourceCharsets.add(charset);
+            source++;
+        }
+
+        if (lazyIndex == null) {
+            lazyIndex = new int[16 * LAZY_STRIDE];
+            lazyNames = new String[16];
+            lazyValues = new String[16];
+        } else if (lazyCount == lazyNames.length) {
+            lazyIndex = Arrays.copyOf(lazyIndex, lazyIndex.length * 2);
+            lazyNames = Arrays.copyOf(lazyNames, lazyNames.length * 2);
+            lazyValues = Arrays.copyOf(lazyValues, lazyValues.length * 2);
+        }
+        int base = lazyCount * LAZY_STRIDE;
+        lazyIndex[base] = source;
+        lazyIndex[base + 1] = nameStart;
+        lazyIndex[base + 2] = nameEnd;
+        lazyIndex[base + 3] = valueStart;
+        lazyIndex[base + 4] = valueEnd;
+        lazyIndex[base + 5] = flags;
+        lazyCount++;
+    }
+
+
+    /*
+     * Find the next parameter, starting with the given index, with the given name. Where possible, the name is
+     * compared with the encoded name rather than decoding the parameter name. encodedNames caches the encoded name for
+     * each source.
+     */
+    private int findLazy(String name, int from, byte[][] encodedNames) {
+        for (int i = from; i < lazyCount; i++) {
+            int base = i * LAZY_STRIDE;
+            int source = lazyIndex[base];
+            Charset charset = lazySourceCharsets.get(source);
+            if ((lazyIndex[base + 5] & LAZY_DECODE_NAME) == 0 &&
+                    (charset == StandardCharsets.ISO_8859_1 || charset == StandardCharsets.UTF_8)) {
+                // No decoding required and the encoded name is unique
+                if (encodedNames[source] == null) {
+                    byte[] encoded = name.getBytes(charset);
+                    // Characters that can't be encoded are replaced so the encoded name can't be used
+                    if (name.equals(new String(encoded, charset))) {
+                        encodedNames[source] = encoded;
+                    } else {
+                        encodedNames[source] = NOT_ENCODABLE;
+                    }
+                }
+                byte[] encodedName = encodedNames[source];
+                if (encodedName == NOT_ENCODABLE) {
+                    if (name.equals(getLazyName(i))) {
+                        return i;
+                    }
+                } else if (Arrays.equals(lazySourceBytes.get(source), lazyIndex[base + 1], lazyIndex[base + 2],
+                        encodedName, 0, encodedName.length)) {
+                    return i;
+                }
+            } else if (name.equals(getLazyName(i))) {
+                return i;
+            }
+        }
+        return -1;
+    }
+
+
+    private String getLazyName(int i) {
+        String name = lazyNames[i];
+        if (name == null) {
+            int base = i * LAZY_STRIDE;
+            name = decodeLazy(i, lazyIndex[base + 1], lazyIndex[base + 2],
+                    (lazyIndex[base + 5] & LAZY_DECODE_NAME) != 0);
+            lazyNames[i] = name;
+        }
+        return name;
+    }
+
+
+    private String getLazyValue(int i) {
+        String value = lazyValues[i];
+        if (value == null) {
+            int base = i * LAZY_STRIDE;
+            if (lazyIndex[base + 3] < 0) {
+                value = "";
+            } else {
+                value = decodeLazy(i, lazyIndex[base + 3], lazyIndex[base + 4],
+                        (lazyIndex[base + 5] & LAZY_DECODE_VALUE) != 0);
+            }
+            lazyValues[i] = value;
+        }
+        return value;
+    }
+
+
+    private String decodeLazy(int i, int start, int end, boolean urlDecode) {
+        int source = lazyIndex[i * LAZY_STRIDE];
+        byte[] bytes = lazySourceBytes.get(source);
+        try {
+            if (urlDecode) {
+                // Decode a copy so the original is available if decoding fails
+                tmpValue.setBytes(Arrays.copyOfRange(bytes, start, end), 0, end - start);
+                urlDecode(tmpValue);
+            } else {
+                tmpValue.setBytes(bytes, start, end - start);
+            }
+            tmpValue.setCharset(lazySourceCharsets.get(source));
+            return tmpValue.toString(CodingErrorAction.REPORT, CodingErrorAction.REPORT);
+        } catch (IOException ioe) {
+            int base = i * LAZY_STRIDE;
+            String name = new String(bytes, lazyIndex[base + 1], lazyIndex[base + 2] - lazyIndex[base + 1],
+                    DEFAULT_BODY_CHARSET);
+            String value;
+            if (lazyIndex[base + 3] < 0) {
+                value = "";
+            } else {
+                value = new String(bytes, lazyIndex[base + 3], lazyIndex[base + 4] - lazyIndex[base + 3],
+                        DEFAULT_BODY_CHARSET);
+            }
+            throw new InvalidParameterException(sm.getString("parameters.decodeFail.debug", name, value), ioe);
+        } finally {
+            tmpValue.recycle();
+        }
+    }
+
+
+    /*
+     * Decode any parameters that have not yet been decoded and add them to paramHashValues. If a parameter cannot be
+     * decoded, it and any following parameters are discarded, as they would have been if they had been decoded when
+     * the parameters were parsed.
+     */
+    private void decodeLazyParameters() {
+        if (lazyCount == 0) {
+            return;
+        }
+        int count = lazyCount;
+        try {
+            for (int i = 0; i < count; i++) {
+                paramHashValues.computeIfAbsent(getLazyName(i), k -> new ArrayList<>(1)).add(getLazyValue(i));
+            }
+        } finally {
+            Arrays.fill(lazyNames, 0, count, null);
+            Arrays.fill(lazyValues, 0, count, null);
+            lazyCount = 0;
+            lazySourceBytes.clear();
+            lazySourceCharsets.clear();
+        }
+    }
+
+
     private void urlDecode(ByteChunk bc) throws IOException {
         if (urlDec == null) {
             urlDec = new UDecoder();
@@ -473,6 +712,7 @@ public final class Parameters {
      */
     @Override
     public String toString() {
+        decodeLazyParameters();
         StringBuilder sb = new StringBuilder();
         for (Map.Entry<String,ArrayList<String>> e : paramHashValues.entrySet()) {
             sb.append(e.getKey()).append('=');
@@ -69,6 +69,23 @@ public class AcceptEncoding {
      * @throws IOException if an I/O error occurs
      */
     public static List<AcceptEncoding> parse(StringReader input) throws IOException {
+        return parse(input, false);
+    }
+
+
+    /**
+     * Parses the Accept-Encoding header value.
+     *
+     * @param input              The input reader
+     * @param includeZeroQuality Should encodings with a quality factor of zero be included in the result? Such
+     *                               encodings are explicitly not acceptable which is significant when a wildcard is
+     *                               also present.
+     *
+     * @return A list of AcceptEncoding instances
+     *
+     * @throws IOException if an I/O error occurs
+     */
+    public static List<AcceptEncoding> parse(StringReader input, boolean includeZeroQuality) throws IOException {
 
         List<AcceptEncoding> result = new ArrayList<>();
 
@@ -92,7 +109,7 @@ public class AcceptEncoding {
                 quality = HttpParser.readWeight(input, ',');
             }
 
-            if (quality > 0) {
+            if (quality > 0 || includeZeroQuality && quality == 0) {
                 result.add(new AcceptEncoding(encoding, quality));
             }
         } while (true);
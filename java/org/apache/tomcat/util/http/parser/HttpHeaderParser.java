@@ -17,7 +17,10 @@
 package org.apache.tomcat.util.http.parser;
 
 import java.io.IOException;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.VarHandle;
 import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
 
 import org.apache.tomcat.util.buf.MessageBytes;
 import org.apache.tomcat.util.http.HeaderUtil;
@@ -37,6 +40,11 @@ public class HttpHeaderParser {
     private static final byte HT = (byte) '\t';
     private static final byte COLON = (byte) ':';
 
+    private static final VarHandle LONG_VIEW = MethodHandles.byteArrayViewVarHandle(long[].class,
+            ByteOrder.LITTLE_ENDIAN);
+    private static final long ONES = 0x0101010101010101L;
+    private static final long HIGH_BITS = 0x8080808080808080L;
+
     private final HeaderDataSource source;
     private final MimeHeaders headers;
     private final boolean tolerantEol;
@@ -82,6 +90,13 @@ public class HttpHeaderParser {
      */
     public HeaderParseStatus parseHeader() throws IOException {
 
+        if (headerParsePos == HeaderParsePosition.HEADER_START) {
+            HeaderParseStatus status = parseHeaderFast();
+            if (status != null) {
+                return status;
+            }
+        }
+
         while (headerParsePos == HeaderParsePosition.HEADER_START) {
 
             // Read new bytes if needed
@@ -271,6 +286,95 @@ public class HttpHeaderParser {
     }
 
 
+    /*
+     * Fast path for the common case of a complete, valid, single line header (or the blank line that ends the headers)
+     * that is already in the buffer. The header is located by scanning the backing array directly and the value is
+     * not copied. Returns null, without changing any state, if the header needs to be processed by the state machine
+     * in parseHeader(), e.g. because it is incomplete, invalid, uses a bare LF or is followed by a continuation line.
+     */
+    private HeaderParseStatus parseHeaderFast() {
+        ByteBuffer buffer = source.getHeaderByteBuffer();
+        if (!buffer.hasArray()) {
+            return null;
+        }
+        byte[] buf = buffer.array();
+        int offset = buffer.arrayOffset();
+        int pos = offset + buffer.position();
+        int limit = offset + buffer.limit();
+
+        if (limit - pos < 2) {
+            return null;
+        }
+        if (buf[pos] == CR) {
+            if (buf[pos + 1] == LF) {
+                buffer.position(pos + 2 - offset);
+                prevChr = CR;
+                chr = LF;
+                return HeaderParseStatus.DONE;
+            }
+            return null;
+        }
+
+        // Header name
+        int nameStart = pos;
+        byte b;
+        while (pos < limit && (b = buf[pos]) >= 0 && HttpParser.isToken(b)) {
+            pos++;
+        }
+        if (pos == nameStart || pos == limit || buf[pos] != COLON) {
+            return null;
+        }
+        int nameEnd = pos++;
+
+        // Leading white space
+        while (pos < limit && (buf[pos] == SP || buf[pos] == HT)) {
+            pos++;
+        }
+        int valueStart = pos;
+
+        // Find the first control character, skipping eight bytes at a time where possible
+        while (pos + 8 <= limit && !hasControl((long) LONG_VIEW.get(buf, pos))) {
+            pos += 8;
+        }
+        while (pos < limit && (b = buf[pos]) != CR && b != LF) {
+            if ((b >= 0 && b < SP && b != HT) || b == 0x7F) {
+                return null;
+            }
+            pos++;
+        }
+        /*
+         * Need CRLF plus one more byte to check that the next line is not a continuation of this header. Bare LF
+         * line endings are left to the state machine.
+         */
+        if (pos + 2 >= limit || buf[pos] != CR || buf[pos + 1] != LF || buf[pos + 2] == SP || buf[pos + 2] == HT) {
+            return null;
+        }
+
+        // Trailing white space
+        int valueEnd = pos;
+        while (valueEnd > valueStart && (buf[valueEnd - 1] == SP || buf[valueEnd - 1] == HT)) {
+            valueEnd--;
+        }
+
+        headers.addValue(buf, nameStart, nameEnd - nameStart).setBytes(buf, valueStart, valueEnd - valueStart);
+        buffer.position(pos + 2 - offset);
+        prevChr = CR;
+        chr = LF;
+        return HeaderParseStatus.HAVE_MORE_HEADERS;
+    }
+
+
+    /*
+     * Does the given eight bytes contain a byte that is less than 0x20 (which includes CR, LF and HT) or equal to 0x7F?
+     */
+    private static boolean hasControl(long word) {
+        long lessThanSpace = (word - ONES * 0x20) & ~word & HIGH_BITS;
+        long x = word ^ (ONES * 0x7F);
+        long del = (x - ONES) & ~x & HIGH_BITS;
+        return (lessThanSpace | del) != 0;
+    }
+
+
     private HeaderParseStatus skipLine() throws IOException {
         // Parse the rest of the invalid header so we can construct a useful
         // exception and/or debug message.
@@ -39,6 +39,7 @@ import java.util.concurrent.ConcurrentMap;
 import java.util.concurrent.Executor;
 import java.util.concurrent.RejectedExecutionException;
 import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
 import java.util.concurrent.ScheduledThreadPoolExecutor;
 import java.util.concurrent.TimeUnit;
 
@@ -51,7 +52,7 @@ import org.apache.juli.logging.Log;
 import org.apache.tomcat.util.ExceptionUtils;
 import org.apache.tomcat.util.IntrospectionUtils;
 import org.apache.tomcat.util.buf.HexUtils;
-import org.apache.tomcat.util.collections.SynchronizedStack;
+import org.apache.tomcat.util.collections.StripedStack;
 import org.apache.tomcat.util.modeler.Registry;
 import org.apache.tomcat.util.net.Acceptor.AcceptorState;
 import org.apache.tomcat.util.net.SSLHostConfigCertificate.StoreType;
@@ -287,7 +288,7 @@ public abstract class AbstractEndpoint<S, U> {
     /**
      * Cache for SocketProcessor objects
      */
-    protected SynchronizedStack<SocketProcessorBase<S>> processorCache;
+    protected StripedStack<SocketProcessorBase<S>> processorCache;
 
     /**
      * The ObjectName for JMX registration.
@@ -595,6 +596,61 @@ public abstract class AbstractEndpoint<S, U> {
             logCertificate(certificate);
         }
 
+        if (sslHostConfig.getSessionTicketKeyFile() != null) {
+            SessionTicketKeyManager sessionTicketKeyManager = new SessionTicketKeyManager(sslHostConfig);
+            try {
+                sessionTicketKeyManager.init(System.nanoTime());
+            } catch (IOException ioe) {
+                throw new IllegalArgumentException(sm.getString("sessionTicketKeyManager.readFail",
+                        sslHostConfig.getSessionTicketKeyFile(), sslHostConfig.getHostName()), ioe);
+            }
+            sslHostConfig.setSessionTicketKeyManager(sessionTicketKeyManager);
+            if (running) {
+                // A host added or reloaded while the endpoint is running may be the first to need key rotation
+                startSessionTicketKeyRefresh();
+            }
+        }
+    }
+
+
+    /**
+     * Schedule the periodic check for new session ticket keys if it is not already scheduled and at least one SSL host
+     * configuration has a session ticket key file that should be checked for new keys.
+     */
+    private synchronized void startSessionTicketKeyRefresh() {
+        if (sessionTicketKeyFuture != null) {
+            return;
+        }
+        for (SSLHostConfig sslHostConfig : sslHostConfigs.values()) {
+            if (sslHostConfig.getSessionTicketKeyManager() != null &&
+                    sslHostConfig.getSessionTicketKeyRefreshInterval() > 0) {
+                sessionTicketKeyFuture = getUtilityExecutor().scheduleWithFixedDelay(this::refreshSessionTicketKeys,
+                        1, 1, TimeUnit.SECONDS);
+                return;
+            }
+        }
+    }
+
+
+    private synchronized void stopSessionTicketKeyRefresh() {
+        if (sessionTicketKeyFuture != null) {
+            sessionTicketKeyFuture.cancel(false);
+            sessionTicketKeyFuture = null;
+        }
+    }
+
+
+    /**
+     * Check the session ticket key files of the SSL host configurations for new keys.
+     */
+    protected void refreshSessionTicketKeys() {
+        long now = System.nanoTime();
+        for (SSLHostConfig sslHostConfig : sslHostConfigs.values()) {
+            SessionTicketKeyManager sessionTicketKeyManager = sslHostConfig.getSessionTicketKeyManager();
+            if (sessionTicketKeyManager != null) {
+                sessionTicketKeyManager.refresh(now);
+            }
+        }
     }
 
 
@@ -1058,6 +1114,36 @@ public abstract class AbstractEndpoint<S, U> {
         return -1;
     }
 
+    /**
+     * Number of times a SocketProcessor was obtained from the processor cache.
+     *
+     * @return The hit count or zero if the processor cache is not enabled
+     */
+    public long getProcessorCacheHitCount() {
+        StripedStack<SocketProcessorBase<S>> cache = processorCache;
+        return (cache == null) ? 0 : cache.getHitCount();
+    }
+
+    /**
+     * Number of times a SocketProcessor could not be obtained from the processor cache and had to be created.
+     *
+     * @return The miss count or zero if the processor cache is not enabled
+     */
+    public long getProcessorCacheMissCount() {
+        StripedStack<SocketProcessorBase<S>> cache = processorCache;
+        return (cache == null) ? 0 : cache.getMissCount();
+    }
+
+    /**
+     * Number of times a SocketProcessor could not be returned to the processor cache because the cache was full.
+     *
+     * @return The overflow count or zero if the processor cache is not enabled
+     */
+    public long getProcessorCacheOverflowCount() {
+        StripedStack<SocketProcessorBase<S>> cache = processorCache;
+        return (cache == null) ? 0 : cache.getOverflowCount();
+    }
+
     /**
      * External Executor based thread pool.
      */
@@ -1135,6 +1221,13 @@ public abstract class AbstractEndpoint<S, U> {
     }
 
 
+    /**
+     * Periodic task that checks the session ticket key files for new keys. Only scheduled if at least one SSL host
+     * configuration uses a session ticket key file.
+     */
+    private ScheduledFuture<?> sessionTicketKeyFuture = null;
+
+
     /**
      * Server socket port.
      */
@@ -2095,7 +2188,7 @@ public abstract class AbstractEndpoint<S, U> {
             } else {
                 sc.reset(socketWrapper, event);
             }
-            Executor executor = getExecutor();
+            Executor executor = getExecutor(socketWrapper);
             if (dispatch && executor != null) {
                 executor.execute(sc);
             } else {
@@ -2115,6 +2208,19 @@ public abstract class AbstractEndpoint<S, U> {
     }
 
 
+    /**
+     * Obtain the executor to use to process the given socket. By default, this is the executor returned by
+     * {@link #getExecutor()}.
+     *
+     * @param socketWrapper The socket wrapper to process
+     *
+     * @return The executor to use or {@code null} if there is no executor
+     */
+    protected Executor getExecutor(SocketWrapperBase<S> socketWrapper) {
+        return getExecutor();
+    }
+
+
     /**
      * Create a socket processor for the given socket wrapper.
      *
@@ -2273,6 +2379,9 @@ public abstract class AbstractEndpoint<S, U> {
             bindState = BindState.BOUND_ON_START;
         }
         startInternal();
+        if (isSSLEnabled()) {
+            startSessionTicketKeyRefresh();
+        }
     }
 
 
@@ -2317,6 +2426,7 @@ public abstract class AbstractEndpoint<S, U> {
      * @throws Exception If an error occurs during shutdown
      */
     public final void stop() throws Exception {
+        stopSessionTicketKeyRefresh();
         stopInternal();
         if (bindState == BindState.BOUND_ON_START || bindState == BindState.SOCKET_CLOSED_ON_STOP) {
             unbind();
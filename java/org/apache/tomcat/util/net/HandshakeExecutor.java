@@ -0,0 +1,180 @@
+/*
+ *  Licensed to the Apache Software Foundation (ASF) under one or more
+ *  contributor license agreements.  See the NOTICE file distributed with
+ *  this work for additional information regarding copyright ownership.
+ *  The ASF licenses this file to You under the Apache License, Version 2.0
+ *  (the "License"); you may not use this file except in compliance with
+ *  the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package org.apache.tomcat.util.net;
+
+import java.lang.management.ManagementFactory;
+import java.lang.management.ThreadMXBean;
+import java.util.List;
+import java.util.concurrent.Executor;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+import org.apache.tomcat.util.threads.TaskThreadFactory;
+
+/**
+ * A bounded executor used to perform TLS handshakes so that expensive handshakes, such as those during a flood of new
+ * connections, do not occupy the threads used to process requests on established connections. There is a fixed
+ * maximum number of threads and a fixed maximum queue size. Tasks submitted when the queue is full are rejected.
+ */
+final class HandshakeExecutor implements Executor {
+
+    private static final ThreadMXBean threadMXBean = ManagementFactory.getThreadMXBean();
+
+    private final ThreadPoolExecutor executor;
+    private final boolean cpuTimeSupported;
+
+    private final LongAdder taskCount = new LongAdder();
+    private final LongAdder completedCount = new LongAdder();
+    private final LongAdder rejectedCount = new LongAdder();
+    private final LongAdder queueWaitTime = new LongAdder();
+    private final LongAdder cpuTime = new LongAdder();
+
+
+    /**
+     * Create a handshake executor.
+     *
+     * @param namePrefix The prefix for the names of the threads
+     * @param threads    The maximum number of threads
+     * @param queueSize  The maximum number of tasks waiting for a thread
+     * @param daemon     Should the threads be daemon threads?
+     * @param priority   The priority of the threads
+     */
+    HandshakeExecutor(String namePrefix, int threads, int queueSize, boolean daemon, int priority) {
+        executor = new ThreadPoolExecutor(threads, threads, 60, TimeUnit.SECONDS, new LinkedBlockingQueue<>(queueSize),
+                new TaskThreadFactory(namePrefix, daemon, priority));
+        executor.allowCoreThreadTimeOut(true);
+        cpuTimeSupported = threadMXBean.isCurrentThreadCpuTimeSupported();
+    }
+
+
+    @Override
+    public void execute(Runnable command) {
+        try {
+            executor.execute(new HandshakeTask(command));
+        } catch (RejectedExecutionException ree) {
+            rejectedCount.increment();
+            throw ree;
+        }
+    }
+
+
+    /**
+     * Record that a TLS handshake performed using this executor has completed.
+     */
+    void handshakeCompleted() {
+        completedCount.increment();
+    }
+
+
+    /**
+     * Stop the executor. Queued tasks are not executed and the connections waiting for them are closed.
+     *
+     * @param timeout The time in milliseconds to wait for running tasks to complete
+     */
+    void shutdown(long timeout) {
+        List<Runnable> queued = executor.shutdownNow();
+        for (Runnable r : queued) {
+            if (r instanceof HandshakeTask task && task.command instanceof SocketProcessorBase<?> processor) {
+                processor.socketWrapper.close();
+            }
+        }
+        if (timeout > 0) {
+            try {
+                executor.awaitTermination(timeout, TimeUnit.MILLISECONDS);
+            } catch (InterruptedException e) {
+                // Ignore
+            }
+        }
+    }
+
+
+    /**
+     * @return the number of tasks, each of which is one step of a TLS handshake, executed
+     */
+    long getTaskCount() {
+        return taskCount.sum();
+    }
+
+
+    /**
+     * @return the number of TLS handshakes completed
+     */
+    long getCompletedCount() {
+        return completedCount.sum();
+    }
+
+
+    /**
+     * @return the number of tasks rejected because the queue was full
+     */
+    long getRejectedCount() {
+        return rejectedCount.sum();
+    }
+
+
+    /**
+     * @return the total time in nanoseconds that tasks have spent waiting for a thread
+     */
+    long getQueueWaitTime() {
+        return queueWaitTime.sum();
+    }
+
+
+    /**
+     * @return the total CPU time in nanoseconds used to execute tasks or zero if the JVM does not support measuring
+     *             thread CPU time
+     */
+    long getCpuTime() {
+        return cpuTime.sum();
+    }
+
+
+    /**
+     * @return the number of tasks currently waiting for a thread
+     */
+    int getQueueLength() {
+        return executor.getQueue().size();
+    }
+
+
+    private final class HandshakeTask implements Runnable {
+
+        private final Runnable command;
+        private final long submitted = System.nanoTime();
+
+        HandshakeTask(Runnable command) {
+            this.command = command;
+        }
+
+        @Override
+        public void run() {
+            queueWaitTime.add(System.nanoTime() - submitted);
+            long cpuStart = cpuTimeSupported ? threadMXBean.getCurrentThreadCpuTime() : 0;
+            try {
+                command.run();
+            } finally {
+                if (cpuTimeSupported) {
+                    cpuTime.add(threadMXBean.getCurrentThreadCpuTime() - cpuStart);
+                }
+                taskCount.increment();
+            }
+        }
+    }
+}
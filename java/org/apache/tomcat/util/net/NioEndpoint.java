@@ -49,8 +49,10 @@ import java.util.Iterator;
 import java.util.Objects;
 import java.util.Set;
 import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Executor;
 import java.util.concurrent.Semaphore;
 import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
 import java.util.concurrent.atomic.AtomicLong;
 
 import javax.net.ssl.SSLEngine;
@@ -58,8 +60,9 @@ import javax.net.ssl.SSLEngine;
 import org.apache.juli.logging.Log;
 import org.apache.juli.logging.LogFactory;
 import org.apache.tomcat.util.ExceptionUtils;
-import org.apache.tomcat.util.collections.SynchronizedQueue;
-import org.apache.tomcat.util.collections.SynchronizedStack;
+import org.apache.tomcat.util.buf.ByteBufferArena;
+import org.apache.tomcat.util.collections.MpscArrayQueue;
+import org.apache.tomcat.util.collections.StripedStack;
 import org.apache.tomcat.util.compat.JrePlatform;
 import org.apache.tomcat.util.net.AbstractEndpoint.Handler.SocketState;
 import org.apache.tomcat.util.net.Acceptor.AcceptorState;
@@ -105,12 +108,17 @@ public class NioEndpoint extends AbstractNetworkChannelEndpoint<NioChannel,Socke
     /**
      * Cache for poller events
      */
-    private SynchronizedStack<PollerEvent> eventCache;
+    private StripedStack<PollerEvent> eventCache;
 
     /**
      * Bytebuffer cache, each channel holds a set of buffers (two, except for SSL holds four)
      */
-    private SynchronizedStack<NioChannel> nioChannels;
+    private StripedStack<NioChannel> nioChannels;
+
+    /**
+     * Arena from which application buffers are leased, if enabled.
+     */
+    private volatile ByteBufferArena bufferArena;
 
     /**
      * Address of the previously accepted socket for duplicate detection.
@@ -197,6 +205,35 @@ public class NioEndpoint extends AbstractNetworkChannelEndpoint<NioChannel,Socke
     }
 
 
+    /**
+     * Number of poller threads, each with its own selector and event queue.
+     */
+    private int pollerThreadCount = 1;
+
+    /**
+     * Sets the number of poller threads. New connections are assigned to the pollers in a round-robin manner. Changes
+     * take effect the next time the endpoint is started.
+     *
+     * @param pollerThreadCount the number of poller threads
+     */
+    public void setPollerThreadCount(int pollerThreadCount) {
+        if (pollerThreadCount < 1) {
+            throw new IllegalArgumentException(
+                    sm.getString("endpoint.nio.invalidPollerThreadCount", Integer.toString(pollerThreadCount)));
+        }
+        this.pollerThreadCount = pollerThreadCount;
+    }
+
+    /**
+     * Returns the number of poller threads.
+     *
+     * @return the number of poller threads
+     */
+    public int getPollerThreadCount() {
+        return pollerThreadCount;
+    }
+
+
     /**
      * Priority of the poller thread.
      */
@@ -245,9 +282,75 @@ public class NioEndpoint extends AbstractNetworkChannelEndpoint<NioChannel,Socke
     }
 
     /**
-     * The socket poller.
+     * Maximum number of threads used to perform TLS handshakes. Zero or less means TLS handshakes are performed using
+     * the main executor.
      */
-    private Poller poller = null;
+    private int handshakeThreads = 0;
+
+    /**
+     * Sets the maximum number of threads used to perform TLS handshakes. Changes take effect the next time the
+     * endpoint is started.
+     *
+     * @param handshakeThreads the maximum number of threads. Zero or less means TLS handshakes are performed using the
+     *                             main executor.
+     */
+    public void setHandshakeThreads(int handshakeThreads) {
+        this.handshakeThreads = handshakeThreads;
+    }
+
+    /**
+     * Returns the maximum number of threads used to perform TLS handshakes.
+     *
+     * @return the maximum number of threads
+     */
+    public int getHandshakeThreads() {
+        return handshakeThreads;
+    }
+
+
+    /**
+     * Maximum number of TLS handshake steps that may be queued waiting for a handshake thread.
+     */
+    private int handshakeQueueSize = 1000;
+
+    /**
+     * Sets the maximum number of TLS handshake steps that may be queued waiting for a handshake thread. Connections
+     * that need to be queued when the queue is full are closed. Changes take effect the next time the endpoint is
+     * started.
+     *
+     * @param handshakeQueueSize the maximum queue size
+     */
+    public void setHandshakeQueueSize(int handshakeQueueSize) {
+        if (handshakeQueueSize < 1) {
+            throw new IllegalArgumentException(
+                    sm.getString("endpoint.nio.invalidHandshakeQueueSize", Integer.toString(handshakeQueueSize)));
+        }
+        this.handshakeQueueSize = handshakeQueueSize;
+    }
+
+    /**
+     * Returns the maximum number of TLS handshake steps that may be queued waiting for a handshake thread.
+     *
+     * @return the maximum queue size
+     */
+    public int getHandshakeQueueSize() {
+        return handshakeQueueSize;
+    }
+
+    /**
+     * Executor used to perform TLS handshakes, if enabled.
+     */
+    private volatile HandshakeExecutor handshakeExecutor = null;
+
+    /**
+     * The socket pollers.
+     */
+    private volatile Poller[] pollers = null;
+
+    /**
+     * Used to assign new connections to the pollers in a round-robin manner.
+     */
+    private final AtomicInteger pollerRotater = new AtomicInteger(0);
 
 
     // --------------------------------------------------------- Public Methods
@@ -259,11 +362,250 @@ public class NioEndpoint extends AbstractNetworkChannelEndpoint<NioChannel,Socke
      *             the socket
      */
     public int getKeepAliveCount() {
-        if (poller == null) {
+        Poller[] pollers = this.pollers;
+        if (pollers == null) {
             return 0;
         } else {
-            return poller.getKeyCount();
+            int sum = 0;
+            for (Poller poller : pollers) {
+                sum += poller.getKeyCount();
+            }
+            return sum;
+        }
+    }
+
+
+    /**
+     * Number of times a PollerEvent was obtained from the event cache.
+     *
+     * @return The hit count or zero if the event cache is not enabled
+     */
+    public long getEventCacheHitCount() {
+        StripedStack<PollerEvent> cache = eventCache;
+        return (cache == null) ? 0 : cache.getHitCount();
+    }
+
+
+    /**
+     * Number of times a PollerEvent could not be obtained from the event cache and had to be created.
+     *
+     * @return The miss count or zero if the event cache is not enabled
+     */
+    public long getEventCacheMissCount() {
+        StripedStack<PollerEvent> cache = eventCache;
+        return (cache == null) ? 0 : cache.getMissCount();
+    }
+
+
+    /**
+     * Number of times a PollerEvent could not be returned to the event cache because the cache was full.
+     *
+     * @return The overflow count or zero if the event cache is not enabled
+     */
+    public long getEventCacheOverflowCount() {
+        StripedStack<PollerEvent> cache = eventCache;
+        return (cache == null) ? 0 : cache.getOverflowCount();
+    }
+
+
+    /**
+     * Number of times a NioChannel was obtained from the buffer pool.
+     *
+     * @return The hit count or zero if the buffer pool is not enabled
+     */
+    public long getBufferPoolHitCount() {
+        StripedStack<NioChannel> cache = nioChannels;
+        return (cache == null) ? 0 : cache.getHitCount();
+    }
+
+
+    /**
+     * Number of times a NioChannel could not be obtained from the buffer pool and had to be created.
+     *
+     * @return The miss count or zero if the buffer pool is not enabled
+     */
+    public long getBufferPoolMissCount() {
+        StripedStack<NioChannel> cache = nioChannels;
+        return (cache == null) ? 0 : cache.getMissCount();
+    }
+
+
+    /**
+     * Number of times a NioChannel could not be returned to the buffer pool because the pool was full.
+     *
+     * @return The overflow count or zero if the buffer pool is not enabled
+     */
+    public long getBufferPoolOverflowCount() {
+        StripedStack<NioChannel> cache = nioChannels;
+        return (cache == null) ? 0 : cache.getOverflowCount();
+    }
+
+
+    /**
+     * Total capacity of the buffers currently leased from the buffer arena.
+     *
+     * @return The leased bytes or zero if the buffer arena is not enabled
+     */
+    public long getBufferArenaLeasedBytes() {
+        ByteBufferArena arena = bufferArena;
+        return (arena == null) ? 0 : arena.getLeasedBytes();
+    }
+
+
+    /**
+     * Total capacity of the unused buffers currently held by the buffer arena.
+     *
+     * @return The pooled bytes or zero if the buffer arena is not enabled
+     */
+    public long getBufferArenaPooledBytes() {
+        ByteBufferArena arena = bufferArena;
+        return (arena == null) ? 0 : arena.getPooledBytes();
+    }
+
+
+    /**
+     * Number of buffers the buffer arena has had to allocate because no suitable unused buffer was available.
+     *
+     * @return The allocation count or zero if the buffer arena is not enabled
+     */
+    public long getBufferArenaAllocationCount() {
+        ByteBufferArena arena = bufferArena;
+        return (arena == null) ? 0 : arena.getAllocationCount();
+    }
+
+
+    /**
+     * Proportion of the leased buffer capacity that is unused because buffer sizes are rounded up to the arena size
+     * classes.
+     *
+     * @return The fragmentation between 0 and 1 or zero if the buffer arena is not enabled
+     */
+    public double getBufferArenaFragmentation() {
+        ByteBufferArena arena = bufferArena;
+        return (arena == null) ? 0 : arena.getFragmentation();
+    }
+
+
+    /**
+     * Number of TLS handshakes completed using the handshake executor.
+     *
+     * @return The number of completed handshakes or zero if the handshake executor is not enabled
+     */
+    public long getHandshakeCompletedCount() {
+        HandshakeExecutor executor = handshakeExecutor;
+        return (executor == null) ? 0 : executor.getCompletedCount();
+    }
+
+
+    /**
+     * Number of TLS handshake steps executed by the handshake executor. A handshake may require several steps, for
+     * example when it has to wait for more data from the client.
+     *
+     * @return The number of executed handshake steps or zero if the handshake executor is not enabled
+     */
+    public long getHandshakeTaskCount() {
+        HandshakeExecutor executor = handshakeExecutor;
+        return (executor == null) ? 0 : executor.getTaskCount();
+    }
+
+
+    /**
+     * Number of TLS handshake steps rejected by the handshake executor because its queue was full. The associated
+     * connections were closed.
+     *
+     * @return The number of rejected handshake steps or zero if the handshake executor is not enabled
+     */
+    public long getHandshakeRejectedCount() {
+        HandshakeExecutor executor = handshakeExecutor;
+        return (executor == null) ? 0 : executor.getRejectedCount();
+    }
+
+
+    /**
+     * Number of TLS handshake steps currently waiting for a handshake thread.
+     *
+     * @return The queue length or zero if the handshake executor is not enabled
+     */
+    public int getHandshakeQueueLength() {
+        HandshakeExecutor executor = handshakeExecutor;
+        return (executor == null) ? 0 : executor.getQueueLength();
+    }
+
+
+    /**
+     * Total time that TLS handshake steps have spent waiting for a handshake thread.
+     *
+     * @return The total queue wait time in milliseconds or zero if the handshake executor is not enabled
+     */
+    public long getHandshakeQueueWaitTime() {
+        HandshakeExecutor executor = handshakeExecutor;
+        return (executor == null) ? 0 : TimeUnit.NANOSECONDS.toMillis(executor.getQueueWaitTime());
+    }
+
+
+    /**
+     * Total CPU time used by the handshake threads to perform TLS handshakes.
+     *
+     * @return The total CPU time in milliseconds or zero if the handshake executor is not enabled or the JVM does not
+     *             support measuring thread CPU time
+     */
+    public long getHandshakeCpuTime() {
+        HandshakeExecutor executor = handshakeExecutor;
+        return (executor == null) ? 0 : TimeUnit.NANOSECONDS.toMillis(executor.getCpuTime());
+    }
+
+
+    /**
+     * Number of selected keys processed by each poller since the endpoint was started.
+     *
+     * @return The cumulative number of selected keys, indexed by poller
+     */
+    public long[] getPollerSelectedKeyCount() {
+        Poller[] pollers = this.pollers;
+        if (pollers == null) {
+            return new long[0];
+        }
+        long[] result = new long[pollers.length];
+        for (int i = 0; i < pollers.length; i++) {
+            result[i] = pollers[i].getSelectedKeyCount();
+        }
+        return result;
+    }
+
+
+    /**
+     * Number of times each poller's selector has been woken up to process new events since the endpoint was started.
+     *
+     * @return The cumulative number of selector wake-ups, indexed by poller
+     */
+    public long[] getPollerWakeupCount() {
+        Poller[] pollers = this.pollers;
+        if (pollers == null) {
+            return new long[0];
+        }
+        long[] result = new long[pollers.length];
+        for (int i = 0; i < pollers.length; i++) {
+            result[i] = pollers[i].getWakeupCount();
         }
+        return result;
+    }
+
+
+    /**
+     * Number of events currently waiting in each poller's event queue.
+     *
+     * @return The current event queue depth, indexed by poller
+     */
+    public int[] getPollerEventQueueSize() {
+        Poller[] pollers = this.pollers;
+        if (pollers == null) {
+            return new int[0];
+        }
+        int[] result = new int[pollers.length];
+        for (int i = 0; i < pollers.length; i++) {
+            result[i] = pollers[i].getEventQueueSize();
+        }
+        return result;
     }
 
 
@@ -353,30 +695,45 @@ public class NioEndpoint extends AbstractNetworkChannelEndpoint<NioChannel,Socke
             paused = false;
 
             if (socketProperties.getProcessorCache() != 0) {
-                processorCache =
-                        new SynchronizedStack<>(SynchronizedStack.DEFAULT_SIZE, socketProperties.getProcessorCache());
+                processorCache = new StripedStack<>(socketProperties.getProcessorCache());
             }
             if (socketProperties.getEventCache() != 0) {
-                eventCache = new SynchronizedStack<>(SynchronizedStack.DEFAULT_SIZE, socketProperties.getEventCache());
+                eventCache = new StripedStack<>(socketProperties.getEventCache());
             }
             int actualBufferPool = socketProperties.getActualBufferPool(isSSLEnabled() ? getSniParseLimit() * 2 : 0);
             if (actualBufferPool != 0) {
-                nioChannels = new SynchronizedStack<>(SynchronizedStack.DEFAULT_SIZE, actualBufferPool);
+                nioChannels = new StripedStack<>(actualBufferPool);
+            }
+            if (socketProperties.getBufferArena()) {
+                bufferArena = new ByteBufferArena(socketProperties.getBufferArenaSize());
             }
 
             // Create worker collection
             if (getExecutor() == null) {
                 createExecutor();
             }
+            if (isSSLEnabled() && handshakeThreads > 0) {
+                handshakeExecutor = new HandshakeExecutor(getName() + "-handshake-", handshakeThreads,
+                        handshakeQueueSize, getDaemon(), getThreadPriority());
+            }
 
             initializeConnectionLatch();
 
-            // Start poller thread
-            poller = new Poller();
-            Thread pollerThread = new Thread(poller, getName() + "-Poller");
-            pollerThread.setPriority(pollerThreadPriority);
-            pollerThread.setDaemon(true);
-            pollerThread.start();
+            // Start poller threads
+            int count = pollerThreadCount;
+            setStopLatch(new CountDownLatch(count));
+            Poller[] pollers = new Poller[count];
+            for (int i = 0; i < count; i++) {
+                pollers[i] = new Poller();
+            }
+            this.pollers = pollers;
+            for (int i = 0; i < count; i++) {
+                Thread pollerThread =
+                        new Thread(pollers[i], getName() + (count == 1 ? "-Poller" : ("-Poller-" + i)));
+                pollerThread.setPriority(pollerThreadPriority);
+                pollerThread.setDaemon(true);
+                pollerThread.start();
+            }
 
             startAcceptorThread();
         }
@@ -399,9 +756,12 @@ public class NioEndpoint extends AbstractNetworkChannelEndpoint<NioChannel,Socke
              */
             int acceptorWaitMilliSeconds = 100 + 2 * getSocketProperties().getUnlockTimeout();
             acceptor.stopMillis(acceptorWaitMilliSeconds);
-            if (poller != null) {
-                poller.destroy();
-                poller = null;
+            Poller[] pollers = this.pollers;
+            if (pollers != null) {
+                for (Poller poller : pollers) {
+                    poller.destroy();
+                }
+                this.pollers = null;
             }
             try {
                 if (!getStopLatch().await(selectorTimeout + 100, TimeUnit.MILLISECONDS)) {
@@ -411,6 +771,11 @@ public class NioEndpoint extends AbstractNetworkChannelEndpoint<NioChannel,Socke
                 log.warn(sm.getString("endpoint.nio.stopLatchAwaitInterrupted"), e);
             }
             shutdownExecutor();
+            HandshakeExecutor handshakeExecutor = this.handshakeExecutor;
+            if (handshakeExecutor != null) {
+                this.handshakeExecutor = null;
+                handshakeExecutor.shutdown(getExecutorTerminationTimeoutMillis());
+            }
             if (eventCache != null) {
                 eventCache.clear();
                 eventCache = null;
@@ -422,6 +787,10 @@ public class NioEndpoint extends AbstractNetworkChannelEndpoint<NioChannel,Socke
                 }
                 nioChannels = null;
             }
+            if (bufferArena != null) {
+                bufferArena.clear();
+                bufferArena = null;
+            }
             if (processorCache != null) {
                 processorCache.clear();
                 processorCache = null;
@@ -512,18 +881,26 @@ public class NioEndpoint extends AbstractNetworkChannelEndpoint<NioChannel,Socke
      *
      * @return the channel cache stack
      */
-    protected SynchronizedStack<NioChannel> getNioChannels() {
+    protected StripedStack<NioChannel> getNioChannels() {
         return nioChannels;
     }
 
 
     /**
-     * Returns the poller instance.
+     * Returns the poller to use for a new connection. When more than one poller is configured, pollers are selected in
+     * a round-robin manner.
      *
      * @return the poller
      */
     protected Poller getPoller() {
-        return poller;
+        Poller[] pollers = this.pollers;
+        if (pollers == null) {
+            return null;
+        }
+        if (pollers.length == 1) {
+            return pollers[0];
+        }
+        return pollers[Math.floorMod(pollerRotater.getAndIncrement(), pollers.length)];
     }
 
 
@@ -565,8 +942,15 @@ public class NioEndpoint extends AbstractNetworkChannelEndpoint<NioChannel,Socke
                 channel = nioChannels.pop();
             }
             if (channel == null) {
-                SocketBufferHandler bufhandler = new SocketBufferHandler(socketProperties.getAppReadBufSize(),
-                        socketProperties.getAppWriteBufSize(), socketProperties.getDirectBuffer());
+                SocketBufferHandler bufhandler;
+                ByteBufferArena arena = bufferArena;
+                if (arena == null) {
+                    bufhandler = new SocketBufferHandler(socketProperties.getAppReadBufSize(),
+                            socketProperties.getAppWriteBufSize(), socketProperties.getDirectBuffer());
+                } else {
+                    bufhandler = new SocketBufferHandler(socketProperties.getAppReadBufSize(),
+                            socketProperties.getAppWriteBufSize(), arena);
+                }
                 channel = createChannel(bufhandler);
             }
             NioSocketWrapper newWrapper = new NioSocketWrapper(channel, this);
@@ -584,7 +968,7 @@ public class NioEndpoint extends AbstractNetworkChannelEndpoint<NioChannel,Socke
             socketWrapper.setReadTimeout(getConnectionTimeout());
             socketWrapper.setWriteTimeout(getConnectionTimeout());
             socketWrapper.setKeepAliveLeft(NioEndpoint.this.getMaxKeepAliveRequests());
-            poller.register(socketWrapper);
+            socketWrapper.getPoller().register(socketWrapper);
             return true;
         } catch (Throwable t) {
             ExceptionUtils.handleThrowable(t);
@@ -653,6 +1037,16 @@ public class NioEndpoint extends AbstractNetworkChannelEndpoint<NioChannel,Socke
     }
 
 
+    @Override
+    protected Executor getExecutor(SocketWrapperBase<NioChannel> socketWrapper) {
+        HandshakeExecutor handshakeExecutor = this.handshakeExecutor;
+        if (handshakeExecutor != null && !socketWrapper.getSocket().isHandshakeComplete()) {
+            return handshakeExecutor;
+        }
+        return super.getExecutor(socketWrapper);
+    }
+
+
     @Override
     protected SocketProcessorBase<NioChannel> createSocketProcessor(SocketWrapperBase<NioChannel> socketWrapper,
             SocketEvent event) {
@@ -736,7 +1130,7 @@ public class NioEndpoint extends AbstractNetworkChannelEndpoint<NioChannel,Socke
     public class Poller implements Runnable {
 
         private final Selector selector;
-        private final SynchronizedQueue<PollerEvent> events = new SynchronizedQueue<>();
+        private final MpscArrayQueue<PollerEvent> events = new MpscArrayQueue<>();
 
         private volatile boolean close = false;
         // Optimize expiration handling
@@ -746,6 +1140,10 @@ public class NioEndpoint extends AbstractNetworkChannelEndpoint<NioChannel,Socke
 
         private volatile int keyCount = 0;
 
+        // Statistics
+        private volatile long selectedKeyCount = 0;
+        private final AtomicLong wakeupCount = new AtomicLong(0);
+
         /**
          * Creates a new poller.
          *
@@ -773,6 +1171,33 @@ public class NioEndpoint extends AbstractNetworkChannelEndpoint<NioChannel,Socke
             return selector;
         }
 
+        /**
+         * Returns the number of selected keys processed by this poller.
+         *
+         * @return the cumulative selected key count
+         */
+        public long getSelectedKeyCount() {
+            return selectedKeyCount;
+        }
+
+        /**
+         * Returns the number of times the selector has been woken up to process new events.
+         *
+         * @return the cumulative wake-up count
+         */
+        public long getWakeupCount() {
+            return wakeupCount.get();
+        }
+
+        /**
+         * Returns the number of events waiting to be processed by this poller.
+         *
+         * @return the event queue size
+         */
+        public int getEventQueueSize() {
+            return events.size();
+        }
+
         /**
          * Destroy the poller.
          */
@@ -787,6 +1212,7 @@ public class NioEndpoint extends AbstractNetworkChannelEndpoint<NioChannel,Socke
         private void addEvent(PollerEvent event) {
             events.offer(event);
             if (wakeupCounter.incrementAndGet() == 0) {
+                wakeupCount.incrementAndGet();
                 selector.wakeup();
             }
         }
@@ -934,6 +1360,9 @@ public class NioEndpoint extends AbstractNetworkChannelEndpoint<NioChannel,Socke
                     continue;
                 }
 
+                if (keyCount > 0) {
+                    selectedKeyCount += keyCount;
+                }
                 Iterator<SelectionKey> iterator = keyCount > 0 ? selector.selectedKeys().iterator() : null;
                 // Walk through the collection of ready keys and dispatch
                 // any active event.
@@ -1264,7 +1693,7 @@ public class NioEndpoint extends AbstractNetworkChannelEndpoint<NioChannel,Socke
      */
     public static class NioSocketWrapper extends SocketWrapperBase<NioChannel> {
 
-        private final SynchronizedStack<NioChannel> nioChannels;
+        private final StripedStack<NioChannel> nioChannels;
         private final Poller poller;
 
         private int interestOps = 0;
@@ -1991,14 +2420,14 @@ public class NioEndpoint extends AbstractNetworkChannelEndpoint<NioChannel,Socke
              * connection. That can result in a stale cached value which in turn can result in unintentionally closing
              * currently active connections.
              */
-            Poller poller = NioEndpoint.this.poller;
-            if (poller == null) {
+            if (NioEndpoint.this.pollers == null) {
                 socketWrapper.close();
                 return;
             }
 
             try {
                 int handshake;
+                boolean handshakePerformed = false;
                 try {
                     if (socketWrapper.getSocket().isHandshakeComplete()) {
                         // No TLS handshaking required. Let the handler
@@ -2012,6 +2441,7 @@ public class NioEndpoint extends AbstractNetworkChannelEndpoint<NioChannel,Socke
                     } else {
                         handshake = socketWrapper.getSocket().handshake(event == SocketEvent.OPEN_READ,
                                 event == SocketEvent.OPEN_WRITE);
+                        handshakePerformed = true;
                         // The handshake process reads/writes from/to the
                         // socket. status may therefore be OPEN_WRITE once
                         // the handshake completes. However, the handshake
@@ -2030,7 +2460,15 @@ public class NioEndpoint extends AbstractNetworkChannelEndpoint<NioChannel,Socke
                 } catch (CancelledKeyException ckx) {
                     handshake = -1;
                 }
-                if (handshake == 0) {
+                HandshakeExecutor handshakeExecutor = NioEndpoint.this.handshakeExecutor;
+                if (handshake == 0 && handshakePerformed && handshakeExecutor != null) {
+                    // The handshake was performed using the handshake executor. Hand the socket over to the main
+                    // executor to process the request.
+                    handshakeExecutor.handshakeCompleted();
+                    if (!processSocket(socketWrapper, SocketEvent.OPEN_READ, true)) {
+                        socketWrapper.close();
+                    }
+                } else if (handshake == 0) {
                     SocketState state;
                     // Process the request from this socket
                     state = getHandler().process(socketWrapper,
@@ -90,4 +90,49 @@ public interface SSLContext {
      * @return The accepted issuers
      */
     X509Certificate[] getAcceptedIssuers();
+
+    /**
+     * Sets the keys used to encrypt and decrypt TLS session tickets. The format of the keys is implementation specific.
+     *
+     * @param keys The session ticket keys
+     * @return {@code true} if the keys were set, {@code false} if this SSL context does not support setting the session
+     *             ticket keys
+     */
+    default boolean setSessionTicketKeys(byte[] keys) {
+        return false;
+    }
+
+    /**
+     * Sets the keys used to encrypt and decrypt TLS session tickets along with the keys they replace. New tickets are
+     * encrypted with {@code keys} while tickets encrypted with {@code previousKeys} may still be decrypted so clients
+     * can resume their sessions across a key rotation. Implementations that cannot use more than one set of keys
+     * ignore {@code previousKeys}. The format of the keys is implementation specific.
+     *
+     * @param keys         The session ticket keys
+     * @param previousKeys The session ticket keys being replaced or {@code null} if there are none
+     * @return {@code true} if the keys were set, {@code false} if this SSL context does not support setting the session
+     *             ticket keys
+     */
+    default boolean setSessionTicketKeys(byte[] keys, byte[] previousKeys) {
+        return setSessionTicketKeys(keys);
+    }
+
+    /**
+     * Returns the number of TLS handshakes started in server mode.
+     *
+     * @return The number of started handshakes or {@code -1} if this SSL context does not provide session statistics
+     */
+    default long getSessionAccepts() {
+        return -1;
+    }
+
+    /**
+     * Returns the number of TLS handshakes in server mode that resumed a previous session, either from the session
+     * cache or using a session ticket.
+     *
+     * @return The number of resumed sessions or {@code -1} if this SSL context does not provide session statistics
+     */
+    default long getSessionHits() {
+        return -1;
+    }
 }
@@ -116,6 +116,10 @@ public class SSLHostConfig implements Serializable {
      * The native OpenSSL SSL context pointer.
      */
     private transient volatile Long openSslContext = Long.valueOf(0);
+    /**
+     * Manages the session ticket keys read from {@link #sessionTicketKeyFile}, if any.
+     */
+    private transient volatile SessionTicketKeyManager sessionTicketKeyManager = null;
 
     /**
      * Whether TLS 1.3 renegotiation is available.
@@ -224,6 +228,14 @@ public class SSLHostConfig implements Serializable {
      * The SSL session timeout in seconds.
      */
     private int sessionTimeout = 86400;
+    /**
+     * The file containing the keys used to encrypt and decrypt TLS session tickets.
+     */
+    private String sessionTicketKeyFile = null;
+    /**
+     * The interval in seconds between checks of the session ticket key file for new keys.
+     */
+    private int sessionTicketKeyRefreshInterval = 60;
     // JSSE
     /**
      * The key manager algorithm.
@@ -491,6 +503,16 @@ public class SSLHostConfig implements Serializable {
     }
 
 
+    SessionTicketKeyManager getSessionTicketKeyManager() {
+        return sessionTicketKeyManager;
+    }
+
+
+    void setSessionTicketKeyManager(SessionTicketKeyManager sessionTicketKeyManager) {
+        this.sessionTicketKeyManager = sessionTicketKeyManager;
+    }
+
+
     // ------------------------------------------- Nested configuration elements
 
     private void registerDefaultCertificate() {
@@ -1071,6 +1093,47 @@ public class SSLHostConfig implements Serializable {
     }
 
 
+    /**
+     * Sets the file containing the keys used to encrypt and decrypt TLS session tickets. Sharing the file between
+     * multiple instances allows a session ticket issued by one instance to be used to resume the session with another.
+     *
+     * @param sessionTicketKeyFile the session ticket key file
+     */
+    public void setSessionTicketKeyFile(String sessionTicketKeyFile) {
+        this.sessionTicketKeyFile = sessionTicketKeyFile;
+    }
+
+
+    /**
+     * Returns the file containing the keys used to encrypt and decrypt TLS session tickets.
+     *
+     * @return the session ticket key file
+     */
+    public String getSessionTicketKeyFile() {
+        return sessionTicketKeyFile;
+    }
+
+
+    /**
+     * Sets the interval between checks of the session ticket key file for new keys.
+     *
+     * @param sessionTicketKeyRefreshInterval the interval in seconds. Zero or less disables the checks.
+     */
+    public void setSessionTicketKeyRefreshInterval(int sessionTicketKeyRefreshInterval) {
+        this.sessionTicketKeyRefreshInterval = sessionTicketKeyRefreshInterval;
+    }
+
+
+    /**
+     * Returns the interval between checks of the session ticket key file for new keys.
+     *
+     * @return the interval in seconds
+     */
+    public int getSessionTicketKeyRefreshInterval() {
+        return sessionTicketKeyRefreshInterval;
+    }
+
+
     /**
      * Returns the configured named groups.
      *
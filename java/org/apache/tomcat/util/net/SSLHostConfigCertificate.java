@@ -200,6 +200,58 @@ public class SSLHostConfigCertificate implements Serializable {
     }
 
 
+    /**
+     * Returns the number of TLS handshakes started in server mode using the SSLContext for this certificate.
+     *
+     * @return the number of started handshakes or {@code -1} if not available
+     */
+    public long getSessionAccepts() {
+        SSLContext sslContext = getSslContext();
+        if (sslContext == null) {
+            return -1;
+        }
+        return sslContext.getSessionAccepts();
+    }
+
+
+    /**
+     * Returns the number of TLS handshakes in server mode using the SSLContext for this certificate that resumed a
+     * previous session.
+     *
+     * @return the number of resumed sessions or {@code -1} if not available
+     */
+    public long getSessionHits() {
+        SSLContext sslContext = getSslContext();
+        if (sslContext == null) {
+            return -1;
+        }
+        return sslContext.getSessionHits();
+    }
+
+
+    /**
+     * Returns the proportion of TLS handshakes in server mode using the SSLContext for this certificate that resumed a
+     * previous session.
+     *
+     * @return the session hit ratio in the range 0 to 1 or {@code -1} if not available
+     */
+    public double getSessionHitRatio() {
+        SSLContext sslContext = getSslContext();
+        if (sslContext == null) {
+            return -1;
+        }
+        long accepts = sslContext.getSessionAccepts();
+        long hits = sslContext.getSessionHits();
+        if (accepts < 0 || hits < 0) {
+            return -1;
+        }
+        if (accepts == 0) {
+            return 0;
+        }
+        return (double) hits / accepts;
+    }
+
+
     /**
      * Returns the SSLHostConfig that owns this certificate configuration.
      *
@@ -0,0 +1,114 @@
+/*
+ *  Licensed to the Apache Software Foundation (ASF) under one or more
+ *  contributor license agreements.  See the NOTICE file distributed with
+ *  this work for additional information regarding copyright ownership.
+ *  The ASF licenses this file to You under the Apache License, Version 2.0
+ *  (the "License"); you may not use this file except in compliance with
+ *  the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package org.apache.tomcat.util.net;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.Arrays;
+import java.util.concurrent.TimeUnit;
+
+import org.apache.juli.logging.Log;
+import org.apache.juli.logging.LogFactory;
+import org.apache.tomcat.util.file.ConfigFileLoader;
+import org.apache.tomcat.util.file.ConfigurationSource.Resource;
+import org.apache.tomcat.util.res.StringManager;
+
+/**
+ * Manages the keys used to encrypt and decrypt TLS session tickets for an {@link SSLHostConfig}. The keys are read from
+ * a file that may be shared by multiple Tomcat instances so that a client may resume a session with any of them. The
+ * file is checked for new keys periodically so the keys may be rotated by replacing the file. When the keys are
+ * rotated, the keys they replace are retained for decryption only (where the SSL implementation supports it) so that
+ * tickets issued shortly before the rotation may still be used to resume a session.
+ */
+class SessionTicketKeyManager {
+
+    private static final Log log = LogFactory.getLog(SessionTicketKeyManager.class);
+    private static final StringManager sm = StringManager.getManager(SessionTicketKeyManager.class);
+
+    private final SSLHostConfig sslHostConfig;
+
+    private byte[] keys = null;
+    private long nextRefresh;
+
+
+    SessionTicketKeyManager(SSLHostConfig sslHostConfig) {
+        this.sslHostConfig = sslHostConfig;
+    }
+
+
+    /**
+     * Read the keys and set them on the SSL contexts of the associated {@link SSLHostConfig}.
+     *
+     * @param now The current time as returned by {@link System#nanoTime()}
+     *
+     * @throws IOException If the keys cannot be read
+     */
+    synchronized void init(long now) throws IOException {
+        keys = readKeys();
+        for (SSLHostConfigCertificate certificate : sslHostConfig.getCertificates()) {
+            SSLContext sslContext = certificate.getSslContext();
+            if (sslContext != null && !sslContext.setSessionTicketKeys(keys)) {
+                log.warn(sm.getString("sessionTicketKeyManager.notSupported", sslHostConfig.getHostName(),
+                        certificate.getType()));
+            }
+        }
+        nextRefresh = now + TimeUnit.SECONDS.toNanos(sslHostConfig.getSessionTicketKeyRefreshInterval());
+    }
+
+
+    /**
+     * Check the key file for new keys if the refresh interval has elapsed since the last check and, if the keys have
+     * changed, set the new keys on the SSL contexts of the associated {@link SSLHostConfig}. The keys being replaced are
+     * retained so tickets encrypted with them can still be decrypted until the next rotation. Any errors are logged.
+     *
+     * @param now The current time as returned by {@link System#nanoTime()}
+     */
+    synchronized void refresh(long now) {
+        int refreshInterval = sslHostConfig.getSessionTicketKeyRefreshInterval();
+        if (refreshInterval <= 0 || now - nextRefresh < 0) {
+            return;
+        }
+        nextRefresh = now + TimeUnit.SECONDS.toNanos(refreshInterval);
+        try {
+            byte[] newKeys = readKeys();
+            if (Arrays.equals(keys, newKeys)) {
+                return;
+            }
+            for (SSLHostConfigCertificate certificate : sslHostConfig.getCertificates()) {
+                SSLContext sslContext = certificate.getSslContext();
+                if (sslContext != null) {
+                    sslContext.setSessionTicketKeys(newKeys, keys);
+                }
+            }
+            keys = newKeys;
+            if (log.isDebugEnabled()) {
+                log.debug(sm.getString("sessionTicketKeyManager.rotated", sslHostConfig.getHostName()));
+            }
+        } catch (IOException | RuntimeException e) {
+            log.warn(sm.getString("sessionTicketKeyManager.refreshFail", sslHostConfig.getSessionTicketKeyFile(),
+                    sslHostConfig.getHostName()), e);
+        }
+    }
+
+
+    private byte[] readKeys() throws IOException {
+        try (Resource resource = ConfigFileLoader.getSource().getResource(sslHostConfig.getSessionTicketKeyFile());
+                InputStream is = resource.getInputStream()) {
+            return is.readAllBytes();
+        }
+    }
+}
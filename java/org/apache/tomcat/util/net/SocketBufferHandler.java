@@ -19,6 +19,7 @@ package org.apache.tomcat.util.net;
 import java.nio.BufferOverflowException;
 import java.nio.ByteBuffer;
 
+import org.apache.tomcat.util.buf.ByteBufferArena;
 import org.apache.tomcat.util.buf.ByteBufferUtils;
 
 /**
@@ -56,6 +57,16 @@ public class SocketBufferHandler {
 
     private final boolean direct;
 
+    /*
+     * When an arena is used, the buffers are only leased when they are first required and are returned to the arena
+     * by release() when they are empty. readBuffer and writeBuffer are null while the buffers are not leased.
+     */
+    private final ByteBufferArena arena;
+    private int readBufferSize;
+    private int writeBufferSize;
+    private int readBufferLeaseSize;
+    private int writeBufferLeaseSize;
+
     /**
      * Creates a new SocketBufferHandler with the specified buffer sizes.
      * @param readBufferSize the size of the read buffer in bytes
@@ -64,6 +75,7 @@ public class SocketBufferHandler {
      */
     public SocketBufferHandler(int readBufferSize, int writeBufferSize, boolean direct) {
         this.direct = direct;
+        this.arena = null;
         if (direct) {
             readBuffer = ByteBuffer.allocateDirect(readBufferSize);
             writeBuffer = ByteBuffer.allocateDirect(writeBufferSize);
@@ -74,6 +86,44 @@ public class SocketBufferHandler {
     }
 
 
+    /**
+     * Creates a new SocketBufferHandler that leases direct buffers from the provided arena when they are required.
+     * @param readBufferSize the size of the read buffer in bytes
+     * @param writeBufferSize the size of the write buffer in bytes
+     * @param arena the arena from which buffers will be leased
+     */
+    public SocketBufferHandler(int readBufferSize, int writeBufferSize, ByteBufferArena arena) {
+        this.direct = true;
+        this.arena = arena;
+        this.readBufferSize = readBufferSize;
+        this.writeBufferSize = writeBufferSize;
+    }
+
+
+    private ByteBuffer readBuffer() {
+        ByteBuffer result = readBuffer;
+        if (result == null) {
+            readBufferLeaseSize = readBufferSize;
+            result = arena.lease(readBufferLeaseSize);
+            readBufferConfiguredForWrite = true;
+            readBuffer = result;
+        }
+        return result;
+    }
+
+
+    private ByteBuffer writeBuffer() {
+        ByteBuffer result = writeBuffer;
+        if (result == null) {
+            writeBufferLeaseSize = writeBufferSize;
+            result = arena.lease(writeBufferLeaseSize);
+            writeBufferConfiguredForWrite = true;
+            writeBuffer = result;
+        }
+        return result;
+    }
+
+
     /**
      * Switches the read buffer into write mode.
      */
@@ -91,6 +141,7 @@ public class SocketBufferHandler {
 
 
     private void setReadBufferConfiguredForWrite(boolean readBufferConFiguredForWrite) {
+        ByteBuffer readBuffer = readBuffer();
         // NO-OP if buffer is already in correct state
         if (this.readBufferConfiguredForWrite != readBufferConFiguredForWrite) {
             if (readBufferConFiguredForWrite) {
@@ -115,7 +166,7 @@ public class SocketBufferHandler {
      * @return the read buffer
      */
     public ByteBuffer getReadBuffer() {
-        return readBuffer;
+        return readBuffer();
     }
 
 
@@ -124,6 +175,11 @@ public class SocketBufferHandler {
      * @return {@code true} if the read buffer is empty
      */
     public boolean isReadBufferEmpty() {
+        ByteBuffer readBuffer = this.readBuffer;
+        if (readBuffer == null) {
+            // Not leased from the arena
+            return true;
+        }
         if (readBufferConfiguredForWrite) {
             return readBuffer.position() == 0;
         } else {
@@ -138,6 +194,7 @@ public class SocketBufferHandler {
      * @throws java.nio.BufferOverflowException if the buffer cannot accommodate the returned data
      */
     public void unReadReadBuffer(ByteBuffer returnedData) {
+        ByteBuffer readBuffer = readBuffer();
         if (isReadBufferEmpty()) {
             configureReadBufferForWrite();
             readBuffer.put(returnedData);
@@ -203,6 +260,7 @@ public class SocketBufferHandler {
 
 
     private void setWriteBufferConfiguredForWrite(boolean writeBufferConfiguredForWrite) {
+        ByteBuffer writeBuffer = writeBuffer();
         // NO-OP if buffer is already in correct state
         if (this.writeBufferConfiguredForWrite != writeBufferConfiguredForWrite) {
             if (writeBufferConfiguredForWrite) {
@@ -229,6 +287,11 @@ public class SocketBufferHandler {
      * @return {@code true} if the write buffer can accept more data
      */
     public boolean isWriteBufferWritable() {
+        ByteBuffer writeBuffer = this.writeBuffer;
+        if (writeBuffer == null) {
+            // Not leased from the arena
+            return true;
+        }
         if (writeBufferConfiguredForWrite) {
             return writeBuffer.hasRemaining();
         } else {
@@ -242,7 +305,7 @@ public class SocketBufferHandler {
      * @return the write buffer
      */
     public ByteBuffer getWriteBuffer() {
-        return writeBuffer;
+        return writeBuffer();
     }
 
 
@@ -251,6 +314,11 @@ public class SocketBufferHandler {
      * @return {@code true} if the write buffer is empty
      */
     public boolean isWriteBufferEmpty() {
+        ByteBuffer writeBuffer = this.writeBuffer;
+        if (writeBuffer == null) {
+            // Not leased from the arena
+            return true;
+        }
         if (writeBufferConfiguredForWrite) {
             return writeBuffer.position() == 0;
         } else {
@@ -260,9 +328,15 @@ public class SocketBufferHandler {
 
 
     /**
-     * Resets both read and write buffers to their initial empty state.
+     * Resets both read and write buffers to their initial empty state. If the buffers were leased from an arena, they
+     * are returned to the arena.
      */
     public void reset() {
+        if (arena != null) {
+            releaseReadBuffer();
+            releaseWriteBuffer();
+            return;
+        }
         readBuffer.clear();
         readBufferConfiguredForWrite = true;
         writeBuffer.clear();
@@ -270,22 +344,95 @@ public class SocketBufferHandler {
     }
 
 
+    /**
+     * Returns any empty buffers to the arena so that they are not retained while the connection is idle. The buffers
+     * will be leased again when they are next required. This is a NO-OP if the buffers were not leased from an arena.
+     */
+    public void release() {
+        if (arena == null) {
+            return;
+        }
+        if (readBuffer != null && isReadBufferEmpty()) {
+            releaseReadBuffer();
+        }
+        if (writeBuffer != null && isWriteBufferEmpty()) {
+            releaseWriteBuffer();
+        }
+    }
+
+
+    private void releaseReadBuffer() {
+        ByteBuffer buffer = readBuffer;
+        readBuffer = null;
+        readBufferConfiguredForWrite = true;
+        arena.release(buffer, readBufferLeaseSize);
+    }
+
+
+    private void releaseWriteBuffer() {
+        ByteBuffer buffer = writeBuffer;
+        writeBuffer = null;
+        writeBufferConfiguredForWrite = true;
+        arena.release(buffer, writeBufferLeaseSize);
+    }
+
+
     /**
      * Expands both read and write buffers to the specified size.
      * @param newSize the new buffer size in bytes
      */
     public void expand(int newSize) {
+        if (arena != null) {
+            expandLeased(newSize);
+            return;
+        }
         configureReadBufferForWrite();
         readBuffer = ByteBufferUtils.expand(readBuffer, newSize);
         configureWriteBufferForWrite();
         writeBuffer = ByteBufferUtils.expand(writeBuffer, newSize);
     }
 
+
+    private void expandLeased(int newSize) {
+        if (readBufferSize < newSize) {
+            readBufferSize = newSize;
+        }
+        if (writeBufferSize < newSize) {
+            writeBufferSize = newSize;
+        }
+        // Buffers that are not currently leased will be leased at the new size
+        if (readBuffer != null && readBuffer.capacity() < newSize) {
+            configureReadBufferForWrite();
+            ByteBuffer oldBuffer = readBuffer;
+            int oldLeaseSize = readBufferLeaseSize;
+            readBufferLeaseSize = newSize;
+            ByteBuffer newBuffer = arena.lease(newSize);
+            oldBuffer.flip();
+            newBuffer.put(oldBuffer);
+            readBuffer = newBuffer;
+            arena.release(oldBuffer, oldLeaseSize);
+        }
+        if (writeBuffer != null && writeBuffer.capacity() < newSize) {
+            configureWriteBufferForWrite();
+            ByteBuffer oldBuffer = writeBuffer;
+            int oldLeaseSize = writeBufferLeaseSize;
+            writeBufferLeaseSize = newSize;
+            ByteBuffer newBuffer = arena.lease(newSize);
+            oldBuffer.flip();
+            newBuffer.put(oldBuffer);
+            writeBuffer = newBuffer;
+            arena.release(oldBuffer, oldLeaseSize);
+        }
+    }
+
     /**
-     * Releases native resources for direct buffers, if applicable.
+     * Releases native resources for direct buffers, if applicable. Buffers leased from an arena are returned to the
+     * arena.
      */
     public void free() {
-        if (direct) {
+        if (arena != null) {
+            reset();
+        } else if (direct) {
             ByteBufferUtils.cleanDirectBuffer(readBuffer);
             ByteBufferUtils.cleanDirectBuffer(writeBuffer);
         }
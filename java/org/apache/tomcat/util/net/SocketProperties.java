@@ -68,6 +68,21 @@ public class SocketProperties {
      */
     protected boolean directSslBuffer = false;
 
+    /**
+     * Enable/disable leasing the application read and write buffers from a shared arena of direct buffers. When
+     * enabled, the buffers are returned to the arena while a connection is idle between keep-alive requests. Default
+     * value is disabled.
+     */
+    protected boolean bufferArena = false;
+
+    /**
+     * The maximum total size in bytes of the unused buffers retained by the buffer arena.
+     * <p>
+     * -1 means unlimited<br>
+     * Default value is 16MB
+     */
+    protected int bufferArenaSize = 16 * 1024 * 1024;
+
     /**
      * Socket receive buffer size in bytes (SO_RCVBUF). JVM default used if not set.
      */
@@ -414,6 +429,22 @@ public class SocketProperties {
         return bufferPoolSize;
     }
 
+    /**
+     * Returns whether the application buffers are leased from a shared buffer arena.
+     * @return {@code true} if the buffer arena is enabled
+     */
+    public boolean getBufferArena() {
+        return bufferArena;
+    }
+
+    /**
+     * Returns the maximum total size in bytes of the unused buffers retained by the buffer arena.
+     * @return the buffer arena size
+     */
+    public int getBufferArenaSize() {
+        return bufferArenaSize;
+    }
+
     /**
      * Returns the poller event cache size.
      * @return the event cache size
@@ -590,6 +621,22 @@ public class SocketProperties {
         this.bufferPoolSize = bufferPoolSize;
     }
 
+    /**
+     * Sets whether the application buffers are leased from a shared buffer arena.
+     * @param bufferArena {@code true} to enable the buffer arena
+     */
+    public void setBufferArena(boolean bufferArena) {
+        this.bufferArena = bufferArena;
+    }
+
+    /**
+     * Sets the maximum total size in bytes of the unused buffers retained by the buffer arena.
+     * @param bufferArenaSize the buffer arena size
+     */
+    public void setBufferArenaSize(int bufferArenaSize) {
+        this.bufferArenaSize = bufferArenaSize;
+    }
+
     /**
      * Sets the poller event cache size.
      * @param eventCache the event cache size
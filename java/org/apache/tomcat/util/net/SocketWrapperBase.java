@@ -484,6 +484,18 @@ public abstract class SocketWrapperBase<E> {
         return socketBufferHandler;
     }
 
+    /**
+     * Returns any empty socket buffers to the buffer arena, if one is in use, so that they are not retained while the
+     * connection is idle. Should only be called when no I/O is in progress for the connection, such as between
+     * keep-alive requests.
+     */
+    public void releaseIdleBuffers() {
+        SocketBufferHandler socketBufferHandler = this.socketBufferHandler;
+        if (socketBufferHandler != null) {
+            socketBufferHandler.release();
+        }
+    }
+
     /**
      * Checks if there is data available to read from the socket.
      *
@@ -805,6 +817,16 @@ public abstract class SocketWrapperBase<E> {
      */
     protected void writeBlocking(ByteBuffer from) throws IOException {
         if (from.hasRemaining()) {
+            if (from.isDirect() && from.remaining() >= socketBufferHandler.getWriteBuffer().capacity()) {
+                // Large direct buffers (e.g. files mapped into memory) are
+                // written directly rather than being copied to the socket
+                // write buffer.
+                if (!socketBufferHandler.isWriteBufferEmpty()) {
+                    doWrite(true);
+                }
+                doWrite(true, from);
+                return;
+            }
             socketBufferHandler.configureWriteBufferForWrite();
             transfer(from, socketBufferHandler.getWriteBuffer());
             while (from.hasRemaining()) {
@@ -891,6 +913,21 @@ public abstract class SocketWrapperBase<E> {
      * @throws IOException If an IO error occurs during the write
      */
     protected void writeNonBlockingInternal(ByteBuffer from) throws IOException {
+        if (from.isDirect() && from.remaining() >= socketBufferHandler.getWriteBuffer().capacity()) {
+            // As for blocking writes, large direct buffers are written
+            // directly. Anything that cannot be written now is added to the
+            // non-blocking write buffer by the caller.
+            if (!socketBufferHandler.isWriteBufferEmpty()) {
+                doWrite(false);
+            }
+            if (socketBufferHandler.isWriteBufferEmpty()) {
+                doWrite(false, from);
+                return;
+            }
+            // The network is not accepting data. Fill the socket write buffer
+            // as usual so only the remainder is added to the non-blocking
+            // write buffer.
+        }
         socketBufferHandler.configureWriteBufferForWrite();
         transfer(from, socketBufferHandler.getWriteBuffer());
         while (from.hasRemaining()) {
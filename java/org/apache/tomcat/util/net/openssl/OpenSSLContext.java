@@ -673,6 +673,34 @@ public class OpenSSLContext implements org.apache.tomcat.util.net.SSLContext {
     }
 
 
+    @Override
+    public boolean setSessionTicketKeys(byte[] keys) {
+        if (sessionContext == null) {
+            return false;
+        }
+        sessionContext.setTicketKeys(keys);
+        return true;
+    }
+
+
+    @Override
+    public long getSessionAccepts() {
+        if (sessionContext == null) {
+            return -1;
+        }
+        return sessionContext.stats().accept();
+    }
+
+
+    @Override
+    public long getSessionHits() {
+        if (sessionContext == null) {
+            return -1;
+        }
+        return sessionContext.stats().hits();
+    }
+
+
     /**
      * @param aprPool the APR pool
      * @param cctx    OpenSSLConfCmd context
@@ -105,6 +105,20 @@ public final class OpenSSLSessionStats {
         return SSLContext.sessionHits(context);
     }
 
+    /**
+     * Returns the proportion of SSL/TLS handshakes started in server mode that resumed a previous session, either from
+     * the internal session cache or using a session ticket.
+     *
+     * @return The session hit ratio in the range 0 to 1 or 0 if no handshakes have been started
+     */
+    public double hitRatio() {
+        long accept = accept();
+        if (accept <= 0) {
+            return 0;
+        }
+        return (double) hits() / accept;
+    }
+
     /**
      * Returns the number of successfully retrieved sessions from the external session cache in server mode.
      *
@@ -67,6 +67,7 @@ import org.apache.tomcat.util.net.openssl.OpenSSLUtil;
 import org.apache.tomcat.util.net.openssl.ciphers.Group;
 import org.apache.tomcat.util.openssl.SSL_CTX_set_alpn_select_cb$cb;
 import org.apache.tomcat.util.openssl.SSL_CTX_set_cert_verify_callback$cb;
+import org.apache.tomcat.util.openssl.SSL_CTX_set_tlsext_ticket_key_evp_cb$fp;
 import org.apache.tomcat.util.openssl.SSL_CTX_set_tmp_dh_callback$dh;
 import org.apache.tomcat.util.openssl.SSL_CTX_set_verify$callback;
 import org.apache.tomcat.util.openssl.openssl_h;
@@ -119,6 +120,8 @@ public class OpenSSLContext implements org.apache.tomcat.util.net.SSLContext {
     private final List<byte[]> negotiableProtocols;
 
     private OpenSSLSessionContext sessionContext;
+
+    private TicketKeyCallback ticketKeyCallback;
     private String enabledProtocol;
     private boolean initialized = false;
 
@@ -788,6 +791,148 @@ public class OpenSSLContext implements org.apache.tomcat.util.net.SSLContext {
         }
     }
 
+    // int ticket_key_cb(SSL *s, unsigned char key_name[16], unsigned char iv[EVP_MAX_IV_LENGTH],
+    // EVP_CIPHER_CTX *ctx, EVP_MAC_CTX *hctx, int enc)
+    private static class TicketKeyCallback implements SSL_CTX_set_tlsext_ticket_key_evp_cb$fp.Function {
+        /*
+         * Each key uses the same layout as SSL_CTX_set_tlsext_ticket_keys: a 16 byte name, a 32 byte HMAC-SHA256 key
+         * and a 32 byte AES-256-CBC key.
+         */
+        private static final int NAME_LENGTH = 16;
+        private static final int HMAC_KEY_OFFSET = 16;
+        private static final int HMAC_KEY_LENGTH = 32;
+        private static final int AES_KEY_OFFSET = 48;
+        private static final int AES_KEY_LENGTH = 32;
+        private static final int IV_LENGTH = 16;
+
+        // OSSL_PARAM is {const char *key, unsigned int data_type, void *data, size_t data_size, size_t return_size}
+        private static final long OSSL_PARAM_SIZE = 40;
+        private static final long OSSL_PARAM_DATA_TYPE_OFFSET = 8;
+        private static final long OSSL_PARAM_DATA_OFFSET = 16;
+        private static final long OSSL_PARAM_DATA_SIZE_OFFSET = 24;
+        private static final long OSSL_PARAM_RETURN_SIZE_OFFSET = 32;
+        private static final long OSSL_PARAM_UNMODIFIED = -1;
+
+        private final Arena arena;
+        private final MemorySegment digestName;
+        private final MemorySegment digest;
+        private final MemorySegment macKeyName;
+
+        // The current keys (used for encryption and decryption) followed by the previous keys (decryption only)
+        private volatile TicketKey[] keys;
+
+        /*
+         * The native memory for the keys is allocated from the given arena when the keys are set so nothing needs to
+         * be allocated or copied when the callback is called. It is only released when the arena is closed.
+         */
+        TicketKeyCallback(Arena arena, byte[] currentKeys, byte[] previousKeys) {
+            this.arena = arena;
+            digestName = arena.allocateFrom("digest");
+            digest = arena.allocateFrom("SHA256");
+            macKeyName = arena.allocateFrom("key");
+            setKeys(currentKeys, previousKeys);
+        }
+
+        void setKeys(byte[] currentKeys, byte[] previousKeys) {
+            TicketKey[] keys = this.keys;
+            // When the keys are rotated the previous keys are usually the old current keys so re-use them
+            TicketKey current = findOrCreate(keys, currentKeys);
+            TicketKey previous = previousKeys == null ? null : findOrCreate(keys, previousKeys);
+            this.keys = new TicketKey[] { current, previous };
+        }
+
+        private TicketKey findOrCreate(TicketKey[] keys, byte[] key) {
+            if (keys != null) {
+                for (TicketKey ticketKey : keys) {
+                    if (ticketKey != null && Arrays.equals(ticketKey.key, key)) {
+                        return ticketKey;
+                    }
+                }
+            }
+            return new TicketKey(key.clone());
+        }
+
+        @Override
+        public int apply(MemorySegment ssl, MemorySegment keyName, MemorySegment iv, MemorySegment cipherCtx,
+                MemorySegment macCtx, int enc) {
+            TicketKey[] keys = this.keys;
+            MemorySegment keyNameSeg = keyName.reinterpret(NAME_LENGTH);
+            TicketKey key;
+            int result;
+            if (enc == 1) {
+                // New tickets are always encrypted with the current keys
+                key = keys[0];
+                MemorySegment.copy(key.key, 0, keyNameSeg, ValueLayout.JAVA_BYTE, 0, NAME_LENGTH);
+                if (RAND_bytes(iv, IV_LENGTH) <= 0) {
+                    return -1;
+                }
+                result = 1;
+            } else if (matches(keys[0].key, keyNameSeg)) {
+                key = keys[0];
+                result = 1;
+            } else if (keys[1] != null && matches(keys[1].key, keyNameSeg)) {
+                // Accept the ticket but ask OpenSSL to issue a new one encrypted with the current keys
+                key = keys[1];
+                result = 2;
+            } else {
+                // Unknown keys. Fall back to a full handshake.
+                return 0;
+            }
+
+            if (EVP_MAC_CTX_set_params(macCtx, key.macParams) <= 0) {
+                return -1;
+            }
+            int rc;
+            if (enc == 1) {
+                rc = EVP_EncryptInit_ex(cipherCtx, EVP_aes_256_cbc(), MemorySegment.NULL, key.aesKey, iv);
+            } else {
+                rc = EVP_DecryptInit_ex(cipherCtx, EVP_aes_256_cbc(), MemorySegment.NULL, key.aesKey, iv);
+            }
+            return rc > 0 ? result : -1;
+        }
+
+        private static boolean matches(byte[] key, MemorySegment keyName) {
+            for (int i = 0; i < NAME_LENGTH; i++) {
+                if (key[i] != keyName.get(ValueLayout.JAVA_BYTE, i)) {
+                    return false;
+                }
+            }
+            return true;
+        }
+
+        private static void setParam(MemorySegment params, int index, MemorySegment name, int dataType,
+                MemorySegment data, long dataSize) {
+            long offset = index * OSSL_PARAM_SIZE;
+            params.set(ValueLayout.ADDRESS, offset, name);
+            params.set(ValueLayout.JAVA_INT, offset + OSSL_PARAM_DATA_TYPE_OFFSET, dataType);
+            params.set(ValueLayout.ADDRESS, offset + OSSL_PARAM_DATA_OFFSET, data);
+            params.set(ValueLayout.JAVA_LONG, offset + OSSL_PARAM_DATA_SIZE_OFFSET, dataSize);
+            params.set(ValueLayout.JAVA_LONG, offset + OSSL_PARAM_RETURN_SIZE_OFFSET, OSSL_PARAM_UNMODIFIED);
+        }
+
+        /*
+         * A set of keys along with the native OSSL_PARAM array for the HMAC key and the native AES key. The native
+         * memory is only read by OpenSSL so it may be used by concurrent callbacks.
+         */
+        private class TicketKey {
+            private final byte[] key;
+            private final MemorySegment macParams;
+            private final MemorySegment aesKey;
+
+            TicketKey(byte[] key) {
+                this.key = key;
+                MemorySegment macKey = arena.allocateFrom(ValueLayout.JAVA_BYTE,
+                        Arrays.copyOfRange(key, HMAC_KEY_OFFSET, HMAC_KEY_OFFSET + HMAC_KEY_LENGTH));
+                macParams = arena.allocate(OSSL_PARAM_SIZE * 3);
+                setParam(macParams, 0, digestName, OSSL_PARAM_UTF8_STRING(), digest, "SHA256".length());
+                setParam(macParams, 1, macKeyName, OSSL_PARAM_OCTET_STRING(), macKey, HMAC_KEY_LENGTH);
+                // The third entry is left zeroed to terminate the array
+                aesKey = arena.allocateFrom(ValueLayout.JAVA_BYTE,
+                        Arrays.copyOfRange(key, AES_KEY_OFFSET, AES_KEY_OFFSET + AES_KEY_LENGTH));
+            }
+        }
+    }
+
 
     private static class CertVerifyCallback implements SSL_CTX_set_cert_verify_callback$cb.Function {
         private final X509TrustManager x509TrustManager;
@@ -1416,6 +1561,51 @@ public class OpenSSLContext implements org.apache.tomcat.util.net.SSLContext {
         return acceptedCerts;
     }
 
+    @Override
+    public boolean setSessionTicketKeys(byte[] keys) {
+        return setSessionTicketKeys(keys, null);
+    }
+
+    @Override
+    public synchronized boolean setSessionTicketKeys(byte[] keys, byte[] previousKeys) {
+        if (sessionContext == null) {
+            return false;
+        }
+        if (!openssl_h_Compatibility.OPENSSL3) {
+            // The EVP ticket key callback requires OpenSSL 3.0 so only the current keys can be used
+            sessionContext.setTicketKeys(keys);
+            return true;
+        }
+        OpenSSLSessionContext.validateTicketKeys(keys);
+        if (previousKeys != null) {
+            OpenSSLSessionContext.validateTicketKeys(previousKeys);
+        }
+        if (ticketKeyCallback == null) {
+            ticketKeyCallback = new TicketKeyCallback(contextArena, keys, previousKeys);
+            SSL_CTX_set_tlsext_ticket_key_evp_cb(state.sslCtx,
+                    SSL_CTX_set_tlsext_ticket_key_evp_cb$fp.allocate(ticketKeyCallback, contextArena));
+        } else {
+            ticketKeyCallback.setKeys(keys, previousKeys);
+        }
+        return true;
+    }
+
+    @Override
+    public long getSessionAccepts() {
+        if (sessionContext == null) {
+            return -1;
+        }
+        return sessionContext.stats().accept();
+    }
+
+    @Override
+    public long getSessionHits() {
+        if (sessionContext == null) {
+            return -1;
+        }
+        return sessionContext.stats().hits();
+    }
+
 
     private static class ContextState implements Runnable {
 
@@ -61,6 +61,14 @@ public class OpenSSLSessionContext implements SSLSessionContext {
      * @param keys The session ticket keys
      */
     public void setTicketKeys(byte[] keys) {
+        validateTicketKeys(keys);
+        try (var memorySession = Arena.ofConfined()) {
+            var array = memorySession.allocateFrom(ValueLayout.JAVA_BYTE, keys);
+            SSL_CTX_set_tlsext_ticket_keys(context.getSSLContext(), array, TICKET_KEYS_SIZE);
+        }
+    }
+
+    static void validateTicketKeys(byte[] keys) {
         if (keys == null) {
             throw new IllegalArgumentException(sm.getString("sessionContext.nullTicketKeys"));
         }
@@ -68,10 +76,6 @@ public class OpenSSLSessionContext implements SSLSessionContext {
             throw new IllegalArgumentException(sm.getString("sessionContext.invalidTicketKeysLength",
                     Integer.valueOf(keys.length), Integer.valueOf(TICKET_KEYS_SIZE)));
         }
-        try (var memorySession = Arena.ofConfined()) {
-            var array = memorySession.allocateFrom(ValueLayout.JAVA_BYTE, keys);
-            SSL_CTX_set_tlsext_ticket_keys(context.getSSLContext(), array, TICKET_KEYS_SIZE);
-        }
     }
 
     /**
@@ -91,6 +91,19 @@ public final class OpenSSLSessionStats {
         return SSL_CTX_ctrl(ctx, SSL_CTRL_SESS_HIT(), 0, null);
     }
 
+    /**
+     * @return The proportion of SSL/TLS handshakes started in server mode that resumed a previous session, either from
+     *             the internal session cache or using a session ticket, in the range 0 to 1 or 0 if no handshakes have
+     *             been started.
+     */
+    public double hitRatio() {
+        long accept = accept();
+        if (accept <= 0) {
+            return 0;
+        }
+        return (double) hits() / accept;
+    }
+
     /**
      * @return The number of successfully retrieved sessions from the external session cache in server mode.
      */
@@ -2669,6 +2669,243 @@ public class openssl_h {
         }
     }
 
+    private static class EVP_aes_256_cbc {
+        public static final FunctionDescriptor DESC = FunctionDescriptor.of(openssl_h.C_POINTER);
+
+        public static final MemorySegment ADDR = openssl_h.findOrThrow("EVP_aes_256_cbc");
+
+        public static final MethodHandle HANDLE = Linker.nativeLinker().downcallHandle(ADDR, DESC);
+    }
+
+    /**
+     * Function descriptor for:
+     * {@snippet lang = c : * const EVP_CIPHER *EVP_aes_256_cbc()
+     * }
+     */
+    public static FunctionDescriptor EVP_aes_256_cbc$descriptor() {
+        return EVP_aes_256_cbc.DESC;
+    }
+
+    /**
+     * Downcall method handle for:
+     * {@snippet lang = c : * const EVP_CIPHER *EVP_aes_256_cbc()
+     * }
+     */
+    public static MethodHandle EVP_aes_256_cbc$handle() {
+        return EVP_aes_256_cbc.HANDLE;
+    }
+
+    /**
+     * Address for:
+     * {@snippet lang = c : * const EVP_CIPHER *EVP_aes_256_cbc()
+     * }
+     */
+    public static MemorySegment EVP_aes_256_cbc$address() {
+        return EVP_aes_256_cbc.ADDR;
+    }
+
+    /**
+     * {@snippet lang = c : * const EVP_CIPHER *EVP_aes_256_cbc()
+     * }
+     */
+    public static MemorySegment EVP_aes_256_cbc() {
+        var mh$ = EVP_aes_256_cbc.HANDLE;
+        try {
+            if (TRACE_DOWNCALLS) {
+                traceDowncall("EVP_aes_256_cbc");
+            }
+            return (MemorySegment) mh$.invokeExact();
+        } catch (Throwable ex$) {
+            throw new AssertionError("should not reach here", ex$);
+        }
+    }
+
+    private static class EVP_EncryptInit_ex {
+        public static final FunctionDescriptor DESC = FunctionDescriptor.of(
+            openssl_h.C_INT,
+            openssl_h.C_POINTER,
+            openssl_h.C_POINTER,
+            openssl_h.C_POINTER,
+            openssl_h.C_POINTER,
+            openssl_h.C_POINTER
+        );
+
+        public static final MemorySegment ADDR = openssl_h.findOrThrow("EVP_EncryptInit_ex");
+
+        public static final MethodHandle HANDLE = Linker.nativeLinker().downcallHandle(ADDR, DESC);
+    }
+
+    /**
+     * Function descriptor for:
+     * {@snippet lang = c
+     * : * int EVP_EncryptInit_ex(EVP_CIPHER_CTX *ctx, const EVP_CIPHER *type, ENGINE *impl, const unsigned char *key,
+     * const unsigned char *iv)
+     * }
+     */
+    public static FunctionDescriptor EVP_EncryptInit_ex$descriptor() {
+        return EVP_EncryptInit_ex.DESC;
+    }
+
+    /**
+     * Downcall method handle for:
+     * {@snippet lang = c
+     * : * int EVP_EncryptInit_ex(EVP_CIPHER_CTX *ctx, const EVP_CIPHER *type, ENGINE *impl, const unsigned char *key,
+     * const unsigned char *iv)
+     * }
+     */
+    public static MethodHandle EVP_EncryptInit_ex$handle() {
+        return EVP_EncryptInit_ex.HANDLE;
+    }
+
+    /**
+     * Address for:
+     * {@snippet lang = c
+     * : * int EVP_EncryptInit_ex(EVP_CIPHER_CTX *ctx, const EVP_CIPHER *type, ENGINE *impl, const unsigned char *key,
+     * const unsigned char *iv)
+     * }
+     */
+    public static MemorySegment EVP_EncryptInit_ex$address() {
+        return EVP_EncryptInit_ex.ADDR;
+    }
+
+    /**
+     * {@snippet lang = c
+     * : * int EVP_EncryptInit_ex(EVP_CIPHER_CTX *ctx, const EVP_CIPHER *type, ENGINE *impl, const unsigned char *key,
+     * const unsigned char *iv)
+     * }
+     */
+    public static int EVP_EncryptInit_ex(MemorySegment ctx, MemorySegment type, MemorySegment impl, MemorySegment key,
+            MemorySegment iv) {
+        var mh$ = EVP_EncryptInit_ex.HANDLE;
+        try {
+            if (TRACE_DOWNCALLS) {
+                traceDowncall("EVP_EncryptInit_ex", ctx, type, impl, key, iv);
+            }
+            return (int) mh$.invokeExact(ctx, type, impl, key, iv);
+        } catch (Throwable ex$) {
+            throw new AssertionError("should not reach here", ex$);
+        }
+    }
+
+    private static class EVP_DecryptInit_ex {
+        public static final FunctionDescriptor DESC = FunctionDescriptor.of(
+            openssl_h.C_INT,
+            openssl_h.C_POINTER,
+            openssl_h.C_POINTER,
+            openssl_h.C_POINTER,
+            openssl_h.C_POINTER,
+            openssl_h.C_POINTER
+        );
+
+        public static final MemorySegment ADDR = openssl_h.findOrThrow("EVP_DecryptInit_ex");
+
+        public static final MethodHandle HANDLE = Linker.nativeLinker().downcallHandle(ADDR, DESC);
+    }
+
+    /**
+     * Function descriptor for:
+     * {@snippet lang = c
+     * : * int EVP_DecryptInit_ex(EVP_CIPHER_CTX *ctx, const EVP_CIPHER *type, ENGINE *impl, const unsigned char *key,
+     * const unsigned char *iv)
+     * }
+     */
+    public static FunctionDescriptor EVP_DecryptInit_ex$descriptor() {
+        return EVP_DecryptInit_ex.DESC;
+    }
+
+    /**
+     * Downcall method handle for:
+     * {@snippet lang = c
+     * : * int EVP_DecryptInit_ex(EVP_CIPHER_CTX *ctx, const EVP_CIPHER *type, ENGINE *impl, const unsigned char *key,
+     * const unsigned char *iv)
+     * }
+     */
+    public static MethodHandle EVP_DecryptInit_ex$handle() {
+        return EVP_DecryptInit_ex.HANDLE;
+    }
+
+    /**
+     * Address for:
+     * {@snippet lang = c
+     * : * int EVP_DecryptInit_ex(EVP_CIPHER_CTX *ctx, const EVP_CIPHER *type, ENGINE *impl, const unsigned char *key,
+     * const unsigned char *iv)
+     * }
+     */
+    public static MemorySegment EVP_DecryptInit_ex$address() {
+        return EVP_DecryptInit_ex.ADDR;
+    }
+
+    /**
+     * {@snippet lang = c
+     * : * int EVP_DecryptInit_ex(EVP_CIPHER_CTX *ctx, const EVP_CIPHER *type, ENGINE *impl, const unsigned char *key,
+     * const unsigned char *iv)
+     * }
+     */
+    public static int EVP_DecryptInit_ex(MemorySegment ctx, MemorySegment type, MemorySegment impl, MemorySegment key,
+            MemorySegment iv) {
+        var mh$ = EVP_DecryptInit_ex.HANDLE;
+        try {
+            if (TRACE_DOWNCALLS) {
+                traceDowncall("EVP_DecryptInit_ex", ctx, type, impl, key, iv);
+            }
+            return (int) mh$.invokeExact(ctx, type, impl, key, iv);
+        } catch (Throwable ex$) {
+            throw new AssertionError("should not reach here", ex$);
+        }
+    }
+
+    private static class EVP_MAC_CTX_set_params {
+        public static final FunctionDescriptor DESC =
+                FunctionDescriptor.of(openssl_h.C_INT, openssl_h.C_POINTER, openssl_h.C_POINTER);
+
+        public static final MemorySegment ADDR = openssl_h.findOrThrow("EVP_MAC_CTX_set_params");
+
+        public static final MethodHandle HANDLE = Linker.nativeLinker().downcallHandle(ADDR, DESC);
+    }
+
+    /**
+     * Function descriptor for:
+     * {@snippet lang = c : * int EVP_MAC_CTX_set_params(EVP_MAC_CTX *ctx, const OSSL_PARAM params[])
+     * }
+     */
+    public static FunctionDescriptor EVP_MAC_CTX_set_params$descriptor() {
+        return EVP_MAC_CTX_set_params.DESC;
+    }
+
+    /**
+     * Downcall method handle for:
+     * {@snippet lang = c : * int EVP_MAC_CTX_set_params(EVP_MAC_CTX *ctx, const OSSL_PARAM params[])
+     * }
+     */
+    public static MethodHandle EVP_MAC_CTX_set_params$handle() {
+        return EVP_MAC_CTX_set_params.HANDLE;
+    }
+
+    /**
+     * Address for:
+     * {@snippet lang = c : * int EVP_MAC_CTX_set_params(EVP_MAC_CTX *ctx, const OSSL_PARAM params[])
+     * }
+     */
+    public static MemorySegment EVP_MAC_CTX_set_params$address() {
+        return EVP_MAC_CTX_set_params.ADDR;
+    }
+
+    /**
+     * {@snippet lang = c : * int EVP_MAC_CTX_set_params(EVP_MAC_CTX *ctx, const OSSL_PARAM params[])
+     * }
+     */
+    public static int EVP_MAC_CTX_set_params(MemorySegment ctx, MemorySegment params) {
+        var mh$ = EVP_MAC_CTX_set_params.HANDLE;
+        try {
+            if (TRACE_DOWNCALLS) {
+                traceDowncall("EVP_MAC_CTX_set_params", ctx, params);
+            }
+            return (int) mh$.invokeExact(ctx, params);
+        } catch (Throwable ex$) {
+            throw new AssertionError("should not reach here", ex$);
+        }
+    }
+
     private static class EC_GROUP_free {
         public static final FunctionDescriptor DESC = FunctionDescriptor.ofVoid(openssl_h.C_POINTER);
 
@@ -7855,6 +8092,66 @@ public class openssl_h {
         }
     }
 
+    private static class SSL_CTX_set_tlsext_ticket_key_evp_cb {
+        public static final FunctionDescriptor DESC =
+                FunctionDescriptor.of(openssl_h.C_INT, openssl_h.C_POINTER, openssl_h.C_POINTER);
+
+        public static final MemorySegment ADDR = openssl_h.findOrThrow("SSL_CTX_set_tlsext_ticket_key_evp_cb");
+
+        public static final MethodHandle HANDLE = Linker.nativeLinker().downcallHandle(ADDR, DESC);
+    }
+
+    /**
+     * Function descriptor for:
+     * {@snippet lang = c
+     * : * int SSL_CTX_set_tlsext_ticket_key_evp_cb(SSL_CTX *ctx, int (*fp)(SSL *, unsigned char *, unsigned char *,
+     * EVP_CIPHER_CTX *, EVP_MAC_CTX *, int))
+     * }
+     */
+    public static FunctionDescriptor SSL_CTX_set_tlsext_ticket_key_evp_cb$descriptor() {
+        return SSL_CTX_set_tlsext_ticket_key_evp_cb.DESC;
+    }
+
+    /**
+     * Downcall method handle for:
+     * {@snippet lang = c
+     * : * int SSL_CTX_set_tlsext_ticket_key_evp_cb(SSL_CTX *ctx, int (*fp)(SSL *, unsigned char *, unsigned char *,
+     * EVP_CIPHER_CTX *, EVP_MAC_CTX *, int))
+     * }
+     */
+    public static MethodHandle SSL_CTX_set_tlsext_ticket_key_evp_cb$handle() {
+        return SSL_CTX_set_tlsext_ticket_key_evp_cb.HANDLE;
+    }
+
+    /**
+     * Address for:
+     * {@snippet lang = c
+     * : * int SSL_CTX_set_tlsext_ticket_key_evp_cb(SSL_CTX *ctx, int (*fp)(SSL *, unsigned char *, unsigned char *,
+     * EVP_CIPHER_CTX *, EVP_MAC_CTX *, int))
+     * }
+     */
+    public static MemorySegment SSL_CTX_set_tlsext_ticket_key_evp_cb$address() {
+        return SSL_CTX_set_tlsext_ticket_key_evp_cb.ADDR;
+    }
+
+    /**
+     * {@snippet lang = c
+     * : * int SSL_CTX_set_tlsext_ticket_key_evp_cb(SSL_CTX *ctx, int (*fp)(SSL *, unsigned char *, unsigned char *,
+     * EVP_CIPHER_CTX *, EVP_MAC_CTX *, int))
+     * }
+     */
+    public static int SSL_CTX_set_tlsext_ticket_key_evp_cb(MemorySegment ctx, MemorySegment fp) {
+        var mh$ = SSL_CTX_set_tlsext_ticket_key_evp_cb.HANDLE;
+        try {
+            if (TRACE_DOWNCALLS) {
+                traceDowncall("SSL_CTX_set_tlsext_ticket_key_evp_cb", ctx, fp);
+            }
+            return (int) mh$.invokeExact(ctx, fp);
+        } catch (Throwable ex$) {
+            throw new AssertionError("should not reach here", ex$);
+        }
+    }
+
     private static class SSL_CONF_CTX_new {
         public static final FunctionDescriptor DESC = FunctionDescriptor.of(openssl_h.C_POINTER);
 
@@ -8788,6 +9085,58 @@ public class openssl_h {
         }
     }
 
+    private static class RAND_bytes {
+        public static final FunctionDescriptor DESC =
+                FunctionDescriptor.of(openssl_h.C_INT, openssl_h.C_POINTER, openssl_h.C_INT);
+
+        public static final MemorySegment ADDR = openssl_h.findOrThrow("RAND_bytes");
+
+        public static final MethodHandle HANDLE = Linker.nativeLinker().downcallHandle(ADDR, DESC);
+    }
+
+    /**
+     * Function descriptor for:
+     * {@snippet lang = c : * int RAND_bytes(unsigned char *buf, int num)
+     * }
+     */
+    public static FunctionDescriptor RAND_bytes$descriptor() {
+        return RAND_bytes.DESC;
+    }
+
+    /**
+     * Downcall method handle for:
+     * {@snippet lang = c : * int RAND_bytes(unsigned char *buf, int num)
+     * }
+     */
+    public static MethodHandle RAND_bytes$handle() {
+        return RAND_bytes.HANDLE;
+    }
+
+    /**
+     * Address for:
+     * {@snippet lang = c : * int RAND_bytes(unsigned char *buf, int num)
+     * }
+     */
+    public static MemorySegment RAND_bytes$address() {
+        return RAND_bytes.ADDR;
+    }
+
+    /**
+     * {@snippet lang = c : * int RAND_bytes(unsigned char *buf, int num)
+     * }
+     */
+    public static int RAND_bytes(MemorySegment buf, int num) {
+        var mh$ = RAND_bytes.HANDLE;
+        try {
+            if (TRACE_DOWNCALLS) {
+                traceDowncall("RAND_bytes", buf, num);
+            }
+            return (int) mh$.invokeExact(buf, num);
+        } catch (Throwable ex$) {
+            throw new AssertionError("should not reach here", ex$);
+        }
+    }
+
     private static class RAND_load_file {
         public static final FunctionDescriptor DESC =
                 FunctionDescriptor.of(openssl_h.C_INT, openssl_h.C_POINTER, openssl_h.C_LONG);
@@ -10013,6 +10362,26 @@ public class openssl_h {
         return OPENSSL_INIT_ENGINE_ALL_BUILTIN;
     }
 
+    private static final int OSSL_PARAM_UTF8_STRING = (int) 4L;
+
+    /**
+     * {@snippet lang = c : * #define OSSL_PARAM_UTF8_STRING 4
+     * }
+     */
+    public static int OSSL_PARAM_UTF8_STRING() {
+        return OSSL_PARAM_UTF8_STRING;
+    }
+
+    private static final int OSSL_PARAM_OCTET_STRING = (int) 5L;
+
+    /**
+     * {@snippet lang = c : * #define OSSL_PARAM_OCTET_STRING 5
+     * }
+     */
+    public static int OSSL_PARAM_OCTET_STRING() {
+        return OSSL_PARAM_OCTET_STRING;
+    }
+
     private static final int EVP_PKEY_NONE = (int) 0L;
 
     /**
@@ -0,0 +1,253 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.tomcat.util.threads;
+
+import java.io.Serial;
+import java.util.Iterator;
+import java.util.concurrent.LinkedTransferQueue;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.apache.tomcat.util.res.StringManager;
+
+/**
+ * An alternative to {@link TaskQueue} based on {@link LinkedTransferQueue}. New tasks are handed directly to an idle
+ * thread, if one is waiting, without being queued. Otherwise, the same rules as {@link TaskQueue} are used to decide
+ * whether the task is queued or a new thread is created. Unlike {@link TaskQueue}, adding and removing tasks does not
+ * require a lock.
+ * <p>
+ * The capacity of the queue is only enforced for tasks added via {@link #offer(Runnable)} and {@link #force(Runnable)},
+ * which are the methods used by {@link ThreadPoolExecutor}.
+ */
+public class TransferTaskQueue extends LinkedTransferQueue<Runnable> implements RetryableQueue<Runnable> {
+
+    @Serial
+    private static final long serialVersionUID = 1L;
+
+    /**
+     * The string manager for this package.
+     */
+    protected static final StringManager sm = StringManager.getManager(TransferTaskQueue.class);
+
+    /**
+     * The parent thread pool executor.
+     */
+    private transient volatile ThreadPoolExecutor parent = null;
+
+    private final int capacity;
+
+    /*
+     * LinkedTransferQueue is unbounded and its size() method has to traverse the queue so the number of tasks is
+     * tracked separately when the queue is bounded.
+     */
+    private final AtomicInteger count = new AtomicInteger(0);
+
+
+    /**
+     * Constructs a new TransferTaskQueue with no limit on the number of queued tasks.
+     */
+    public TransferTaskQueue() {
+        this(Integer.MAX_VALUE);
+    }
+
+
+    /**
+     * Constructs a new TransferTaskQueue with the given capacity.
+     *
+     * @param capacity the queue capacity
+     */
+    public TransferTaskQueue(int capacity) {
+        if (capacity < 1) {
+            throw new IllegalArgumentException();
+        }
+        this.capacity = capacity;
+    }
+
+
+    /**
+     * Sets the parent thread pool executor for this queue.
+     *
+     * @param tp the parent executor
+     */
+    public void setParent(ThreadPoolExecutor tp) {
+        parent = tp;
+    }
+
+
+    @Override
+    public boolean force(Runnable o) {
+        if (parent == null || parent.isShutdown()) {
+            throw new RejectedExecutionException(sm.getString("taskQueue.notRunning"));
+        }
+        return enqueue(o); // forces the item onto the queue, to be used if the task is rejected
+    }
+
+
+    @Override
+    public boolean offer(Runnable o) {
+        if (!reserve()) {
+            return false;
+        }
+        // an idle thread is waiting, hand the task over directly
+        if (tryTransfer(o)) {
+            return true;
+        }
+        // we can't do any checks
+        if (parent == null) {
+            return super.offer(o);
+        }
+        // we are maxed out on threads, simply queue the object
+        if (parent.getPoolSizeNoLock() == parent.getMaximumPoolSize()) {
+            return super.offer(o);
+        }
+        // we have idle threads, just add it to the queue
+        if (parent.getSubmittedCount() <= parent.getPoolSizeNoLock()) {
+            return super.offer(o);
+        }
+        // if we have less threads than maximum force creation of a new thread
+        if (parent.getPoolSizeNoLock() < parent.getMaximumPoolSize()) {
+            unreserve();
+            return false;
+        }
+        // if we reached here, we need to add it to the queue
+        return super.offer(o);
+    }
+
+
+    @Override
+    public Runnable poll(long timeout, TimeUnit unit) throws InterruptedException {
+        Runnable runnable = removed(super.poll(timeout, unit));
+        if (runnable == null && parent != null) {
+            // the poll timed out, it gives an opportunity to stop the current
+            // thread if needed to avoid memory leaks.
+            parent.stopCurrentThreadIfNeeded();
+        }
+        return runnable;
+    }
+
+
+    @Override
+    public Runnable take() throws InterruptedException {
+        if (parent != null && parent.currentThreadShouldBeStopped()) {
+            return poll(parent.getKeepAliveTime(TimeUnit.MILLISECONDS), TimeUnit.MILLISECONDS);
+            // yes, this may return null (in case of timeout) which normally
+            // does not occur with take()
+            // but the ThreadPoolExecutor implementation allows this
+        }
+        return removed(super.take());
+    }
+
+
+    @Override
+    public Runnable poll() {
+        // Also used by clear() and drainTo()
+        return removed(super.poll());
+    }
+
+
+    @Override
+    public boolean remove(Object o) {
+        if (super.remove(o)) {
+            unreserve();
+            return true;
+        }
+        return false;
+    }
+
+
+    @Override
+    public Iterator<Runnable> iterator() {
+        Iterator<Runnable> iterator = super.iterator();
+        if (capacity == Integer.MAX_VALUE) {
+            return iterator;
+        }
+        return new Iterator<>() {
+            @Override
+            public boolean hasNext() {
+                return iterator.hasNext();
+            }
+
+            @Override
+            public Runnable next() {
+                return iterator.next();
+            }
+
+            @Override
+            public void remove() {
+                iterator.remove();
+                unreserve();
+            }
+        };
+    }
+
+
+    @Override
+    public int size() {
+        if (capacity == Integer.MAX_VALUE) {
+            return super.size();
+        }
+        return count.get();
+    }
+
+
+    @Override
+    public int remainingCapacity() {
+        if (capacity == Integer.MAX_VALUE) {
+            return Integer.MAX_VALUE;
+        }
+        return capacity - count.get();
+    }
+
+
+    private boolean enqueue(Runnable o) {
+        if (!reserve()) {
+            return false;
+        }
+        return super.offer(o);
+    }
+
+
+    private boolean reserve() {
+        if (capacity == Integer.MAX_VALUE) {
+            return true;
+        }
+        int current;
+        do {
+            current = count.get();
+            if (current >= capacity) {
+                return false;
+            }
+        } while (!count.compareAndSet(current, current + 1));
+        return true;
+    }
+
+
+    private void unreserve() {
+        if (capacity != Integer.MAX_VALUE) {
+            count.decrementAndGet();
+        }
+    }
+
+
+    private Runnable removed(Runnable runnable) {
+        if (runnable != null) {
+            unreserve();
+        }
+        return runnable;
+    }
+}
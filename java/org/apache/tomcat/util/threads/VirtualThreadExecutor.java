@@ -16,17 +16,25 @@
  */
 package org.apache.tomcat.util.threads;
 
+import java.util.ArrayList;
 import java.util.Collections;
 import java.util.List;
+import java.util.Map;
 import java.util.concurrent.AbstractExecutorService;
+import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.CountDownLatch;
 import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.Semaphore;
 import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
 
 import org.apache.tomcat.util.res.StringManager;
 
 /**
- * An executor that uses a new virtual thread for each task.
+ * An executor that uses a new virtual thread for each task. Optionally, the number of tasks that may execute
+ * concurrently may be limited. Tasks beyond that limit wait, without occupying a carrier thread, until a running task
+ * completes. Tasks that are waiting are cancelled by {@link #shutdownNow()}.
  */
 public class VirtualThreadExecutor extends AbstractExecutorService {
 
@@ -36,13 +44,37 @@ public class VirtualThreadExecutor extends AbstractExecutorService {
 
     private final Thread.Builder threadBuilder;
 
+    private final int maxConcurrency;
+    private final Semaphore permits;
+
+    private final AtomicInteger activeCount = new AtomicInteger(0);
+    // Tasks waiting for a permit, keyed by the thread that will execute them
+    private final Map<Thread,Runnable> waiting = new ConcurrentHashMap<>();
+    private final LongAdder completedTaskCount = new LongAdder();
+
     /**
      * Constructs a new VirtualThreadExecutor.
      *
      * @param namePrefix The name prefix for virtual threads
      */
     public VirtualThreadExecutor(String namePrefix) {
+        this(namePrefix, -1);
+    }
+
+    /**
+     * Constructs a new VirtualThreadExecutor.
+     *
+     * @param namePrefix     The name prefix for virtual threads
+     * @param maxConcurrency The maximum number of tasks that may execute concurrently. Zero or less means no limit
+     */
+    public VirtualThreadExecutor(String namePrefix, int maxConcurrency) {
         threadBuilder = Thread.ofVirtual().name(namePrefix, 0);
+        this.maxConcurrency = maxConcurrency;
+        if (maxConcurrency > 0) {
+            permits = new Semaphore(maxConcurrency);
+        } else {
+            permits = null;
+        }
     }
 
     @Override
@@ -51,7 +83,68 @@ public class VirtualThreadExecutor extends AbstractExecutorService {
             throw new RejectedExecutionException(
                     sm.getString("virtualThreadExecutor.taskRejected", command.toString(), this.toString()));
         }
-        threadBuilder.start(command);
+        threadBuilder.start(() -> run(command));
+    }
+
+    private void run(Runnable command) {
+        if (permits != null) {
+            waiting.put(Thread.currentThread(), command);
+            boolean acquired = false;
+            try {
+                permits.acquire();
+                acquired = true;
+            } catch (InterruptedException e) {
+                // Treat as cancellation
+            }
+            /*
+             * If shutdownNow() removed the task first it has been returned as a cancelled task and must not be executed
+             * even if a permit was acquired.
+             */
+            if (waiting.remove(Thread.currentThread()) == null || !acquired) {
+                if (acquired) {
+                    permits.release();
+                }
+                return;
+            }
+        }
+        activeCount.incrementAndGet();
+        try {
+            command.run();
+        } finally {
+            activeCount.decrementAndGet();
+            completedTaskCount.increment();
+            if (permits != null) {
+                permits.release();
+            }
+        }
+    }
+
+    /**
+     * @return the maximum number of tasks that may execute concurrently or a value of zero or less if there is no limit
+     */
+    public int getMaxConcurrency() {
+        return maxConcurrency;
+    }
+
+    /**
+     * @return the number of tasks currently executing
+     */
+    public int getActiveCount() {
+        return activeCount.get();
+    }
+
+    /**
+     * @return the number of tasks waiting to execute because the maximum concurrency has been reached
+     */
+    public int getWaitingCount() {
+        return waiting.size();
+    }
+
+    /**
+     * @return the number of tasks that have completed execution
+     */
+    public long getCompletedTaskCount() {
+        return completedTaskCount.sum();
     }
 
     @Override
@@ -62,13 +155,24 @@ public class VirtualThreadExecutor extends AbstractExecutorService {
     /**
      * {@inheritDoc}
      * <p>
-     * The VirtualThreadExecutor does not track in-progress tasks so calling this method is equivalent to calling
-     * {@link #shutdown()}.
+     * The VirtualThreadExecutor does not track in-progress tasks so they are not interrupted. Tasks waiting to execute
+     * because the maximum concurrency has been reached are cancelled and returned.
      */
     @Override
     public List<Runnable> shutdownNow() {
         shutdown();
-        return Collections.emptyList();
+        if (waiting.isEmpty()) {
+            return Collections.emptyList();
+        }
+        List<Runnable> cancelled = new ArrayList<>();
+        for (Thread thread : waiting.keySet()) {
+            Runnable command = waiting.remove(thread);
+            if (command != null) {
+                cancelled.add(command);
+                thread.interrupt();
+            }
+        }
+        return cancelled;
     }
 
     @Override
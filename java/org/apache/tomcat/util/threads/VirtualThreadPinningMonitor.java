@@ -0,0 +1,177 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.tomcat.util.threads;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+import jdk.jfr.consumer.RecordedEvent;
+import jdk.jfr.consumer.RecordedFrame;
+import jdk.jfr.consumer.RecordedStackTrace;
+import jdk.jfr.consumer.RecordedThread;
+import jdk.jfr.consumer.RecordingStream;
+
+import org.apache.tomcat.util.res.StringManager;
+
+/**
+ * Uses a JFR event stream to count the occasions when a virtual thread with a given name prefix blocks while pinned to
+ * its carrier thread, for example because it is holding a monitor. Events are grouped by call site, the first stack
+ * frame outside of the JRE, so that the code responsible for the pinning can be identified.
+ * <p>
+ * JFR delivers events to the stream in batches so the statistics may lag behind the pinning events by a second or so.
+ * <p>
+ * JFR is optional. Use {@link #isAvailable()} to check that it is present (it may not be in a runtime image created with
+ * jlink) before creating a monitor.
+ */
+public class VirtualThreadPinningMonitor implements AutoCloseable {
+
+    private static final StringManager sm = StringManager.getManager(VirtualThreadPinningMonitor.class);
+
+    private static final String EVENT_NAME = "jdk.VirtualThreadPinned";
+
+    // Limits the memory used if pinning occurs in many places
+    private static final int MAX_SITES = 100;
+    static final String OTHER_SITES = "other";
+    static final String UNKNOWN_SITE = "unknown";
+
+    private final String namePrefix;
+    private final RecordingStream stream;
+    private final LongAdder pinnedCount = new LongAdder();
+    private final LongAdder pinnedTime = new LongAdder();
+    private final Map<String,LongAdder> sites = new ConcurrentHashMap<>();
+
+
+    /**
+     * Start monitoring.
+     *
+     * @param namePrefix the name prefix of the virtual threads to monitor
+     * @param threshold  the minimum time, in milliseconds, a virtual thread must be blocked while pinned to be counted
+     *
+     * @throws IllegalStateException if JFR is not available
+     */
+    public VirtualThreadPinningMonitor(String namePrefix, long threshold) {
+        if (!isAvailable()) {
+            throw new IllegalStateException(sm.getString("virtualThreadPinningMonitor.jfrNotAvailable"));
+        }
+        this.namePrefix = namePrefix;
+        stream = new RecordingStream();
+        stream.enable(EVENT_NAME).withThreshold(Duration.ofMillis(threshold)).withStackTrace();
+        stream.onEvent(EVENT_NAME, this::pinned);
+        stream.startAsync();
+    }
+
+
+    /**
+     * Determine if JFR event streaming is available. The check does not use any JFR types so it is safe to call when the
+     * jdk.jfr module is not present.
+     *
+     * @return {@code true} if a monitor can be created, otherwise {@code false}
+     */
+    public static boolean isAvailable() {
+        try {
+            Class.forName("jdk.jfr.consumer.RecordingStream");
+            return true;
+        } catch (ClassNotFoundException | LinkageError e) {
+            return false;
+        }
+    }
+
+
+    /**
+     * @return the number of times a monitored virtual thread has blocked while pinned
+     */
+    public long getPinnedCount() {
+        return pinnedCount.sum();
+    }
+
+
+    /**
+     * @return the total time, in milliseconds, monitored virtual threads have spent blocked while pinned
+     */
+    public long getPinnedTime() {
+        return TimeUnit.NANOSECONDS.toMillis(pinnedTime.sum());
+    }
+
+
+    /**
+     * @return the call sites at which monitored virtual threads have blocked while pinned, each prefixed by the number
+     *             of times it has occurred, most frequent first
+     */
+    public String[] getPinningSites() {
+        List<Map.Entry<String,Long>> entries = new ArrayList<>(sites.size());
+        for (Map.Entry<String,LongAdder> entry : sites.entrySet()) {
+            entries.add(Map.entry(entry.getKey(), Long.valueOf(entry.getValue().sum())));
+        }
+        entries.sort(Map.Entry.<String,Long>comparingByValue().reversed());
+        String[] result = new String[entries.size()];
+        for (int i = 0; i < result.length; i++) {
+            result[i] = entries.get(i).getValue() + " " + entries.get(i).getKey();
+        }
+        return result;
+    }
+
+
+    /**
+     * Stop monitoring.
+     */
+    @Override
+    public void close() {
+        stream.close();
+    }
+
+
+    private void pinned(RecordedEvent event) {
+        RecordedThread thread = event.getThread();
+        if (thread == null || thread.getJavaName() == null || !thread.getJavaName().startsWith(namePrefix)) {
+            return;
+        }
+        pinnedCount.increment();
+        pinnedTime.add(event.getDuration().toNanos());
+
+        String site = getCallSite(event.getStackTrace());
+        LongAdder counter = sites.get(site);
+        if (counter == null) {
+            if (sites.size() >= MAX_SITES) {
+                site = OTHER_SITES;
+            }
+            counter = sites.computeIfAbsent(site, k -> new LongAdder());
+        }
+        counter.increment();
+    }
+
+
+    static String getCallSite(RecordedStackTrace stackTrace) {
+        if (stackTrace != null) {
+            for (RecordedFrame frame : stackTrace.getFrames()) {
+                if (!frame.isJavaFrame() || frame.getMethod() == null) {
+                    continue;
+                }
+                String className = frame.getMethod().getType().getName();
+                if (className.startsWith("java.") || className.startsWith("jdk.") || className.startsWith("sun.")) {
+                    continue;
+                }
+                return className + "." + frame.getMethod().getName() + "(" + frame.getLineNumber() + ")";
+            }
+        }
+        return UNKNOWN_SITE;
+    }
+}
@@ -1022,4 +1022,50 @@ public class TestRequest extends TomcatBaseTest {
             }
         }
     }
+
+
+    @Test
+    public void testLazyParameterDecodingInvalidParameter() throws Exception {
+        Tomcat tomcat = getTomcatInstance();
+        tomcat.getConnector().setLazyParameterDecoding(true);
+        Context ctx = getProgrammaticRootContext();
+        Tomcat.addServlet(ctx, "LazyParameters", new LazyParametersServlet());
+        ctx.addServletMappingDecoded("/", "LazyParameters");
+        tomcat.start();
+
+        ByteChunk bc = new ByteChunk();
+        Map<String,List<String>> reqHeaders = new HashMap<>();
+        reqHeaders.put("Content-Type", List.of("application/x-www-form-urlencoded; charset=UTF-8"));
+        byte[] body = "d=%FF&e=5".getBytes(StandardCharsets.ISO_8859_1);
+        int rc = postUrl(body, "http://localhost:" + getPort() + "/test?a=1&b=%FF&c=3", bc, reqHeaders, null);
+
+        Assert.assertEquals(HttpServletResponse.SC_OK, rc);
+        Assert.assertEquals("a=1,b=invalid,c=3,d=invalid,e=5", bc.toString());
+    }
+
+
+    private static class LazyParametersServlet extends HttpServlet {
+
+        private static final long serialVersionUID = 1L;
+
+        @Override
+        protected void doPost(HttpServletRequest req, HttpServletResponse resp) throws ServletException, IOException {
+            resp.setContentType("text/plain");
+            resp.setCharacterEncoding(StandardCharsets.UTF_8);
+            PrintWriter pw = resp.getWriter();
+            StringBuilder result = new StringBuilder();
+            for (String name : new String[] { "a", "b", "c", "d", "e" }) {
+                if (!result.isEmpty()) {
+                    result.append(',');
+                }
+                result.append(name).append('=');
+                try {
+                    result.append(req.getParameter(name));
+                } catch (IllegalStateException ise) {
+                    result.append("invalid");
+                }
+            }
+            pw.print(result);
+        }
+    }
 }
@@ -19,6 +19,10 @@ package org.apache.catalina.mapper;
 import org.junit.Assert;
 import org.junit.Test;
 
+import org.apache.catalina.Context;
+import org.apache.catalina.Host;
+import org.apache.catalina.core.StandardContext;
+import org.apache.catalina.core.StandardHost;
 import org.apache.tomcat.util.buf.MessageBytes;
 
 /*
@@ -52,12 +56,62 @@ public class TestMapperPerformance extends TestMapper {
         Assert.assertTrue(String.valueOf(time), time < maxTime);
     }
 
+    /*
+     * A multi-tenant configuration with many hosts. A few of the hosts have several hundred contexts, some of them
+     * nested.
+     */
+    @Test
+    public void testPerformanceManyHosts() throws Exception {
+        Mapper manyHostsMapper = new Mapper();
+        Context context = new StandardContext();
+        context.setName("tenant");
+        for (int i = 0; i < 3000; i++) {
+            String hostName = "tenant" + i + ".example.com";
+            Host host = new StandardHost();
+            host.setName(hostName);
+            manyHostsMapper.addHost(hostName, new String[0], host);
+            int contextCount = (i % 1000 == 0) ? 300 : 10;
+            for (int j = 0; j < contextCount; j++) {
+                manyHostsMapper.addContextVersion(hostName, host, "/app" + j, "0", context, new String[0], null, null);
+                if (j % 3 == 0) {
+                    manyHostsMapper.addContextVersion(hostName, host, "/app" + j + "/module", "0", context,
+                            new String[0], null, null);
+                }
+            }
+        }
+
+        String[] requestedHostNames = new String[] { "tenant0.example.com", "TENANT1000.example.com",
+                "tenant2999.example.com", "unknown.example.com" };
+        String[] requestedUris = new String[] { "/app150/module/path/to/resource", "/app151/path/to/resource",
+                "/unknown/path/to/resource" };
+
+        for (String requestedHostName : requestedHostNames) {
+            for (String requestedUri : requestedUris) {
+                // Takes ~0.1s per combination on a current laptop
+                final long maxTime = 5000;
+                long time = testPerformanceImpl(manyHostsMapper, requestedHostName, requestedUri);
+                log.info("Host [" + requestedHostName + "], URI [" + requestedUri + "], Time [" + time + "]ms");
+                if (time >= maxTime) {
+                    // Rerun to reject occasional failures, e.g. because of gc
+                    log.warn("testPerformanceManyHosts() test completed in " + time + " ms");
+                    time = testPerformanceImpl(manyHostsMapper, requestedHostName, requestedUri);
+                    log.warn("testPerformanceManyHosts() test rerun completed in " + time + " ms");
+                }
+                Assert.assertTrue(String.valueOf(time), time < maxTime);
+            }
+        }
+    }
+
     private long testPerformanceImpl(String requestedHostName) throws Exception {
+        return testPerformanceImpl(mapper, requestedHostName, "/foo/bar/blah/bobou/foo");
+    }
+
+    private long testPerformanceImpl(Mapper mapper, String requestedHostName, String requestedUri) throws Exception {
         MappingData mappingData = new MappingData();
         MessageBytes host = MessageBytes.newInstance();
         host.setString(requestedHostName);
         MessageBytes uri = MessageBytes.newInstance();
-        uri.setString("/foo/bar/blah/bobou/foo");
+        uri.setString(requestedUri);
         uri.toChars();
         uri.getCharChunk().setLimit(-1);
 
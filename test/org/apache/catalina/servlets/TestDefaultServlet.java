@@ -183,6 +183,63 @@ public class TestDefaultServlet extends TomcatBaseTest {
         Assert.assertTrue(responseHeaders.contains("vary: accept-encoding"));
     }
 
+    /*
+     * Verify serving of compressed variants created on demand.
+     */
+    @Test
+    public void testCompressResources() throws Exception {
+
+        Tomcat tomcat = getTomcatInstance();
+
+        File appDir = new File("test/webapp");
+
+        long indexSize = new File(appDir, "index.html").length();
+
+        // app dir is relative to server home
+        Context ctxt = tomcat.addContext("", appDir.getAbsolutePath());
+        Wrapper defaultServlet = Tomcat.addServlet(ctxt, "default",
+                "org.apache.catalina.servlets.DefaultServlet");
+        defaultServlet.addInitParameter("compressResources", "true");
+        defaultServlet.addInitParameter("fileEncoding", "ISO-8859-1");
+        ctxt.addServletMappingDecoded("/", "default");
+
+        ctxt.addMimeMapping("html", "text/html");
+
+        tomcat.start();
+
+        TestCompressedClient gzipClient = new TestCompressedClient(getPort());
+
+        for (int i = 0; i < 2; i++) {
+            gzipClient.reset();
+            gzipClient.setRequest(new String[] {
+                    "GET /index.html HTTP/1.1" + CRLF +
+                        "Host: localhost" + CRLF +
+                        "Connection: Close" + CRLF +
+                        "Accept-Encoding: br;q=0.5, gzip" + CRLF + CRLF });
+            gzipClient.connect();
+            gzipClient.processRequest();
+            Assert.assertTrue(gzipClient.isResponse200());
+            List<String> responseHeaders = gzipClient.getResponseHeaders();
+            Assert.assertTrue(responseHeaders.contains("Content-Encoding: gzip"));
+            Assert.assertFalse(responseHeaders.contains("Content-Length: " + indexSize));
+            Assert.assertTrue(responseHeaders.contains("vary: accept-encoding"));
+        }
+
+        gzipClient.reset();
+        gzipClient.setRequest(new String[] {
+                "GET /index.html HTTP/1.1" + CRLF +
+                    "Host: localhost" + CRLF +
+                    "Connection: Close" + CRLF +
+                    "Accept-Encoding: br" + CRLF + CRLF });
+        gzipClient.connect();
+        gzipClient.processRequest();
+        Assert.assertTrue(gzipClient.isResponse200());
+        List<String> responseHeaders = gzipClient.getResponseHeaders();
+        Assert.assertFalse(responseHeaders.contains("Content-Encoding: gzip"));
+        Assert.assertTrue(responseHeaders.contains("Content-Length: " + indexSize));
+        Assert.assertTrue(responseHeaders.contains("vary: accept-encoding"));
+    }
+
     /*
      * Verify serving of brotli compressed resources from context root.
      */
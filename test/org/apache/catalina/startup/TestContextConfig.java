@@ -17,14 +17,23 @@
 package org.apache.catalina.startup;
 
 import java.io.File;
+import java.io.FileOutputStream;
 import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
 import java.util.Set;
+import java.util.concurrent.CopyOnWriteArraySet;
+import java.util.concurrent.TimeUnit;
+import java.util.jar.JarEntry;
+import java.util.jar.JarOutputStream;
+import java.util.logging.Level;
 
 import jakarta.servlet.Servlet;
 import jakarta.servlet.ServletContainerInitializer;
 import jakarta.servlet.ServletContext;
 import jakarta.servlet.ServletException;
 import jakarta.servlet.ServletRegistration;
+import jakarta.servlet.annotation.HandlesTypes;
 import jakarta.servlet.http.HttpServlet;
 import jakarta.servlet.http.HttpServletRequest;
 import jakarta.servlet.http.HttpServletResponse;
@@ -34,6 +43,7 @@ import org.junit.Test;
 
 import org.apache.catalina.Context;
 import org.apache.catalina.core.StandardContext;
+import org.apache.tomcat.unittest.TesterLogValidationFilter;
 import org.apache.tomcat.util.buf.ByteChunk;
 
 public class TestContextConfig extends TomcatBaseTest {
@@ -154,6 +164,76 @@ public class TestContextConfig extends TomcatBaseTest {
         assertPageContains("/test/TesterServlet2", "OK");
     }
 
+    @Test
+    public void testAnnotationScanCache() throws Exception {
+        File appDir = new File(getTemporaryDirectory(), "scan-cache-app");
+        addDeleteOnTearDown(appDir);
+        File libDir = new File(appDir, "WEB-INF/lib");
+        Assert.assertTrue(libDir.mkdirs());
+        File cacheDir = new File(getTemporaryDirectory(), "scan-cache");
+        addDeleteOnTearDown(cacheDir);
+
+        try (JarOutputStream jos = new JarOutputStream(new FileOutputStream(new File(libDir, "annotated.jar")))) {
+            String classEntry = ParamServlet.class.getName().replace('.', '/') + ".class";
+            jos.putNextEntry(new JarEntry(classEntry));
+            try (InputStream is = getClass().getClassLoader().getResourceAsStream(classEntry)) {
+                is.transferTo(jos);
+            }
+            jos.putNextEntry(new JarEntry("META-INF/services/" + ServletContainerInitializer.class.getName()));
+            jos.write(HandlesTypesSCI.class.getName().getBytes(StandardCharsets.UTF_8));
+        }
+
+        Tomcat tomcat = getTomcatInstance();
+        StandardContext ctx = (StandardContext) tomcat.addWebapp(null, "/test", appDir.getAbsolutePath());
+        ctx.setAnnotationScanCacheDirectory(cacheDir.getAbsolutePath());
+
+        TesterLogValidationFilter f = TesterLogValidationFilter.add(Level.INFO,
+                "used cached results for [1] of [1] JARs", null, ContextConfig.class.getName());
+
+        tomcat.start();
+
+        // The first start scans the JAR and populates the cache
+        String[] entries = cacheDir.list();
+        Assert.assertNotNull(entries);
+        Assert.assertEquals(1, entries.length);
+        Assert.assertEquals(0, f.getMessageCount());
+        assertPageContains("/test/annotation/overwrite", "<p>Hello World!</p>");
+        Assert.assertTrue(HandlesTypesSCI.found.contains(ParamServlet.class.getName()));
+
+        // Entries that have not been used recently are pruned
+        File unused = new File(cacheDir, "unused.scan");
+        File recent = new File(cacheDir, "recent.scan");
+        Assert.assertTrue(unused.createNewFile());
+        Assert.assertTrue(recent.createNewFile());
+        Assert.assertTrue(unused.setLastModified(
+                System.currentTimeMillis() - TimeUnit.DAYS.toMillis(AnnotationScanCache.MAX_UNUSED_DAYS + 1)));
+
+        // The restart uses the cached results
+        HandlesTypesSCI.found.clear();
+        ctx.reload();
+
+        Assert.assertEquals(1, f.getMessageCount());
+        assertPageContains("/test/annotation/overwrite", "<p>Hello World!</p>");
+        Assert.assertTrue(HandlesTypesSCI.found.contains(ParamServlet.class.getName()));
+        Assert.assertFalse(unused.exists());
+        Assert.assertTrue(recent.exists());
+    }
+
+    @HandlesTypes(HttpServlet.class)
+    public static class HandlesTypesSCI implements ServletContainerInitializer {
+
+        static final Set<String> found = new CopyOnWriteArraySet<>();
+
+        @Override
+        public void onStartup(Set<Class<?>> c, ServletContext ctx) throws ServletException {
+            if (c != null) {
+                for (Class<?> clazz : c) {
+                    found.add(clazz.getName());
+                }
+            }
+        }
+    }
+
     private static class CustomDefaultServletSCI
             implements ServletContainerInitializer {
 
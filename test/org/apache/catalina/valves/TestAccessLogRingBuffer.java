@@ -0,0 +1,134 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.catalina.valves;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.CharsetEncoder;
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+public class TestAccessLogRingBuffer {
+
+    @Test
+    public void testCapacity() {
+        Assert.assertEquals(1, new AccessLogRingBuffer(1).getCapacity());
+        Assert.assertEquals(8, new AccessLogRingBuffer(5).getCapacity());
+        Assert.assertEquals(8, new AccessLogRingBuffer(8).getCapacity());
+    }
+
+
+    @Test
+    public void testFull() {
+        AccessLogRingBuffer ringBuffer = new AccessLogRingBuffer(2);
+
+        long first = ringBuffer.claim();
+        long second = ringBuffer.claim();
+        Assert.assertEquals(0, first);
+        Assert.assertEquals(1, second);
+        Assert.assertEquals(-1, ringBuffer.claim());
+        Assert.assertEquals(2, ringBuffer.getPending());
+
+        // Claimed entries are not available until published
+        Assert.assertEquals(0, ringBuffer.available(2));
+        ringBuffer.publish(second);
+        Assert.assertEquals(0, ringBuffer.available(2));
+        ringBuffer.publish(first);
+        Assert.assertEquals(2, ringBuffer.available(2));
+        Assert.assertEquals(1, ringBuffer.available(1));
+
+        ringBuffer.release(1);
+        Assert.assertEquals(1, ringBuffer.getPending());
+        Assert.assertEquals(2, ringBuffer.claim());
+        Assert.assertEquals(-1, ringBuffer.claim());
+    }
+
+
+    @Test
+    public void testEncode() throws Exception {
+        CharsetEncoder encoder = StandardCharsets.UTF_8.newEncoder();
+        AccessLogRingBuffer ringBuffer = new AccessLogRingBuffer(1);
+        AccessLogRingBuffer.Entry entry = ringBuffer.get(ringBuffer.claim());
+
+        // Larger than the initial buffers
+        StringBuilder expected = new StringBuilder();
+        for (int i = 0; i < 1000; i++) {
+            expected.append('é');
+        }
+        entry.write(expected.toString());
+        Assert.assertEquals(1000, entry.length());
+
+        ByteBuffer bytes = entry.encode(encoder);
+        Assert.assertEquals(expected.toString(), StandardCharsets.UTF_8.decode(bytes).toString());
+
+        // Entries are re-used
+        entry.reset();
+        entry.write("GET /");
+        bytes = entry.encode(encoder);
+        Assert.assertEquals("GET /", StandardCharsets.UTF_8.decode(bytes).toString());
+    }
+
+
+    @Test
+    public void testConcurrentProducers() throws Exception {
+        final int producers = 4;
+        final int messages = 10000;
+        final AccessLogRingBuffer ringBuffer = new AccessLogRingBuffer(64);
+        final CountDownLatch start = new CountDownLatch(1);
+        Thread[] threads = new Thread[producers];
+        for (int i = 0; i < producers; i++) {
+            threads[i] = new Thread(() -> {
+                try {
+                    start.await();
+                } catch (InterruptedException e) {
+                    return;
+                }
+                for (int j = 0; j < messages; j++) {
+                    long sequence;
+                    while ((sequence = ringBuffer.claim()) < 0) {
+                        Thread.yield();
+                    }
+                    AccessLogRingBuffer.Entry entry = ringBuffer.get(sequence);
+                    entry.reset();
+                    entry.write("x");
+                    ringBuffer.publish(sequence);
+                }
+            });
+            threads[i].start();
+        }
+        start.countDown();
+
+        AtomicInteger consumed = new AtomicInteger();
+        long deadline = System.currentTimeMillis() + 30000;
+        while (consumed.get() < producers * messages && System.currentTimeMillis() < deadline) {
+            int count = ringBuffer.available(16);
+            for (int i = 0; i < count; i++) {
+                Assert.assertEquals(1, ringBuffer.get(ringBuffer.getConsumed() + i).length());
+            }
+            ringBuffer.release(count);
+            consumed.addAndGet(count);
+        }
+        for (Thread thread : threads) {
+            thread.join();
+        }
+        Assert.assertEquals(producers * messages, consumed.get());
+        Assert.assertEquals(0, ringBuffer.getPending());
+    }
+}
@@ -184,6 +184,50 @@ public class TestAccessLogValveFile extends TomcatBaseTest {
         Assert.assertTrue(content.contains("200"));
     }
 
+    @Test
+    public void testAsynchronous() throws Exception {
+        AccessLogValve valve = createValve("access_async", "%m %U %s");
+        valve.setAsynchronous(true);
+        valve.setAsyncQueueSize(4);
+        getTomcatInstance().start();
+
+        for (int i = 0; i < 20; i++) {
+            getUrl("http://localhost:" + getPort() + "/async" + i);
+        }
+
+        // Stopping the valve writes any queued messages
+        valve.stop();
+
+        File logFile = new File(logDir, "access_async.log");
+        awaitFile(logFile);
+        String[] lines = Files.readString(logFile.toPath()).split(System.lineSeparator());
+        Assert.assertEquals(20, lines.length);
+        for (int i = 0; i < 20; i++) {
+            Assert.assertEquals("GET /async" + i + " 200", lines[i]);
+        }
+        Assert.assertEquals(0, valve.getAsyncDroppedCount());
+        Assert.assertEquals(0, valve.getAsyncPendingCount());
+    }
+
+
+    @Test
+    public void testAsyncFullPolicy() {
+        AccessLogValve valve = new AccessLogValve();
+
+        Assert.assertFalse(valve.isAsynchronous());
+        Assert.assertEquals("block", valve.getAsyncFullPolicy());
+        valve.setAsyncFullPolicy("Drop");
+        Assert.assertEquals("drop", valve.getAsyncFullPolicy());
+    }
+
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testInvalidAsyncFullPolicy() {
+        AccessLogValve valve = new AccessLogValve();
+        valve.setAsyncFullPolicy("wait");
+    }
+
+
     @Test
     public void testGetSetProperties() {
         AccessLogValve valve = new AccessLogValve();
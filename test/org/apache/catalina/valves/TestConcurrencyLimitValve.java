@@ -0,0 +1,229 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.catalina.valves;
+
+import java.io.IOException;
+import java.io.Serial;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import jakarta.servlet.AsyncContext;
+import jakarta.servlet.http.HttpServlet;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import org.apache.catalina.Context;
+import org.apache.catalina.LifecycleException;
+import org.apache.catalina.Wrapper;
+import org.apache.catalina.startup.Tomcat;
+import org.apache.catalina.startup.TomcatBaseTest;
+import org.apache.tomcat.util.buf.ByteChunk;
+
+public class TestConcurrencyLimitValve extends TomcatBaseTest {
+
+    private static final long MILLIS = TimeUnit.MILLISECONDS.toNanos(1);
+
+
+    @Test
+    public void testRejectedUntilAsyncComplete() throws Exception {
+        Tomcat tomcat = getTomcatInstance();
+
+        Context ctx = getProgrammaticRootContext();
+
+        CountDownLatch insideServlet = new CountDownLatch(1);
+        CountDownLatch canComplete = new CountDownLatch(1);
+        Wrapper w = Tomcat.addServlet(ctx, "async", new AsyncServlet(insideServlet, canComplete));
+        w.setAsyncSupported(true);
+        ctx.addServletMappingDecoded("/", "async");
+
+        ConcurrencyLimitValve valve = new ConcurrencyLimitValve();
+        valve.setInitialLimit(1);
+        valve.setMinLimit(1);
+        valve.setMaxLimit(1);
+        valve.setRetryAfter(5);
+        ctx.getPipeline().addValve(valve);
+
+        tomcat.start();
+
+        AtomicInteger firstRc = new AtomicInteger();
+        Thread firstThread = new Thread(() -> {
+            try {
+                firstRc.set(getUrl("http://localhost:" + getPort(), new ByteChunk(), null));
+            } catch (IOException e) {
+                // Ignore
+            }
+        });
+        firstThread.start();
+
+        Assert.assertTrue(insideServlet.await(10, TimeUnit.SECONDS));
+
+        // The servlet has returned but the asynchronous request is still in flight
+        Map<String,List<String>> resHead = new HashMap<>();
+        int rc = getUrl("http://localhost:" + getPort(), new ByteChunk(), resHead);
+        Assert.assertEquals(HttpServletResponse.SC_SERVICE_UNAVAILABLE, rc);
+        Assert.assertEquals(List.of("5"), resHead.get("Retry-After"));
+        Assert.assertEquals(1, valve.getRejectedCount());
+
+        canComplete.countDown();
+        firstThread.join(10000);
+        Assert.assertFalse(firstThread.isAlive());
+        Assert.assertEquals(HttpServletResponse.SC_OK, firstRc.get());
+
+        // Completion is signalled to the listener after the response has been sent
+        int count = 0;
+        while (valve.getInFlight() > 0 && count < 100) {
+            Thread.sleep(50);
+            count++;
+        }
+        Assert.assertEquals(0, valve.getInFlight());
+    }
+
+
+    @Test
+    public void testAimd() {
+        ConcurrencyLimiter limiter = new ConcurrencyLimiter(ConcurrencyLimiter.AIMD, 10, 1, 20, 100, 0.5, 1.5, 0.2);
+
+        // Fast requests while the limit is in use increase the limit
+        int inFlight = 0;
+        for (int i = 0; i < 10; i++) {
+            inFlight = limiter.tryAcquire();
+        }
+        Assert.assertEquals(10, inFlight);
+        Assert.assertEquals(-1, limiter.tryAcquire());
+        Assert.assertEquals(1, limiter.getRejectedCount());
+        limiter.release(10 * MILLIS, inFlight);
+        Assert.assertEquals(11, limiter.getLimit());
+
+        // Fast requests while the limit is not in use do not
+        limiter.release(10 * MILLIS, 1);
+        Assert.assertEquals(11, limiter.getLimit());
+
+        // Slow requests reduce the limit
+        limiter.release(200 * MILLIS, 1);
+        Assert.assertEquals(5, limiter.getLimit());
+        for (int i = 0; i < 10; i++) {
+            limiter.release(200 * MILLIS, 1);
+        }
+        Assert.assertEquals(1, limiter.getLimit());
+    }
+
+
+    @Test
+    public void testGradient() {
+        ConcurrencyLimiter limiter = new ConcurrencyLimiter(ConcurrencyLimiter.GRADIENT, 20, 2, 100, 0, 0.9, 1.5, 0.2);
+
+        // Stable latency with the limit in use increases the limit
+        for (int i = 0; i < 100; i++) {
+            limiter.tryAcquire();
+            limiter.release(10 * MILLIS, limiter.getLimit());
+        }
+        int stableLimit = limiter.getLimit();
+        Assert.assertTrue(stableLimit > 20);
+
+        // A significant increase in latency reduces the limit
+        for (int i = 0; i < 20; i++) {
+            limiter.tryAcquire();
+            limiter.release(100 * MILLIS, limiter.getLimit());
+        }
+        Assert.assertTrue(limiter.getLimit() < stableLimit / 2);
+        Assert.assertTrue(limiter.getLimit() >= 2);
+        Assert.assertEquals(0, limiter.getInFlight());
+    }
+
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testInvalidAlgorithm() {
+        new ConcurrencyLimitValve().setAlgorithm("vegas");
+    }
+
+
+    @Test
+    public void testLimitNeverBelowOne() {
+        ConcurrencyLimiter limiter = new ConcurrencyLimiter(ConcurrencyLimiter.AIMD, 1, 0, 10, 100, 0.5, 1.5, 0.2);
+        Assert.assertEquals(1, limiter.getLimit());
+
+        // Slow requests cannot reduce the limit to zero
+        for (int i = 0; i < 10; i++) {
+            Assert.assertEquals(1, limiter.tryAcquire());
+            limiter.release(200 * MILLIS, 1);
+        }
+        Assert.assertEquals(1, limiter.getLimit());
+    }
+
+
+    @Test(expected = LifecycleException.class)
+    public void testInvalidInitialLimit() throws LifecycleException {
+        ConcurrencyLimitValve valve = new ConcurrencyLimitValve();
+        valve.setInitialLimit(0);
+        valve.start();
+    }
+
+
+    @Test(expected = LifecycleException.class)
+    public void testInvalidMinLimit() throws LifecycleException {
+        ConcurrencyLimitValve valve = new ConcurrencyLimitValve();
+        valve.setMinLimit(0);
+        valve.start();
+    }
+
+
+    @Test(expected = LifecycleException.class)
+    public void testMaxLimitBelowMinLimit() throws LifecycleException {
+        ConcurrencyLimitValve valve = new ConcurrencyLimitValve();
+        valve.setMinLimit(10);
+        valve.setMaxLimit(5);
+        valve.start();
+    }
+
+
+    private static final class AsyncServlet extends HttpServlet {
+
+        @Serial
+        private static final long serialVersionUID = 1L;
+        private final CountDownLatch insideServlet;
+        private final CountDownLatch canComplete;
+
+        private AsyncServlet(CountDownLatch insideServlet, CountDownLatch canComplete) {
+            this.insideServlet = insideServlet;
+            this.canComplete = canComplete;
+        }
+
+        @Override
+        protected void doGet(HttpServletRequest req, HttpServletResponse resp) throws IOException {
+            AsyncContext ac = req.startAsync();
+            ac.setTimeout(30000);
+            ac.start(() -> {
+                try {
+                    Assert.assertTrue(canComplete.await(30, TimeUnit.SECONDS));
+                    resp.setContentType("text/plain");
+                    resp.getWriter().print("OK");
+                } catch (InterruptedException | IOException e) {
+                    // Ignore
+                }
+                ac.complete();
+            });
+            insideServlet.countDown();
+        }
+    }
+}
@@ -21,12 +21,19 @@ import java.io.File;
 import java.io.InputStream;
 import java.net.JarURLConnection;
 import java.net.URL;
+import java.nio.ByteBuffer;
+import java.nio.file.Files;
+import java.util.zip.GZIPInputStream;
+
+import jakarta.servlet.ServletContext;
 
 import org.junit.Assert;
 import org.junit.Test;
 
 import org.apache.catalina.Context;
+import org.apache.catalina.WebResource;
 import org.apache.catalina.WebResourceRoot;
+import org.apache.catalina.WebResourceSet;
 import org.apache.catalina.core.StandardHost;
 import org.apache.catalina.startup.Tomcat;
 import org.apache.catalina.startup.TomcatBaseTest;
@@ -166,4 +173,164 @@ public class TestCachedResource extends TomcatBaseTest {
          */
         Assert.assertTrue(o instanceof ByteArrayInputStream);
     }
+
+
+    @Test
+    public void testCompressedResource() throws Exception {
+        Tomcat tomcat = getTomcatInstance();
+        File docBase = new File("test/webapp");
+        Context ctx = tomcat.addWebapp("/test", docBase.getAbsolutePath());
+        tomcat.start();
+
+        WebResource resource = ctx.getResources().getResource("/index.html");
+        Assert.assertTrue(resource instanceof CachedResource);
+        CachedResource cachedResource = (CachedResource) resource;
+
+        CompressedResource compressed = cachedResource.leaseCompressedResource("gzip");
+        Assert.assertNotNull(compressed);
+        Assert.assertTrue(compressed.getContentLength() < resource.getContentLength());
+
+        byte[] uncompressed;
+        try (InputStream is = new GZIPInputStream(compressed.getInputStream())) {
+            uncompressed = is.readAllBytes();
+        }
+        Assert.assertArrayEquals(resource.getContent(), uncompressed);
+
+        // Compressed variant is cached
+        CompressedResource compressed2 = cachedResource.leaseCompressedResource("gzip");
+        Assert.assertSame(compressed, compressed2);
+        compressed2.release();
+        compressed.release();
+
+        // Unsupported encoding
+        Assert.assertNull(cachedResource.leaseCompressedResource("compress"));
+
+        // Disabled
+        ((StandardRoot) ctx.getResources()).setCacheCompressedMaxSize(0);
+        Assert.assertNull(cachedResource.leaseCompressedResource("gzip"));
+    }
+
+
+    @Test
+    public void testCompressedResourceSpillFileInUse() throws Exception {
+        Tomcat tomcat = getTomcatInstance();
+        File docBase = new File(getTemporaryDirectory(), "compressed");
+        Assert.assertTrue(docBase.mkdirs());
+        addDeleteOnTearDown(docBase);
+        Files.writeString(new File(docBase, "index.html").toPath(), "<p>Compressible</p>\n".repeat(1000));
+        Context ctx = tomcat.addContext("/test", docBase.getAbsolutePath());
+        tomcat.start();
+
+        // Force the compressed variant to be written to a file
+        StandardRoot root = (StandardRoot) ctx.getResources();
+        root.setCacheObjectMaxSize(0);
+
+        CachedResource cachedResource = (CachedResource) root.getResource("/index.html");
+        CompressedResource compressed = cachedResource.leaseCompressedResource("gzip");
+        Assert.assertNotNull(compressed);
+        Assert.assertNull(compressed.getContent());
+
+        File spillDir = new File((File) ctx.getServletContext().getAttribute(ServletContext.TEMPDIR),
+                "compressed-resources");
+        File[] spillFiles = spillDir.listFiles();
+        Assert.assertNotNull(spillFiles);
+        Assert.assertEquals(1, spillFiles.length);
+
+        // Removing the variant from the cache must not delete the file while it is in use
+        root.getCache().clear();
+        Assert.assertTrue(spillFiles[0].isFile());
+        byte[] uncompressed;
+        try (InputStream is = new GZIPInputStream(compressed.getInputStream())) {
+            uncompressed = is.readAllBytes();
+        }
+        byte[] original;
+        try (InputStream is = cachedResource.getInputStream()) {
+            original = is.readAllBytes();
+        }
+        Assert.assertArrayEquals(original, uncompressed);
+
+        // The file is deleted once the last reference is released
+        compressed.release();
+        Assert.assertFalse(spillFiles[0].exists());
+    }
+
+
+    @Test
+    public void testResourceSetStatistics() throws Exception {
+        Tomcat tomcat = getTomcatInstance();
+        File docBase = new File("test/webresources/dir1");
+        Context ctx = tomcat.addWebapp("/test", docBase.getAbsolutePath());
+        tomcat.start();
+
+        StandardRoot root = (StandardRoot) ctx.getResources();
+        root.setCacheEvictionPolicy("tinylfu");
+        Cache cache = root.getCache();
+
+        WebResource resource = root.getResource("/f1.txt");
+        Assert.assertTrue(resource instanceof CachedResource);
+        WebResourceSet resourceSet = ((CachedResource) resource).getResourceSet();
+        Assert.assertNotNull(resourceSet);
+        long hits = cache.getHitCount(resourceSet);
+        long misses = cache.getMissCount(resourceSet);
+
+        Assert.assertSame(resource, root.getResource("/f1.txt"));
+        root.getResource("/f2.txt");
+
+        Assert.assertEquals(hits + 1, cache.getHitCount(resourceSet));
+        Assert.assertEquals(misses + 1, cache.getMissCount(resourceSet));
+        Assert.assertTrue(cache.getResourceSetStatistics().length > 0);
+
+        // Resources that do not exist are not attributed to a resource set
+        WebResource missing = root.getResource("/does-not-exist.txt");
+        Assert.assertNull(((CachedResource) missing).getResourceSet());
+    }
+
+
+    @Test
+    public void testMappedContent() throws Exception {
+        Tomcat tomcat = getTomcatInstance();
+        File docBase = new File("test/webapp");
+        Context ctx = tomcat.addWebapp("/test", docBase.getAbsolutePath());
+        tomcat.start();
+
+        StandardRoot root = (StandardRoot) ctx.getResources();
+        // Treat all resources as too large to cache on the heap
+        root.setCacheObjectMaxSize(0);
+        Cache cache = root.getCache();
+
+        // Disabled by default
+        CachedResource resource = (CachedResource) root.getResource("/index.html");
+        Assert.assertNull(resource.getContent());
+        Assert.assertNull(resource.leaseMappedContent());
+        root.getCache().clear();
+
+        root.setCacheMappedMaxSize(1024);
+        resource = (CachedResource) root.getResource("/index.html");
+        MappedContent mappedContent = resource.leaseMappedContent();
+        Assert.assertNotNull(mappedContent);
+        Assert.assertEquals(resource.getContentLength(), mappedContent.getSize());
+        Assert.assertTrue(cache.getMappedSize() >= 0);
+
+        byte[] expected;
+        try (InputStream is = resource.getInputStream()) {
+            expected = is.readAllBytes();
+        }
+        ByteBuffer buffer = mappedContent.getBuffer();
+        byte[] actual = new byte[buffer.remaining()];
+        buffer.get(actual);
+        Assert.assertArrayEquals(expected, actual);
+
+        // Mapped once
+        MappedContent mappedContent2 = resource.leaseMappedContent();
+        Assert.assertSame(mappedContent, mappedContent2);
+        mappedContent2.release();
+
+        // Removing the cache entry does not unmap content that is in use
+        cache.clear();
+        Assert.assertFalse(mappedContent.isUnmapped());
+        Assert.assertNull(resource.leaseMappedContent());
+        mappedContent.release();
+        Assert.assertTrue(mappedContent.isUnmapped());
+        Assert.assertEquals(0, cache.getMappedSize());
+    }
 }
@@ -0,0 +1,62 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.catalina.webresources;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+public class TestFrequencySketch {
+
+    @Test
+    public void testIncrement() {
+        FrequencySketch sketch = new FrequencySketch();
+        sketch.ensureCapacity(512);
+        int hash = "/index.html".hashCode();
+        Assert.assertEquals(0, sketch.frequency(hash));
+        for (int i = 1; i <= 20; i++) {
+            sketch.increment(hash);
+            Assert.assertEquals(Math.min(i, 15), sketch.frequency(hash));
+        }
+    }
+
+
+    @Test
+    public void testAging() {
+        FrequencySketch sketch = new FrequencySketch();
+        sketch.ensureCapacity(16);
+        int hash = "/index.html".hashCode();
+        for (int i = 0; i < 8; i++) {
+            sketch.increment(hash);
+        }
+        Assert.assertEquals(8, sketch.frequency(hash));
+        // Enough other items to trigger at least one reset
+        for (int i = 0; i < 1000; i++) {
+            sketch.increment(("/other" + i).hashCode());
+        }
+        Assert.assertTrue(sketch.frequency(hash) < 8);
+    }
+
+
+    @Test
+    public void testClear() {
+        FrequencySketch sketch = new FrequencySketch();
+        int hash = "/index.html".hashCode();
+        sketch.increment(hash);
+        sketch.clear();
+        Assert.assertEquals(0, sketch.frequency(hash));
+    }
+}
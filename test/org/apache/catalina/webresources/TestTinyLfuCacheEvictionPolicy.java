@@ -0,0 +1,132 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.catalina.webresources;
+
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+public class TestTinyLfuCacheEvictionPolicy {
+
+    private static final long MAX_SIZE = 100 * 1024;
+
+
+    @Test
+    public void testSizeLimit() {
+        TinyLfuCacheEvictionPolicy policy = new TinyLfuCacheEvictionPolicy();
+        policy.setMaxSize(MAX_SIZE);
+        Set<CachedResource> cached = new HashSet<>();
+        for (int i = 0; i < 1000; i++) {
+            CachedResource resource = create("/file" + i);
+            cached.add(resource);
+            cached.removeAll(policy.add(resource, 1024));
+            Assert.assertTrue(policy.getSize() <= MAX_SIZE);
+        }
+        Assert.assertEquals(policy.getSize(), cached.size() * 1024L);
+    }
+
+
+    @Test
+    public void testLargeEntryNotAdmitted() {
+        TinyLfuCacheEvictionPolicy policy = new TinyLfuCacheEvictionPolicy();
+        policy.setMaxSize(MAX_SIZE);
+
+        // Fill the cache with frequently used small entries
+        CachedResource[] hot = new CachedResource[90];
+        for (int i = 0; i < hot.length; i++) {
+            hot[i] = create("/hot" + i);
+            Assert.assertTrue(policy.add(hot[i], 1024).isEmpty());
+        }
+        for (int j = 0; j < 5; j++) {
+            for (CachedResource resource : hot) {
+                policy.recordAccess(resource);
+            }
+        }
+
+        // A large entry that would displace many of the small entries
+        CachedResource large = create("/large.pdf");
+        List<CachedResource> victims = policy.add(large, 50 * 1024);
+        Assert.assertEquals(1, victims.size());
+        Assert.assertSame(large, victims.get(0));
+
+        // The large entry is admitted once it is more popular
+        for (int j = 0; j < 10; j++) {
+            policy.recordAccess(large);
+        }
+        victims = policy.add(large, 50 * 1024);
+        Assert.assertFalse(victims.contains(large));
+        Assert.assertTrue(policy.getSize() <= MAX_SIZE);
+    }
+
+
+    @Test
+    public void testPopularEntriesRetained() {
+        TinyLfuCacheEvictionPolicy policy = new TinyLfuCacheEvictionPolicy();
+        policy.setMaxSize(MAX_SIZE);
+
+        CachedResource[] hot = new CachedResource[20];
+        for (int i = 0; i < hot.length; i++) {
+            hot[i] = create("/hot" + i);
+            policy.add(hot[i], 1024);
+            policy.recordAccess(hot[i]);
+            policy.recordAccess(hot[i]);
+        }
+
+        // Scan of entries that are only used once
+        Set<CachedResource> evicted = new HashSet<>();
+        for (int i = 0; i < 1000; i++) {
+            evicted.addAll(policy.add(create("/scan" + i), 1024));
+        }
+
+        for (CachedResource resource : hot) {
+            Assert.assertFalse(resource.getWebappPath(), evicted.contains(resource));
+        }
+    }
+
+
+    @Test
+    public void testRemoveAndEvict() {
+        TinyLfuCacheEvictionPolicy policy = new TinyLfuCacheEvictionPolicy();
+        policy.setMaxSize(MAX_SIZE);
+
+        CachedResource a = create("/a");
+        CachedResource b = create("/b");
+        policy.add(a, 1024);
+        policy.add(b, 2048);
+        Assert.assertEquals(3072, policy.getSize());
+
+        // Different instance for the same path is ignored
+        policy.remove(create("/a"));
+        Assert.assertEquals(3072, policy.getSize());
+
+        policy.remove(a);
+        Assert.assertEquals(2048, policy.getSize());
+
+        List<CachedResource> victims = policy.evict(0);
+        Assert.assertEquals(1, victims.size());
+        Assert.assertSame(b, victims.get(0));
+        Assert.assertEquals(0, policy.getSize());
+    }
+
+
+    private static CachedResource create(String path) {
+        return new CachedResource(null, null, path, 5000, 1024, false);
+    }
+}
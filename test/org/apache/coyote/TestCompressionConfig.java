@@ -71,6 +71,7 @@ public class TestCompressionConfig {
     @Parameter(3)
     public Boolean useTE;
 
+    @SuppressWarnings("deprecation")
     @Test
     public void testUseCompression() throws Exception {
 
@@ -114,6 +115,36 @@ public class TestCompressionConfig {
     }
 
 
+    @Test
+    public void testGetCompressionProvider() throws Exception {
+
+        CompressionConfig compressionConfig = new CompressionConfig();
+        // Skip length and MIME type checks
+        compressionConfig.setCompression("force");
+
+        Request request = new Request();
+        Response response = new Response();
+
+        for (String header : headers) {
+            if (useTE.booleanValue()) {
+                request.getMimeHeaders().addValue("TE").setString(header);
+            } else {
+                request.getMimeHeaders().addValue("accept-encoding").setString(header);
+            }
+        }
+
+        if (eTag != null) {
+            response.getMimeHeaders().addValue("ETag").setString(eTag);
+        }
+
+        CompressionProvider provider = compressionConfig.getCompressionProvider(request, response);
+        Assert.assertEquals(compress, Boolean.valueOf(provider != null));
+        if (provider != null) {
+            Assert.assertEquals("gzip", provider.getEncoding());
+        }
+    }
+
+
     @Test
     public void testNoCompressionEncodings() {
         CompressionConfig config = new CompressionConfig();
@@ -0,0 +1,122 @@
+/*
+ *  Licensed to the Apache Software Foundation (ASF) under one or more
+ *  contributor license agreements.  See the NOTICE file distributed with
+ *  this work for additional information regarding copyright ownership.
+ *  The ASF licenses this file to You under the Apache License, Version 2.0
+ *  (the "License"); you may not use this file except in compliance with
+ *  the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package org.apache.coyote;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+public class TestCompressionConfigAdaptive {
+
+    @Test
+    public void testLevelNotAdaptive() {
+        CompressionConfig config = new CompressionConfig();
+        config.setCompressorLevel(9);
+        config.setLoad(1);
+        Assert.assertEquals(9, config.getCurrentCompressorLevel());
+    }
+
+
+    @Test
+    public void testLevel() {
+        CompressionConfig config = new CompressionConfig();
+        config.setAdaptiveCompression(true);
+        config.setCompressorLevel(9);
+        config.setMinCompressorLevel(1);
+        config.setCompressionLoadThreshold(0.5);
+        config.setCompressionBypassThreshold(0.9);
+
+        config.setLoad(0);
+        Assert.assertEquals(9, config.getCurrentCompressorLevel());
+        config.setLoad(0.5);
+        Assert.assertEquals(9, config.getCurrentCompressorLevel());
+        config.setLoad(0.7);
+        Assert.assertEquals(5, config.getCurrentCompressorLevel());
+        config.setLoad(0.9);
+        Assert.assertEquals(1, config.getCurrentCompressorLevel());
+        config.setLoad(1);
+        Assert.assertEquals(1, config.getCurrentCompressorLevel());
+        config.setLoad(0.1);
+        Assert.assertEquals(9, config.getCurrentCompressorLevel());
+    }
+
+
+    @Test
+    public void testLevelDefault() {
+        CompressionConfig config = new CompressionConfig();
+        config.setAdaptiveCompression(true);
+
+        config.setLoad(0);
+        Assert.assertEquals(-1, config.getCurrentCompressorLevel());
+        // Reduced from the default level of 6
+        config.setLoad(0.7);
+        Assert.assertEquals(4, config.getCurrentCompressorLevel());
+    }
+
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testInvalidLevel() {
+        CompressionConfig config = new CompressionConfig();
+        config.setCompressorLevel(10);
+    }
+
+
+    @Test
+    public void testBypass() {
+        CompressionConfig config = new CompressionConfig();
+        config.setCompression("on");
+        config.setCompressionMinSize(0);
+        config.setAdaptiveCompression(true);
+
+        config.setLoad(0.95);
+        Assert.assertNull(config.getCompressionProvider(createRequest(), createResponse()));
+        Assert.assertEquals(1, config.getCompressionBypassCount());
+        Assert.assertEquals(0, config.getCompressedCount());
+
+        config.setLoad(0.2);
+        Response response = createResponse();
+        Assert.assertNotNull(config.getCompressionProvider(createRequest(), response));
+        Assert.assertEquals("gzip", response.getMimeHeaders().getHeader("Content-Encoding"));
+        Assert.assertEquals(1, config.getCompressionBypassCount());
+        Assert.assertEquals(1, config.getCompressedCount());
+    }
+
+
+    @Test
+    public void testBypassForce() {
+        CompressionConfig config = new CompressionConfig();
+        config.setCompression("force");
+        config.setAdaptiveCompression(true);
+
+        config.setLoad(1);
+        Assert.assertNotNull(config.getCompressionProvider(createRequest(), new Response()));
+        Assert.assertEquals(0, config.getCompressionBypassCount());
+    }
+
+
+    private static Request createRequest() {
+        Request request = new Request();
+        request.getMimeHeaders().addValue("accept-encoding").setString("gzip");
+        return request;
+    }
+
+
+    private static Response createResponse() {
+        Response response = new Response();
+        response.setContentType("text/html");
+        return response;
+    }
+}
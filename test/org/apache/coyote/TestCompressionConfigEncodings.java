@@ -0,0 +1,102 @@
+/*
+ *  Licensed to the Apache Software Foundation (ASF) under one or more
+ *  contributor license agreements.  See the NOTICE file distributed with
+ *  this work for additional information regarding copyright ownership.
+ *  The ASF licenses this file to You under the Apache License, Version 2.0
+ *  (the "License"); you may not use this file except in compliance with
+ *  the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package org.apache.coyote;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+
+import org.junit.Assert;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.junit.runners.Parameterized;
+import org.junit.runners.Parameterized.Parameter;
+
+/*
+ * Tests the selection of the content encoding when multiple content encodings
+ * are configured.
+ */
+@RunWith(Parameterized.class)
+public class TestCompressionConfigEncodings {
+
+    @Parameterized.Parameters(name = "{index}: compressionEncodings[{0}], accept-encoding[{1}], expected[{2}]")
+    public static Collection<Object[]> parameters() {
+        List<Object[]> parameterSets = new ArrayList<>();
+
+        // Default configuration
+        parameterSets.add(new Object[] { null, "gzip, deflate", "gzip" });
+        parameterSets.add(new Object[] { null, "deflate", null });
+        parameterSets.add(new Object[] { null, "gzip;q=0", null });
+
+        // Server preference is used for equal quality values
+        parameterSets.add(new Object[] { "gzip,deflate", "gzip, deflate", "gzip" });
+        parameterSets.add(new Object[] { "deflate,gzip", "gzip, deflate", "deflate" });
+        parameterSets.add(new Object[] { "deflate, gzip", "gzip;q=0.5, deflate;q=0.5", "deflate" });
+
+        // Client quality values take precedence over server preference
+        parameterSets.add(new Object[] { "gzip,deflate", "gzip;q=0.5, deflate", "deflate" });
+        parameterSets.add(new Object[] { "gzip,deflate", "gzip;q=0, deflate;q=0.1", "deflate" });
+        parameterSets.add(new Object[] { "gzip,deflate", "gzip;q=0, deflate;q=0", null });
+
+        // Wildcard
+        parameterSets.add(new Object[] { "gzip,deflate", "*", "gzip" });
+        parameterSets.add(new Object[] { "gzip,deflate", "gzip;q=0, *", "deflate" });
+        parameterSets.add(new Object[] { "gzip,deflate", "deflate;q=0.5, *;q=0.8", "gzip" });
+        parameterSets.add(new Object[] { "gzip,deflate", "*;q=0", null });
+
+        // Case insensitive
+        parameterSets.add(new Object[] { "deflate,gzip", "GZIP", "gzip" });
+
+        // Encodings without a provider are ignored
+        parameterSets.add(new Object[] { "unknown,gzip", "unknown, gzip;q=0.5", "gzip" });
+        parameterSets.add(new Object[] { "unknown", "unknown", null });
+
+        return parameterSets;
+    }
+
+    @Parameter(0)
+    public String compressionEncodings;
+    @Parameter(1)
+    public String acceptEncoding;
+    @Parameter(2)
+    public String expected;
+
+    @Test
+    public void testSelection() throws Exception {
+        CompressionConfig compressionConfig = new CompressionConfig();
+        // Skip length and MIME type checks
+        compressionConfig.setCompression("force");
+        if (compressionEncodings != null) {
+            compressionConfig.setCompressionEncodings(compressionEncodings);
+        }
+
+        Request request = new Request();
+        Response response = new Response();
+        request.getMimeHeaders().addValue("accept-encoding").setString(acceptEncoding);
+
+        CompressionProvider provider = compressionConfig.getCompressionProvider(request, response);
+
+        if (expected == null) {
+            Assert.assertNull(provider);
+            Assert.assertNull(response.getMimeHeaders().getHeader("Content-Encoding"));
+        } else {
+            Assert.assertNotNull(provider);
+            Assert.assertEquals(expected, provider.getEncoding());
+            Assert.assertEquals(expected, response.getMimeHeaders().getHeader("Content-Encoding"));
+        }
+    }
+}
@@ -0,0 +1,117 @@
+/*
+ *  Licensed to the Apache Software Foundation (ASF) under one or more
+ *  contributor license agreements.  See the NOTICE file distributed with
+ *  this work for additional information regarding copyright ownership.
+ *  The ASF licenses this file to You under the Apache License, Version 2.0
+ *  (the "License"); you may not use this file except in compliance with
+ *  the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package org.apache.coyote.http11.filters;
+
+import java.io.ByteArrayInputStream;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.InflaterInputStream;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import org.apache.coyote.CompressionConfig;
+import org.apache.coyote.Response;
+
+public class TestCompressionOutputFilter {
+
+    private static final byte[] DATA =
+            "Hello there tomcat developers, hello there tomcat developers, hello there".getBytes(StandardCharsets.UTF_8);
+
+
+    @Test
+    public void testGzip() throws Exception {
+        byte[] compressed = compress("gzip");
+        try (InputStream is = new GZIPInputStream(new ByteArrayInputStream(compressed))) {
+            Assert.assertArrayEquals(DATA, is.readAllBytes());
+        }
+    }
+
+
+    @Test
+    public void testDeflate() throws Exception {
+        byte[] compressed = compress("deflate");
+        try (InputStream is = new InflaterInputStream(new ByteArrayInputStream(compressed))) {
+            Assert.assertArrayEquals(DATA, is.readAllBytes());
+        }
+    }
+
+
+    @Test
+    public void testRecycle() throws Exception {
+        // Re-use the same filter with a different provider
+        CompressionOutputFilter filter = new CompressionOutputFilter();
+        filter.setProvider(CompressionConfig.getProvider("deflate"));
+        compress(filter);
+        filter.recycle();
+        filter.setProvider(CompressionConfig.getProvider("gzip"));
+        byte[] compressed = compress(filter);
+        try (InputStream is = new GZIPInputStream(new ByteArrayInputStream(compressed))) {
+            Assert.assertArrayEquals(DATA, is.readAllBytes());
+        }
+    }
+
+
+    @Test
+    public void testStatistics() throws Exception {
+        CompressionConfig config = new CompressionConfig();
+        config.setCompressorLevel(1);
+        CompressionOutputFilter filter = new CompressionOutputFilter(CompressionConfig.getProvider("gzip"));
+        filter.setCompressionConfig(config);
+
+        byte[] compressed = compress(filter);
+        try (InputStream is = new GZIPInputStream(new ByteArrayInputStream(compressed))) {
+            Assert.assertArrayEquals(DATA, is.readAllBytes());
+        }
+
+        Assert.assertEquals(DATA.length, config.getCompressionBytesIn());
+        Assert.assertEquals(compressed.length, config.getCompressionBytesOut());
+        Assert.assertTrue(config.getCompressionTime() > 0);
+
+        filter.recycle();
+        compress(filter);
+        Assert.assertEquals(2L * DATA.length, config.getCompressionBytesIn());
+
+        config.resetCompressionStatistics();
+        Assert.assertEquals(0, config.getCompressionBytesIn());
+    }
+
+
+    private static byte[] compress(String encoding) throws Exception {
+        return compress(new CompressionOutputFilter(CompressionConfig.getProvider(encoding)));
+    }
+
+
+    private static byte[] compress(CompressionOutputFilter filter) throws Exception {
+        Response res = new Response();
+        TesterOutputBuffer tob = new TesterOutputBuffer(res, 8 * 1024);
+        res.setOutputBuffer(tob);
+
+        tob.addFilter(filter);
+        tob.addActiveFilter(filter);
+
+        // Write in two parts with a flush in between
+        tob.doWrite(ByteBuffer.wrap(DATA, 0, 10));
+        tob.flush();
+        tob.doWrite(ByteBuffer.wrap(DATA, 10, DATA.length - 10));
+        tob.end();
+
+        return tob.toByteArray();
+    }
+}
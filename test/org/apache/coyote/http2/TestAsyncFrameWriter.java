@@ -0,0 +1,214 @@
+/*
+ *  Licensed to the Apache Software Foundation (ASF) under one or more
+ *  contributor license agreements.  See the NOTICE file distributed with
+ *  this work for additional information regarding copyright ownership.
+ *  The ASF licenses this file to You under the Apache License, Version 2.0
+ *  (the "License"); you may not use this file except in compliance with
+ *  the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package org.apache.coyote.http2;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.CompletionHandler;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import org.apache.coyote.http2.AsyncFrameWriter.PendingFrames;
+import org.apache.tomcat.util.net.SocketWrapperBase.CompletionState;
+
+public class TestAsyncFrameWriter {
+
+    @Test
+    public void testBatching() throws Exception {
+        TesterFrameWriter writer = new TesterFrameWriter();
+        writer.blockFirstWrite();
+
+        PendingFrames first = createFrames(false);
+        PendingFrames second = createFrames(true);
+        PendingFrames third = createFrames(false);
+
+        Thread t = writeInThread(writer, first);
+        Assert.assertTrue(writer.firstWriteStarted.await(10, TimeUnit.SECONDS));
+
+        // The first write is in progress so these frames are queued and written together once it completes
+        writer.write(second, false);
+        writer.write(third, false);
+        Assert.assertEquals(1, writer.writes.size());
+
+        writer.firstWriteRelease.countDown();
+        t.join();
+
+        Assert.assertEquals(2, writer.writes.size());
+        Assert.assertArrayEquals(first.buffers, writer.writes.get(0).contents);
+        Assert.assertArrayEquals(new ByteBuffer[] { second.buffers[0], third.buffers[0] },
+                writer.writes.get(1).contents);
+
+        Assert.assertTrue(first.isReusable());
+        Assert.assertTrue(second.isReusable());
+        Assert.assertTrue(third.isReusable());
+    }
+
+
+    @Test
+    public void testBufferReuseAfterIncompleteWrite() {
+        TesterFrameWriter writer = new TesterFrameWriter();
+
+        // The buffers may still be in use if the write did not complete
+        writer.nextState = CompletionState.NOT_DONE;
+        PendingFrames first = createFrames(true);
+        writer.write(first, true);
+        Assert.assertFalse(first.isReusable());
+        Assert.assertNull(first.getError());
+
+        writer.nextState = CompletionState.DONE;
+        PendingFrames second = createFrames(true);
+        writer.write(second, true);
+        Assert.assertTrue(second.isReusable());
+
+        PendingFrames third = createFrames(true);
+        writer.write(third, true);
+        Assert.assertTrue(third.isReusable());
+
+        Assert.assertEquals(3, writer.writes.size());
+        // The array passed to the incomplete write must not be re-used or modified
+        Assert.assertNotSame(writer.writes.get(0).buffers, writer.writes.get(1).buffers);
+        Assert.assertSame(first.buffers[0], writer.writes.get(0).buffers[0]);
+        // The array passed to a completed write is re-used once it has been cleared
+        Assert.assertSame(writer.writes.get(1).buffers, writer.writes.get(2).buffers);
+        Assert.assertNull(writer.writes.get(2).buffers[0]);
+    }
+
+
+    @Test
+    public void testErrorPropagation() throws Exception {
+        TesterFrameWriter writer = new TesterFrameWriter();
+        writer.blockFirstWrite();
+
+        PendingFrames first = createFrames(false);
+        PendingFrames stream = createFrames(true);
+        PendingFrames connection = createFrames(false);
+
+        Thread t = writeInThread(writer, first);
+        Assert.assertTrue(writer.firstWriteStarted.await(10, TimeUnit.SECONDS));
+
+        // Stream and connection frames are written in the same batch and that write fails
+        writer.write(stream, false);
+        writer.write(connection, false);
+        IOException ioe = new IOException();
+        writer.nextError = ioe;
+
+        writer.firstWriteRelease.countDown();
+        t.join();
+
+        Assert.assertEquals(2, writer.writes.size());
+        Assert.assertNull(first.getError());
+        Assert.assertTrue(first.isReusable());
+
+        // The error is recorded against each frame so it is handled according to the type of the frame
+        Assert.assertSame(ioe, stream.getError());
+        Assert.assertTrue(stream.isApplication());
+        Assert.assertFalse(stream.isReusable());
+        Assert.assertSame(ioe, connection.getError());
+        Assert.assertFalse(connection.isApplication());
+        Assert.assertFalse(connection.isReusable());
+        Assert.assertEquals(List.of(ioe), writer.connectionErrors);
+
+        // The error is not reported for subsequent writes
+        PendingFrames next = createFrames(true);
+        writer.write(next, true);
+        Assert.assertNull(next.getError());
+        Assert.assertTrue(next.isReusable());
+        Assert.assertEquals(1, writer.connectionErrors.size());
+    }
+
+
+    private static PendingFrames createFrames(boolean application) {
+        return new PendingFrames(application, ByteBuffer.allocate(9));
+    }
+
+
+    private static Thread writeInThread(AsyncFrameWriter writer, PendingFrames frames) {
+        Thread t = new Thread(() -> writer.write(frames, true));
+        t.start();
+        return t;
+    }
+
+
+    private static class TesterFrameWriter extends AsyncFrameWriter {
+
+        private final List<Throwable> connectionErrors;
+        private final List<Write> writes = new ArrayList<>();
+
+        private volatile CompletionState nextState = CompletionState.DONE;
+        private volatile Throwable nextError;
+        private CountDownLatch firstWriteStarted;
+        private CountDownLatch firstWriteRelease;
+
+        TesterFrameWriter() {
+            this(new ArrayList<>());
+        }
+
+        private TesterFrameWriter(List<Throwable> connectionErrors) {
+            super(new CompletionHandler<>() {
+                @Override
+                public void completed(Long result, Void attachment) {
+                }
+
+                @Override
+                public void failed(Throwable t, Void attachment) {
+                    connectionErrors.add(t);
+                }
+            });
+            this.connectionErrors = connectionErrors;
+        }
+
+        void blockFirstWrite() {
+            firstWriteStarted = new CountDownLatch(1);
+            firstWriteRelease = new CountDownLatch(1);
+        }
+
+        @Override
+        protected CompletionState writeBuffers(ByteBuffer[] buffers, int length,
+                CompletionHandler<Long,Void> handler) {
+            synchronized (writes) {
+                writes.add(new Write(buffers, Arrays.copyOf(buffers, length)));
+            }
+            if (writes.size() == 1 && firstWriteStarted != null) {
+                // Simulate a write that blocks on the network
+                firstWriteStarted.countDown();
+                try {
+                    Assert.assertTrue(firstWriteRelease.await(10, TimeUnit.SECONDS));
+                } catch (InterruptedException e) {
+                    throw new IllegalStateException(e);
+                }
+                return CompletionState.DONE;
+            }
+            Throwable t = nextError;
+            if (t != null) {
+                nextError = null;
+                handler.failed(t, null);
+                return CompletionState.ERROR;
+            }
+            return nextState;
+        }
+    }
+
+
+    private record Write(ByteBuffer[] buffers, ByteBuffer[] contents) {
+    }
+}
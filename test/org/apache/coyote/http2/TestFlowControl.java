@@ -17,21 +17,41 @@
 package org.apache.coyote.http2;
 
 import java.io.IOException;
+import java.io.InputStream;
 import java.nio.ByteBuffer;
+import java.util.Set;
 import java.util.logging.Level;
 import java.util.logging.Logger;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+
+import jakarta.servlet.ServletException;
+import jakarta.servlet.http.HttpServlet;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
 
 import org.junit.Assert;
 import org.junit.Test;
 
+import org.apache.catalina.Context;
+import org.apache.catalina.startup.Tomcat;
 import org.apache.tomcat.util.http.Method;
 import org.apache.tomcat.util.http.MimeHeaders;
+import org.apache.tomcat.util.modeler.Registry;
 import org.apache.tomcat.util.res.StringManager;
 
 public class TestFlowControl extends Http2TestBase {
 
     private static final StringManager sm = StringManager.getManager(TestFlowControl.class);
 
+    private static final Pattern STREAM_3_WINDOW_UPDATE = Pattern.compile("^3-WindowSize-\\[(\\d+)\\]$",
+            Pattern.MULTILINE);
+    private static final Pattern WINDOW_UPDATE = Pattern.compile("^(0|3)-WindowSize-\\[(\\d+)\\]$",
+            Pattern.MULTILINE);
+
     /*
      * https://tomcat.markmail.org/thread/lijsebphms7hr3zj
      */
@@ -126,6 +146,272 @@ public class TestFlowControl extends Http2TestBase {
     }
 
 
+    @Test
+    public void testWindowTuning() throws Exception {
+        enableHttp2();
+        http2Protocol.setMaxWindowSize(1024 * 1024);
+        configureAndStartWebApplication();
+        openClientConnection(false);
+        doHttpUpgrade();
+        sendClientPreface();
+        validateHttp2InitialResponse();
+
+        byte[] headersFrameHeader = new byte[9];
+        ByteBuffer headersPayload = ByteBuffer.allocate(128);
+        byte[] dataFrameHeader = new byte[9];
+        ByteBuffer dataPayload = ByteBuffer.allocate(16 * 1024);
+        buildPostRequest(headersFrameHeader, headersPayload, false, null, -1, "/simple", dataFrameHeader, dataPayload,
+                null, false, 3);
+        writeFrame(headersFrameHeader, headersPayload);
+
+        // The first DATA frame triggers a PING to start the sample
+        dataFrameHeader[4] = 0;
+        dataPayload.position(0);
+        dataPayload.limit(dataPayload.capacity());
+        ByteUtil.setThreeBytes(dataFrameHeader, 0, dataPayload.capacity());
+        writeFrame(dataFrameHeader, dataPayload);
+
+        // Use the rest of the initial 64k-1 window before the PING is acknowledged
+        writeFrame(dataFrameHeader, dataPayload);
+        writeFrame(dataFrameHeader, dataPayload);
+        ByteUtil.setThreeBytes(dataFrameHeader, 0, dataPayload.capacity() - 1);
+        writeFrame(dataFrameHeader, dataPayload, 0, dataPayload.capacity() - 1);
+
+        // 48k-1 received in one round trip so the window grows to 96k-2
+        waitForTrace("0-Ping-[0,0,0,0,0,0,0,2]\n");
+        waitForTrace("0-WindowSize-[32767]\n");
+
+        /*
+         * The stream advertises the additional window with its next update. Depending on timing, the update for the
+         * final byte may remain pending so wait for the rest of the request body plus the additional window.
+         */
+        ByteUtil.setThreeBytes(dataFrameHeader, 0, 1);
+        dataFrameHeader[4] = 0x01;
+        writeFrame(dataFrameHeader, dataPayload, 0, 1);
+        int streamIncrement = 0;
+        while (true) {
+            Matcher m = STREAM_3_WINDOW_UPDATE.matcher(output.getTrace());
+            while (m.find()) {
+                streamIncrement += Integer.parseInt(m.group(1));
+            }
+            output.clearTrace();
+            if (streamIncrement >= 64 * 1024 - 1 + 32767) {
+                break;
+            }
+            parser.readFrame();
+        }
+
+        MBeanServer mbeanServer = Registry.getRegistry(null).getMBeanServer();
+        Set<ObjectName> onames = mbeanServer.queryNames(new ObjectName("*:Connection=*,*"), null);
+        Assert.assertEquals(1, onames.size());
+        ObjectName oname = onames.iterator().next();
+        Assert.assertEquals(Integer.valueOf(98302), mbeanServer.getAttribute(oname, "windowSize"));
+    }
+
+
+    /*
+     * Grow the receive window while the application is reading the request body and check that the body is not
+     * corrupted.
+     */
+    @Test
+    public void testWindowTuningWhileReading() throws Exception {
+        enableHttp2();
+        http2Protocol.setMaxWindowSize(1024 * 1024);
+        Context ctxt = getProgrammaticRootContext();
+        Tomcat.addServlet(ctxt, "simple", new SimpleServlet());
+        ctxt.addServletMappingDecoded("/simple", "simple");
+        Tomcat.addServlet(ctxt, "verify", new VerifyBodyServlet());
+        ctxt.addServletMappingDecoded("/verify", "verify");
+        getTomcatInstance().start();
+        openClientConnection(false);
+        doHttpUpgrade();
+        sendClientPreface();
+        validateHttp2InitialResponse();
+        output.setTraceBody(true);
+
+        byte[] headersFrameHeader = new byte[9];
+        ByteBuffer headersPayload = ByteBuffer.allocate(128);
+        byte[] dataFrameHeader = new byte[9];
+        ByteBuffer dataPayload = ByteBuffer.allocate(16 * 1024);
+        buildPostRequest(headersFrameHeader, headersPayload, false, null, -1, "/verify", dataFrameHeader, dataPayload,
+                null, false, 3);
+        writeFrame(headersFrameHeader, headersPayload);
+
+        int bodySize = 1024 * 1024;
+        int sent = 0;
+        long connectionWindow = 64 * 1024 - 1;
+        long streamWindow = 64 * 1024 - 1;
+        while (sent < bodySize) {
+            int len = (int) Math.min(Math.min(connectionWindow, streamWindow), Math.min(16 * 1024, bodySize - sent));
+            if (len > 0) {
+                for (int i = 0; i < len; i++) {
+                    dataPayload.put(i, VerifyBodyServlet.expected(sent + i));
+                }
+                ByteUtil.setThreeBytes(dataFrameHeader, 0, len);
+                dataFrameHeader[4] = (byte) (sent + len == bodySize ? 0x01 : 0x00);
+                writeFrame(dataFrameHeader, dataPayload, 0, len);
+                sent += len;
+                connectionWindow -= len;
+                streamWindow -= len;
+            } else {
+                parser.readFrame();
+                Matcher m = WINDOW_UPDATE.matcher(output.getTrace());
+                while (m.find()) {
+                    if ("0".equals(m.group(1))) {
+                        connectionWindow += Integer.parseInt(m.group(2));
+                    } else {
+                        streamWindow += Integer.parseInt(m.group(2));
+                    }
+                }
+                output.clearTrace();
+            }
+        }
+
+        String expected = "3-Body-OK " + bodySize + "\n";
+        StringBuilder trace = new StringBuilder();
+        while (!trace.toString().contains("3-EndOfStream")) {
+            parser.readFrame();
+            trace.append(output.getTrace());
+            output.clearTrace();
+        }
+        Assert.assertTrue(trace.toString(), trace.toString().contains(expected));
+
+        // Make sure the window was increased while the body was being read
+        MBeanServer mbeanServer = Registry.getRegistry(null).getMBeanServer();
+        Set<ObjectName> onames = mbeanServer.queryNames(new ObjectName("*:Connection=*,*"), null);
+        Assert.assertEquals(1, onames.size());
+        int windowSize = ((Integer) mbeanServer.getAttribute(onames.iterator().next(), "windowSize")).intValue();
+        Assert.assertTrue(windowSize > 64 * 1024 - 1);
+    }
+
+
+    /*
+     * Tuning relies on the round trip time of PING frames so the receive window must not be tuned if the server is not
+     * permitted to initiate PING frames.
+     */
+    @Test
+    public void testWindowTuningInitiatePingDisabled() throws Exception {
+        enableHttp2();
+        http2Protocol.setMaxWindowSize(1024 * 1024);
+        http2Protocol.setInitiatePingDisabled(true);
+        Context ctxt = getProgrammaticRootContext();
+        Tomcat.addServlet(ctxt, "simple", new SimpleServlet());
+        ctxt.addServletMappingDecoded("/simple", "simple");
+        Tomcat.addServlet(ctxt, "verify", new VerifyBodyServlet());
+        ctxt.addServletMappingDecoded("/verify", "verify");
+        getTomcatInstance().start();
+        openClientConnection(false);
+        doHttpUpgrade();
+        sendClientPreface();
+
+        // Same as validateHttp2InitialResponse() but without the initial PING
+        parser.readFrame();
+        parser.readFrame();
+        parser.readFrame();
+        parser.readFrame();
+        Assert.assertEquals("0-Settings-[3]-[200]\n" + "0-Settings-End\n" + "0-Settings-Ack\n" +
+                getSimpleResponseTrace(1), output.getTrace());
+        output.clearTrace();
+        output.setTraceBody(true);
+
+        byte[] headersFrameHeader = new byte[9];
+        ByteBuffer headersPayload = ByteBuffer.allocate(128);
+        byte[] dataFrameHeader = new byte[9];
+        ByteBuffer dataPayload = ByteBuffer.allocate(16 * 1024);
+        buildPostRequest(headersFrameHeader, headersPayload, false, null, -1, "/verify", dataFrameHeader, dataPayload,
+                null, false, 3);
+        writeFrame(headersFrameHeader, headersPayload);
+
+        // Several times the initial window so the window would have been tuned if PING frames were permitted
+        int bodySize = 256 * 1024;
+        int sent = 0;
+        long connectionWindow = 64 * 1024 - 1;
+        long streamWindow = 64 * 1024 - 1;
+        StringBuilder trace = new StringBuilder();
+        while (sent < bodySize) {
+            int len = (int) Math.min(Math.min(connectionWindow, streamWindow), Math.min(16 * 1024, bodySize - sent));
+            if (len > 0) {
+                for (int i = 0; i < len; i++) {
+                    dataPayload.put(i, VerifyBodyServlet.expected(sent + i));
+                }
+                ByteUtil.setThreeBytes(dataFrameHeader, 0, len);
+                dataFrameHeader[4] = (byte) (sent + len == bodySize ? 0x01 : 0x00);
+                writeFrame(dataFrameHeader, dataPayload, 0, len);
+                sent += len;
+                connectionWindow -= len;
+                streamWindow -= len;
+            } else {
+                parser.readFrame();
+                Matcher m = WINDOW_UPDATE.matcher(output.getTrace());
+                while (m.find()) {
+                    if ("0".equals(m.group(1))) {
+                        connectionWindow += Integer.parseInt(m.group(2));
+                    } else {
+                        streamWindow += Integer.parseInt(m.group(2));
+                    }
+                }
+                trace.append(output.getTrace());
+                output.clearTrace();
+            }
+        }
+
+        while (!trace.toString().contains("3-EndOfStream")) {
+            parser.readFrame();
+            trace.append(output.getTrace());
+            output.clearTrace();
+        }
+        Assert.assertTrue(trace.toString(), trace.toString().contains("3-Body-OK " + bodySize + "\n"));
+        Assert.assertFalse(trace.toString(), trace.toString().contains("0-Ping-"));
+        // Neither window was increased beyond the initial window size
+        Matcher m = WINDOW_UPDATE.matcher(trace);
+        while (m.find()) {
+            Assert.assertTrue(Integer.parseInt(m.group(2)) <= 64 * 1024 - 1);
+        }
+
+        MBeanServer mbeanServer = Registry.getRegistry(null).getMBeanServer();
+        Set<ObjectName> onames = mbeanServer.queryNames(new ObjectName("*:Connection=*,*"), null);
+        Assert.assertEquals(0, onames.size());
+    }
+
+
+    private static class VerifyBodyServlet extends HttpServlet {
+
+        private static final long serialVersionUID = 1L;
+
+        static byte expected(long position) {
+            return (byte) (position % 251);
+        }
+
+        @Override
+        protected void doPost(HttpServletRequest req, HttpServletResponse resp) throws ServletException, IOException {
+            String result = "OK";
+            long position = 0;
+            // Small reads so many reads overlap with the window being increased
+            byte[] buf = new byte[1000];
+            try (InputStream is = req.getInputStream()) {
+                int read;
+                while ((read = is.read(buf)) > 0) {
+                    for (int i = 0; i < read && "OK".equals(result); i++) {
+                        if (buf[i] != expected(position + i)) {
+                            result = "Corrupt at " + (position + i);
+                        }
+                    }
+                    position += read;
+                }
+            }
+            resp.setContentType("text/plain");
+            resp.getWriter().print(result + " " + position);
+        }
+    }
+
+
+    private void waitForTrace(String expected) throws Http2Exception, IOException {
+        while (!output.getTrace().contains(expected)) {
+            parser.readFrame();
+        }
+    }
+
+
     /*
      * This might be unnecessary but given the potential for timing differences across different systems a more robust
      * approach seems prudent.
@@ -93,6 +93,58 @@ public class TestHpack {
         }
     }
 
+    @Test
+    public void testDynamicTableEviction() throws Exception {
+        doTestDynamicTable(Hpack.DEFAULT_TABLE_SIZE, -1);
+    }
+
+    @Test
+    public void testDynamicTableResize() throws Exception {
+        // Large enough to require the encoder to expand its table
+        doTestDynamicTable(16 * 1024, 16 * 1024);
+    }
+
+    @Test
+    public void testDynamicTableShrink() throws Exception {
+        doTestDynamicTable(Hpack.DEFAULT_TABLE_SIZE, 256);
+    }
+
+    private void doTestDynamicTable(int decoderTableSize, int encoderTableSize) throws HpackException {
+        HpackEncoder encoder = new HpackEncoder();
+        if (encoderTableSize > -1) {
+            encoder.setMaxTableSize(encoderTableSize);
+        }
+        MimeHeaders headers2 = new MimeHeaders();
+        HpackDecoder decoder = new HpackDecoder(decoderTableSize);
+        HeadersListener listener = new HeadersListener(headers2);
+        ByteBuffer output = ByteBuffer.allocate(1024);
+
+        for (int i = 0; i < 2000; i++) {
+            MimeHeaders headers = new MimeHeaders();
+            headers.setValue(":status").setString("200");
+            headers.setValue("content-type").setString("application/grpc");
+            // Repeated header with a value that is sometimes in the dynamic table
+            headers.setValue("x-a").setString(Integer.toString(i % 300));
+            // Unique values that churn the table
+            headers.setValue("x-request-id").setString(Integer.toString(i));
+            headers.setValue("x-b" + (i % 7)).setString("v");
+
+            output.clear();
+            Assert.assertEquals(HpackEncoder.State.COMPLETE, encoder.encode(headers, output));
+            output.flip();
+            headers2.recycle();
+            // Resets the header count limit
+            decoder.setHeaderEmitter(listener);
+            decoder.decode(output);
+
+            Assert.assertEquals(headers.size(), headers2.size());
+            for (int j = 0; j < headers.size(); j++) {
+                Assert.assertEquals(headers.getName(j).toString(), headers2.getName(j).toString());
+                Assert.assertEquals(headers.getValue(j).toString(), headers2.getValue(j).toString());
+            }
+        }
+    }
+
     @Test
     public void testHeaderValueBug60451() throws HpackException {
         doTestHeaderValueBug60451("fooébar");
@@ -132,6 +184,36 @@ public class TestHpack {
     }
 
 
+    @Test
+    public void testLargeLiteralScratchBufferReleased() throws Exception {
+        String largeValue = "a".repeat(4 * Constants.DEFAULT_MAX_HEADER_SIZE);
+        MimeHeaders headers = new MimeHeaders();
+        headers.setValue("x-large").setString(largeValue);
+        ByteBuffer output = ByteBuffer.allocate(8 * Constants.DEFAULT_MAX_HEADER_SIZE);
+        HpackEncoder encoder = new HpackEncoder();
+        encoder.encode(headers, output);
+        output.flip();
+        MimeHeaders headers2 = new MimeHeaders();
+        HpackDecoder decoder = new HpackDecoder();
+        decoder.setMaxHeaderSize(-1);
+        decoder.setHeaderEmitter(new HeadersListener(headers2));
+        decoder.decode(output);
+        Assert.assertEquals(largeValue, headers2.getHeader("x-large"));
+        // The buffer used to decode the value is not retained once it is larger than the maximum header size
+        Assert.assertTrue(decoder.getScratchCapacity() <= Constants.DEFAULT_MAX_HEADER_SIZE);
+
+        // Decoding continues to work with the replacement buffer
+        headers.recycle();
+        headers.setValue("header1").setString("value1");
+        output.clear();
+        encoder.encode(headers, output);
+        output.flip();
+        headers2.recycle();
+        decoder.decode(output);
+        Assert.assertEquals("value1", headers2.getHeader("header1"));
+    }
+
+
     private void doTestHeaderValueBug60451(String filename) throws HpackException {
         String headerName = "Content-Disposition";
         String headerValue = "attachment;filename=\"" + filename + "\"";
@@ -109,7 +109,7 @@ public class TestRfc9218 extends Http2TestBase {
         sendPriorityUpdate(19, 3, true);
         sendPriorityUpdate(21, 3, true);
 
-        // Add 3k to the connection window. Should be split between 17, 19 and 21.
+        // Add 3k to the connection window. Should be split equally between 17, 19 and 21.
         sendWindowUpdate(0, 1024 * 3);
         parser.readFrame();
         parser.readFrame();
@@ -117,41 +117,31 @@ public class TestRfc9218 extends Http2TestBase {
 
         trace = output.getTrace();
         System.out.println(trace);
-        Assert.assertTrue(trace.contains("17-Body-877\n"));
-        trace = trace.replace("17-Body-877\n", "");
-        Assert.assertTrue(trace.contains("19-Body-1170\n"));
-        trace = trace.replace("19-Body-1170\n", "");
+        Assert.assertTrue(trace.contains("17-Body-1024\n"));
+        trace = trace.replace("17-Body-1024\n", "");
+        Assert.assertTrue(trace.contains("19-Body-1024\n"));
+        trace = trace.replace("19-Body-1024\n", "");
         Assert.assertTrue(trace.contains("21-Body-1024\n"));
         trace = trace.replace("21-Body-1024\n", "");
         Assert.assertEquals(0, trace.length());
         output.clearTrace();
 
-        // 1 byte unallocated in connection window
-        // 17 - 5267 body left
-        // 19 - 7022 body left
-        // 21 - 6144 body left
+        // 17 - 5k body left
+        // 19 - 7k body left
+        // 21 - 6k body left
 
-        // Add 1 byte to the connection window. Due to rounding up, each stream should get 1 byte.
+        // Add 1 byte to the connection window. Round-robin so only the first stream should get it.
         sendWindowUpdate(0, 1);
         parser.readFrame();
-        parser.readFrame();
-        parser.readFrame();
 
         trace = output.getTrace();
         System.out.println(trace);
-        Assert.assertTrue(trace.contains("17-Body-1\n"));
-        trace = trace.replace("17-Body-1\n", "");
-        Assert.assertTrue(trace.contains("19-Body-1\n"));
-        trace = trace.replace("19-Body-1\n", "");
-        Assert.assertTrue(trace.contains("21-Body-1\n"));
-        trace = trace.replace("21-Body-1\n", "");
-        Assert.assertEquals(0, trace.length());
+        Assert.assertEquals("17-Body-1\n", trace);
         output.clearTrace();
 
-        // 1 byte over allocated in connection window
-        // 17 - 5266 body left
-        // 19 - 7021 body left
-        // 21 - 6143 body left
+        // 17 - 5119 body left
+        // 19 - 7168 body left
+        // 21 - 6144 body left
 
         // BZ 69614 - invalid priority update frames should be ignored
         sendInvalidPriorityUpdate(17);
@@ -160,8 +150,8 @@ public class TestRfc9218 extends Http2TestBase {
         sendPriorityUpdate(17, 2, true);
 
         /*
-         * Add 8k to the connection window. Should clear the connection window over allocation and fully allocate 17
-         * with the remainder split proportionally between 19 and 21.
+         * Add 8k to the connection window. Should fully allocate 17 with the remainder split equally between 19 and 21.
+         * 19 is next in round-robin order so receives the byte left over after the equal split.
          */
         sendWindowUpdate(0, 1024 * 8);
         // Use try/catch as third read has been failing on some tests runs
@@ -177,18 +167,18 @@ public class TestRfc9218 extends Http2TestBase {
 
         trace = output.getTrace();
         System.out.println(trace);
-        Assert.assertTrue(trace.contains("17-Body-5266\n"));
-        trace = trace.replace("17-Body-5266\n", "");
+        Assert.assertTrue(trace.contains("17-Body-5119\n"));
+        trace = trace.replace("17-Body-5119\n", "");
         Assert.assertTrue(trace.contains("17-EndOfStream\n"));
         trace = trace.replace("17-EndOfStream\n", "");
-        Assert.assertTrue(trace.contains("19-Body-1560\n"));
-        trace = trace.replace("19-Body-1560\n", "");
-        Assert.assertTrue(trace.contains("21-Body-1365\n"));
-        trace = trace.replace("21-Body-1365\n", "");
+        Assert.assertTrue(trace.contains("19-Body-1537\n"));
+        trace = trace.replace("19-Body-1537\n", "");
+        Assert.assertTrue(trace.contains("21-Body-1536\n"));
+        trace = trace.replace("21-Body-1536\n", "");
         Assert.assertEquals(0, trace.length());
 
-        // 19 - 5641 body left
-        // 21 - 4778 body left
+        // 19 - 5631 body left
+        // 21 - 4608 body left
 
         // Add 16k to the connection window. Should fully allocate 19 and 21.
         sendWindowUpdate(0, 1024 * 16);
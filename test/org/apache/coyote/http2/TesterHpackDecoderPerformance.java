@@ -0,0 +1,120 @@
+/*
+ *  Licensed to the Apache Software Foundation (ASF) under one or more
+ *  contributor license agreements.  See the NOTICE file distributed with
+ *  this work for additional information regarding copyright ownership.
+ *  The ASF licenses this file to You under the Apache License, Version 2.0
+ *  (the "License"); you may not use this file except in compliance with
+ *  the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package org.apache.coyote.http2;
+
+import java.lang.management.ManagementFactory;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+
+import org.junit.Test;
+
+/*
+ * This is an absolute performance test. There is no benefit it running it as part of a standard test run so it is
+ * excluded due to the name starting Tester...
+ */
+public class TesterHpackDecoderPerformance {
+
+    private static final int ITERATIONS = 1000000;
+
+
+    @Test
+    public void testDecodeRequestHeaders() throws Exception {
+        // Typical gRPC style request. Pseudo headers are indexed, the remainder are literals without indexing.
+        ByteBuffer block = ByteBuffer.allocate(1024);
+        // :method POST
+        block.put((byte) 0x83);
+        // :scheme https
+        block.put((byte) 0x87);
+        // :path
+        writeLiteral(block, 4, null, "/helloworld.Greeter/SayHello");
+        // :authority
+        writeLiteral(block, 1, null, "api.example.com:8443");
+        // content-type
+        writeLiteral(block, 31, null, "application/grpc");
+        // user-agent
+        writeLiteral(block, 58, null, "grpc-java-netty/1.63.0");
+        writeLiteral(block, 0, "te", "trailers");
+        writeLiteral(block, 0, "grpc-accept-encoding", "gzip");
+        writeLiteral(block, 0, "grpc-timeout", "1S");
+        writeLiteral(block, 0, "x-tenant", "tenant-0042");
+        block.flip();
+
+        for (int i = 0; i < 5; i++) {
+            doTestDecode(block);
+        }
+    }
+
+
+    private void doTestDecode(ByteBuffer block) throws HpackException {
+        HpackDecoder decoder = new HpackDecoder();
+        HeaderCounter counter = new HeaderCounter();
+        com.sun.management.ThreadMXBean threadMXBean =
+                (com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean();
+        long threadId = Thread.currentThread().threadId();
+
+        long startBytes = threadMXBean.getThreadAllocatedBytes(threadId);
+        long start = System.nanoTime();
+        for (int i = 0; i < ITERATIONS; i++) {
+            decoder.setHeaderEmitter(counter);
+            decoder.decode(block.duplicate());
+        }
+        long duration = (System.nanoTime() - start) / 1000000;
+        long bytes = threadMXBean.getThreadAllocatedBytes(threadId) - startBytes;
+
+        System.out.println("Decoded [" + ITERATIONS + "] header blocks in [" + duration + "] ms, allocating [" +
+                bytes / ITERATIONS + "] bytes per block");
+    }
+
+
+    private static void writeLiteral(ByteBuffer target, int nameIndex, String name, String value) {
+        // Literal header field without indexing
+        target.put((byte) 0);
+        Hpack.encodeInteger(target, nameIndex, 4);
+        if (nameIndex == 0) {
+            writeString(target, name);
+        }
+        writeString(target, value);
+    }
+
+
+    private static void writeString(ByteBuffer target, String value) {
+        target.put((byte) 0);
+        Hpack.encodeInteger(target, value.length(), 7);
+        target.put(value.getBytes(StandardCharsets.US_ASCII));
+    }
+
+
+    private static class HeaderCounter implements HpackDecoder.HeaderEmitter {
+
+        private int count;
+
+        @Override
+        public void emitHeader(String name, String value) {
+            count++;
+        }
+
+        @Override
+        public void setHeaderException(StreamException streamException) {
+            // NO-OP
+        }
+
+        @Override
+        public void validateHeaders() throws StreamException {
+            // NO-OP
+        }
+    }
+}
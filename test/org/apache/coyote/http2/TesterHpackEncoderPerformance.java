@@ -0,0 +1,72 @@
+/*
+ *  Licensed to the Apache Software Foundation (ASF) under one or more
+ *  contributor license agreements.  See the NOTICE file distributed with
+ *  this work for additional information regarding copyright ownership.
+ *  The ASF licenses this file to You under the Apache License, Version 2.0
+ *  (the "License"); you may not use this file except in compliance with
+ *  the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package org.apache.coyote.http2;
+
+import java.nio.ByteBuffer;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import org.apache.tomcat.util.http.MimeHeaders;
+
+/*
+ * This is an absolute performance test. There is no benefit it running it as part of a standard test run so it is
+ * excluded due to the name starting Tester...
+ */
+public class TesterHpackEncoderPerformance {
+
+    private static final int ITERATIONS = 1000000;
+
+
+    @Test
+    public void testEncodeResponseHeaders() {
+        // Typical gRPC style response. Most headers repeat on every response, some change on every response.
+        MimeHeaders[] headers = new MimeHeaders[64];
+        for (int i = 0; i < headers.length; i++) {
+            MimeHeaders h = new MimeHeaders();
+            h.setValue(":status").setString("200");
+            h.setValue("content-type").setString("application/grpc+proto");
+            h.setValue("grpc-encoding").setString("identity");
+            h.setValue("grpc-accept-encoding").setString("gzip,deflate");
+            h.setValue("server").setString("Apache Tomcat");
+            h.setValue("cache-control").setString("no-cache, no-store, must-revalidate");
+            h.setValue("vary").setString("accept-encoding");
+            h.setValue("x-request-id").setString("4f0c1d2e-" + i);
+            h.setValue("x-trace-span").setString(Integer.toHexString(i * 7919));
+            h.setValue("content-length").setString(Integer.toString(100 + i));
+            h.setValue("date").setString("Wed, 11 Nov 2015 19:18:42 GMT");
+            headers[i] = h;
+        }
+
+        for (int i = 0; i < 5; i++) {
+            System.out.println("Encoded [" + ITERATIONS + "] header blocks in [" + doTestEncode(headers) + "] ms");
+        }
+    }
+
+
+    private long doTestEncode(MimeHeaders[] headers) {
+        HpackEncoder encoder = new HpackEncoder();
+        ByteBuffer target = ByteBuffer.allocate(8 * 1024);
+
+        long start = System.nanoTime();
+        for (int i = 0; i < ITERATIONS; i++) {
+            target.clear();
+            Assert.assertEquals(HpackEncoder.State.COMPLETE, encoder.encode(headers[i % headers.length], target));
+        }
+        return (System.nanoTime() - start) / 1000000;
+    }
+}
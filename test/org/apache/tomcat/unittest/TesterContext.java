@@ -1318,6 +1318,11 @@ public class TesterContext implements Context {
     @Override
     public void setParallelAnnotationScanning(boolean parallelAnnotationScanning) {}
 
+    @Override
+    public String getAnnotationScanCacheDirectory() { return null; }
+    @Override
+    public void setAnnotationScanCacheDirectory(String annotationScanCacheDirectory) {}
+
     @Override
     public boolean getMetadataComplete() { return false; }
     @Override
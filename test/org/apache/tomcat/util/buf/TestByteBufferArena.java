@@ -0,0 +1,117 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.tomcat.util.buf;
+
+import java.nio.ByteBuffer;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+public class TestByteBufferArena {
+
+    @Test
+    public void testSizeClasses() {
+        ByteBufferArena arena = new ByteBufferArena(-1);
+
+        doTestSizeClass(arena, 0, 1024);
+        doTestSizeClass(arena, 1, 1024);
+        doTestSizeClass(arena, 1024, 1024);
+        doTestSizeClass(arena, 1025, 2048);
+        doTestSizeClass(arena, 8192, 8192);
+        doTestSizeClass(arena, 8193, 16384);
+        doTestSizeClass(arena, 65536, 65536);
+        // Larger than the largest size class is not rounded
+        doTestSizeClass(arena, 65537, 65537);
+    }
+
+
+    private void doTestSizeClass(ByteBufferArena arena, int size, int expectedCapacity) {
+        ByteBuffer buffer = arena.lease(size);
+        Assert.assertTrue(buffer.isDirect());
+        Assert.assertEquals(expectedCapacity, buffer.capacity());
+        arena.release(buffer, size);
+    }
+
+
+    @Test
+    public void testReuse() {
+        ByteBufferArena arena = new ByteBufferArena(-1);
+
+        ByteBuffer buffer = arena.lease(8192);
+        buffer.put((byte) 1);
+        Assert.assertEquals(8192, arena.getLeasedBytes());
+        Assert.assertEquals(0, arena.getPooledBytes());
+        arena.release(buffer, 8192);
+        Assert.assertEquals(0, arena.getLeasedBytes());
+        Assert.assertEquals(8192, arena.getPooledBytes());
+
+        ByteBuffer buffer2 = arena.lease(5000);
+        Assert.assertSame(buffer, buffer2);
+        // Buffer is cleared when it is released
+        Assert.assertEquals(0, buffer2.position());
+        Assert.assertEquals(buffer2.capacity(), buffer2.limit());
+        Assert.assertEquals(1, arena.getAllocationCount());
+        arena.release(buffer2, 5000);
+    }
+
+
+    @Test
+    public void testUnpooledLarge() {
+        ByteBufferArena arena = new ByteBufferArena(-1);
+
+        ByteBuffer buffer = arena.lease(100000);
+        arena.release(buffer, 100000);
+        Assert.assertEquals(0, arena.getPooledBytes());
+    }
+
+
+    @Test
+    public void testLimit() {
+        // 16k per size class
+        ByteBufferArena arena = new ByteBufferArena(7 * 16 * 1024);
+
+        ByteBuffer[] buffers = new ByteBuffer[4];
+        for (int i = 0; i < buffers.length; i++) {
+            buffers[i] = arena.lease(8192);
+        }
+        for (ByteBuffer buffer : buffers) {
+            arena.release(buffer, 8192);
+        }
+        Assert.assertEquals(16 * 1024, arena.getPooledBytes());
+
+        arena.clear();
+        Assert.assertEquals(0, arena.getPooledBytes());
+    }
+
+
+    @Test
+    public void testFragmentation() {
+        ByteBufferArena arena = new ByteBufferArena(-1);
+        Assert.assertEquals(0, arena.getFragmentation(), 0);
+
+        ByteBuffer buffer1 = arena.lease(4096);
+        Assert.assertEquals(0, arena.getFragmentation(), 0);
+
+        ByteBuffer buffer2 = arena.lease(2049);
+        // 8192 leased, 6145 requested
+        Assert.assertEquals(1 - 6145.0 / 8192, arena.getFragmentation(), 0.0001);
+
+        arena.release(buffer2, 2049);
+        Assert.assertEquals(0, arena.getFragmentation(), 0);
+        arena.release(buffer1, 4096);
+    }
+}
@@ -0,0 +1,143 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.tomcat.util.collections;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+public class TestMpscArrayQueue {
+
+    @Test
+    public void testPollEmpty() {
+        MpscArrayQueue<Object> queue = new MpscArrayQueue<>();
+        Assert.assertNull(queue.poll());
+        Assert.assertEquals(0, queue.size());
+    }
+
+    @Test
+    public void testOfferPollOrder() {
+        MpscArrayQueue<Object> queue = new MpscArrayQueue<>();
+
+        Object o1 = new Object();
+        Object o2 = new Object();
+        Object o3 = new Object();
+        Object o4 = new Object();
+
+        queue.offer(o1);
+        queue.offer(o2);
+        queue.offer(o3);
+        queue.offer(o4);
+
+        Assert.assertEquals(4, queue.size());
+
+        Assert.assertSame(queue.poll(), o1);
+        Assert.assertSame(queue.poll(), o2);
+        Assert.assertSame(queue.poll(), o3);
+        Assert.assertSame(queue.poll(), o4);
+
+        Assert.assertNull(queue.poll());
+        Assert.assertEquals(0, queue.size());
+    }
+
+    @Test
+    public void testMultipleChunksOfferPollOrder() {
+        // Small chunks so the test crosses many chunk boundaries
+        MpscArrayQueue<Integer> queue = new MpscArrayQueue<>(3);
+
+        for (int i = 0; i < 100; i++) {
+            queue.offer(Integer.valueOf(i));
+        }
+        Assert.assertEquals(100, queue.size());
+
+        for (int i = 0; i < 50; i++) {
+            Assert.assertEquals(Integer.valueOf(i), queue.poll());
+        }
+        Assert.assertEquals(50, queue.size());
+
+        for (int i = 100; i < 300; i++) {
+            queue.offer(Integer.valueOf(i));
+        }
+
+        for (int i = 50; i < 300; i++) {
+            Assert.assertEquals(Integer.valueOf(i), queue.poll());
+        }
+
+        Assert.assertNull(queue.poll());
+        Assert.assertEquals(0, queue.size());
+    }
+
+    @Test
+    public void testClear() {
+        MpscArrayQueue<Object> queue = new MpscArrayQueue<>(4);
+        for (int i = 0; i < 10; i++) {
+            queue.offer(new Object());
+        }
+        queue.clear();
+        Assert.assertEquals(0, queue.size());
+        Assert.assertNull(queue.poll());
+    }
+
+    @Test(expected = NullPointerException.class)
+    public void testOfferNull() {
+        MpscArrayQueue<Object> queue = new MpscArrayQueue<>();
+        queue.offer(null);
+    }
+
+    @Test
+    public void testConcurrentProducers() throws InterruptedException {
+        final int producerCount = 4;
+        final int iterations = 100000;
+
+        MpscArrayQueue<int[]> queue = new MpscArrayQueue<>(16);
+
+        Thread[] producers = new Thread[producerCount];
+        for (int i = 0; i < producerCount; i++) {
+            final int producer = i;
+            producers[i] = new Thread(() -> {
+                for (int j = 0; j < iterations; j++) {
+                    queue.offer(new int[] { producer, j });
+                }
+            });
+        }
+        for (Thread producer : producers) {
+            producer.start();
+        }
+
+        // Elements from any single producer must be received in order
+        int[] expected = new int[producerCount];
+        int received = 0;
+        while (received < producerCount * iterations) {
+            int[] element = queue.poll();
+            if (element == null) {
+                Thread.onSpinWait();
+                continue;
+            }
+            Assert.assertEquals(expected[element[0]], element[1]);
+            expected[element[0]]++;
+            received++;
+        }
+
+        for (Thread producer : producers) {
+            producer.join();
+        }
+
+        Assert.assertNull(queue.poll());
+        for (int i = 0; i < producerCount; i++) {
+            Assert.assertEquals(iterations, expected[i]);
+        }
+    }
+}
@@ -0,0 +1,124 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *     http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.tomcat.util.collections;
+
+import java.util.HashSet;
+import java.util.Set;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+public class TestStripedStack {
+
+    @Test
+    public void testPopEmpty() {
+        StripedStack<Object> stack = new StripedStack<>();
+        Assert.assertNull(stack.pop());
+        Assert.assertEquals(0, stack.getHitCount());
+        Assert.assertEquals(1, stack.getMissCount());
+    }
+
+    @Test
+    public void testPushPopSameThread() {
+        StripedStack<Object> stack = new StripedStack<>(-1, 8);
+
+        Object o1 = new Object();
+        Object o2 = new Object();
+
+        Assert.assertTrue(stack.push(o1));
+        Assert.assertTrue(stack.push(o2));
+        Assert.assertEquals(2, stack.size());
+
+        // A single thread always uses the same stripe so LIFO order is retained
+        Assert.assertSame(o2, stack.pop());
+        Assert.assertSame(o1, stack.pop());
+        Assert.assertNull(stack.pop());
+
+        Assert.assertEquals(2, stack.getHitCount());
+        Assert.assertEquals(1, stack.getMissCount());
+    }
+
+    @Test
+    public void testLimit() {
+        StripedStack<Object> stack = new StripedStack<>(5, 4);
+
+        for (int i = 0; i < 5; i++) {
+            Assert.assertTrue(stack.push(new Object()));
+        }
+        // The limit applies across all stripes
+        Assert.assertFalse(stack.push(new Object()));
+        Assert.assertEquals(5, stack.size());
+        Assert.assertEquals(1, stack.getOverflowCount());
+
+        for (int i = 0; i < 5; i++) {
+            Assert.assertNotNull(stack.pop());
+        }
+        Assert.assertNull(stack.pop());
+    }
+
+    @Test
+    public void testLimitZero() {
+        StripedStack<Object> stack = new StripedStack<>(0, 4);
+        Assert.assertFalse(stack.push(new Object()));
+        Assert.assertNull(stack.pop());
+    }
+
+    @Test
+    public void testStripeCount() {
+        Assert.assertEquals(8, new StripedStack<>(-1, 5).getStripeCount());
+        Assert.assertEquals(StripedStack.MAX_STRIPES, new StripedStack<>(-1, 1000).getStripeCount());
+        Assert.assertEquals(2, new StripedStack<>(3, 16).getStripeCount());
+        Assert.assertEquals(1, new StripedStack<>(1, 16).getStripeCount());
+    }
+
+    @Test
+    public void testClear() {
+        StripedStack<Object> stack = new StripedStack<>(-1, 4);
+        for (int i = 0; i < 100; i++) {
+            stack.push(new Object());
+        }
+        stack.clear();
+        Assert.assertEquals(0, stack.size());
+        Assert.assertNull(stack.pop());
+    }
+
+    @Test
+    public void testPopFromOtherThread() throws InterruptedException {
+        StripedStack<Object> stack = new StripedStack<>(-1, 16);
+        Set<Object> pushed = new HashSet<>();
+
+        Thread t = new Thread(() -> {
+            for (int i = 0; i < 10; i++) {
+                Object o = new Object();
+                synchronized (pushed) {
+                    pushed.add(o);
+                }
+                stack.push(o);
+            }
+        });
+        t.start();
+        t.join();
+
+        // Objects pushed by another thread must be found regardless of stripe
+        for (int i = 0; i < 10; i++) {
+            Object o = stack.pop();
+            Assert.assertNotNull(o);
+            Assert.assertTrue(pushed.remove(o));
+        }
+        Assert.assertNull(stack.pop());
+    }
+}
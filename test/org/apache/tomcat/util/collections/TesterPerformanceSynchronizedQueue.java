@@ -18,6 +18,8 @@ package org.apache.tomcat.util.collections;
 
 import java.util.Queue;
 import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.function.Function;
+import java.util.function.Supplier;
 
 import org.junit.Test;
 
@@ -104,4 +106,64 @@ public class TesterPerformanceSynchronizedQueue {
             super.run();
         }
     }
+
+
+    /*
+     * The NIO Poller event queue is written to by many threads and read by a single thread. The following tests
+     * compare the queues using that access pattern.
+     */
+
+    private static final int PRODUCER_COUNT = 4;
+
+    @Test
+    public void testMpscSynchronizedQueue() throws InterruptedException {
+        SynchronizedQueue<Object> queue = new SynchronizedQueue<>();
+        long time = doMpscTest(queue::offer, queue::poll);
+        System.out.println("SynchronizedQueue (MPSC): " + time + "ms");
+    }
+
+    @Test
+    public void testMpscArrayQueue() throws InterruptedException {
+        MpscArrayQueue<Object> queue = new MpscArrayQueue<>();
+        long time = doMpscTest(queue::offer, queue::poll);
+        System.out.println("MpscArrayQueue (MPSC): " + time + "ms");
+    }
+
+    @Test
+    public void testMpscConcurrentQueue() throws InterruptedException {
+        Queue<Object> queue = new ConcurrentLinkedQueue<>();
+        long time = doMpscTest(queue::offer, queue::poll);
+        System.out.println("ConcurrentLinkedQueue (MPSC): " + time + "ms");
+    }
+
+    private long doMpscTest(Function<Object,Boolean> offer, Supplier<Object> poll) throws InterruptedException {
+        final Object element = new Object();
+        Thread[] producers = new Thread[PRODUCER_COUNT];
+        for (int i = 0; i < PRODUCER_COUNT; i++) {
+            producers[i] = new Thread(() -> {
+                for (int j = 0; j < ITERATIONS; j++) {
+                    offer.apply(element);
+                }
+            });
+        }
+
+        long start = System.currentTimeMillis();
+
+        for (int i = 0; i < PRODUCER_COUNT; i++) {
+            producers[i].start();
+        }
+
+        long received = 0;
+        while (received < (long) PRODUCER_COUNT * ITERATIONS) {
+            if (poll.get() != null) {
+                received++;
+            }
+        }
+
+        for (int i = 0; i < PRODUCER_COUNT; i++) {
+            producers[i].join();
+        }
+
+        return System.currentTimeMillis() - start;
+    }
 }
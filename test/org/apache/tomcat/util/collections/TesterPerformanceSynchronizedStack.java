@@ -104,4 +104,44 @@ public class TesterPerformanceSynchronizedStack {
             super.run();
         }
     }
+
+
+    private static final StripedStack<Object> STRIPED_STACK = new StripedStack<>();
+
+    @Test
+    public void testStripedStack() throws InterruptedException {
+        Thread[] threads = new Thread[THREAD_COUNT];
+        for (int i = 0; i < THREAD_COUNT; i++) {
+            threads[i] = new StripedStackThread();
+        }
+
+        long start = System.currentTimeMillis();
+
+        for (int i = 0; i < THREAD_COUNT; i++) {
+            threads[i].start();
+        }
+
+        for (int i = 0; i < THREAD_COUNT; i++) {
+            threads[i].join();
+        }
+
+        long end = System.currentTimeMillis();
+
+        System.out.println("StripedStack: " + (end - start) + "ms");
+    }
+
+    public static class StripedStackThread extends Thread {
+
+        @Override
+        public void run() {
+            for(int i = 0; i < ITERATIONS; i++) {
+                Object obj = STRIPED_STACK.pop();
+                if (obj == null) {
+                    obj = new Object();
+                }
+                STRIPED_STACK.push(obj);
+            }
+            super.run();
+        }
+    }
 }
@@ -94,8 +94,29 @@ public class TestParameters {
         Assert.assertEquals("foo4=", EMPTY_VALUE.toString());
     }
 
+    @Test
+    public void testProcessParametersByteArrayIntIntValidLazy() {
+        doTestProcessParametersByteArrayIntInt(true, -1,
+                SIMPLE, SIMPLE_MULTIPLE, NO_VALUE, EMPTY_VALUE, EMPTY, UTF8);
+        doTestProcessParametersByteArrayIntInt(true, -1,
+                UTF8, SIMPLE, SIMPLE_MULTIPLE, NO_VALUE, EMPTY_VALUE, EMPTY);
+        doTestProcessParametersByteArrayIntInt(true, 4,
+                SIMPLE, NO_VALUE, EMPTY_VALUE, UTF8);
+    }
+
+    @Test(expected = IllegalStateException.class)
+    public void testProcessParametersByteArrayIntIntInvalidLazy() {
+        doTestProcessParametersByteArrayIntInt(true, 3,
+                SIMPLE, NO_VALUE, EMPTY_VALUE, UTF8);
+    }
+
     private long doTestProcessParametersByteArrayIntInt(int limit,
             Parameter... parameters) {
+        return doTestProcessParametersByteArrayIntInt(false, limit, parameters);
+    }
+
+    private long doTestProcessParametersByteArrayIntInt(boolean lazy, int limit,
+            Parameter... parameters) {
 
         // Build the byte array
         StringBuilder input = new StringBuilder();
@@ -114,6 +135,7 @@ public class TestParameters {
         Parameters p = new Parameters();
         p.setCharset(StandardCharsets.UTF_8);
         p.setLimit(limit);
+        p.setLazyDecoding(lazy);
 
         long start = System.nanoTime();
         p.processParameters(data, 0, data.length);
@@ -252,6 +274,70 @@ public class TestParameters {
 
     }
 
+    @Test
+    public void testLazyDecodingLookup() {
+        Parameters p = new Parameters();
+        p.setCharset(StandardCharsets.UTF_8);
+        p.setLazyDecoding(true);
+
+        byte[] data = ("a=1&" + UTF8.toString() + "&b=2&a=3&c&%61=4&" + SIMPLE_MULTIPLE.toString()).getBytes();
+        p.processParameters(data, 0, data.length);
+
+        // Look up parameters before the names are requested
+        Assert.assertEquals("2", p.getParameter("b"));
+        Assert.assertEquals("", p.getParameter("c"));
+        Assert.assertNull(p.getParameter("d"));
+        Assert.assertArrayEquals(new String[] { "1", "3", "4" }, p.getParameterValues("a"));
+        Assert.assertArrayEquals(UTF8.getValues(), p.getParameterValues(UTF8.getName()));
+        Assert.assertArrayEquals(SIMPLE_MULTIPLE.getValues(), p.getParameterValues(SIMPLE_MULTIPLE.getName()));
+
+        // Adding a parameter must not change the order of the parsed parameters
+        p.addParameter("a", "5");
+        Assert.assertArrayEquals(new String[] { "1", "3", "4", "5" }, p.getParameterValues("a"));
+
+        Enumeration<String> names = p.getParameterNames();
+        Assert.assertEquals("a", names.nextElement());
+        Assert.assertEquals(UTF8.getName(), names.nextElement());
+        Assert.assertEquals("b", names.nextElement());
+        Assert.assertEquals("c", names.nextElement());
+        Assert.assertEquals(SIMPLE_MULTIPLE.getName(), names.nextElement());
+        Assert.assertFalse(names.hasMoreElements());
+    }
+
+    @Test
+    public void testLazyDecodingNotEncodable() {
+        Parameters p = new Parameters();
+        p.setCharset(StandardCharsets.ISO_8859_1);
+        p.setLazyDecoding(true);
+
+        byte[] data = "?=1".getBytes(StandardCharsets.ISO_8859_1);
+        p.processParameters(data, 0, data.length);
+
+        // A name that can't be represented in ISO-8859-1 must not match '?'
+        Assert.assertNull(p.getParameter("\u20ac"));
+        Assert.assertEquals("1", p.getParameter("?"));
+    }
+
+    @Test
+    public void testLazyDecodingInvalid() {
+        Parameters p = new Parameters();
+        p.setCharset(StandardCharsets.UTF_8);
+        p.setLazyDecoding(true);
+
+        byte[] data = "a=1&b=%ZZ&c=3".getBytes();
+        // Invalid %nn sequences are reported when the parameter is accessed
+        p.processParameters(data, 0, data.length);
+
+        Assert.assertEquals("1", p.getParameter("a"));
+        Assert.assertEquals("3", p.getParameter("c"));
+        try {
+            p.getParameter("b");
+            Assert.fail();
+        } catch (InvalidParameterException ipe) {
+            // Expected
+        }
+    }
+
     private void validateParameters(Parameter[] parameters, Parameters p) {
         Enumeration<String> names = p.getParameterNames();
 
@@ -77,6 +77,41 @@ public class TesterParametersPerformance {
         return result;
     }
 
+    @Test
+    public void testLazyDecoding() {
+        LogManager.getLogManager().getLogger("").setLevel(Level.OFF);
+        // A typical form submission where the application reads a single parameter
+        StringBuilder sb = new StringBuilder();
+        for (int i = 0; i < 100; i++) {
+            if (i > 0) {
+                sb.append('&');
+            }
+            sb.append("field").append(i).append("=some+value+%E2%82%AC").append(i);
+        }
+        byte[] params = sb.toString().getBytes(StandardCharsets.ISO_8859_1);
+
+        for (int i = 0; i < 5; i++) {
+            System.out.println("Eager: " + doTestLazyDecoding(params, false, 100000) + "ns, Lazy: " +
+                    doTestLazyDecoding(params, true, 100000) + "ns");
+        }
+    }
+
+    private long doTestLazyDecoding(byte[] params, boolean lazy, int iterations) {
+        Parameters p = new Parameters();
+        // Eager decoding decodes in place so each iteration needs a fresh copy of the request body
+        byte[] body = new byte[params.length];
+        long start = System.nanoTime();
+        for (int i = 0; i < iterations; i++) {
+            System.arraycopy(params, 0, body, 0, params.length);
+            p.recycle();
+            p.setCharset(StandardCharsets.UTF_8);
+            p.setLazyDecoding(lazy);
+            p.processParameters(body, 0, body.length);
+            Assert.assertEquals("some value \u20ac50", p.getParameter("field50"));
+        }
+        return (System.nanoTime() - start) / iterations;
+    }
+
     @Test
     public void testCreateString() throws UnsupportedEncodingException {
         B2CConverter.getCharset("ISO-8859-1");
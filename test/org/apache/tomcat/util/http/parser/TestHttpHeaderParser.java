@@ -0,0 +1,150 @@
+/*
+ *  Licensed to the Apache Software Foundation (ASF) under one or more
+ *  contributor license agreements.  See the NOTICE file distributed with
+ *  this work for additional information regarding copyright ownership.
+ *  The ASF licenses this file to You under the Apache License, Version 2.0
+ *  (the "License"); you may not use this file except in compliance with
+ *  the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package org.apache.tomcat.util.http.parser;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import org.apache.tomcat.util.http.MimeHeaders;
+import org.apache.tomcat.util.http.parser.HttpHeaderParser.HeaderParseStatus;
+
+public class TestHttpHeaderParser {
+
+    @Test
+    public void testSimple() throws IOException {
+        doTest("Host: localhost\r\nAccept: */*\r\n\r\n", "host=[localhost]", "accept=[*/*]");
+    }
+
+    @Test
+    public void testWhiteSpace() throws IOException {
+        doTest("A:b\r\nB: \t c \t\r\nC:\r\nD:   \r\n\r\n", "a=[b]", "b=[c]", "c=[]", "d=[]");
+    }
+
+    @Test
+    public void testTabInValue() throws IOException {
+        doTest("A: b\tc d\r\n\r\n", "a=[b\tc d]");
+    }
+
+    @Test
+    public void testLongValue() throws IOException {
+        doTest("User-Agent: Mozilla/5.0 (X11; Linux x86_64; rv:128.0) Gecko/20100101 Firefox/128.0\r\n" +
+                "Cookie: a=0123456789abcdef0123456789abcdef; b=\t0123456789abcdef0123456789abcdef\r\n\r\n",
+                "user-agent=[Mozilla/5.0 (X11; Linux x86_64; rv:128.0) Gecko/20100101 Firefox/128.0]",
+                "cookie=[a=0123456789abcdef0123456789abcdef; b=\t0123456789abcdef0123456789abcdef]");
+    }
+
+    @Test
+    public void testNonAsciiValue() throws IOException {
+        doTest("A: caf\u00e9 \u00e9t\u00e9\r\n\r\n", "a=[caf\u00e9 \u00e9t\u00e9]");
+    }
+
+    @Test
+    public void testContinuationLine() throws IOException {
+        doTest("A: b\r\n  c\r\nD: e\r\n\r\n", "a=[b c]", "d=[e]");
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testInvalidName() throws IOException {
+        doTest("A b: c\r\n\r\n");
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testInvalidValue() throws IOException {
+        doTest("A: b\u0001c\r\n\r\n");
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testInvalidValueDel() throws IOException {
+        doTest("A: 0123456789\u007f0123456789\r\n\r\n");
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void testBareCR() throws IOException {
+        doTest("A: b\rc\r\n\r\n");
+    }
+
+
+    /*
+     * Parses the headers with the data presented all at once, which uses the fast path, and in small chunks, which
+     * mostly uses the state machine, and checks that the results are the same.
+     */
+    private void doTest(String input, String... expected) throws IOException {
+        byte[] bytes = input.getBytes(StandardCharsets.ISO_8859_1);
+        for (int chunkSize : new int[] { bytes.length, 1, 7 }) {
+            MimeHeaders headers = new MimeHeaders();
+            TesterHeaderDataSource source = new TesterHeaderDataSource(bytes, chunkSize);
+            HttpHeaderParser parser = new HttpHeaderParser(source, headers, false);
+            HeaderParseStatus status;
+            do {
+                status = parser.parseHeader();
+            } while (status != HeaderParseStatus.DONE);
+            Assert.assertEquals(bytes.length, source.getHeaderByteBuffer().position());
+
+            Assert.assertEquals("Chunk size " + chunkSize, expected.length, headers.size());
+            for (int i = 0; i < expected.length; i++) {
+                String actual = headers.getName(i).toString().toLowerCase() + "=[" +
+                        new String(headers.getValue(i).getByteChunk().getBytes(),
+                                headers.getValue(i).getByteChunk().getStart(),
+                                headers.getValue(i).getByteChunk().getLength(), StandardCharsets.ISO_8859_1) +
+                        "]";
+                Assert.assertEquals("Chunk size " + chunkSize, expected[i], actual);
+            }
+        }
+    }
+
+
+    static class TesterHeaderDataSource implements HttpHeaderParser.HeaderDataSource {
+
+        private final byte[] data;
+        private final int chunkSize;
+        private final ByteBuffer buffer;
+
+        TesterHeaderDataSource(byte[] data, int chunkSize) {
+            this.data = data;
+            this.chunkSize = chunkSize;
+            buffer = ByteBuffer.allocate(data.length);
+            reset();
+        }
+
+        void reset() {
+            buffer.position(0).limit(0);
+            // The request line will have been read with at least some of the headers
+            fillHeaderBuffer();
+        }
+
+        @Override
+        public boolean fillHeaderBuffer() {
+            int limit = buffer.limit();
+            if (limit == data.length) {
+                return false;
+            }
+            int len = Math.min(chunkSize, data.length - limit);
+            System.arraycopy(data, limit, buffer.array(), limit, len);
+            buffer.limit(limit + len);
+            return true;
+        }
+
+        @Override
+        public ByteBuffer getHeaderByteBuffer() {
+            return buffer;
+        }
+    }
+}
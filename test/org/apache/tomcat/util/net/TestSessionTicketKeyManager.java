@@ -0,0 +1,200 @@
+/*
+ *  Licensed to the Apache Software Foundation (ASF) under one or more
+ *  contributor license agreements.  See the NOTICE file distributed with
+ *  this work for additional information regarding copyright ownership.
+ *  The ASF licenses this file to You under the Apache License, Version 2.0
+ *  (the "License"); you may not use this file except in compliance with
+ *  the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package org.apache.tomcat.util.net;
+
+import java.io.File;
+import java.nio.file.Files;
+import java.security.SecureRandom;
+import java.security.cert.X509Certificate;
+import java.util.concurrent.TimeUnit;
+
+import javax.net.ssl.KeyManager;
+import javax.net.ssl.SSLEngine;
+import javax.net.ssl.SSLParameters;
+import javax.net.ssl.SSLServerSocketFactory;
+import javax.net.ssl.SSLSessionContext;
+import javax.net.ssl.TrustManager;
+
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Before;
+import org.junit.Test;
+
+public class TestSessionTicketKeyManager {
+
+    private static final long REFRESH_NANOS = TimeUnit.SECONDS.toNanos(60);
+
+    private File keyFile;
+    private SSLHostConfig sslHostConfig;
+    private TesterSSLContext sslContext;
+
+    @Before
+    public void setUp() throws Exception {
+        keyFile = File.createTempFile("ticket", ".key");
+        Files.write(keyFile.toPath(), createKeys((byte) 1));
+
+        sslHostConfig = new SSLHostConfig();
+        sslHostConfig.setSessionTicketKeyFile(keyFile.getAbsolutePath());
+        SSLHostConfigCertificate certificate =
+                new SSLHostConfigCertificate(sslHostConfig, SSLHostConfigCertificate.Type.UNDEFINED);
+        sslContext = new TesterSSLContext();
+        certificate.setSslContext(sslContext);
+        sslHostConfig.addCertificate(certificate);
+    }
+
+
+    @After
+    public void tearDown() {
+        if (!keyFile.delete()) {
+            keyFile.deleteOnExit();
+        }
+    }
+
+
+    @Test
+    public void testInit() throws Exception {
+        SessionTicketKeyManager manager = new SessionTicketKeyManager(sslHostConfig);
+        manager.init(0);
+        Assert.assertArrayEquals(createKeys((byte) 1), sslContext.keys);
+        Assert.assertNull(sslContext.previousKeys);
+        Assert.assertEquals(1, sslContext.updates);
+    }
+
+
+    @Test
+    public void testRotation() throws Exception {
+        SessionTicketKeyManager manager = new SessionTicketKeyManager(sslHostConfig);
+        manager.init(0);
+        Files.write(keyFile.toPath(), createKeys((byte) 2));
+
+        // Refresh interval has not elapsed
+        manager.refresh(REFRESH_NANOS - 1);
+        Assert.assertArrayEquals(createKeys((byte) 1), sslContext.keys);
+
+        manager.refresh(REFRESH_NANOS);
+        Assert.assertArrayEquals(createKeys((byte) 2), sslContext.keys);
+        // Replaced keys are retained for decryption
+        Assert.assertArrayEquals(createKeys((byte) 1), sslContext.previousKeys);
+        Assert.assertEquals(2, sslContext.updates);
+
+        // Unchanged keys are not set again
+        manager.refresh(2 * REFRESH_NANOS);
+        Assert.assertEquals(2, sslContext.updates);
+
+        // Only the most recently replaced keys are retained
+        Files.write(keyFile.toPath(), createKeys((byte) 3));
+        manager.refresh(3 * REFRESH_NANOS);
+        Assert.assertArrayEquals(createKeys((byte) 3), sslContext.keys);
+        Assert.assertArrayEquals(createKeys((byte) 2), sslContext.previousKeys);
+        Assert.assertEquals(3, sslContext.updates);
+    }
+
+
+    @Test
+    public void testRotationDisabled() throws Exception {
+        sslHostConfig.setSessionTicketKeyRefreshInterval(0);
+        SessionTicketKeyManager manager = new SessionTicketKeyManager(sslHostConfig);
+        manager.init(0);
+        Files.write(keyFile.toPath(), createKeys((byte) 2));
+
+        manager.refresh(10 * REFRESH_NANOS);
+        Assert.assertArrayEquals(createKeys((byte) 1), sslContext.keys);
+    }
+
+
+    @Test
+    public void testRotationReadFailure() throws Exception {
+        SessionTicketKeyManager manager = new SessionTicketKeyManager(sslHostConfig);
+        manager.init(0);
+        Assert.assertTrue(keyFile.delete());
+
+        // Current keys are retained
+        manager.refresh(REFRESH_NANOS);
+        Assert.assertArrayEquals(createKeys((byte) 1), sslContext.keys);
+        Assert.assertEquals(1, sslContext.updates);
+    }
+
+
+    private static byte[] createKeys(byte value) {
+        byte[] keys = new byte[80];
+        for (int i = 0; i < keys.length; i++) {
+            keys[i] = (byte) (value + i);
+        }
+        return keys;
+    }
+
+
+    private static class TesterSSLContext implements SSLContext {
+
+        private volatile byte[] keys;
+        private volatile byte[] previousKeys;
+        private volatile int updates;
+
+        @Override
+        public boolean setSessionTicketKeys(byte[] keys) {
+            return setSessionTicketKeys(keys, null);
+        }
+
+        @Override
+        public boolean setSessionTicketKeys(byte[] keys, byte[] previousKeys) {
+            this.keys = keys;
+            this.previousKeys = previousKeys;
+            updates++;
+            return true;
+        }
+
+        @Override
+        public void init(KeyManager[] kms, TrustManager[] tms, SecureRandom sr) {
+            // NO-OP
+        }
+
+        @Override
+        public void destroy() {
+            // NO-OP
+        }
+
+        @Override
+        public SSLSessionContext getServerSessionContext() {
+            return null;
+        }
+
+        @Override
+        public SSLEngine createSSLEngine() {
+            return null;
+        }
+
+        @Override
+        public SSLServerSocketFactory getServerSocketFactory() {
+            return null;
+        }
+
+        @Override
+        public SSLParameters getSupportedSSLParameters() {
+            return null;
+        }
+
+        @Override
+        public X509Certificate[] getCertificateChain(String alias) {
+            return null;
+        }
+
+        @Override
+        public X509Certificate[] getAcceptedIssuers() {
+            return null;
+        }
+    }
+}
@@ -0,0 +1,90 @@
+/*
+ *  Licensed to the Apache Software Foundation (ASF) under one or more
+ *  contributor license agreements.  See the NOTICE file distributed with
+ *  this work for additional information regarding copyright ownership.
+ *  The ASF licenses this file to You under the Apache License, Version 2.0
+ *  (the "License"); you may not use this file except in compliance with
+ *  the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package org.apache.tomcat.util.net;
+
+import java.io.File;
+import java.lang.reflect.Field;
+import java.nio.file.Files;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+import org.apache.catalina.connector.Connector;
+import org.apache.catalina.startup.Tomcat;
+import org.apache.catalina.startup.TomcatBaseTest;
+import org.apache.coyote.AbstractProtocol;
+
+/*
+ * The refresh of the session ticket keys is a periodic task so it should only be scheduled for endpoints that have at
+ * least one SSL host configuration with a session ticket key file.
+ */
+public class TestSessionTicketKeyRefresh extends TomcatBaseTest {
+
+    @Test
+    public void testNotScheduledWithoutKeyFile() throws Exception {
+        Tomcat tomcat = getTomcatInstance();
+        TesterSupport.initSsl(tomcat);
+        tomcat.start();
+
+        Assert.assertNull(getSessionTicketKeyFuture(tomcat.getConnector()));
+    }
+
+
+    @Test
+    public void testScheduledWithKeyFile() throws Exception {
+        File keyFile = new File(getTemporaryDirectory(), "ticket.key");
+        Files.write(keyFile.toPath(), new byte[80]);
+        addDeleteOnTearDown(keyFile);
+
+        Tomcat tomcat = getTomcatInstance();
+        TesterSupport.initSsl(tomcat);
+        tomcat.getConnector().findSslHostConfigs()[0].setSessionTicketKeyFile(keyFile.getAbsolutePath());
+        tomcat.start();
+
+        Assert.assertNotNull(getSessionTicketKeyFuture(tomcat.getConnector()));
+
+        tomcat.getConnector().stop();
+        Assert.assertNull(getSessionTicketKeyFuture(tomcat.getConnector()));
+    }
+
+
+    @Test
+    public void testNotScheduledWithRefreshDisabled() throws Exception {
+        File keyFile = new File(getTemporaryDirectory(), "ticket.key");
+        Files.write(keyFile.toPath(), new byte[80]);
+        addDeleteOnTearDown(keyFile);
+
+        Tomcat tomcat = getTomcatInstance();
+        TesterSupport.initSsl(tomcat);
+        SSLHostConfig sslHostConfig = tomcat.getConnector().findSslHostConfigs()[0];
+        sslHostConfig.setSessionTicketKeyFile(keyFile.getAbsolutePath());
+        sslHostConfig.setSessionTicketKeyRefreshInterval(0);
+        tomcat.start();
+
+        Assert.assertNull(getSessionTicketKeyFuture(tomcat.getConnector()));
+    }
+
+
+    private static Object getSessionTicketKeyFuture(Connector connector) throws Exception {
+        Field endpointField = AbstractProtocol.class.getDeclaredField("endpoint");
+        endpointField.setAccessible(true);
+        Object endpoint = endpointField.get(connector.getProtocolHandler());
+        Field futureField = AbstractEndpoint.class.getDeclaredField("sessionTicketKeyFuture");
+        futureField.setAccessible(true);
+        return futureField.get(endpoint);
+    }
+}
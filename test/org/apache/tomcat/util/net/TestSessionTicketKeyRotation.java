@@ -0,0 +1,115 @@
+/*
+ *  Licensed to the Apache Software Foundation (ASF) under one or more
+ *  contributor license agreements.  See the NOTICE file distributed with
+ *  this work for additional information regarding copyright ownership.
+ *  The ASF licenses this file to You under the Apache License, Version 2.0
+ *  (the "License"); you may not use this file except in compliance with
+ *  the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package org.apache.tomcat.util.net;
+
+import java.io.File;
+import java.nio.file.Files;
+import java.util.Arrays;
+
+import javax.net.ssl.HttpsURLConnection;
+import javax.net.ssl.SSLSocketFactory;
+import javax.net.ssl.TrustManager;
+
+import org.junit.Assert;
+import org.junit.Assume;
+import org.junit.Test;
+
+import org.apache.catalina.Context;
+import org.apache.catalina.startup.Tomcat;
+import org.apache.catalina.startup.TomcatBaseTest;
+import org.apache.tomcat.util.net.openssl.OpenSSLStatus;
+
+/*
+ * Only the FFM OpenSSL implementation (with OpenSSL 3.0 or later) retains the previous session ticket keys so it is
+ * the only implementation that can resume sessions across a key rotation.
+ */
+public class TestSessionTicketKeyRotation extends TomcatBaseTest {
+
+    private static final String SSL_IMPLEMENTATION_NAME =
+            "org.apache.tomcat.util.net.openssl.panama.OpenSSLImplementation";
+
+
+    @Test
+    public void testResumptionAcrossRotation() throws Exception {
+        Assume.assumeTrue(TesterSupport.isTlsv13Available());
+
+        File keyFile = new File(getTemporaryDirectory(), "ticket.key");
+        Files.write(keyFile.toPath(), createKeys((byte) 1));
+        addDeleteOnTearDown(keyFile);
+
+        Tomcat tomcat = getTomcatInstance();
+        Context ctx = getProgrammaticRootContext();
+        Tomcat.addServlet(ctx, "hello", new HelloWorldServlet());
+        ctx.addServletMappingDecoded("/", "hello");
+
+        TesterSupport.initSsl(tomcat);
+        TesterSupport.configureSSLImplementation(tomcat, SSL_IMPLEMENTATION_NAME, true);
+        // Each request needs a new connection and therefore a new handshake
+        Assert.assertTrue(tomcat.getConnector().setProperty("maxKeepAliveRequests", "1"));
+        SSLHostConfig sslHostConfig = tomcat.getConnector().findSslHostConfigs()[0];
+        sslHostConfig.setSessionTicketKeyFile(keyFile.getAbsolutePath());
+        // The keys are rotated by the test
+        sslHostConfig.setSessionTicketKeyRefreshInterval(0);
+
+        tomcat.start();
+
+        Assume.assumeTrue(OpenSSLStatus.isOpenSSL3());
+        SSLHostConfigCertificate certificate = sslHostConfig.getCertificates().iterator().next();
+
+        // Both clients obtain a ticket encrypted with the first keys
+        SSLSocketFactory client1 = createClientSocketFactory();
+        SSLSocketFactory client2 = createClientSocketFactory();
+        doRequest(client1);
+        doRequest(client2);
+        long hits = certificate.getSessionHits();
+
+        // The first keys are retained for decryption so the ticket is accepted and replaced
+        certificate.getSslContext().setSessionTicketKeys(createKeys((byte) 2), createKeys((byte) 1));
+        doRequest(client1);
+        Assert.assertEquals(hits + 1, certificate.getSessionHits());
+
+        // The first keys are no longer known so the second client has to perform a full handshake
+        certificate.getSslContext().setSessionTicketKeys(createKeys((byte) 3), createKeys((byte) 2));
+        doRequest(client2);
+        Assert.assertEquals(hits + 1, certificate.getSessionHits());
+
+        // The first client was issued a ticket encrypted with the second keys when it resumed its session
+        doRequest(client1);
+        Assert.assertEquals(hits + 2, certificate.getSessionHits());
+    }
+
+
+    private void doRequest(SSLSocketFactory socketFactory) throws Exception {
+        HttpsURLConnection.setDefaultSSLSocketFactory(socketFactory);
+        Assert.assertTrue(getUrl("https://localhost:" + getPort() + "/").toString().contains("Hello World"));
+    }
+
+
+    private static SSLSocketFactory createClientSocketFactory() throws Exception {
+        // Each client context has its own session cache
+        javax.net.ssl.SSLContext sc = javax.net.ssl.SSLContext.getInstance(Constants.SSL_PROTO_TLSv1_3);
+        sc.init(null, new TrustManager[] { new TesterSupport.TrustAllCerts() }, null);
+        return sc.getSocketFactory();
+    }
+
+
+    private static byte[] createKeys(byte value) {
+        byte[] keys = new byte[80];
+        Arrays.fill(keys, value);
+        return keys;
+    }
+}
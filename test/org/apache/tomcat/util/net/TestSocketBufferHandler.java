@@ -24,11 +24,14 @@ import java.util.Collection;
 import java.util.List;
 
 import org.junit.Assert;
+import org.junit.Assume;
 import org.junit.Test;
 import org.junit.runner.RunWith;
 import org.junit.runners.Parameterized;
 import org.junit.runners.Parameterized.Parameter;
 
+import org.apache.tomcat.util.buf.ByteBufferArena;
+
 
 @RunWith(Parameterized.class)
 public class TestSocketBufferHandler {
@@ -124,6 +127,59 @@ public class TestSocketBufferHandler {
     }
 
 
+    @Test
+    public void testArenaReleaseWhenIdle() {
+        Assume.assumeTrue(direct);
+        ByteBufferArena arena = new ByteBufferArena(-1);
+        SocketBufferHandler sbh = new SocketBufferHandler(8, 8, arena);
+
+        // Nothing is leased until a buffer is required
+        Assert.assertEquals(0, arena.getLeasedBytes());
+        Assert.assertTrue(sbh.isReadBufferEmpty());
+        Assert.assertTrue(sbh.isWriteBufferEmpty());
+        Assert.assertEquals(0, arena.getLeasedBytes());
+
+        sbh.configureReadBufferForWrite();
+        sbh.getReadBuffer().put(getBytes("ABCD"));
+        Assert.assertEquals(ByteBufferArena.MIN_SIZE_CLASS, arena.getLeasedBytes());
+
+        // The read buffer is not empty so it must be retained
+        sbh.release();
+        Assert.assertEquals(ByteBufferArena.MIN_SIZE_CLASS, arena.getLeasedBytes());
+        validate(sbh, "ABCD");
+
+        sbh.release();
+        Assert.assertEquals(0, arena.getLeasedBytes());
+        Assert.assertEquals(ByteBufferArena.MIN_SIZE_CLASS, arena.getPooledBytes());
+
+        // Buffer is leased again when next required
+        sbh.unReadReadBuffer(ByteBuffer.wrap(getBytes("WXYZ")));
+        validate(sbh, "WXYZ");
+        Assert.assertEquals(0, arena.getPooledBytes());
+
+        sbh.free();
+        Assert.assertEquals(0, arena.getLeasedBytes());
+    }
+
+
+    @Test
+    public void testArenaExpand() {
+        Assume.assumeTrue(direct);
+        ByteBufferArena arena = new ByteBufferArena(-1);
+        SocketBufferHandler sbh = new SocketBufferHandler(1024, 1024, arena);
+
+        sbh.configureReadBufferForWrite();
+        sbh.getReadBuffer().put(getBytes("ABCD"));
+
+        sbh.expand(5000);
+        Assert.assertEquals(8192, sbh.getReadBuffer().capacity());
+        validate(sbh, "ABCD");
+
+        // The write buffer was not leased so is leased at the new size
+        Assert.assertEquals(8192, sbh.getWriteBuffer().capacity());
+    }
+
+
     private void validate(SocketBufferHandler sbh, String expected) {
         sbh.configureReadBufferForRead();
         for (byte b : getBytes(expected)) {
@@ -0,0 +1,216 @@
+/*
+ *  Licensed to the Apache Software Foundation (ASF) under one or more
+ *  contributor license agreements.  See the NOTICE file distributed with
+ *  this work for additional information regarding copyright ownership.
+ *  The ASF licenses this file to You under the Apache License, Version 2.0
+ *  (the "License"); you may not use this file except in compliance with
+ *  the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package org.apache.tomcat.util.net;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.CompletionHandler;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+public class TestSocketWrapperBase {
+
+    private static final int WRITE_BUFFER_SIZE = 8192;
+
+
+    @Test
+    public void testNonBlockingWriteLargeDirectBuffer() throws Exception {
+        TesterSocketWrapper wrapper = new TesterSocketWrapper();
+
+        ByteBuffer direct = createDirectBuffer(4 * WRITE_BUFFER_SIZE, 0);
+        wrapper.write(false, direct);
+
+        // Written without being copied into the socket write buffer
+        Assert.assertEquals(List.of(Boolean.TRUE), wrapper.writesDirect);
+        Assert.assertTrue(wrapper.getSocketBufferHandler().isWriteBufferEmpty());
+        Assert.assertFalse(wrapper.hasDataToWrite());
+        validate(wrapper.written.toByteArray(), 0);
+    }
+
+
+    @Test
+    public void testNonBlockingWriteLargeDirectBufferNotFlushed() throws Exception {
+        TesterSocketWrapper wrapper = new TesterSocketWrapper();
+        wrapper.accept = 0;
+
+        // Data already in the socket write buffer that the network does not accept
+        ByteBuffer heap = createHeapBuffer(10, 0);
+        wrapper.write(false, heap);
+        ByteBuffer direct = createDirectBuffer(4 * WRITE_BUFFER_SIZE, 10);
+        wrapper.write(false, direct);
+
+        // The socket write buffer is filled so only the rest is copied into the non-blocking write buffer
+        Assert.assertEquals(0, wrapper.written.size());
+        Assert.assertFalse(direct.hasRemaining());
+        SocketBufferHandler socketBufferHandler = wrapper.getSocketBufferHandler();
+        socketBufferHandler.configureWriteBufferForRead();
+        Assert.assertEquals(WRITE_BUFFER_SIZE, socketBufferHandler.getWriteBuffer().remaining());
+
+        wrapper.flush(true);
+        Assert.assertFalse(wrapper.hasDataToWrite());
+        Assert.assertEquals(10 + 4 * WRITE_BUFFER_SIZE, wrapper.written.size());
+        validate(wrapper.written.toByteArray(), 0);
+    }
+
+
+    private static ByteBuffer createHeapBuffer(int size, int start) {
+        return fill(ByteBuffer.allocate(size), start);
+    }
+
+
+    private static ByteBuffer createDirectBuffer(int size, int start) {
+        return fill(ByteBuffer.allocateDirect(size), start);
+    }
+
+
+    private static ByteBuffer fill(ByteBuffer buffer, int start) {
+        for (int i = 0; i < buffer.capacity(); i++) {
+            buffer.put(i, expected(start + i));
+        }
+        return buffer;
+    }
+
+
+    private static byte expected(int position) {
+        return (byte) (position % 251);
+    }
+
+
+    private static void validate(byte[] data, int start) {
+        for (int i = 0; i < data.length; i++) {
+            Assert.assertEquals("Unexpected byte at position [" + i + "]", expected(start + i), data[i]);
+        }
+    }
+
+
+    /*
+     * Writes to an in-memory network that accepts a limited number of bytes for each non-blocking write.
+     */
+    private static class TesterSocketWrapper extends SocketWrapperBase<NioChannel> {
+
+        private final ByteArrayOutputStream written = new ByteArrayOutputStream();
+        private final List<Boolean> writesDirect = new ArrayList<>();
+        private int accept = Integer.MAX_VALUE;
+
+        TesterSocketWrapper() {
+            super(null, new NioEndpoint());
+            socketBufferHandler = new SocketBufferHandler(WRITE_BUFFER_SIZE, WRITE_BUFFER_SIZE, false);
+        }
+
+        @Override
+        protected void doWrite(boolean block, ByteBuffer from) throws IOException {
+            writesDirect.add(Boolean.valueOf(from.isDirect()));
+            int len = block ? from.remaining() : Math.min(accept, from.remaining());
+            byte[] b = new byte[len];
+            from.get(b);
+            written.write(b);
+        }
+
+        @Override
+        protected boolean flushNonBlocking() throws IOException {
+            throw new UnsupportedOperationException();
+        }
+
+        @Override
+        protected void populateRemoteHost() {
+        }
+
+        @Override
+        protected void populateRemoteAddr() {
+        }
+
+        @Override
+        protected void populateRemotePort() {
+        }
+
+        @Override
+        protected void populateLocalName() {
+        }
+
+        @Override
+        protected void populateLocalAddr() {
+        }
+
+        @Override
+        protected void populateLocalPort() {
+        }
+
+        @Override
+        public int read(boolean block, byte[] b, int off, int len) throws IOException {
+            throw new UnsupportedOperationException();
+        }
+
+        @Override
+        public int read(boolean block, ByteBuffer to) throws IOException {
+            throw new UnsupportedOperationException();
+        }
+
+        @Override
+        public boolean isReadyForRead() throws IOException {
+            return false;
+        }
+
+        @Override
+        public void setAppReadBufHandler(ApplicationBufferHandler handler) {
+        }
+
+        @Override
+        protected void doClose() {
+        }
+
+        @Override
+        public void registerReadInterest() {
+        }
+
+        @Override
+        public void registerWriteInterest() {
+        }
+
+        @Override
+        public SendfileDataBase createSendfileData(String filename, long pos, long length) {
+            throw new UnsupportedOperationException();
+        }
+
+        @Override
+        public SendfileState processSendfile(SendfileDataBase sendfileData) {
+            throw new UnsupportedOperationException();
+        }
+
+        @Override
+        public void doClientAuth(SSLSupport sslSupport) throws IOException {
+        }
+
+        @Override
+        public SSLSupport getSslSupport() {
+            return null;
+        }
+
+        @Override
+        protected <A> OperationState<A> newOperationState(boolean read, ByteBuffer[] buffers, int offset, int length,
+                BlockingMode block, long timeout, TimeUnit unit, A attachment, CompletionCheck check,
+                CompletionHandler<Long,? super A> handler, Semaphore semaphore,
+                VectoredIOCompletionHandler<A> completion) {
+            throw new UnsupportedOperationException();
+        }
+    }
+}
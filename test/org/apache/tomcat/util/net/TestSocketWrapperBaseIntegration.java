@@ -0,0 +1,176 @@
+/*
+ *  Licensed to the Apache Software Foundation (ASF) under one or more
+ *  contributor license agreements.  See the NOTICE file distributed with
+ *  this work for additional information regarding copyright ownership.
+ *  The ASF licenses this file to You under the Apache License, Version 2.0
+ *  (the "License"); you may not use this file except in compliance with
+ *  the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package org.apache.tomcat.util.net;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.HttpURLConnection;
+import java.net.URI;
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+
+import jakarta.servlet.AsyncContext;
+import jakarta.servlet.ServletOutputStream;
+import jakarta.servlet.WriteListener;
+import jakarta.servlet.http.HttpServlet;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+
+import org.junit.Assert;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.junit.runners.Parameterized;
+import org.junit.runners.Parameterized.Parameter;
+
+import org.apache.catalina.Context;
+import org.apache.catalina.Wrapper;
+import org.apache.catalina.startup.Tomcat;
+import org.apache.catalina.startup.TomcatBaseTest;
+
+@RunWith(Parameterized.class)
+public class TestSocketWrapperBaseIntegration extends TomcatBaseTest {
+
+    @Parameterized.Parameters(name = "{0}")
+    public static Collection<Object[]> parameters() {
+        List<Object[]> parameterSets = new ArrayList<>();
+        parameterSets.add(new Object[] { "NIO", Boolean.FALSE });
+        parameterSets.add(new Object[] { "NIO-TLS", Boolean.TRUE });
+        return parameterSets;
+    }
+
+    @Parameter(0)
+    public String connectorName;
+
+    @Parameter(1)
+    public boolean useTls;
+
+
+    @Override
+    protected String getProtocol() {
+        return "org.apache.coyote.http11.Http11NioProtocol";
+    }
+
+
+    /*
+     * Large direct buffers are written without being copied into the socket write buffer. The response uses chunked
+     * encoding so each chunk header is placed in the socket write buffer before the direct buffer with the chunk data
+     * is written. The client is slow to start reading so those writes happen while the network is not accepting data.
+     * The response must arrive intact and in order.
+     */
+    @Test
+    public void testNonBlockingWriteDirectBuffers() throws Exception {
+        Tomcat tomcat = getTomcatInstance();
+        Context ctxt = getProgrammaticRootContext();
+        Wrapper w = Tomcat.addServlet(ctxt, "direct", new DirectBufferServlet());
+        w.setAsyncSupported(true);
+        ctxt.addServletMappingDecoded("/", "direct");
+        if (useTls) {
+            TesterSupport.configureClientSsl();
+            TesterSupport.initSsl(tomcat);
+        }
+        tomcat.start();
+
+        String scheme = useTls ? "https" : "http";
+        HttpURLConnection conn =
+                (HttpURLConnection) new URI(scheme + "://localhost:" + getPort() + "/").toURL().openConnection();
+        conn.setReadTimeout(30000);
+        Assert.assertEquals(HttpServletResponse.SC_OK, conn.getResponseCode());
+
+        // Let the server fill the network buffers
+        Thread.sleep(1000);
+
+        long position = 0;
+        byte[] buf = new byte[8192];
+        try (InputStream is = conn.getInputStream()) {
+            int read;
+            while ((read = is.read(buf)) > 0) {
+                for (int i = 0; i < read; i++) {
+                    if (buf[i] != DirectBufferServlet.expected(position)) {
+                        Assert.fail("Unexpected byte at position [" + position + "]");
+                    }
+                    position++;
+                }
+            }
+        }
+        Assert.assertEquals(DirectBufferServlet.TOTAL, position);
+    }
+
+
+    private static class DirectBufferServlet extends HttpServlet {
+
+        private static final long serialVersionUID = 1L;
+
+        private static final int SMALL = 100;
+        private static final int LARGE = 64 * 1024 + 1;
+        private static final long TOTAL = 1000L * (SMALL + LARGE);
+
+        static byte expected(long position) {
+            return (byte) (position % 251);
+        }
+
+        @Override
+        protected void doGet(HttpServletRequest req, HttpServletResponse resp) throws IOException {
+            resp.setContentType("application/octet-stream");
+            /*
+             * Direct buffers are passed to the socket in slices the size of the response buffer. Make the slices
+             * larger than the socket write buffer, with or without TLS, so they are written directly.
+             */
+            resp.setBufferSize(32 * 1024);
+            AsyncContext ac = req.startAsync();
+            ac.setTimeout(60000);
+            ServletOutputStream os = resp.getOutputStream();
+            os.setWriteListener(new WriteListener() {
+
+                private long position = 0;
+                private boolean small = true;
+
+                @Override
+                public void onWritePossible() throws IOException {
+                    while (os.isReady()) {
+                        if (position == TOTAL) {
+                            ac.complete();
+                            return;
+                        }
+                        if (small) {
+                            byte[] b = new byte[SMALL];
+                            for (int i = 0; i < SMALL; i++) {
+                                b[i] = expected(position + i);
+                            }
+                            os.write(b);
+                            position += SMALL;
+                        } else {
+                            ByteBuffer bb = ByteBuffer.allocateDirect(LARGE);
+                            for (int i = 0; i < LARGE; i++) {
+                                bb.put(i, expected(position + i));
+                            }
+                            os.write(bb);
+                            position += LARGE;
+                        }
+                        small = !small;
+                    }
+                }
+
+                @Override
+                public void onError(Throwable t) {
+                    ac.complete();
+                }
+            });
+        }
+    }
+}
@@ -23,6 +23,7 @@ import java.io.InputStream;
 import java.io.InputStreamReader;
 import java.io.OutputStream;
 import java.io.Reader;
+import java.lang.management.ManagementFactory;
 import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Collection;
@@ -31,6 +32,8 @@ import java.util.List;
 import java.util.concurrent.CountDownLatch;
 import java.util.concurrent.atomic.AtomicInteger;
 
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
 import javax.net.SocketFactory;
 import javax.net.ssl.HandshakeCompletedEvent;
 import javax.net.ssl.HandshakeCompletedListener;
@@ -126,6 +129,33 @@ public class TestSsl extends TomcatBaseTest {
                 TesterSupport.getLastClientAuthRequestedIssuerCount() == 0);
     }
 
+    @Test
+    public void testHandshakeExecutor() throws Exception {
+        TesterSupport.configureClientSsl();
+
+        Tomcat tomcat = getTomcatInstance();
+        TesterSupport.initSsl(tomcat);
+        TesterSupport.configureSSLImplementation(tomcat, sslImplementationName, useOpenSSL);
+        Assert.assertTrue(tomcat.getConnector().setProperty("handshakeThreads", "2"));
+
+        Context ctxt = getProgrammaticRootContext();
+        Tomcat.addServlet(ctxt, "tester", new TesterServlet());
+        ctxt.addServletMappingDecoded("/tester", "tester");
+        tomcat.start();
+
+        ByteChunk res = getUrl("https://localhost:" + getPort() + "/tester");
+        Assert.assertEquals("OK", res.toString());
+
+        MBeanServer mbeanServer = ManagementFactory.getPlatformMBeanServer();
+        ObjectName threadPool = mbeanServer.queryNames(new ObjectName("Tomcat:type=ThreadPool,*"), null).iterator()
+                .next();
+        Assert.assertTrue(((Long) mbeanServer.getAttribute(threadPool, "handshakeCompletedCount")).longValue() > 0);
+        // Each handshake requires at least one step
+        Assert.assertTrue(((Long) mbeanServer.getAttribute(threadPool, "handshakeTaskCount")).longValue() >=
+                ((Long) mbeanServer.getAttribute(threadPool, "handshakeCompletedCount")).longValue());
+        Assert.assertEquals(Long.valueOf(0), mbeanServer.getAttribute(threadPool, "handshakeRejectedCount"));
+    }
+
     private static final int POST_DATA_SIZE = 16 * 1024 * 1024;
     private static final byte[] POST_DATA;
     static {
@@ -28,9 +28,11 @@ import java.nio.channels.SocketChannel;
 import org.junit.Assert;
 import org.junit.Test;
 
+import org.apache.catalina.Context;
 import org.apache.catalina.connector.Connector;
 import org.apache.catalina.startup.Tomcat;
 import org.apache.catalina.startup.TomcatBaseTest;
+import org.apache.tomcat.util.buf.ByteChunk;
 
 /**
  * Test case for the Endpoint implementations. The testing framework will ensure
@@ -115,4 +117,38 @@ public class TestXxxEndpoint extends TomcatBaseTest {
 
         Assert.assertTrue((new String(response.array(), 0, response.position()).startsWith("HTTP/1.1 200")));
     }
+
+    @Test
+    public void testMultiplePollers() throws Exception {
+        Tomcat tomcat = getTomcatInstance();
+        Connector c = tomcat.getConnector();
+
+        if (!c.getProtocolHandlerClassName().contains("NioProtocol")) {
+            // Only the NIO connector supports multiple pollers
+            return;
+        }
+
+        Assert.assertTrue(c.setProperty("pollerThreadCount", "4"));
+
+        // No file system docBase required
+        Context ctx = getProgrammaticRootContext();
+        Tomcat.addServlet(ctx, "helloWorld", new HelloWorldServlet());
+        ctx.addServletMappingDecoded("/", "helloWorld");
+
+        tomcat.start();
+
+        // Each new connection is assigned to the next poller
+        for (int i = 0; i < 8; i++) {
+            ByteChunk res = getUrl("http://localhost:" + getPort() + "/");
+            Assert.assertEquals(HelloWorldServlet.RESPONSE_TEXT, res.toString());
+        }
+
+        int pollerThreads = 0;
+        for (Thread t : Thread.getAllStackTraces().keySet()) {
+            if (t.getName().contains("-Poller-")) {
+                pollerThreads++;
+            }
+        }
+        Assert.assertEquals(4, pollerThreads);
+    }
 }
@@ -0,0 +1,111 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.tomcat.util.threads;
+
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.Assert;
+import org.junit.Test;
+
+public class TestTransferTaskQueue {
+
+    @Test
+    public void testThreadsCreatedBeforeQueueing() throws Exception {
+        TransferTaskQueue queue = new TransferTaskQueue(2);
+        ThreadPoolExecutor executor = new ThreadPoolExecutor(1, 3, 60000, TimeUnit.MILLISECONDS, queue,
+                new TaskThreadFactory("test-", true, Thread.NORM_PRIORITY));
+        queue.setParent(executor);
+
+        CountDownLatch release = new CountDownLatch(1);
+        CountDownLatch done = new CountDownLatch(5);
+        Runnable task = () -> {
+            try {
+                release.await(10, TimeUnit.SECONDS);
+            } catch (InterruptedException e) {
+                // Ignore
+            }
+            done.countDown();
+        };
+
+        try {
+            // The pool should grow to the maximum before any task is queued
+            for (int i = 0; i < 3; i++) {
+                executor.execute(task);
+            }
+            Assert.assertEquals(3, executor.getPoolSize());
+            Assert.assertEquals(0, queue.size());
+
+            // Then tasks are queued up to the capacity of the queue
+            executor.execute(task);
+            executor.execute(task);
+            Assert.assertEquals(2, queue.size());
+            Assert.assertEquals(0, queue.remainingCapacity());
+
+            try {
+                executor.execute(task);
+                Assert.fail();
+            } catch (RejectedExecutionException expected) {
+                // Expected
+            }
+
+            release.countDown();
+            Assert.assertTrue(done.await(10, TimeUnit.SECONDS));
+            Assert.assertEquals(0, queue.size());
+            Assert.assertEquals(2, queue.remainingCapacity());
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+
+    @Test
+    public void testHandOffToIdleThread() throws Exception {
+        TransferTaskQueue queue = new TransferTaskQueue(1);
+        ThreadPoolExecutor executor = new ThreadPoolExecutor(1, 1, 60000, TimeUnit.MILLISECONDS, queue,
+                new TaskThreadFactory("test-", true, Thread.NORM_PRIORITY));
+        queue.setParent(executor);
+        executor.prestartAllCoreThreads();
+
+        try {
+            // Wait for the thread to be waiting for a task
+            int count = 0;
+            while (!queue.hasWaitingConsumer() && count < 100) {
+                Thread.sleep(50);
+                count++;
+            }
+            Assert.assertTrue(queue.hasWaitingConsumer());
+
+            for (int i = 0; i < 10; i++) {
+                CountDownLatch done = new CountDownLatch(1);
+                executor.execute(done::countDown);
+                Assert.assertTrue(done.await(10, TimeUnit.SECONDS));
+                // Allow the thread to return to waiting for a task
+                count = 0;
+                while (!queue.hasWaitingConsumer() && count < 100) {
+                    Thread.sleep(10);
+                    count++;
+                }
+            }
+            Assert.assertEquals(0, queue.size());
+            Assert.assertEquals(1, queue.remainingCapacity());
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+}
@@ -0,0 +1,184 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.tomcat.util.threads;
+
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.Assert;
+import org.junit.Assume;
+import org.junit.Test;
+
+public class TestVirtualThreadExecutor {
+
+    @Test
+    public void testMaxConcurrency() throws Exception {
+        VirtualThreadExecutor executor = new VirtualThreadExecutor("test-virt-", 2);
+
+        CountDownLatch release = new CountDownLatch(1);
+        CountDownLatch done = new CountDownLatch(5);
+        AtomicInteger running = new AtomicInteger();
+        AtomicInteger maxRunning = new AtomicInteger();
+        try {
+            for (int i = 0; i < 5; i++) {
+                executor.execute(() -> {
+                    maxRunning.accumulateAndGet(running.incrementAndGet(), Math::max);
+                    try {
+                        release.await(10, TimeUnit.SECONDS);
+                    } catch (InterruptedException e) {
+                        // Ignore
+                    }
+                    running.decrementAndGet();
+                    done.countDown();
+                });
+            }
+
+            int count = 0;
+            while ((executor.getActiveCount() < 2 || executor.getWaitingCount() < 3) && count < 100) {
+                Thread.sleep(50);
+                count++;
+            }
+            Assert.assertEquals(2, executor.getActiveCount());
+            Assert.assertEquals(3, executor.getWaitingCount());
+
+            release.countDown();
+            Assert.assertTrue(done.await(10, TimeUnit.SECONDS));
+            Assert.assertEquals(2, maxRunning.get());
+
+            count = 0;
+            while (executor.getCompletedTaskCount() < 5 && count < 100) {
+                Thread.sleep(50);
+                count++;
+            }
+            Assert.assertEquals(5, executor.getCompletedTaskCount());
+            Assert.assertEquals(0, executor.getActiveCount());
+        } finally {
+            executor.shutdown();
+        }
+    }
+
+
+    @Test
+    public void testShutdownNowCancelsWaitingTasks() throws Exception {
+        VirtualThreadExecutor executor = new VirtualThreadExecutor("test-virt-", 1);
+
+        CountDownLatch started = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        AtomicInteger executed = new AtomicInteger();
+        try {
+            executor.execute(() -> {
+                executed.incrementAndGet();
+                started.countDown();
+                try {
+                    release.await(10, TimeUnit.SECONDS);
+                } catch (InterruptedException e) {
+                    // Ignore
+                }
+            });
+            Assert.assertTrue(started.await(10, TimeUnit.SECONDS));
+            Runnable waitingTask = () -> executed.incrementAndGet();
+            executor.execute(waitingTask);
+            executor.execute(waitingTask);
+
+            int count = 0;
+            while (executor.getWaitingCount() < 2 && count < 100) {
+                Thread.sleep(50);
+                count++;
+            }
+            Assert.assertEquals(2, executor.getWaitingCount());
+
+            // Waiting tasks must not block shutdown
+            List<Runnable> cancelled = executor.shutdownNow();
+            Assert.assertEquals(List.of(waitingTask, waitingTask), cancelled);
+
+            count = 0;
+            while (executor.getWaitingCount() > 0 && count < 100) {
+                Thread.sleep(50);
+                count++;
+            }
+            Assert.assertEquals(0, executor.getWaitingCount());
+
+            // The cancelled tasks are not executed once a permit is available
+            release.countDown();
+            count = 0;
+            while (executor.getCompletedTaskCount() < 1 && count < 100) {
+                Thread.sleep(50);
+                count++;
+            }
+            Thread.sleep(200);
+            Assert.assertEquals(1, executed.get());
+            Assert.assertEquals(1, executor.getCompletedTaskCount());
+        } finally {
+            release.countDown();
+            executor.shutdown();
+        }
+    }
+
+
+    @Test
+    public void testPinningMonitor() throws Exception {
+        Assume.assumeTrue("JFR not available", VirtualThreadPinningMonitor.isAvailable());
+        // From Java 24 (JEP 491) blocking while holding a monitor no longer pins the carrier thread
+        Assume.assumeTrue("Monitors do not pin virtual threads", Runtime.version().feature() < 24);
+
+        VirtualThreadExecutor executor = new VirtualThreadExecutor("test-pinned-");
+        Object lock = new Object();
+        try (VirtualThreadPinningMonitor monitor = new VirtualThreadPinningMonitor("test-pinned-", 0)) {
+            CountDownLatch done = new CountDownLatch(1);
+            executor.execute(() -> {
+                synchronized (lock) {
+                    try {
+                        Thread.sleep(50);
+                    } catch (InterruptedException e) {
+                        // Ignore
+                    }
+                }
+                done.countDown();
+            });
+            Assert.assertTrue(done.await(10, TimeUnit.SECONDS));
+
+            // Virtual threads with a different name prefix are ignored
+            Thread.ofVirtual().name("other-").start(() -> {
+                synchronized (lock) {
+                    try {
+                        Thread.sleep(50);
+                    } catch (InterruptedException e) {
+                        // Ignore
+                    }
+                }
+            }).join();
+
+            // Events are delivered to the stream in batches
+            int count = 0;
+            while (monitor.getPinnedCount() == 0 && count < 100) {
+                Thread.sleep(100);
+                count++;
+            }
+            Thread.sleep(1500);
+
+            Assert.assertEquals(1, monitor.getPinnedCount());
+            Assert.assertTrue(monitor.getPinnedTime() >= 40);
+            String[] sites = monitor.getPinningSites();
+            Assert.assertEquals(1, sites.length);
+            Assert.assertTrue(sites[0], sites[0].startsWith("1 " + TestVirtualThreadExecutor.class.getName() + "."));
+        } finally {
+            executor.shutdown();
+        }
+    }
+}
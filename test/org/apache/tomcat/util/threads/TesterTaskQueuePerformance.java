@@ -0,0 +1,94 @@
+/*
+ * Licensed to the Apache Software Foundation (ASF) under one or more
+ * contributor license agreements.  See the NOTICE file distributed with
+ * this work for additional information regarding copyright ownership.
+ * The ASF licenses this file to You under the Apache License, Version 2.0
+ * (the "License"); you may not use this file except in compliance with
+ * the License.  You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package org.apache.tomcat.util.threads;
+
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.junit.Test;
+
+/*
+ * Compares the throughput of the ThreadPoolExecutor with each of the task queue implementations when many threads
+ * submit short tasks concurrently.
+ */
+public class TesterTaskQueuePerformance {
+
+    private static final int SUBMITTER_COUNT = 8;
+    private static final int TASKS_PER_SUBMITTER = 500000;
+    private static final int MIN_THREADS = 10;
+    private static final int MAX_THREADS = 50;
+
+    @Test
+    public void testTaskQueue() throws Exception {
+        TaskQueue queue = new TaskQueue();
+        ThreadPoolExecutor executor = createExecutor(queue);
+        queue.setParent(executor);
+        doTest("TaskQueue", executor);
+    }
+
+    @Test
+    public void testTransferTaskQueue() throws Exception {
+        TransferTaskQueue queue = new TransferTaskQueue();
+        ThreadPoolExecutor executor = createExecutor(queue);
+        queue.setParent(executor);
+        doTest("TransferTaskQueue", executor);
+    }
+
+    private ThreadPoolExecutor createExecutor(RetryableQueue<Runnable> queue) {
+        return new ThreadPoolExecutor(MIN_THREADS, MAX_THREADS, 60000, TimeUnit.MILLISECONDS, queue,
+                new TaskThreadFactory("perf-", true, Thread.NORM_PRIORITY));
+    }
+
+    private void doTest(String name, ThreadPoolExecutor executor) throws Exception {
+        // Warm up
+        doRun(executor);
+        long time = doRun(executor);
+        System.out.println(name + ": " + time + "ms, largest pool size " + executor.getLargestPoolSize());
+        executor.shutdownNow();
+        executor.awaitTermination(10, TimeUnit.SECONDS);
+    }
+
+    private long doRun(ThreadPoolExecutor executor) throws InterruptedException {
+        CountDownLatch done = new CountDownLatch(SUBMITTER_COUNT * TASKS_PER_SUBMITTER);
+        AtomicLong sink = new AtomicLong();
+        Runnable task = () -> {
+            sink.incrementAndGet();
+            done.countDown();
+        };
+        Thread[] submitters = new Thread[SUBMITTER_COUNT];
+        for (int i = 0; i < SUBMITTER_COUNT; i++) {
+            submitters[i] = new Thread(() -> {
+                for (int j = 0; j < TASKS_PER_SUBMITTER; j++) {
+                    executor.execute(task);
+                }
+            });
+        }
+
+        long start = System.nanoTime();
+        for (Thread submitter : submitters) {
+            submitter.start();
+        }
+        done.await();
+        long end = System.nanoTime();
+
+        for (Thread submitter : submitters) {
+            submitter.join();
+        }
+        return TimeUnit.NANOSECONDS.toMillis(end - start);
+    }
+}